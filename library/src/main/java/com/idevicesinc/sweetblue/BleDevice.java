@@ -40,6 +40,7 @@ import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.P_Const;
 import com.idevicesinc.sweetblue.utils.Percent;
 import com.idevicesinc.sweetblue.utils.PresentData;
+import com.idevicesinc.sweetblue.utils.StreamingData;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.State.ChangeIntent;
 import com.idevicesinc.sweetblue.utils.TimeEstimator;
@@ -258,7 +259,8 @@ public final class BleDevice extends BleNode
             EMPTY_DATA,
 
             /**
-             * For now only used when giving a negative or zero value to {@link BleDevice#setMtu(int, ReadWriteListener)}.
+             * Used when giving a negative or zero value to {@link BleDevice#setMtu(int, ReadWriteListener)}, or when a
+             * {@link com.idevicesinc.sweetblue.utils.StreamingData} throws an {@link java.io.IOException} partway through a write.
              */
             INVALID_DATA,
 
@@ -273,6 +275,12 @@ public final class BleDevice extends BleNode
              */
             REMOTE_GATT_FAILURE,
 
+            /**
+             * A newer write to the same characteristic took this write's place while it was still waiting in the queue, so this
+             * one was never sent. Only happens with {@link BleNodeConfig#coalesceWrites} or {@link WriteBuilder#setCoalesce(Boolean)}.
+             */
+            SUPERSEDED,
+
             /**
              * Operation took longer than time specified in {@link BleNodeConfig#taskTimeoutRequestFilter} so we cut it loose.
              */
@@ -708,8 +716,24 @@ public final class BleDevice extends BleNode
 
             private final DescriptorFilter m_descriptorFilter;
 
+            /**
+             * Returns <code>true</code> if this read was answered from memory instead of going over the air, because of
+             * {@link BleDeviceConfig#valueCacheFilter}. In that case {@link #time_total()} and {@link #time_ota()} are zero.
+             */
+            public final boolean isFromCache()
+            {
+                return m_fromCache;
+            }
+
+            private final boolean m_fromCache;
+
 
             ReadWriteEvent(BleDevice device, UUID serviceUuid, UUID charUuid, UUID descUuid, DescriptorFilter descFilter, Type type, Target target, byte[] data, Status status, int gattStatus, double totalTime, double transitTime, boolean solicited)
+            {
+                this(device, serviceUuid, charUuid, descUuid, descFilter, type, target, data, status, gattStatus, totalTime, transitTime, solicited, /*fromCache=*/false);
+            }
+
+            ReadWriteEvent(BleDevice device, UUID serviceUuid, UUID charUuid, UUID descUuid, DescriptorFilter descFilter, Type type, Target target, byte[] data, Status status, int gattStatus, double totalTime, double transitTime, boolean solicited, boolean fromCache)
             {
                 this.m_device = device;
                 this.m_serviceUuid = serviceUuid != null ? serviceUuid : NON_APPLICABLE_UUID;
@@ -727,6 +751,7 @@ public final class BleDevice extends BleNode
                 this.m_mtu = device.getMtu();
                 this.m_solicited = solicited;
                 this.m_connectionPriority = device.getConnectionPriority();
+                this.m_fromCache = fromCache;
             }
 
 
@@ -1914,6 +1939,8 @@ public final class BleDevice extends BleNode
     private Boolean m_lastConnectOrDisconnectWasUserExplicit = null;
     private boolean m_lastDisconnectWasBecauseOfBleTurnOff = false;
     private boolean m_underwentPossibleImplicitBondingAttempt = false;
+    private boolean m_discoveringWithKnownLayout = false;
+    private boolean m_discoveringWithGattRefresh = false;
     private Boolean m_hasMtuBug = null;
 
     private BleDeviceConfig m_config = null;
@@ -1927,6 +1954,7 @@ public final class BleDevice extends BleNode
     private final boolean m_isNull;
 
     final P_ReliableWriteManager m_reliableWriteMngr;
+    final P_ValueCache m_valueCache;
 
 
 
@@ -1959,6 +1987,7 @@ public final class BleDevice extends BleNode
             m_dummyDisconnectTask = null;
             m_historicalDataMngr = null;
             m_reliableWriteMngr = null;
+            m_valueCache = new P_ValueCache(this);
             stateTracker().set(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.NULL, true);
         }
         else
@@ -1981,6 +2010,7 @@ public final class BleDevice extends BleNode
             m_dummyDisconnectTask = new P_Task_Disconnect(this, null, /*explicit=*/false, PE_TaskPriority.FOR_EXPLICIT_BONDING_AND_CONNECTING, /*cancellable=*/true);
             m_historicalDataMngr = new P_HistoricalDataManager(this, getMacAddress());
             m_reliableWriteMngr = new P_ReliableWriteManager(this);
+            m_valueCache = new P_ValueCache(this);
             final Object[] bondStates = m_bondMngr.getNativeBondingStateOverrides();
             stateTracker().set(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.UNDISCOVERED, true, BleDeviceState.DISCONNECTED, true, bondStates);
         }
@@ -3197,6 +3227,7 @@ public final class BleDevice extends BleNode
         if (!isNull())
         {
             m_nativeWrapper.setName_override(name);
+            getManager().onDeviceSortKeyChange(this, /*nameChanged=*/true);
 
             final boolean saveToDisk = BleDeviceConfig.bool(conf_device().saveNameChangesToDisk, conf_mngr().saveNameChangesToDisk);
 
@@ -3232,6 +3263,7 @@ public final class BleDevice extends BleNode
     public final void clearName()
     {
         m_nativeWrapper.clearName_override();
+        getManager().onDeviceSortKeyChange(this, /*nameChanged=*/true);
         getManager().m_diskOptionsMngr.clearName(getMacAddress());
     }
 
@@ -4267,6 +4299,45 @@ public final class BleDevice extends BleNode
         return write_internal(builder);
     }
 
+    /**
+     * Overload of {@link #writeStream(UUID, UUID, FutureData, int, StreamWriteListener)} which starts from the beginning of the data.
+     */
+    public final void writeStream(final UUID characteristicUuid, final byte[] data, final StreamWriteListener listener)
+    {
+        final UUID serviceUuid = null;
+
+        writeStream(serviceUuid, characteristicUuid, new PresentData(data), 0, listener);
+    }
+
+    /**
+     * Writes data of any length, like a firmware image, to the given characteristic using {@link Type#WRITE_NO_RESPONSE}, split up into chunks
+     * of {@link #getEffectiveWriteMtuSize()}. The whole stream is one task in the queue, and each chunk is sent as soon as the native stack
+     * has taken the last one, so this is a lot faster than writing chunks one by one. Pass a <code>startOffset</code> other than <code>0</code>
+     * to resume a stream that failed, using {@link StreamWriteListener.StreamWriteEvent#offset()}. The listener gets one event at the end,
+     * which also tells you the throughput. The usual timeout for writes applies to each chunk rather than to the whole stream.
+     * <br><br>
+     * NOTE: There's no flow control beyond what the native stack does, so the remote device has to be able to keep up with data arriving at
+     * full speed. If it can't, see {@link BleNodeConfig#autoStripeWrites} with a normal {@link #write(UUID, byte[], ReadWriteListener)}.
+     */
+    @Advanced
+    public final void writeStream(final UUID serviceUuid, final UUID characteristicUuid, final FutureData data, final int startOffset, final StreamWriteListener listener)
+    {
+        final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(serviceUuid, characteristicUuid, Uuids.INVALID, null, earlyOutData(data), Type.WRITE_NO_RESPONSE, ReadWriteListener.Target.CHARACTERISTIC);
+
+        if (earlyOutResult != null)
+        {
+            postEventAsCallback(listener, new StreamWriteListener.StreamWriteEvent(this, serviceUuid, characteristicUuid, earlyOutResult.status(), earlyOutResult.gattStatus(), startOffset, startOffset, 0, 0, Interval.ZERO));
+
+            return;
+        }
+
+        final BleCharacteristicWrapper characteristic = getServiceManager().getCharacteristic(serviceUuid, characteristicUuid);
+
+        final boolean requiresBonding = m_bondMngr.bondIfNeeded(characteristic.getCharacteristic().getUuid(), BondFilter.CharacteristicEventType.WRITE);
+
+        queue().add(new P_Task_StreamWrite(this, characteristic.getCharacteristic(), data, startOffset, Type.WRITE_NO_RESPONSE, requiresBonding, listener, null, m_txnMngr.getCurrent(), getOverrideReadWritePriority()));
+    }
+
     /**
      * Writes to the device descriptor without a callback.
      *
@@ -4702,6 +4773,18 @@ public final class BleDevice extends BleNode
         clearSharedPreferences();
     }
 
+    /**
+     * Forgets every characteristic value kept because of {@link BleDeviceConfig#valueCacheFilter}, so the next read of each goes over the air.
+     * This already happens by itself on disconnect and when services are discovered again.
+     */
+    @Advanced
+    public final void clearValueCache()
+    {
+        if (isNull()) return;
+
+        m_valueCache.clear();
+    }
+
     /**
      * Clears all {@link HistoricalData} tracked by this device.
      *
@@ -4967,6 +5050,66 @@ public final class BleDevice extends BleNode
         }
     }
 
+    /**
+     * Reads all the given characteristics as one unit in the queue, instead of queueing a separate read for each one like
+     * {@link #read(Iterable, ReadWriteListener)} does. The reads go out back-to-back in the order given, and the {@link ReadManyListener}
+     * is called once at the end with a result for each target. A target that fails doesn't stop the rest from being read. Each result is
+     * still passed on to any {@link ReadWriteListener} given to {@link #setListener_ReadWrite(ReadWriteListener)} or
+     * {@link BleManager#setListener_ReadWrite(ReadWriteListener)}, and logged to historical data, the same as a single read would be.
+     */
+    public final void readMany(final List<ReadTarget> targets, final ReadManyListener listener)
+    {
+        readMany_internal(targets, null, null, listener);
+    }
+
+    /**
+     * Does the work for {@link #readMany(List, ReadManyListener)}. The optional arrays, one slot per target, give each read its own
+     * {@link Type} and {@link ReadWriteListener}, which is how {@link P_PollManager} coalesces polls.
+     */
+    final void readMany_internal(final List<ReadTarget> targets, final Type[] types_nullable, final ReadWriteListener[] listeners_nullable, final ReadManyListener listener)
+    {
+        final long startTime = System.currentTimeMillis();
+        final int count = targets.size();
+        final ReadTarget[] resolvedTargets = new ReadTarget[count];
+        final ReadWriteEvent[] results = new ReadWriteEvent[count];
+        boolean anyToRead = false;
+        boolean requiresBonding = false;
+
+        for (int i = 0; i < count; i++)
+        {
+            final ReadTarget target = targets.get(i);
+            final Type type = types_nullable != null ? types_nullable[i] : Type.READ;
+            final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(target.serviceUuid, target.charUuid, Uuids.INVALID, target.descriptorFilter, P_Const.EMPTY_FUTURE_DATA, type, ReadWriteListener.Target.CHARACTERISTIC);
+
+            resolvedTargets[i] = target;
+
+            if (earlyOutResult != null)
+            {
+                results[i] = earlyOutResult;
+
+                invokeReadWriteCallback(listeners_nullable != null ? listeners_nullable[i] : null, earlyOutResult);
+            }
+            else
+            {
+                // Pin the service down now, like read_internal() does, so the task doesn't have to go looking for it.
+                final BleCharacteristicWrapper characteristic = getServiceManager().getCharacteristic(target.serviceUuid, target.charUuid);
+
+                resolvedTargets[i] = new ReadTarget(characteristic.getCharacteristic().getService().getUuid(), target.charUuid, target.descriptorFilter);
+                requiresBonding |= m_bondMngr.bondIfNeeded(target.charUuid, BondFilter.CharacteristicEventType.READ);
+                anyToRead = true;
+            }
+        }
+
+        if (anyToRead)
+        {
+            queue().add(new P_Task_ReadMany(this, resolvedTargets, types_nullable, listeners_nullable, results, startTime, requiresBonding, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority()));
+        }
+        else if (listener != null)
+        {
+            postEventAsCallback(listener, new ReadManyListener.ReadManyEvent(this, results, Interval.delta(startTime, System.currentTimeMillis())));
+        }
+    }
+
     /**
      * Same as {@link #read(java.util.UUID, BleDevice.ReadWriteListener)} but you can use this
      * if you don't immediately care about the result. The callback will still be posted to {@link BleDevice.ReadWriteListener}
@@ -5136,6 +5279,20 @@ public final class BleDevice extends BleNode
         return notifyState == P_PollManager.E_NotifyState__ENABLING;
     }
 
+    /**
+     * Returns the counters for the buffer that notifications for the given characteristic wait in before they get to listeners, e.g. how
+     * many were dropped because of {@link BleDeviceConfig#notificationOverflowPolicy}, and how long they waited. If
+     * <code>serviceUuid_nullable</code> is <code>null</code>, the first characteristic found with the given {@link UUID} is used.
+     * All counts will be zero if nothing has come in yet for the characteristic.
+     */
+    @Advanced
+    public final @Nullable(Prevalence.NEVER) NotificationBufferStats getNotificationBufferStats(final UUID serviceUuid_nullable, final UUID charUuid)
+    {
+        if (isNull()) return new NotificationBufferStats(0, 0, 0, 0, 0, 0, 0);
+
+        return m_listeners.m_notifyQueue.getStats(serviceUuid_nullable, charUuid);
+    }
+
     /**
      * Overload for {@link #enableNotify(UUID)}.
      */
@@ -5286,6 +5443,37 @@ public final class BleDevice extends BleNode
      * Overload of {@link #enableNotify(UUID, Interval, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
      */
     public final ReadWriteListener.ReadWriteEvent enableNotify(final UUID serviceUuid, final UUID characteristicUuid, final Interval forceReadTimeout, final DescriptorFilter descriptorFilter, final ReadWriteListener listener)
+    {
+        return enableNotify_private(serviceUuid, characteristicUuid, forceReadTimeout, descriptorFilter, listener, null);
+    }
+
+    /**
+     * Overload of {@link #enableNotify(UUID, UUID, NotificationBatchOptions, NotificationBatchListener, ReadWriteListener)} for when you don't
+     * care which service the characteristic is in, and don't need the {@link Type#ENABLING_NOTIFICATION} result.
+     */
+    public final ReadWriteListener.ReadWriteEvent enableNotify(final UUID characteristicUuid, final NotificationBatchOptions options, final NotificationBatchListener batchListener)
+    {
+        return enableNotify(null, characteristicUuid, options, batchListener, null);
+    }
+
+    /**
+     * Same as {@link #enableNotify(UUID, UUID, ReadWriteListener)}, except that notifications are handed to the given {@link NotificationBatchListener}
+     * in batches, as laid out by the given {@link NotificationBatchOptions}, rather than one callback per notification. For high-rate streams this cuts
+     * way down on callbacks, and on thread hops if {@link BleManagerConfig#postCallbacksToMainThread} is <code>true</code>.
+     * <br><br>
+     * The given {@link ReadWriteListener} still gets the {@link Type#ENABLING_NOTIFICATION} result. Notifications that go into a batch are still
+     * logged as historical data, but are <i>not</i> sent to any {@link ReadWriteListener} or {@link NotificationListener}, including the ones from
+     * {@link #setListener_ReadWrite(ReadWriteListener)} and the like. Whatever is batched up is flushed on disconnect, and when notifications
+     * are stopped through {@link #disableNotify(UUID, UUID)} or overloads.
+     */
+    public final ReadWriteListener.ReadWriteEvent enableNotify(final UUID serviceUuid, final UUID characteristicUuid, final NotificationBatchOptions options, final NotificationBatchListener batchListener, final ReadWriteListener listener_nullable)
+    {
+        final P_NotificationBatcher batcher = new P_NotificationBatcher(this, serviceUuid, characteristicUuid, options != null ? options : new NotificationBatchOptions(), batchListener);
+
+        return enableNotify_private(serviceUuid, characteristicUuid, Interval.INFINITE, null, listener_nullable, batcher);
+    }
+
+    private ReadWriteListener.ReadWriteEvent enableNotify_private(final UUID serviceUuid, final UUID characteristicUuid, final Interval forceReadTimeout, final DescriptorFilter descriptorFilter, final ReadWriteListener listener, final P_NotificationBatcher batcher_nullable)
     {
         final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(serviceUuid, characteristicUuid, Uuids.INVALID, descriptorFilter, P_Const.EMPTY_FUTURE_DATA, Type.ENABLING_NOTIFICATION, ReadWriteListener.Target.CHARACTERISTIC);
 
@@ -5351,7 +5539,7 @@ public final class BleDevice extends BleNode
             result = NULL_READWRITE_EVENT();
         }
 
-        m_pollMngr.startPoll(serviceUuid, characteristicUuid, descriptorFilter, forceReadTimeout.secs(), listener, /*trackChanges=*/true, /*usingNotify=*/true);
+        m_pollMngr.startPoll(serviceUuid, characteristicUuid, descriptorFilter, forceReadTimeout.secs(), listener, /*trackChanges=*/true, /*usingNotify=*/true, batcher_nullable);
 
         return result;
     }
@@ -5777,7 +5965,11 @@ public final class BleDevice extends BleNode
 
     final void updateRssi(final int rssi, boolean fromScan)
     {
-        m_rssi = rssi;
+        if (m_rssi != rssi)
+        {
+            m_rssi = rssi;
+            getManager().onDeviceSortKeyChange(this, /*nameChanged=*/false);
+        }
         // If this update is from a scan, it will not call the event from the rssi poll (if running). So we have to manually
         // tell the poll manager that we got an rssi update.
         if (fromScan)
@@ -5863,6 +6055,20 @@ public final class BleDevice extends BleNode
         updateMtu(0);
     }
 
+    /**
+     * Returns how long in seconds until this device next needs {@link #update(double)} to be called, for {@link BleManagerConfig#updateLoopOnDemand}.
+     */
+    final double getTimeUntilNextUpdate()
+    {
+        double soonest = m_pollMngr.getTimeUntilNextUpdate();
+        soonest = Math.min(soonest, m_txnMngr.getTimeUntilNextUpdate());
+        soonest = Math.min(soonest, m_reconnectMngr_longTerm.getTimeUntilNextUpdate());
+        soonest = Math.min(soonest, m_reconnectMngr_shortTerm.getTimeUntilNextUpdate());
+        soonest = Math.min(soonest, m_rssiPollMngr.getTimeUntilNextUpdate());
+
+        return soonest;
+    }
+
     final void update(double timeStep)
     {
         m_timeSinceLastDiscovery += timeStep;
@@ -6144,6 +6350,11 @@ public final class BleDevice extends BleNode
     }
 
     private void getServices(Object... extraFlags)
+    {
+        getServices_private(/*trustKnownLayout=*/true, extraFlags);
+    }
+
+    private void getServices_private(final boolean trustKnownLayout, Object... extraFlags)
     {
         if (!m_nativeWrapper.isNativelyConnected())
         {
@@ -6164,6 +6375,17 @@ public final class BleDevice extends BleNode
                 delay = serviceDelay;
             }
         }
+
+        //--- If we know what the database looks like, Android's cache can answer discovery, so no need to refresh or wait.
+        //--- Layouts are only remembered for devices with Service Changed, which have to say so if their database changes.
+        m_discoveringWithKnownLayout = trustKnownLayout && (gattRefresh || useDelay) && isGattLayoutKnown();
+        if (m_discoveringWithKnownLayout)
+        {
+            gattRefresh = false;
+            useDelay = false;
+        }
+        m_discoveringWithGattRefresh = gattRefresh;
+
         queue().add(new P_Task_DiscoverServices(this, m_taskStateListener, gattRefresh, useDelay, delay));
 
         //--- DRK > We check up top, but check again here cause we might have been disconnected on another thread in the mean time.
@@ -6242,8 +6464,75 @@ public final class BleDevice extends BleNode
         }
     }
 
+    private boolean isGattLayoutKnown()
+    {
+        return BleDeviceConfig.bool(conf_device().cacheGattLayout, conf_mngr().cacheGattLayout) && getManager().m_diskOptionsMngr.loadGattLayout(getMacAddress(), /*hitDisk=*/true) != null;
+    }
+
+    /**
+     * Returns <code>false</code> if services were discovered from Android's cache because the layout was known, but what the cache gave
+     * back isn't that layout, so services need to be discovered again with a real refresh. Layouts are only remembered from discoveries
+     * that followed a real refresh, since hashing Android's cache would just give back whatever we hashed last time.
+     */
+    private boolean onGattLayoutDiscovered()
+    {
+        if (!BleDeviceConfig.bool(conf_device().cacheGattLayout, conf_mngr().cacheGattLayout))  return true;
+
+        final long layout = serviceMngr_device().getLayoutHash();
+
+        if (m_discoveringWithKnownLayout)
+        {
+            //--- This only catches Android's cache itself having changed, for instance because it handled a Service Changed indication
+            //--- while we weren't connected. Changes Android doesn't know about are caught by onServiceChangedIndication().
+            final Long layout_known = getManager().m_diskOptionsMngr.loadGattLayout(getMacAddress(), /*hitDisk=*/true);
+
+            return layout_known != null && layout_known == layout;
+        }
+
+        if (m_discoveringWithGattRefresh)
+        {
+            if (serviceMngr_device().hasServiceChanged())
+            {
+                getManager().m_diskOptionsMngr.saveGattLayout(getMacAddress(), layout, /*hitDisk=*/true);
+            }
+            else
+            {
+                //--- Without Service Changed the device has no way to tell us its database changed, so it always gets refreshed.
+                getManager().m_diskOptionsMngr.clearGattLayout(getMacAddress(), /*hitDisk=*/true);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Called when the device indicates that its gatt database changed. The remembered layout is forgotten so that the next service
+     * discovery does a real refresh.
+     */
+    final void onServiceChangedIndication()
+    {
+        serviceMngr_device().invalidateIndex();
+
+        if (!BleDeviceConfig.bool(conf_device().cacheGattLayout, conf_mngr().cacheGattLayout))  return;
+
+        logger().i("Gatt database of " + getMacAddress() + " changed, so it will be refreshed the next time services are discovered.");
+
+        getManager().m_diskOptionsMngr.clearGattLayout(getMacAddress(), /*hitDisk=*/true);
+    }
+
     final void onServicesDiscovered()
     {
+        if (!onGattLayoutDiscovered())
+        {
+            logger().i("Gatt database of " + getMacAddress() + " changed since it was last discovered, so discovering services again.");
+
+            getServices_private(/*trustKnownLayout=*/false);
+
+            return;
+        }
+
+        serviceMngr_device().prepareIndex();
+
         boolean autoNegotiateMtu = BleDeviceConfig.bool(conf_device().autoNegotiateMtuOnReconnect, conf_mngr().autoNegotiateMtuOnReconnect);
         if (autoNegotiateMtu && m_mtu > BleNodeConfig.DEFAULT_MTU_SIZE)
         {
@@ -6516,6 +6805,9 @@ public final class BleDevice extends BleNode
 
         m_pollMngr.resetNotifyStates();
 
+        serviceMngr_device().invalidateIndex();
+        m_valueCache.clear();
+
 //		if( attemptShortTermReconnect )
         {
             m_nativeWrapper.closeGattIfNeeded(/* disconnectAlso= */false);
@@ -6738,6 +7030,16 @@ public final class BleDevice extends BleNode
         if (descriptorUuid == null || descriptorUuid.equals(Uuids.INVALID))
         {
             final BleCharacteristicWrapper characteristic = getServiceManager().getCharacteristic(serviceUuid, characteristicUuid);
+
+            final ReadWriteEvent cachedResult = readFromCache(characteristic, type, descriptorFilter);
+
+            if (cachedResult != null)
+            {
+                invokeReadWriteCallback(listener, cachedResult);
+
+                return cachedResult;
+            }
+
             final boolean requiresBonding = m_bondMngr.bondIfNeeded(characteristicUuid, BondFilter.CharacteristicEventType.READ);
 
             final P_Task_Read task;
@@ -6767,7 +7069,7 @@ public final class BleDevice extends BleNode
 
     final ReadWriteListener.ReadWriteEvent write_internal(final com.idevicesinc.sweetblue.WriteBuilder wb)
     {
-        final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(wb.serviceUuid, wb.charUuid, wb.descriptorUuid, wb.descriptorFilter, wb.data, Type.WRITE, ReadWriteListener.Target.CHARACTERISTIC);
+        final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(wb.serviceUuid, wb.charUuid, wb.descriptorUuid, wb.descriptorFilter, earlyOutData(wb.data), Type.WRITE, ReadWriteListener.Target.CHARACTERISTIC);
 
         if (earlyOutResult != null)
         {
@@ -6782,7 +7084,14 @@ public final class BleDevice extends BleNode
 
             final boolean requiresBonding = m_bondMngr.bondIfNeeded(characteristic.getCharacteristic().getUuid(), BondFilter.CharacteristicEventType.WRITE);
 
-            addWriteTasks(characteristic.getCharacteristic(), wb.data, requiresBonding, wb.writeType, wb.descriptorFilter, wb.readWriteListener);
+            //--- Every write in a reliable write has to go out, so they're never coalesced.
+            final boolean coalesce = !m_reliableWriteMngr.isActive() && (wb.coalesce != null ? wb.coalesce : BleNodeConfig.bool(conf_device().coalesceWrites, conf_mngr().coalesceWrites));
+
+            //--- Done here on the caller's thread, as the task may only make it into the queue later if it gets posted to the update thread,
+            //--- and a read in the meantime shouldn't be answered with what's about to be overwritten.
+            m_valueCache.onWrite(characteristic.getCharacteristic().getService().getUuid(), characteristic.getCharacteristic().getUuid());
+
+            addWriteTasks(characteristic.getCharacteristic(), wb.data, requiresBonding, wb.writeType, wb.descriptorFilter, coalesce, wb.readWriteListener);
         }
         else
         {
@@ -6795,6 +7104,30 @@ public final class BleDevice extends BleNode
         return NULL_READWRITE_EVENT();
     }
 
+    //--- Only plain reads are answered from the cache. Polls are meant to go over the air, and a write still in the queue means the cached value
+    //--- is about to be out of date.
+    private ReadWriteEvent readFromCache(final BleCharacteristicWrapper characteristic, final Type type, final DescriptorFilter descriptorFilter)
+    {
+        if (type != Type.READ || descriptorFilter != null || characteristic.isNull())  return null;
+
+        if (queue().isCurrent(P_Task_Write.class, this) || queue().isInQueue(P_Task_Write.class, this))  return null;
+        if (queue().isCurrent(P_Task_StreamWrite.class, this) || queue().isInQueue(P_Task_StreamWrite.class, this))  return null;
+
+        final BluetoothGattCharacteristic char_native = characteristic.getCharacteristic();
+        final UUID serviceUuid = char_native.getService().getUuid();
+        final byte[] data = m_valueCache.get(serviceUuid, char_native.getUuid());
+
+        if (data == null)  return null;
+
+        return new ReadWriteEvent(this, serviceUuid, char_native.getUuid(), null, null, type, ReadWriteListener.Target.CHARACTERISTIC, data, ReadWriteListener.Status.SUCCESS, BleStatuses.GATT_SUCCESS, 0.0, 0.0, /*solicited=*/true, /*fromCache=*/true);
+    }
+
+    //--- Early-out events only use the data to hand it back on failure, and pulling it out of a StreamingData for that would use it up.
+    private static FutureData earlyOutData(final FutureData data)
+    {
+        return data instanceof StreamingData ? P_Const.EMPTY_FUTURE_DATA : data;
+    }
+
     private void addWriteDescriptorTasks(BluetoothGattDescriptor descriptor, FutureData data, boolean requiresBonding, ReadWriteListener listener)
     {
         int mtuSize = getEffectiveWriteMtuSize();
@@ -6809,10 +7142,10 @@ public final class BleDevice extends BleNode
         }
     }
 
-    private void addWriteTasks(BluetoothGattCharacteristic characteristic, FutureData data, boolean requiresBonding, Type writeType, DescriptorFilter filter, ReadWriteListener listener)
+    private void addWriteTasks(BluetoothGattCharacteristic characteristic, FutureData data, boolean requiresBonding, Type writeType, DescriptorFilter filter, boolean coalesce, ReadWriteListener listener)
     {
         int mtuSize = getEffectiveWriteMtuSize();
-        if (!conf_device().autoStripeWrites || data.getData().length <= mtuSize)
+        if (!conf_device().autoStripeWrites || !(data instanceof StreamingData) && data.getData().length <= mtuSize)
         {
             final P_Task_Write task_write;
             if (filter == null)
@@ -6823,8 +7156,13 @@ public final class BleDevice extends BleNode
             {
                 task_write = new P_Task_Write(this, characteristic.getService().getUuid(), characteristic.getUuid(), filter, data, requiresBonding, writeType, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority());
             }
+            task_write.setCoalesce(coalesce);
             queue().add(task_write);
         }
+        else if (filter == null)
+        {
+            queue().add(new P_Task_StreamWrite(this, characteristic, data, 0, writeType, requiresBonding, null, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority()));
+        }
         else
         {
             P_StripedWriteTransaction stripedTxn = new P_StripedWriteTransaction(data, characteristic, requiresBonding, filter, writeType, listener);
@@ -6893,7 +7231,20 @@ public final class BleDevice extends BleNode
 
     final void invokeReadWriteCallback(final ReadWriteListener listener_nullable, final ReadWriteListener.ReadWriteEvent event)
     {
-        if (event.wasSuccess() && event.isRead() && event.target() == ReadWriteListener.Target.CHARACTERISTIC)
+        if (event.wasSuccess() && !event.isFromCache() && event.target() == ReadWriteListener.Target.CHARACTERISTIC)
+        {
+            //--- A write's event may only carry one stripe of what was written, so it just makes the next read go over the air.
+            if (event.type() == Type.READ || event.type() == Type.POLL)
+            {
+                m_valueCache.onValue(event.serviceUuid(), event.charUuid(), event.data());
+            }
+            else if (event.isWrite())
+            {
+                m_valueCache.onWrite(event.serviceUuid(), event.charUuid());
+            }
+        }
+
+        if (event.wasSuccess() && event.isRead() && !event.isFromCache() && event.target() == ReadWriteListener.Target.CHARACTERISTIC)
         {
             final EpochTime timestamp = new EpochTime();
             final BleNodeConfig.HistoricalDataLogFilter.Source source = event.type().toHistoricalDataSource();
@@ -6933,6 +7284,18 @@ public final class BleDevice extends BleNode
         m_txnMngr.onReadWriteResultCallbacksCalled();
     }
 
+    /**
+     * Does the bookkeeping {@link #invokeReadWriteCallback(ReadWriteListener, ReadWriteEvent)} would for a notification that's going into
+     * a {@link NotificationBatchListener.NotificationBatchEvent} instead.
+     */
+    final void onBatchedNotification(final UUID charUuid, final Type type, final byte[] value_nullable, final long timestamp)
+    {
+        if (value_nullable != null && value_nullable.length > 0)
+        {
+            m_historicalDataMngr.add_single(charUuid, value_nullable, new EpochTime(timestamp), type.toHistoricalDataSource());
+        }
+    }
+
     private NotificationListener.NotificationEvent fromReadWriteEvent(ReadWriteEvent event)
     {
         NotificationListener.Type type;
@@ -55,6 +55,21 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	 * Default value for {@link #rssiAutoPollRate}.
 	 */
 	public static final double DEFAULT_RSSI_AUTO_POLL_RATE		= 10.0;
+
+	/**
+	 * Default value for {@link #rssiAdaptivePollRate_fastest}.
+	 */
+	public static final double DEFAULT_RSSI_ADAPTIVE_POLL_RATE_FASTEST	= 1.0;
+
+	/**
+	 * Default value for {@link #rssiAdaptivePollRate_slowest}.
+	 */
+	public static final double DEFAULT_RSSI_ADAPTIVE_POLL_RATE_SLOWEST	= 30.0;
+
+	/**
+	 * Default value for {@link #rssiAdaptivePollThreshold}.
+	 */
+	public static final int DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD		= 4;
 	
 	/**
 	 * Default fallback value for {@link #rssi_min}.
@@ -92,6 +107,11 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	 */
 	public static final int DEFAULT_MAX_BOND_RETRIES = 3;
 
+	/**
+	 * Default value for {@link #notificationBufferSize}, meaning no limit.
+	 */
+	public static final int DEFAULT_NOTIFICATION_BUFFER_SIZE	= 0;
+
 
 
 	/**
@@ -311,6 +331,55 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	 */
 	public RefreshOption gattRefreshOption						= RefreshOption.BEFORE_SERVICE_DISCOVERY;
 
+	/**
+	 * Default is <code>false</code> - whether SweetBlue should remember the layout of each device's gatt database (its services,
+	 * characteristics, and descriptors) on disk. Android doesn't let you use a device's characteristics without discovering services first,
+	 * but for a device whose layout is known, discovery can be answered from Android's own cache, so when this is <code>true</code> and the
+	 * layout is known, {@link #useGattRefresh} and {@link #serviceDiscoveryDelay} are skipped for service discovery. Layouts are only
+	 * remembered after a discovery that did a real refresh, and only for devices with the Service Changed characteristic, since those have
+	 * to indicate when their database changes. If Android's cache gives back a different layout than the remembered one, services are
+	 * discovered again the way they would have been without this option. If you enable notifications on Service Changed
+	 * ({@link com.idevicesinc.sweetblue.utils.Uuids#SERVICE_CHANGED}), an indication also forgets the remembered layout, so the next
+	 * discovery refreshes.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Boolean cacheGattLayout								= false;
+
+	/**
+	 * Default is {@link #DEFAULT_NOTIFICATION_BUFFER_SIZE} - The number of notifications (or indications) per characteristic that can be waiting
+	 * between the native callback and SweetBlue's update thread. A value less than <code>1</code> means no limit, so by default nothing is ever
+	 * dropped. If notifications can come in faster than they're handled, for instance because listeners are slow, set this to keep memory
+	 * from growing without limit, and pick what happens when it's full with {@link #notificationOverflowPolicy}.
+	 *
+	 * @see BleDevice#getNotificationBufferStats(UUID, UUID)
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer notificationBufferSize						= DEFAULT_NOTIFICATION_BUFFER_SIZE;
+
+	/**
+	 * Default is {@link NotificationOverflowPolicy#DROP_OLDEST} - What to do with an incoming notification when the buffer sized by
+	 * {@link #notificationBufferSize} is full for its characteristic. Has no effect unless you've set a limit there.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public NotificationOverflowPolicy notificationOverflowPolicy	= NotificationOverflowPolicy.DROP_OLDEST;
+
+	/**
+	 * Default is <code>null</code> - Set this to let SweetBlue keep characteristic values in memory, so that a {@link BleDevice#read(UUID, BleDevice.ReadWriteListener)}
+	 * (or overload) of a value that's still fresh is answered right away instead of going over the air. The filter decides, per characteristic,
+	 * whether and for how long a value is kept; see {@link ValueCacheFilter.Please}. Values come from successful reads and from notifications,
+	 * and a write to a characteristic throws out its value. Everything is forgotten when the device disconnects or its services are discovered again. Polls (see
+	 * {@link BleDevice#startPoll(UUID, Interval, BleDevice.ReadWriteListener)}) always go over the air.
+	 *
+	 * @see BleDevice.ReadWriteListener.ReadWriteEvent#isFromCache()
+	 * @see BleDevice#clearValueCache()
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public ValueCacheFilter valueCacheFilter					= null;
+
 
 	/**
 	 * Default is <code>null</code> - whether SweetBlue should retry a connect <i>after</i> successfully connecting via
@@ -394,6 +463,37 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	@Nullable(Prevalence.NORMAL)
 	public Interval rssiAutoPollRate							= Interval.secs(DEFAULT_RSSI_AUTO_POLL_RATE);
 
+	/**
+	 * Default is <code>false</code> - If <code>true</code>, RSSI polls (see {@link BleDevice#startRssiPoll(Interval, ReadWriteListener)} and
+	 * {@link #rssiAutoPollRate}) change their rate to follow the signal instead of polling at a fixed rate. Readings are run through a
+	 * {@link RssiSmoother}, and while its {@link RssiSmoother#getDeviation()} stays under {@link #rssiAdaptivePollThreshold} the time between
+	 * polls grows a step at a time, up to {@link #rssiAdaptivePollRate_slowest}. As soon as it goes over, polls go back to
+	 * {@link #rssiAdaptivePollRate_fastest}. The poll's own rate is where it starts. This cuts down on the queue and radio time taken by RSSI
+	 * polling for devices that aren't moving, while still catching proximity changes quickly.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Boolean rssiAdaptivePolling							= false;
+
+	/**
+	 * Default is {@link #DEFAULT_RSSI_ADAPTIVE_POLL_RATE_FASTEST} - The shortest time between RSSI polls when {@link #rssiAdaptivePolling} is on.
+	 */
+	@Nullable(Prevalence.NORMAL)
+	public Interval rssiAdaptivePollRate_fastest				= Interval.secs(DEFAULT_RSSI_ADAPTIVE_POLL_RATE_FASTEST);
+
+	/**
+	 * Default is {@link #DEFAULT_RSSI_ADAPTIVE_POLL_RATE_SLOWEST} - The longest time between RSSI polls when {@link #rssiAdaptivePolling} is on.
+	 */
+	@Nullable(Prevalence.NORMAL)
+	public Interval rssiAdaptivePollRate_slowest				= Interval.secs(DEFAULT_RSSI_ADAPTIVE_POLL_RATE_SLOWEST);
+
+	/**
+	 * Default is {@link #DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD} - How far, in dBm, the smoothed deviation of RSSI readings can get before
+	 * {@link #rssiAdaptivePolling} treats the signal as changing. Raise this for noisy environments where the signal jitters even when nothing moves.
+	 */
+	@Nullable(Prevalence.NORMAL)
+	public Integer rssiAdaptivePollThreshold					= DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD;
+
 	/**
 	 * Default is {@link #DEFAULT_RUNNING_AVERAGE_N} - The number of historical write times that the library should keep track of when calculating average time.
 	 * 
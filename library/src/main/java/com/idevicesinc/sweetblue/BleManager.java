@@ -787,6 +787,7 @@ public final class BleManager
 	private P_PostManager m_postManager;
 	private P_ScanManager m_scanManager;
 	private final P_TaskQueue m_taskQueue;
+		final P_PollWheel m_pollWheel;
 	private 	P_UhOhThrottler m_uhOhThrottler;
 				P_WakeLockManager m_wakeLockMngr;
 
@@ -819,6 +820,7 @@ public final class BleManager
 //    final P_ServerManager m_serverMngr;
 
 	final Backend_HistoricalDatabase m_historicalDatabase;
+	final P_HistoricalDataWriter m_historicalDataWriter;
 
 	BleServer m_server = null;
 
@@ -846,6 +848,7 @@ public final class BleManager
 		initLogger(this);
 		m_scanManager = new P_ScanManager(this);
 		m_historicalDatabase = PU_HistoricalData.newDatabase(context, this);
+		m_historicalDataWriter = new P_HistoricalDataWriter(this);
 		m_diskOptionsMngr = new P_DiskOptionsManager(m_context);
 		m_filterMngr = new P_ScanFilterManager(this, m_config.defaultScanFilter);
 		if (m_config.nativeManagerLayer.isManagerNull())
@@ -863,6 +866,7 @@ public final class BleManager
 		m_nativeStateTracker = new P_NativeBleStateTracker(this);
 		m_nativeStateTracker.append(nativeState, E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 		m_taskQueue = new P_TaskQueue(this);
+		m_pollWheel = new P_PollWheel();
 		m_crashResolver = new P_BluetoothCrashResolver(m_context);
 		m_deviceMngr = new P_DeviceManager(this);
 //		m_serverMngr = new P_ServerManager(this);
@@ -1181,6 +1185,23 @@ public final class BleManager
 		m_historicalDataLoadListener = listener_nullable;
 	}
 
+	/**
+	 * Commits any historical data still queued because of {@link BleManagerConfig#historicalDataWriteAsync}, returning once the
+	 * backend has it. Does nothing if nothing is queued.
+	 */
+	public final void flushHistoricalData()
+	{
+		m_historicalDataWriter.flush();
+	}
+
+	/**
+	 * Returns the counters kept for historical data writes queued because of {@link BleManagerConfig#historicalDataWriteAsync}.
+	 */
+	public final @Nullable(Prevalence.NEVER) HistoricalDataWriterStats getHistoricalDataWriterStats()
+	{
+		return m_historicalDataWriter.getStats();
+	}
+
 	/**
 	 * Set a listener here to be notified whenever we encounter an {@link UhOh}.
 	 */
@@ -2062,6 +2083,36 @@ public final class BleManager
 		return isAny(SCANNING, SCANNING_PAUSED, BOOST_SCANNING, STARTING_SCAN);
 	}
 
+	/**
+	 * Returns the total number of scan results received from the native stack since this {@link BleManager} was created (or since
+	 * the buffer was re-allocated due to a change of {@link BleManagerConfig#scanResultBufferSize}).
+	 */
+	@Advanced
+	public final long getScanResultCount()
+	{
+		return m_scanManager.getScanResultCount();
+	}
+
+	/**
+	 * Returns how many of the results counted by {@link #getScanResultCount()} replaced a result for the same device that was still waiting
+	 * to be processed, rather than taking up a new spot in the buffer.
+	 */
+	@Advanced
+	public final long getCoalescedScanResultCount()
+	{
+		return m_scanManager.getCoalescedScanResultCount();
+	}
+
+	/**
+	 * Returns how many of the results counted by {@link #getScanResultCount()} were thrown away because the buffer was full, as decided by
+	 * {@link BleManagerConfig#scanResultOverflowPolicy}. If this keeps growing, consider raising {@link BleManagerConfig#scanResultBufferSize}.
+	 */
+	@Advanced
+	public final long getDroppedScanResultCount()
+	{
+		return m_scanManager.getDroppedScanResultCount();
+	}
+
 	/**
 	 * Returns <code>true</code> if location is enabled to a degree that allows scanning on {@link android.os.Build.VERSION_CODES#M} and above.
 	 * If this returns <code>false</code> it means you're on Android M and you either (A) do not have {@link android.Manifest.permission#ACCESS_COARSE_LOCATION}
@@ -2159,6 +2210,8 @@ public final class BleManager
 		m_timeForegrounded = 0.0;
 
 		m_scanManager.onResume();
+
+		wakeUpdateLoop();
 	}
 
 	/**
@@ -2200,6 +2253,7 @@ public final class BleManager
 		m_updateRunnable.m_shutdown = true;
 		m_postManager.removeUpdateCallbacks(m_updateRunnable);
 		m_postManager.quit();
+		m_historicalDataWriter.stop();
 		m_wakeLockMngr.clear();
 		m_listeners.onDestroy();
 		s_instance = null;
@@ -2316,17 +2370,7 @@ public final class BleManager
 	 */
 	public final @Nullable(Prevalence.NEVER) BleDevice getDevice(BleDeviceState state)
 	{
-		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
-		{
-			BleDevice device = m_deviceMngr.get(i);
-
-			if( device.is(state) )
-			{
-				return device;
-			}
-		}
-
-		return BleDevice.NULL;
+		return m_deviceMngr.getDevice(state.bit());
 	}
 
 	/**
@@ -2351,17 +2395,7 @@ public final class BleManager
 	 */
 	public final @Nullable(Prevalence.NEVER) BleDevice getDevice(Object ... query)
 	{
-		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
-		{
-			BleDevice device = m_deviceMngr.get(i);
-
-			if( device.is(query) )
-			{
-				return device;
-			}
-		}
-
-		return BleDevice.NULL;
+		return m_deviceMngr.getDevice(query);
 	}
 
 	/**
@@ -2480,7 +2514,7 @@ public final class BleManager
 	 */
 	public final @Nullable(Prevalence.NEVER) BleDeviceIterator getDevices_sorted()
 	{
-		return new BleDeviceIterator(getDevices_List_sorted());
+		return new BleDeviceIterator(m_deviceMngr.getList_sorted());
 	}
 
 	/**
@@ -2496,7 +2530,7 @@ public final class BleManager
 	 */
 	public final @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List_sorted()
 	{
-		return (List<BleDevice>) m_deviceMngr.getList_sorted().clone();
+		return new ArrayList<>(m_deviceMngr.getList_sorted());
 	}
 
 	/**
@@ -2995,6 +3029,18 @@ public final class BleManager
 	final P_NativeBleStateTracker	getNativeStateTracker(){		return m_nativeStateTracker;							}
 	final P_BluetoothCrashResolver	getCrashResolver(){				return m_crashResolver;									}
 	final P_TaskQueue				getTaskQueue(){					return m_taskQueue;										}
+	final P_ScanFilterManager		getFilterManager(){				return m_filterMngr;									}
+
+	final void onDeviceStateChange(final BleDevice device, final int oldStateBits, final int newStateBits)
+	{
+		m_deviceMngr.onStateChange(device, oldStateBits, newStateBits);
+		m_deviceMngr_cache.onStateChange(device, oldStateBits, newStateBits);
+	}
+
+	final void onDeviceSortKeyChange(final BleDevice device, final boolean nameChanged)
+	{
+		m_deviceMngr.onSortKeyChange(device, nameChanged);
+	}
 	final P_Logger					getLogger(){					return m_logger;										}
 	final long 						timeTurnedOn(){					return m_timeTurnedOn;									}
 	final double 					timeForegrounded(){				return m_timeForegrounded;								}
@@ -3138,7 +3184,7 @@ public final class BleManager
 
 				final boolean hitDisk = BleDeviceConfig.boolOrDefault(m_config.manageLastDisconnectOnDisk);
 				final State.ChangeIntent lastDisconnectIntent = m_diskOptionsMngr.loadLastDisconnect(macAddress, hitDisk);
-				scanEvent_nullable = m_filterMngr.makeEvent() ? ScanFilter.ScanEvent.fromScanRecord(entry.device().getNativeDevice(), rawDeviceName, normalizedDeviceName, entry.rssi(), lastDisconnectIntent, entry.record()) : null;
+				scanEvent_nullable = m_filterMngr.makeEvent() ? ScanFilter.ScanEvent.fromScanRecord(entry.device().getNativeDevice(), rawDeviceName, normalizedDeviceName, entry.rssi(), lastDisconnectIntent, entry.recordView()) : null;
 
 				please = m_filterMngr.allow(m_logger, scanEvent_nullable);
 
@@ -3429,8 +3475,57 @@ public final class BleManager
 			getPostManager().removeUpdateCallbacks(m_updateRunnable);
 			m_updateRunnable.setUpdateRate(m_config.autoUpdateRate.millis());
 			m_stateTracker.update(E_Intent.INTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, IDLE, false);
+			m_updateRunnable.m_nextUpdateTime = 0;
 			getPostManager().postToUpdateThread(m_updateRunnable);
 		}
+		else
+		{
+			wakeUpdateLoop();
+		}
+	}
+
+	/**
+	 * Only applicable when {@link BleManagerConfig#updateLoopOnDemand} is <code>true</code>. If the update loop is sleeping until some later
+	 * deadline (or indefinitely), this makes it tick right away, so that whatever just happened gets processed without delay.
+	 */
+	final void wakeUpdateLoop()
+	{
+		if (!m_config.updateLoopOnDemand || m_updateRunnable == null || m_updateRunnable.m_shutdown || Interval.isDisabled(m_config.autoUpdateRate))
+		{
+			return;
+		}
+
+		if (m_updateRunnable.m_nextUpdateTime > System.currentTimeMillis() + m_config.autoUpdateRate.millis())
+		{
+			m_updateRunnable.m_nextUpdateTime = 0;
+			getPostManager().removeUpdateCallbacks(m_updateRunnable);
+			getPostManager().postToUpdateThread(m_updateRunnable);
+		}
+	}
+
+	/**
+	 * Returns how long in milliseconds the update loop can sleep before it next needs to tick, or -1 if nothing needs it until woken up
+	 * by {@link #wakeUpdateLoop()}.
+	 */
+	private long getNextUpdateDelay(final long defaultRate)
+	{
+		if (!m_config.updateLoopOnDemand || m_config.updateLoopCallback != null)
+		{
+			return defaultRate;
+		}
+
+		double soonest = m_taskQueue.getTimeUntilNextUpdate();
+		soonest = Math.min(soonest, m_listeners.getTimeUntilNextUpdate());
+		soonest = Math.min(soonest, m_scanManager.getTimeUntilNextUpdate());
+		soonest = Math.min(soonest, m_deviceMngr.getTimeUntilNextUpdate());
+		soonest = Math.min(soonest, m_pollWheel.getTimeUntilNextUpdate());
+
+		if (soonest == Interval.INFINITE.secs())
+		{
+			return -1;
+		}
+
+		return Math.max(m_config.autoUpdateRate.millis(), (long) Math.ceil(soonest * 1000.0));
 	}
 
 	/**
@@ -3467,6 +3562,7 @@ public final class BleManager
 		}
 
 		m_deviceMngr.update(timeStep_seconds);
+		m_pollWheel.update(timeStep_seconds);
 
 		if ( m_timeTurnedOn == 0 && is(ON) )
 		{
@@ -3606,6 +3702,9 @@ public final class BleManager
 		private Long m_lastAutoUpdateTime;
 		private long m_autoUpdateRate = -1;
 		private boolean m_shutdown = false;
+		// When the next tick is scheduled for, only tracked with BleManagerConfig#updateLoopOnDemand. Long.MAX_VALUE means it's
+		// waiting to be woken up.
+		private volatile long m_nextUpdateTime = 0;
 
 
 		public UpdateRunnable(long updateRate)
@@ -3648,7 +3747,17 @@ public final class BleManager
 
 			if (!m_shutdown)
 			{
-				m_postManager.postToUpdateThreadDelayed(this, m_autoUpdateRate);
+				final long delay = getNextUpdateDelay(m_autoUpdateRate);
+
+				if (delay >= 0)
+				{
+					m_nextUpdateTime = currentTime + delay;
+					m_postManager.postToUpdateThreadDelayed(this, delay);
+				}
+				else
+				{
+					m_nextUpdateTime = Long.MAX_VALUE;
+				}
 			}
 		}
 	}
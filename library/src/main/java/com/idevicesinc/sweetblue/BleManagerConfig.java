@@ -4,7 +4,6 @@ package com.idevicesinc.sweetblue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -18,11 +17,10 @@ import com.idevicesinc.sweetblue.annotations.Extendable;
 import com.idevicesinc.sweetblue.annotations.Immutable;
 import com.idevicesinc.sweetblue.annotations.Nullable;
 import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
-import com.idevicesinc.sweetblue.utils.BleScanInfo;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.P_Const;
-import com.idevicesinc.sweetblue.utils.Pointer;
 import com.idevicesinc.sweetblue.utils.ReflectionUuidNameMap;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils;
@@ -95,6 +93,26 @@ public class BleManagerConfig extends BleDeviceConfig
 	 * Default value for {@link #defaultStatePollRate}
 	 */
 	public static final double DEFAULT_MANAGER_STATE_POLL_RATE			= .1;
+
+	/**
+	 * Default value for {@link #scanResultBufferSize}.
+	 */
+	public static final int DEFAULT_SCAN_RESULT_BUFFER_SIZE				= 256;
+
+	/**
+	 * Default value for {@link #historicalDataQueueSize}.
+	 */
+	public static final int DEFAULT_HISTORICAL_DATA_QUEUE_SIZE			= 1024;
+
+	/**
+	 * Default value for {@link #historicalDataBatchSize}.
+	 */
+	public static final int DEFAULT_HISTORICAL_DATA_BATCH_SIZE			= 64;
+
+	/**
+	 * Default value for {@link #historicalDataBatchTime}.
+	 */
+	public static final double DEFAULT_HISTORICAL_DATA_BATCH_TIME		= 0.5;
 	
 	static final BleManagerConfig NULL = new BleManagerConfigNull();
 
@@ -380,6 +398,27 @@ public class BleManagerConfig extends BleDeviceConfig
 	@Advanced
 	public Interval delayBetweenTasks						= Interval.DISABLED;
 
+	/**
+	 * Default is {@link BleTaskScheduling#FIFO} - This determines how the next task to execute is chosen when multiple devices or servers
+	 * have tasks of the same priority queued up. Set this to {@link BleTaskScheduling#ROUND_ROBIN} if you manage many concurrent connections,
+	 * so that one busy device doesn't starve the others. See {@link BleTaskScheduling} for more details.
+	 */
+	@Advanced
+	public BleTaskScheduling taskScheduling					= BleTaskScheduling.FIFO;
+
+	/**
+	 * Default is <code>false</code> - If set to <code>true</code>, the internal update loop no longer ticks at a fixed {@link #autoUpdateRate}
+	 * (or {@link #idleUpdateRate}) when there's nothing to do. Instead, each part of the library reports when it next needs to be updated (task
+	 * timeouts, {@link BleDevice#startPoll(java.util.UUID, Interval, BleDevice.ReadWriteListener)} intervals, reconnect delays, RSSI polling, scanning, etc.),
+	 * and the loop sleeps until the earliest of those, or until something new happens like a task being queued. While there's
+	 * active work, the loop still ticks at {@link #autoUpdateRate}.
+	 * <br><br>
+	 * NOTE: Native state polling ({@link #defaultStatePollRate}), any auto scan option like {@link #autoScanActiveTime}, and {@link #updateLoopCallback}
+	 * all need regular ticks, so set those accordingly to get the most out of this option.
+	 */
+	@Advanced
+	public boolean updateLoopOnDemand						= false;
+
 	/**
 	 * Default is <code>false</code><br></br>
 	 * <br></br>
@@ -407,6 +446,90 @@ public class BleManagerConfig extends BleDeviceConfig
 	@Nullable(Prevalence.RARE)
 	public Interval scanReportDelay							= Interval.secs(DEFAULT_SCAN_REPORT_DELAY);
 
+	/**
+	 * Default is {@value #DEFAULT_SCAN_RESULT_BUFFER_SIZE} - The number of distinct devices' scan results that can be waiting to be processed by
+	 * the update loop at once (rounded up to a power of two). Repeat results for a device that's already waiting replace the waiting one, so this
+	 * only needs to be raised if you expect more than this many devices advertising within a single update loop tick. The buffer is allocated when
+	 * the {@link BleManager} is created, and re-allocated when a scan is started after this value has been changed.
+	 *
+	 * @see #scanResultOverflowPolicy
+	 */
+	@Advanced
+	public int scanResultBufferSize							= DEFAULT_SCAN_RESULT_BUFFER_SIZE;
+
+	/**
+	 * Default is {@link BleScanOverflowPolicy#DROP_OLDEST} - What to do with scan results when the buffer sized by {@link #scanResultBufferSize} is full.
+	 */
+	@Advanced
+	public BleScanOverflowPolicy scanResultOverflowPolicy	= BleScanOverflowPolicy.DROP_OLDEST;
+
+	/**
+	 * Default is <code>false</code> - If <code>true</code>, historical data logged through {@link BleNodeConfig#historicalDataLogFilter} is
+	 * queued and handed to the {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList} on a background thread, in groups,
+	 * instead of right away on the update thread. Turn this on when using a backend that writes to disk, so that reads and notifications
+	 * aren't held up waiting on it. Anything that reads or deletes historical data commits what's queued first, and you can do so yourself with
+	 * {@link BleManager#flushHistoricalData()}.
+	 *
+	 * @see #historicalDataQueueSize
+	 * @see #historicalDataBatchSize
+	 * @see #historicalDataBatchTime
+	 * @see BleManager#getHistoricalDataWriterStats()
+	 */
+	@Advanced
+	public boolean historicalDataWriteAsync					= false;
+
+	/**
+	 * Default is {@value #DEFAULT_HISTORICAL_DATA_QUEUE_SIZE} - The number of historical data writes that can be waiting when
+	 * {@link #historicalDataWriteAsync} is on. If the queue is full, whatever is adding data commits everything waiting itself before going on.
+	 */
+	@Advanced
+	public int historicalDataQueueSize						= DEFAULT_HISTORICAL_DATA_QUEUE_SIZE;
+
+	/**
+	 * Default is {@value #DEFAULT_HISTORICAL_DATA_BATCH_SIZE} - When {@link #historicalDataWriteAsync} is on, queued writes are committed as
+	 * soon as this many are waiting.
+	 */
+	@Advanced
+	public int historicalDataBatchSize						= DEFAULT_HISTORICAL_DATA_BATCH_SIZE;
+
+	/**
+	 * Default is {@value #DEFAULT_HISTORICAL_DATA_BATCH_TIME} seconds - When {@link #historicalDataWriteAsync} is on, queued writes are committed
+	 * once the oldest has waited this long, even if there are fewer than {@link #historicalDataBatchSize}. {@link Interval#DISABLED} commits
+	 * as soon as the writer thread gets to them.
+	 */
+	@Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval historicalDataBatchTime					= Interval.secs(DEFAULT_HISTORICAL_DATA_BATCH_TIME);
+
+	/**
+	 * Default is {@link Interval#DISABLED} - By default, the number of scan results processed each update loop tick is fixed, based on
+	 * {@link #autoUpdateRate} (one per millisecond, with a minimum of 5). In dense environments with hundreds of devices advertising, that can mean
+	 * results pile up faster than they're processed, and discovery gets later and later. Set this to the amount of time you're willing to spend
+	 * processing scan results each tick, and SweetBlue will instead measure how long each result takes to process (which includes your
+	 * {@link BleManagerConfig.ScanFilter} and {@link DiscoveryListener}), and process as many waiting results as fit within that time. At least 5
+	 * are always processed per tick.
+	 * <br><br>
+	 * NOTE: Time spent here holds up everything else on the update thread, so it's best to keep this well under {@link #autoUpdateRate}, unless
+	 * you're running SweetBlue on its own thread (see {@link #runOnMainThread}).
+	 */
+	@Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval scanProcessingBudget					= Interval.DISABLED;
+
+	/**
+	 * Default is <code>false</code> - If <code>true</code>, and every {@link ScanFilter} in play (the {@link #defaultScanFilter} and any given to
+	 * {@link BleManager#startScan(ScanOptions)} and the like) is a {@link CompiledScanFilter} which filters on manufacturer data or advertised services,
+	 * those rules are also handed to Android's native scan filtering when using {@link BleScanApi#POST_LOLLIPOP}, so that non-matching advertisements
+	 * are dropped by the Bluetooth stack (often by the radio itself) before they ever reach the app.
+	 * <br><br>
+	 * NOTE: Native filters apply to every advertisement, not just the first one from a new device like {@link ScanFilter} does, so devices you
+	 * already know about which don't match the filters will stop getting scan updates (rssi, scan record, etc.) while scanning.
+	 *
+	 * @see ScanFilterBuilder
+	 */
+	@Advanced
+	public boolean useNativeScanFilters						= false;
+
 	/**
 	 * Default is <code>null</code>, meaning no filtering - all discovered devices will
 	 * be piped through your {@link BleManager.DiscoveryListener} instance
@@ -538,6 +661,10 @@ public class BleManagerConfig extends BleDeviceConfig
 	/**
 	 * Default is {@link com.idevicesinc.sweetblue.BleManagerConfig.DeviceNameComparator}. This specifies how to
 	 * sort the list of devices in {@link BleManager}.
+	 * <br><br>
+	 * The sorted list is cached for {@link com.idevicesinc.sweetblue.BleManagerConfig.DeviceNameComparator} and only re-sorted when
+	 * a device's name changes. Any other comparator (including a subclass of it) can look at anything, so the list is re-sorted
+	 * every time it's asked for.
 	 */
 	public Comparator<BleDevice> defaultListComparator					= new DeviceNameComparator();
 	
@@ -586,14 +713,30 @@ public class BleManagerConfig extends BleDeviceConfig
 			 * A list of {@link UUID}s parsed from {@link #scanRecord()} as a convenience. May be empty, notably
 			 * if {@link BleManagerConfig#revertToClassicDiscoveryIfNeeded} is invoked.
 			 */
-			public List<UUID> advertisedServices(){  return m_advertisedServices;  }
-			private final List<UUID> m_advertisedServices;
+			public List<UUID> advertisedServices()
+			{
+				if( m_advertisedServices == null )
+				{
+					m_advertisedServices = m_scanRecordView.getServiceUuids();
+				}
+
+				return m_advertisedServices;
+			}
+			private List<UUID> m_advertisedServices;
 
 			/**
 			 * The unaltered device name retrieved from the native bluetooth stack.
 			 */
-			public String name_native(){  return m_rawDeviceName;  }
-			private final String m_rawDeviceName;
+			public String name_native()
+			{
+				if( m_rawDeviceName == null )
+				{
+					m_rawDeviceName = Utils_ScanRecord.parseName(m_scanRecordView.getRecord());
+				}
+
+				return m_rawDeviceName;
+			}
+			private String m_rawDeviceName;
 
 			/**
 			 * See {@link BleDevice#getName_normalized()} for an explanation.
@@ -605,8 +748,15 @@ public class BleManagerConfig extends BleDeviceConfig
 			 * The raw scan record received when the device was discovered. May be empty, especially
 			 * if {@link BleManagerConfig#revertToClassicDiscoveryIfNeeded} is invoked.
 			 */
-			public byte[] scanRecord(){  return m_scanRecord;  }
-			private final byte[] m_scanRecord;
+			public byte[] scanRecord(){  return m_scanRecordView.getRecord();  }
+
+			/**
+			 * A view over {@link #scanRecord()} which only decodes what you ask of it. For example {@link BleScanRecordView#hasServiceUuid(UUID)} or
+			 * {@link BleScanRecordView#hasManufacturerId(int)} check the raw record directly, without parsing out everything else first, so
+			 * they're the cheapest way to filter by advertised service or manufacturer.
+			 */
+			public BleScanRecordView scanRecordView(){  return m_scanRecordView;  }
+			private final BleScanRecordView m_scanRecordView;
 
 			/**
 			 * The RSSI received when the device was discovered.
@@ -617,8 +767,7 @@ public class BleManagerConfig extends BleDeviceConfig
 			/**
 			 * Returns the transmission power of the device in decibels, or {@link BleNodeConfig#INVALID_TX_POWER} if device is not advertising its transmission power.
 			 */
-			public int txPower(){  return m_txPower;  }
-			private final int m_txPower;
+			public int txPower(){  return m_scanRecordView.getTxPower();  }
 
 			/**
 			 * Returns the mac address of the discovered device.
@@ -638,63 +787,67 @@ public class BleManagerConfig extends BleDeviceConfig
 			/**
 			 * Returns the advertising flags, if any, parsed from {@link #scanRecord()}.
 			 */
-			public int advertisingFlags()  {  return m_advertisingFlags;  }
-			private final int m_advertisingFlags;
+			public int advertisingFlags()  {  return m_scanRecordView.getAdvFlags();  }
 
 			/**
 			 * Returns the manufacturer-specific data, if any, parsed from {@link #scanRecord()}.
 			 */
-			public SparseArray<byte[]> manufacturerCombinedData(){  return m_manufacturerCombinedData;  }
-			private final SparseArray<byte[]> m_manufacturerCombinedData;
+			public SparseArray<byte[]> manufacturerCombinedData()
+			{
+				if( m_manufacturerCombinedData == null )
+				{
+					m_manufacturerCombinedData = m_scanRecordView.getManufacturerCombinedData();
+				}
+
+				return m_manufacturerCombinedData;
+			}
+			private SparseArray<byte[]> m_manufacturerCombinedData;
 
-			public byte[] manufacturerData(){ return m_manufacturerData;}
+			public byte[] manufacturerData()
+			{
+				if( m_manufacturerData == null )
+				{
+					m_manufacturerData = m_scanRecordView.getManufacturerData();
+				}
+
+				return m_manufacturerData;
+			}
 			private byte[] m_manufacturerData;
 
-			public int manufacturerId(){ return m_manufacturerId;}
-			private int m_manufacturerId;
+			public int manufacturerId(){ return (short) m_scanRecordView.getManufacturerId();}
 
 			/**
 			 * Returns the service data, if any, parsed from {@link #scanRecord()}.
 			 */
-			public Map<UUID, byte[]> serviceData()  {  return m_serviceData;  }
-			private final Map<UUID, byte[]> m_serviceData;
+			public Map<UUID, byte[]> serviceData()
+			{
+				if( m_serviceData == null )
+				{
+					m_serviceData = m_scanRecordView.getServiceData();
+				}
+
+				return m_serviceData;
+			}
+			private Map<UUID, byte[]> m_serviceData;
 
 			ScanEvent(
 					BluetoothDevice nativeInstance, String rawDeviceName,
-					String normalizedDeviceName, byte[] scanRecord, int rssi, State.ChangeIntent lastDisconnectIntent,
-					BleScanInfo scanInfo
+					String normalizedDeviceName, int rssi, State.ChangeIntent lastDisconnectIntent,
+					BleScanRecordView scanRecordView
 			)
 			{
 				this.m_nativeInstance = nativeInstance;
-				this.m_advertisedServices = scanInfo != null ? scanInfo.getServiceUUIDS() : new ArrayList<UUID>(0);
-				this.m_rawDeviceName = rawDeviceName != null ? rawDeviceName : "";
+				this.m_rawDeviceName = rawDeviceName;
 				this.m_normalizedDeviceName = normalizedDeviceName;
-				this.m_scanRecord = scanRecord != null ? scanRecord : P_Const.EMPTY_BYTE_ARRAY;
 				this.m_rssi = rssi;
 				this.m_lastDisconnectIntent = lastDisconnectIntent;
-				this.m_txPower = scanInfo != null ? scanInfo.getTxPower().value : 0;
-				this.m_advertisingFlags = scanInfo != null ? scanInfo.getAdvFlags().value : 0;
-				this.m_manufacturerData = scanInfo != null ? scanInfo.getManufacturerData() : P_Const.EMPTY_BYTE_ARRAY;
-				this.m_manufacturerId = scanInfo != null ? scanInfo.getManufacturerId() : 0;
-				this.m_serviceData = scanInfo != null ? scanInfo.getServiceData() : new HashMap<UUID, byte[]>(0);
-
-				this.m_manufacturerCombinedData = new SparseArray<>();
+				this.m_scanRecordView = scanRecordView;
 			}
 
-			/*package*/ static ScanEvent fromScanRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final byte[] scanRecord)
+			/*package*/ static ScanEvent fromScanRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final BleScanRecordView scanRecordView)
 			{
-				final Pointer<Integer> advFlags = new Pointer<Integer>();
-				final Pointer<Integer> txPower = new Pointer<Integer>();
-				final List<UUID> serviceUuids = new ArrayList<UUID>();
-				final SparseArray<byte[]> manufacturerData = new SparseArray<byte[]>();
-				final Map<UUID, byte[]> serviceData = new HashMap<UUID, byte[]>();
-				final String name = rawDeviceName != null ? rawDeviceName : Utils_ScanRecord.parseName(scanRecord);
-
-				BleScanInfo scanInfo = Utils_ScanRecord.parseScanRecord(scanRecord);
-
-				final ScanEvent e = new ScanEvent(device_native, name, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent, scanInfo);
-
-				return e;
+				// Nothing in the record is decoded until the filter asks for it.
+				return new ScanEvent(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecordView);
 			}
 
 			@Override public String toString()
@@ -981,6 +981,8 @@ public abstract class BleNode implements UsesCustomNull
 		}
 		else
 		{
+			this.getManager().flushHistoricalData();
+
 			final Cursor cursor = this.getManager().m_historicalDatabase.query(query);
 
 			return new BleDevice.HistoricalDataQueryListener.HistoricalDataQueryEvent(this, Uuids.INVALID, cursor, BleDevice.HistoricalDataQueryListener.Status.SUCCESS, query);
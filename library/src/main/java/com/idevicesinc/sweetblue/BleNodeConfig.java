@@ -121,10 +121,24 @@ public class BleNodeConfig
 
 	/**
 	 * Default is <code>true</code> - this will automatically stripe writes that are larger than the MTU size into multiple WRITE requests for you.
-	 * If you are using {@link BleDevice#setMtu(int)}, this may make things unstable.
+	 * If you are using {@link BleDevice#setMtu(int)}, this may make things unstable. Characteristic writes are sent as a single task, with each
+	 * chunk going out as soon as the last one is acknowledged, the same way as {@link BleDevice#writeStream(java.util.UUID, java.util.UUID, com.idevicesinc.sweetblue.utils.FutureData, int, StreamWriteListener)}.
 	 */
 	public boolean autoStripeWrites											= true;
 
+	/**
+	 * Default is <code>false</code> - if <code>true</code>, a write that's still waiting in the queue is replaced by a newer write to the same
+	 * characteristic, instead of both being sent. The newer write takes the older one's place in the queue, and the older one's
+	 * {@link BleDevice.ReadWriteListener} gets {@link BleDevice.ReadWriteListener.Status#SUPERSEDED}. This is meant for characteristics like
+	 * setpoints that get written faster than they can go out, e.g. from a slider, where only the latest value matters.
+	 * Use {@link WriteBuilder#setCoalesce(Boolean)} to turn this on or off for individual writes.
+	 * <br><br>
+	 * Writes are only coalesced if they're the same type, have the same priority and {@link DescriptorFilter}, and are part of the same
+	 * {@link BleTransaction} (or none). Writes bigger than the MTU, descriptor writes and reliable writes are never coalesced.
+	 */
+	@Nullable(Nullable.Prevalence.NORMAL)
+	public Boolean coalesceWrites											= false;
+
 	/**
 	 * Default is an instance of {@link DefaultTaskTimeoutRequestFilter} - set an implementation here to
 	 * have fine control over how long individual {@link BleTask} instances can take before they
@@ -0,0 +1,22 @@
+package com.idevicesinc.sweetblue;
+
+/**
+ * Describes what happens when scan results come in faster than the update loop can process them, and the buffer sized by
+ * {@link BleManagerConfig#scanResultBufferSize} fills up. Provide an option to {@link BleManagerConfig#scanResultOverflowPolicy}.
+ * <br><br>
+ * NOTE: Repeat results for a device that's already waiting in the buffer never count towards this, they just replace the waiting
+ * result with the latest rssi and scan record. So the buffer only fills up when more distinct devices than it can hold are
+ * discovered between update loop ticks. See {@link BleManager#getDroppedScanResultCount()}.
+ */
+public enum BleScanOverflowPolicy
+{
+	/**
+	 * The oldest waiting result is thrown away to make room for the new one.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The new result is thrown away, and the waiting results are left alone.
+	 */
+	DROP_NEWEST;
+}
@@ -0,0 +1,25 @@
+package com.idevicesinc.sweetblue;
+
+/**
+ * Describes how SweetBlue picks the next task to execute when several {@link BleDevice} or {@link BleServer} instances have
+ * work queued at the same time. Provide an option to {@link BleManagerConfig#taskScheduling}.
+ * <br><br>
+ * NOTE: Regardless of the option chosen, only one task executes at a time, as the native stack does not handle concurrent
+ * operations well. {@link BleManager}-level tasks (scanning, turning BLE on/off, resetting, etc.) are always globally exclusive,
+ * and task priorities, interruption, and cancellation behave the same.
+ */
+public enum BleTaskScheduling
+{
+	/**
+	 * Tasks of the same priority are executed in the order they were queued, regardless of which device or server they are for. So
+	 * if one device has 50 reads queued up, a read queued afterwards for another device will wait for all 50 to finish.
+	 */
+	FIFO,
+
+	/**
+	 * Each {@link BleDevice} and {@link BleServer} gets its own lane in the queue. When choosing the next task to execute among tasks
+	 * of the same priority, the lane which was served least recently goes first. The order of tasks within a single lane is never
+	 * changed. This keeps one slow device (for instance one doing an OTA, or lots of reads) from holding back every other connection.
+	 */
+	ROUND_ROBIN;
+}
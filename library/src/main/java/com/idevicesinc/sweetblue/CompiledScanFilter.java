@@ -0,0 +1,295 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.compat.L_Util;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Implementation of {@link BleManagerConfig.ScanFilter} built by {@link ScanFilterBuilder}. Manufacturer ids, service {@link UUID}s and mac OUIs are
+ * looked up in hash tables keyed on their raw values, and checked directly against the scan record through {@link BleScanRecordView}, so
+ * rejecting an advertisement doesn't allocate anything, no matter how many rules there are. This lets SweetBlue throw away non-matching scan
+ * results before it creates anything for them, and if {@link BleManagerConfig#useNativeScanFilters} is <code>true</code>, lets Android throw
+ * them away before they even get to SweetBlue.
+ * <br><br>
+ * Instances are immutable, so they can be shared.
+ */
+public final class CompiledScanFilter implements BleManagerConfig.ScanFilter
+{
+
+    private static final int DATA_TYPE_MANUFACTURER_SPECIFIC_DATA = 0xFF;
+
+    // Past this many native filters, we'd rather hand Android a looser set than one filter for every combination of rules.
+    private static final int MAX_NATIVE_FILTERS = 16;
+
+    private final P_LongIndex m_manufacturerIds;
+    // Per manufacturer id, the data prefixes to match, or null if any data will do.
+    private final byte[][][] m_manufacturerPrefixes;
+    private final P_LongIndex m_serviceUuids;
+    private final P_LongIndex m_macOuis;
+    private final String[] m_namePrefixes;
+    private final Pattern[] m_namePatterns;
+    private final int m_minRssi;
+
+    private final List<L_Util.ScanFilterSpec> m_nativeSpecs;
+
+
+    CompiledScanFilter(int[] manufacturerIds, byte[][][] manufacturerPrefixes, UUID[] serviceUuids, String[] namePrefixes, Pattern[] namePatterns, int[] macOuis, int minRssi)
+    {
+        m_manufacturerIds = manufacturerIds.length > 0 ? new P_LongIndex(new long[manufacturerIds.length], toLongs(manufacturerIds)) : null;
+        m_manufacturerPrefixes = manufacturerPrefixes;
+        m_macOuis = macOuis.length > 0 ? new P_LongIndex(new long[macOuis.length], toLongs(macOuis)) : null;
+        m_namePrefixes = namePrefixes;
+        m_namePatterns = namePatterns;
+        m_minRssi = minRssi;
+
+        if (serviceUuids.length > 0)
+        {
+            final long[] msbs = new long[serviceUuids.length];
+            final long[] lsbs = new long[serviceUuids.length];
+
+            for (int i = 0; i < serviceUuids.length; i++)
+            {
+                msbs[i] = serviceUuids[i].getMostSignificantBits();
+                lsbs[i] = serviceUuids[i].getLeastSignificantBits();
+            }
+
+            m_serviceUuids = new P_LongIndex(msbs, lsbs);
+        }
+        else
+        {
+            m_serviceUuids = null;
+        }
+
+        m_nativeSpecs = buildNativeSpecs(manufacturerIds, manufacturerPrefixes, serviceUuids);
+    }
+
+
+    /**
+     * Acknowledges the discovery if it meets the rules given to {@link ScanFilterBuilder}.
+     */
+    @Override public Please onEvent(final ScanEvent e)
+    {
+        return Please.acknowledgeIf(mightMatch(e.macAddress(), e.rssi(), e.scanRecordView()) && matchesName(e.name_native()));
+    }
+
+    /**
+     * Returns <code>false</code> if the given advertisement definitely won't be acknowledged by {@link #onEvent(ScanEvent)}. This checks every rule
+     * except the name ones, because the name SweetBlue ends up using may come from the native device instead of the scan record.
+     */
+    final boolean mightMatch(final String macAddress, final int rssi, final BleScanRecordView record)
+    {
+        if (rssi < m_minRssi)  return false;
+
+        if (m_macOuis != null && !matchesOui(macAddress))  return false;
+
+        if (m_manufacturerIds != null && !matchesManufacturer(record))  return false;
+
+        if (m_serviceUuids != null && !matchesService(record))  return false;
+
+        return true;
+    }
+
+    /**
+     * Returns the native filters which together let through at least everything this filter would acknowledge, or <code>null</code> if
+     * there are none which would narrow things down.
+     */
+    final List<L_Util.ScanFilterSpec> getNativeSpecs()
+    {
+        return m_nativeSpecs;
+    }
+
+    private boolean matchesManufacturer(final BleScanRecordView record)
+    {
+        final byte[] raw = record.getRecord();
+        final int count = record.getStructureCount();
+
+        for (int i = 0; i < count; i++)
+        {
+            final int length = record.getStructureDataLength(i);
+
+            if (record.getStructureType(i) != DATA_TYPE_MANUFACTURER_SPECIFIC_DATA || length < 2)  continue;
+
+            final int offset = record.getStructureDataOffset(i);
+            final int id = (raw[offset] & 0xFF) | ((raw[offset + 1] & 0xFF) << 8);
+            final int index = m_manufacturerIds.indexOf(id);
+
+            if (index == -1)  continue;
+
+            final byte[][] prefixes = m_manufacturerPrefixes[index];
+
+            if (prefixes == null)  return true;
+
+            for (int j = 0; j < prefixes.length; j++)
+            {
+                if (startsWith(raw, offset + 2, length - 2, prefixes[j]))  return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean matchesService(final BleScanRecordView record)
+    {
+        final byte[] raw = record.getRecord();
+        final int count = record.getStructureCount();
+
+        for (int i = 0; i < count; i++)
+        {
+            final int uuidLength = record.getServiceUuidLength(i);
+
+            if (uuidLength == 0)  continue;
+
+            final int end = record.getStructureDataOffset(i) + record.getStructureDataLength(i);
+
+            for (int offset = record.getStructureDataOffset(i); offset + uuidLength <= end; offset += uuidLength)
+            {
+                final long msb = BleScanRecordView.getUuidMsb(raw, offset, uuidLength);
+                final long lsb = BleScanRecordView.getUuidLsb(raw, offset, uuidLength);
+
+                if (m_serviceUuids.indexOf(msb, lsb) != -1)  return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean matchesOui(final String macAddress)
+    {
+        final int oui = parseOui(macAddress);
+
+        return oui != -1 && m_macOuis.indexOf(oui) != -1;
+    }
+
+    private boolean matchesName(final String name)
+    {
+        if (m_namePrefixes.length == 0 && m_namePatterns.length == 0)  return true;
+
+        if (name == null)  return false;
+
+        for (int i = 0; i < m_namePrefixes.length; i++)
+        {
+            if (name.startsWith(m_namePrefixes[i]))  return true;
+        }
+
+        for (int i = 0; i < m_namePatterns.length; i++)
+        {
+            if (m_namePatterns[i].matcher(name).matches())  return true;
+        }
+
+        return false;
+    }
+
+    private static boolean startsWith(final byte[] raw, final int offset, final int length, final byte[] prefix)
+    {
+        if (length < prefix.length)  return false;
+
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (raw[offset + i] != prefix[i])  return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses the first three bytes of a mac address like <code>"00:1A:7D:DA:71:13"</code>, without allocating anything. Returns <code>-1</code>
+     * if it's malformed.
+     */
+    static int parseOui(final String macAddress)
+    {
+        if (macAddress == null || macAddress.length() < 8)  return -1;
+
+        int oui = 0;
+
+        for (int i = 0; i < 8; i++)
+        {
+            // Every third character is a separator.
+            if (i % 3 == 2)  continue;
+
+            final int digit = Character.digit(macAddress.charAt(i), 16);
+
+            if (digit == -1)  return -1;
+
+            oui = (oui << 4) | digit;
+        }
+
+        return oui;
+    }
+
+    private static List<L_Util.ScanFilterSpec> buildNativeSpecs(int[] manufacturerIds, byte[][][] manufacturerPrefixes, UUID[] serviceUuids)
+    {
+        final List<L_Util.ScanFilterSpec> manufacturerSpecs = new ArrayList<>();
+
+        for (int i = 0; i < manufacturerIds.length; i++)
+        {
+            if (manufacturerPrefixes[i] == null)
+            {
+                manufacturerSpecs.add(new L_Util.ScanFilterSpec(null, manufacturerIds[i], null));
+            }
+            else
+            {
+                for (byte[] prefix : manufacturerPrefixes[i])
+                {
+                    manufacturerSpecs.add(new L_Util.ScanFilterSpec(null, manufacturerIds[i], prefix));
+                }
+            }
+        }
+
+        final List<L_Util.ScanFilterSpec> serviceSpecs = new ArrayList<>();
+
+        for (UUID uuid : serviceUuids)
+        {
+            serviceSpecs.add(new L_Util.ScanFilterSpec(uuid, -1, null));
+        }
+
+        if (manufacturerSpecs.isEmpty() && serviceSpecs.isEmpty())
+        {
+            return null;
+        }
+        else if (serviceSpecs.isEmpty())
+        {
+            return Collections.unmodifiableList(manufacturerSpecs);
+        }
+        else if (manufacturerSpecs.isEmpty())
+        {
+            return Collections.unmodifiableList(serviceSpecs);
+        }
+        else if (manufacturerSpecs.size() * serviceSpecs.size() <= MAX_NATIVE_FILTERS)
+        {
+            final List<L_Util.ScanFilterSpec> specs = new ArrayList<>(manufacturerSpecs.size() * serviceSpecs.size());
+
+            for (L_Util.ScanFilterSpec manufacturer : manufacturerSpecs)
+            {
+                for (L_Util.ScanFilterSpec service : serviceSpecs)
+                {
+                    specs.add(new L_Util.ScanFilterSpec(service.getServiceUuid(), manufacturer.getManufacturerId(), manufacturer.getManufacturerData()));
+                }
+            }
+
+            return Collections.unmodifiableList(specs);
+        }
+        else
+        {
+            // Either set alone still lets through everything we'd acknowledge, so go with the smaller one.
+            return Collections.unmodifiableList(manufacturerSpecs.size() <= serviceSpecs.size() ? manufacturerSpecs : serviceSpecs);
+        }
+    }
+
+    private static long[] toLongs(final int[] values)
+    {
+        final long[] longs = new long[values.length];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            longs[i] = values[i];
+        }
+
+        return longs;
+    }
+
+}
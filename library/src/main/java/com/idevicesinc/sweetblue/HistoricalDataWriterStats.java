@@ -0,0 +1,131 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+/**
+ * A snapshot of the counters kept for historical data writes queued when {@link BleManagerConfig#historicalDataWriteAsync} is on,
+ * returned from {@link BleManager#getHistoricalDataWriterStats()}. Counts start from when the {@link BleManager} was created.
+ */
+@com.idevicesinc.sweetblue.annotations.Immutable
+public final class HistoricalDataWriterStats
+{
+
+    private final int m_pendingCount;
+    private final int m_highWaterMark;
+    private final long m_overflowCount;
+    private final long m_committedCount;
+    private final long m_commitCount;
+    private final long m_totalCommitTime;
+    private final long m_maxCommitTime;
+    private final long m_totalQueueTime;
+    private final long m_maxQueueTime;
+
+
+    HistoricalDataWriterStats(int pendingCount, int highWaterMark, long overflowCount, long committedCount, long commitCount, long totalCommitTime, long maxCommitTime, long totalQueueTime, long maxQueueTime)
+    {
+        m_pendingCount = pendingCount;
+        m_highWaterMark = highWaterMark;
+        m_overflowCount = overflowCount;
+        m_committedCount = committedCount;
+        m_commitCount = commitCount;
+        m_totalCommitTime = totalCommitTime;
+        m_maxCommitTime = maxCommitTime;
+        m_totalQueueTime = totalQueueTime;
+        m_maxQueueTime = maxQueueTime;
+    }
+
+
+    /**
+     * The number of writes waiting in the queue when this snapshot was taken.
+     */
+    public final int getPendingCount()
+    {
+        return m_pendingCount;
+    }
+
+    /**
+     * The most writes that have ever been waiting in the queue at once.
+     */
+    public final int getHighWaterMark()
+    {
+        return m_highWaterMark;
+    }
+
+    /**
+     * How many times the queue was full, sized by {@link BleManagerConfig#historicalDataQueueSize}, so the thread adding data had to commit
+     * what was waiting itself. If this keeps growing, your backend can't keep up, or consider raising the queue size.
+     */
+    public final long getOverflowCount()
+    {
+        return m_overflowCount;
+    }
+
+    /**
+     * The total number of writes handed to the backend.
+     */
+    public final long getCommittedCount()
+    {
+        return m_committedCount;
+    }
+
+    /**
+     * The number of group commits the writes counted by {@link #getCommittedCount()} were made in.
+     */
+    public final long getCommitCount()
+    {
+        return m_commitCount;
+    }
+
+    /**
+     * The average time the backend took for each group commit counted by {@link #getCommitCount()}, or {@link Interval#ZERO} if there
+     * haven't been any yet.
+     */
+    public final Interval getAverageCommitLatency()
+    {
+        return m_commitCount > 0 ? Interval.millis(m_totalCommitTime / m_commitCount) : Interval.ZERO;
+    }
+
+    /**
+     * The longest time the backend took for a single group commit.
+     */
+    public final Interval getMaxCommitLatency()
+    {
+        return Interval.millis(m_maxCommitTime);
+    }
+
+    /**
+     * The average time writes counted by {@link #getCommittedCount()} spent waiting in the queue, or {@link Interval#ZERO} if there
+     * haven't been any yet.
+     */
+    public final Interval getAverageQueueLatency()
+    {
+        return m_committedCount > 0 ? Interval.millis(m_totalQueueTime / m_committedCount) : Interval.ZERO;
+    }
+
+    /**
+     * The longest time a write spent waiting in the queue.
+     */
+    public final Interval getMaxQueueLatency()
+    {
+        return Interval.millis(m_maxQueueTime);
+    }
+
+    @Override public String toString()
+    {
+        return Utils_String.toString
+        (
+            this.getClass(),
+            "pending", getPendingCount(),
+            "highWaterMark", getHighWaterMark(),
+            "overflows", getOverflowCount(),
+            "committed", getCommittedCount(),
+            "commits", getCommitCount(),
+            "averageCommitLatency", getAverageCommitLatency(),
+            "maxCommitLatency", getMaxCommitLatency(),
+            "averageQueueLatency", getAverageQueueLatency()
+        );
+    }
+
+}
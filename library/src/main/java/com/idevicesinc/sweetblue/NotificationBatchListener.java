@@ -0,0 +1,149 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import com.idevicesinc.sweetblue.utils.Uuids;
+import java.util.UUID;
+
+/**
+ * Interface for receiving notifications (or indications) in batches, rather than one callback per notification. See
+ * {@link BleDevice#enableNotify(UUID, UUID, NotificationBatchOptions, NotificationBatchListener, BleDevice.ReadWriteListener)}.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface NotificationBatchListener extends GenericListener_Void<NotificationBatchListener.NotificationBatchEvent>
+{
+
+    /**
+     * Provides the notifications batched up since the last {@link NotificationBatchEvent}, oldest first.
+     */
+    @com.idevicesinc.sweetblue.annotations.Immutable
+    class NotificationBatchEvent extends Event
+    {
+
+        /**
+         * The {@link BleDevice} the notifications came from.
+         */
+        public BleDevice device()
+        {
+            return m_device;
+        }
+
+        private final BleDevice m_device;
+
+        /**
+         * Convience to return the mac address of {@link #device()}.
+         */
+        public String macAddress()
+        {
+            return m_device.getMacAddress();
+        }
+
+        /**
+         * The {@link UUID} of the service the notifications came from. This will be {@link Uuids#INVALID} if no service was given to
+         * {@link BleDevice#enableNotify(UUID, UUID, NotificationBatchOptions, NotificationBatchListener, BleDevice.ReadWriteListener)}.
+         */
+        public UUID serviceUuid()
+        {
+            return m_serviceUuid;
+        }
+
+        private final UUID m_serviceUuid;
+
+        /**
+         * The {@link UUID} of the characteristic the notifications came from.
+         */
+        public UUID charUuid()
+        {
+            return m_charUuid;
+        }
+
+        private final UUID m_charUuid;
+
+        /**
+         * Whether these were notifications or indications, i.e. {@link NotificationListener.Type#NOTIFICATION} or {@link NotificationListener.Type#INDICATION}.
+         */
+        public NotificationListener.Type type()
+        {
+            return m_type;
+        }
+
+        private final NotificationListener.Type m_type;
+
+        /**
+         * The number of notifications in this batch. This is always at least <code>1</code>.
+         */
+        public int size()
+        {
+            return m_data.length;
+        }
+
+        /**
+         * The data of the notification at the given index. This will never be <code>null</code>, but will be a zero-length array if the
+         * native stack gave us nothing.
+         */
+        public @Nullable(Nullable.Prevalence.NEVER) byte[] data(final int index)
+        {
+            return m_data[index];
+        }
+
+        private final byte[][] m_data;
+
+        /**
+         * When the notification at the given index came in from the native stack, in milliseconds since the epoch, i.e. the same as
+         * {@link System#currentTimeMillis()}.
+         */
+        public long timestamp(final int index)
+        {
+            return m_timestamps[index];
+        }
+
+        /**
+         * Convenience to return {@link #timestamp(int)} as an {@link EpochTime}.
+         */
+        public EpochTime time(final int index)
+        {
+            return new EpochTime(m_timestamps[index]);
+        }
+
+        private final long[] m_timestamps;
+
+        /**
+         * The total number of bytes across all the notifications in this batch.
+         */
+        public int byteCount()
+        {
+            return m_byteCount;
+        }
+
+        private final int m_byteCount;
+
+
+        NotificationBatchEvent(BleDevice device, UUID serviceUuid, UUID charUuid, NotificationListener.Type type, byte[][] data, long[] timestamps, int byteCount)
+        {
+            m_device = device;
+            m_serviceUuid = serviceUuid != null ? serviceUuid : Uuids.INVALID;
+            m_charUuid = charUuid;
+            m_type = type;
+            m_data = data;
+            m_timestamps = timestamps;
+            m_byteCount = byteCount;
+        }
+
+        @Override public String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "type", type(),
+                "charUuid", device().getManager().getLogger().uuidName(charUuid()),
+                "size", size(),
+                "byteCount", byteCount()
+            );
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.UUID;
+
+/**
+ * Class used to tell {@link BleDevice#enableNotify(UUID, UUID, NotificationBatchOptions, NotificationBatchListener, BleDevice.ReadWriteListener)} when to
+ * hand a batch of notifications over to the {@link NotificationBatchListener}. A batch is flushed as soon as any of the limits set here is hit.
+ */
+public final class NotificationBatchOptions
+{
+
+    /**
+     * Default value for {@link #flushAtCount(int)}.
+     */
+    public static final int DEFAULT_MAX_COUNT = 32;
+
+    /**
+     * Default value for {@link #flushAfter(Interval)}, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_LATENCY = 100;
+
+    int m_maxCount = DEFAULT_MAX_COUNT;
+    int m_maxBytes = Integer.MAX_VALUE;
+    Interval m_maxLatency = Interval.millis(DEFAULT_MAX_LATENCY);
+
+
+    public NotificationBatchOptions()
+    {}
+
+
+    /**
+     * Flush once this many notifications have been batched up. Default is {@link #DEFAULT_MAX_COUNT}. Anything lower than <code>1</code>
+     * is treated as <code>1</code>.
+     */
+    public final NotificationBatchOptions flushAtCount(int maxCount)
+    {
+        m_maxCount = Math.max(1, maxCount);
+        return this;
+    }
+
+    /**
+     * Flush once the notifications batched up add up to at least this many bytes. This is off by default.
+     */
+    public final NotificationBatchOptions flushAtBytes(int maxBytes)
+    {
+        m_maxBytes = Math.max(1, maxBytes);
+        return this;
+    }
+
+    /**
+     * Flush once the oldest notification in the batch has been waiting this long, so a stream that slows down or stops doesn't leave data
+     * sitting around. Default is {@link #DEFAULT_MAX_LATENCY} milliseconds. Pass {@link Interval#DISABLED} to only flush by count or size.
+     * Note that this is checked on SweetBlue's update loop, so it can't be more precise than {@link BleManagerConfig#autoUpdateRate}.
+     */
+    public final NotificationBatchOptions flushAfter(Interval maxLatency)
+    {
+        m_maxLatency = maxLatency;
+        return this;
+    }
+
+}
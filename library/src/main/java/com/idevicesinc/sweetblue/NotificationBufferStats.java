@@ -0,0 +1,111 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.UUID;
+
+/**
+ * A snapshot of the counters kept for one characteristic's notification buffer, returned from
+ * {@link BleDevice#getNotificationBufferStats(UUID, UUID)}. Counts start from when the {@link BleDevice} first got a notification for
+ * the characteristic, and carry on across reconnects.
+ */
+@com.idevicesinc.sweetblue.annotations.Immutable
+public final class NotificationBufferStats
+{
+
+    private final long m_receivedCount;
+    private final long m_droppedCount;
+    private final int m_highWaterMark;
+    private final int m_pendingCount;
+    private final long m_dispatchedCount;
+    private final long m_totalLatency;
+    private final long m_maxLatency;
+
+
+    NotificationBufferStats(long receivedCount, long droppedCount, int highWaterMark, int pendingCount, long dispatchedCount, long totalLatency, long maxLatency)
+    {
+        m_receivedCount = receivedCount;
+        m_droppedCount = droppedCount;
+        m_highWaterMark = highWaterMark;
+        m_pendingCount = pendingCount;
+        m_dispatchedCount = dispatchedCount;
+        m_totalLatency = totalLatency;
+        m_maxLatency = maxLatency;
+    }
+
+
+    /**
+     * The total number of notifications that came in from the native stack.
+     */
+    public final long getReceivedCount()
+    {
+        return m_receivedCount;
+    }
+
+    /**
+     * How many of the notifications counted by {@link #getReceivedCount()} were thrown away (or overwritten, for
+     * {@link NotificationOverflowPolicy#CONFLATE}) because the buffer was full, as decided by {@link BleDeviceConfig#notificationOverflowPolicy}.
+     * If this keeps growing, your listeners are probably doing too much work, or consider raising {@link BleDeviceConfig#notificationBufferSize}.
+     */
+    public final long getDroppedCount()
+    {
+        return m_droppedCount;
+    }
+
+    /**
+     * The most notifications that have ever been waiting in the buffer at once.
+     */
+    public final int getHighWaterMark()
+    {
+        return m_highWaterMark;
+    }
+
+    /**
+     * The number of notifications waiting in the buffer when this snapshot was taken.
+     */
+    public final int getPendingCount()
+    {
+        return m_pendingCount;
+    }
+
+    /**
+     * The number of notifications that made it through the buffer and were handed to listeners.
+     */
+    public final long getDispatchedCount()
+    {
+        return m_dispatchedCount;
+    }
+
+    /**
+     * The average time notifications counted by {@link #getDispatchedCount()} spent waiting in the buffer, or {@link Interval#ZERO}
+     * if there haven't been any yet.
+     */
+    public final Interval getAverageLatency()
+    {
+        return m_dispatchedCount > 0 ? Interval.millis(m_totalLatency / m_dispatchedCount) : Interval.ZERO;
+    }
+
+    /**
+     * The longest time a notification counted by {@link #getDispatchedCount()} spent waiting in the buffer.
+     */
+    public final Interval getMaxLatency()
+    {
+        return Interval.millis(m_maxLatency);
+    }
+
+    @Override public String toString()
+    {
+        return Utils_String.toString
+        (
+            this.getClass(),
+            "received", getReceivedCount(),
+            "dropped", getDroppedCount(),
+            "highWaterMark", getHighWaterMark(),
+            "pending", getPendingCount(),
+            "averageLatency", getAverageLatency(),
+            "maxLatency", getMaxLatency()
+        );
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.UUID;
+
+/**
+ * Describes what happens when notifications (or indications) for a characteristic come in faster than SweetBlue's update thread can hand
+ * them to listeners, and the buffer sized by {@link BleDeviceConfig#notificationBufferSize} fills up. Provide an option to
+ * {@link BleDeviceConfig#notificationOverflowPolicy}. See {@link BleDevice#getNotificationBufferStats(UUID, UUID)} to find out how often
+ * this happens.
+ */
+public enum NotificationOverflowPolicy
+{
+	/**
+	 * The native callback thread waits for room in the buffer, which in turn makes the Android stack hold off delivering anything more.
+	 * Nothing gets lost this way, but the wait is capped at {@link #BLOCK_TIMEOUT} milliseconds, after which the new notification is thrown
+	 * away like with {@link #DROP_NEWEST}. If the notification comes in on SweetBlue's own thread, it can't wait for itself, so it's let through
+	 * over the limit instead.
+	 * <br><br>
+	 * NOTE: The native callback thread is a binder thread shared with every other gatt callback for the app, so while it's parked, nothing else
+	 * comes in either, for any device. Each notification that finds the buffer full can hold it up for up to {@link #BLOCK_TIMEOUT}.
+	 */
+	BLOCK,
+
+	/**
+	 * The oldest waiting notification is thrown away to make room for the new one.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The new notification is thrown away, and the waiting notifications are left alone.
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * The newest waiting notification is overwritten with the new one's data, so listeners always end up seeing the latest value, just
+	 * not every one in between. This suits characteristics that report a current state, like a sensor reading.
+	 */
+	CONFLATE;
+
+	/**
+	 * The longest time, in milliseconds, that {@link #BLOCK} will hold up the native callback thread for one notification. Kept short since
+	 * no other gatt callbacks get through while it's waiting.
+	 */
+	public static final long BLOCK_TIMEOUT = 50;
+}
@@ -9,14 +9,113 @@ import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
 abstract class PA_ServiceManager
 {
 
+    private static final BleCharacteristicWrapper[] NO_CHARACTERISTICS = new BleCharacteristicWrapper[0];
+
+    /**
+     * Immutable lookup table of the gatt database, so that resolving the target of a read, write, etc. is a hash lookup or two,
+     * rather than a walk through every service and characteristic. Characteristics with the same uuid are kept in the order
+     * they're found natively, so lookups return the same thing walking the native lists would.
+     */
+    private static final class AttributeIndex
+    {
+        // Characteristics of the first service of each uuid (the one BluetoothGatt.getService() returns), by characteristic uuid.
+        private final HashMap<UUID, HashMap<UUID, BleCharacteristicWrapper[]>> m_charsByService = new HashMap<>();
+        // Characteristics of all services, by characteristic uuid.
+        private final HashMap<UUID, BleCharacteristicWrapper[]> m_chars = new HashMap<>();
+
+        AttributeIndex(final List<BluetoothGattService> services)
+        {
+            final HashMap<UUID, ArrayList<BleCharacteristicWrapper>> allChars = new HashMap<>();
+
+            for (int i = 0; i < services.size(); i++)
+            {
+                final BluetoothGattService service_ith = services.get(i);
+
+                if (service_ith == null)  continue;
+
+                final boolean firstOfUuid = !m_charsByService.containsKey(service_ith.getUuid());
+                final HashMap<UUID, ArrayList<BleCharacteristicWrapper>> serviceChars = new HashMap<>();
+                final List<BluetoothGattCharacteristic> chars = service_ith.getCharacteristics();
+
+                for (int j = 0; chars != null && j < chars.size(); j++)
+                {
+                    final BleCharacteristicWrapper char_jth = new BleCharacteristicWrapper(chars.get(j));
+                    final UUID charUuid = chars.get(j).getUuid();
+
+                    add(allChars, charUuid, char_jth);
+
+                    if (firstOfUuid)
+                    {
+                        add(serviceChars, charUuid, char_jth);
+                    }
+                }
+
+                if (firstOfUuid)
+                {
+                    m_charsByService.put(service_ith.getUuid(), toArrays(serviceChars));
+                }
+            }
+
+            m_chars.putAll(toArrays(allChars));
+        }
+
+        BleCharacteristicWrapper[] getCharacteristics(final UUID serviceUuid_nullable, final UUID charUuid)
+        {
+            final BleCharacteristicWrapper[] chars;
+
+            if (serviceUuid_nullable == null)
+            {
+                chars = m_chars.get(charUuid);
+            }
+            else
+            {
+                final HashMap<UUID, BleCharacteristicWrapper[]> serviceChars = m_charsByService.get(serviceUuid_nullable);
+
+                chars = serviceChars != null ? serviceChars.get(charUuid) : null;
+            }
+
+            return chars != null ? chars : NO_CHARACTERISTICS;
+        }
+
+        private static void add(final HashMap<UUID, ArrayList<BleCharacteristicWrapper>> map, final UUID uuid, final BleCharacteristicWrapper characteristic)
+        {
+            ArrayList<BleCharacteristicWrapper> list = map.get(uuid);
+
+            if (list == null)
+            {
+                list = new ArrayList<>(1);
+                map.put(uuid, list);
+            }
+
+            list.add(characteristic);
+        }
+
+        private static HashMap<UUID, BleCharacteristicWrapper[]> toArrays(final HashMap<UUID, ArrayList<BleCharacteristicWrapper>> map)
+        {
+            final HashMap<UUID, BleCharacteristicWrapper[]> arrays = new HashMap<>(map.size() * 2);
+
+            for (Map.Entry<UUID, ArrayList<BleCharacteristicWrapper>> entry : map.entrySet())
+            {
+                arrays.put(entry.getKey(), entry.getValue().toArray(new BleCharacteristicWrapper[entry.getValue().size()]));
+            }
+
+            return arrays;
+        }
+    }
+
+    private volatile AttributeIndex m_index = null;
+
+
     PA_ServiceManager()
     {
     }
@@ -25,9 +124,60 @@ abstract class PA_ServiceManager
 
     protected abstract List<BluetoothGattService> getNativeServiceList_original();
 
+    /**
+     * Returns <code>true</code> if the native gatt database is known to be complete and stable, so that it's safe to index it. The index
+     * is built the first time a lookup happens while this is <code>true</code>, and is kept until {@link #invalidateIndex()} is called.
+     */
+    protected boolean canIndex()
+    {
+        return false;
+    }
+
+    /**
+     * Throws away the attribute index, for when the native gatt database is about to change, for instance when services are
+     * being rediscovered or the node disconnected.
+     */
+    final void invalidateIndex()
+    {
+        m_index = null;
+    }
+
+    /**
+     * Builds the attribute index now rather than on the first lookup. Unlike lookups, this doesn't wait for {@link #canIndex()}, since it's
+     * meant to be called right after services are discovered, before the state that {@link #canIndex()} checks is set.
+     */
+    final void prepareIndex()
+    {
+        if (m_index == null)
+        {
+            m_index = new AttributeIndex(getNativeServiceList_original());
+        }
+    }
+
+    private AttributeIndex getIndex_nullable()
+    {
+        AttributeIndex index = m_index;
+
+        if (index == null && canIndex())
+        {
+            index = new AttributeIndex(getNativeServiceList_original());
+            m_index = index;
+        }
+
+        return index;
+    }
 
     public BleCharacteristicWrapper getCharacteristic(final UUID serviceUuid_nullable, final UUID charUuid)
     {
+        final AttributeIndex index = getIndex_nullable();
+
+        if (index != null)
+        {
+            final BleCharacteristicWrapper[] chars = index.getCharacteristics(serviceUuid_nullable, charUuid);
+
+            return chars.length > 0 ? chars[0] : BleCharacteristicWrapper.NULL;
+        }
+
         if (serviceUuid_nullable == null)
         {
             final List<BluetoothGattService> serviceList_native = getNativeServiceList_original();
@@ -57,6 +207,25 @@ abstract class PA_ServiceManager
 
     public BleCharacteristicWrapper getCharacteristic(final UUID serviceUuid_nullable, final UUID charUuid, final DescriptorFilter filter)
     {
+        final AttributeIndex index = getIndex_nullable();
+
+        if (index != null)
+        {
+            // Only the characteristics with the right uuid are run through the filter. Its decisions can't be cached, as they
+            // depend on descriptor values, which can change after discovery.
+            final BleCharacteristicWrapper[] chars = index.getCharacteristics(serviceUuid_nullable, charUuid);
+
+            for (int i = 0; i < chars.length; i++)
+            {
+                if (filter == null || accepts(filter, chars[i].getCharacteristic()))
+                {
+                    return chars[i];
+                }
+            }
+
+            return BleCharacteristicWrapper.NULL;
+        }
+
         if (serviceUuid_nullable == null)
         {
             final List<BluetoothGattService> serviceList_native = getNativeServiceList_original();
@@ -117,37 +286,10 @@ abstract class PA_ServiceManager
 
                 if (char_jth.getUuid().equals(charUuid))
                 {
-
-                    if (filter == null)
+                    if (filter == null || accepts(filter, char_jth))
                     {
                         return new BleCharacteristicWrapper(char_jth);
                     }
-                    else
-                    {
-                        final UUID descUuid = filter.descriptorUuid();
-                        if (descUuid != null)
-                        {
-                            final BluetoothGattDescriptor desc = char_jth.getDescriptor(filter.descriptorUuid());
-                            if (desc != null)
-                            {
-                                final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(service.getService(), char_jth, desc, new PresentData(desc.getValue()));
-                                final DescriptorFilter.Please please = filter.onEvent(event);
-                                if (please.isAccepted())
-                                {
-                                    return new BleCharacteristicWrapper(char_jth);
-                                }
-                            }
-                        }
-                        else
-                        {
-                            final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(service.getService(), char_jth, null, P_Const.EMPTY_FUTURE_DATA);
-                            final DescriptorFilter.Please please = filter.onEvent(event);
-                            if (please.isAccepted())
-                            {
-                                return new BleCharacteristicWrapper(char_jth);
-                            }
-                        }
-                    }
                 }
             }
             return BleCharacteristicWrapper.NULL;
@@ -158,6 +300,26 @@ abstract class PA_ServiceManager
         }
     }
 
+    private static boolean accepts(final DescriptorFilter filter, final BluetoothGattCharacteristic characteristic)
+    {
+        final UUID descUuid = filter.descriptorUuid();
+        if (descUuid != null)
+        {
+            final BluetoothGattDescriptor desc = characteristic.getDescriptor(descUuid);
+            if (desc != null)
+            {
+                final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(characteristic.getService(), characteristic, desc, new PresentData(desc.getValue()));
+                return filter.onEvent(event).isAccepted();
+            }
+            return false;
+        }
+        else
+        {
+            final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(characteristic.getService(), characteristic, null, P_Const.EMPTY_FUTURE_DATA);
+            return filter.onEvent(event).isAccepted();
+        }
+    }
+
     private List<BluetoothGattService> getNativeServiceList_cloned()
     {
         final List<BluetoothGattService> list_native = getNativeServiceList_original();
@@ -361,6 +523,15 @@ abstract class PA_ServiceManager
 
     public BleDescriptorWrapper getDescriptor(final UUID serviceUuid_nullable, final UUID charUuid_nullable, final UUID descUuid)
     {
+        final AttributeIndex index = serviceUuid_nullable != null && charUuid_nullable != null ? getIndex_nullable() : null;
+
+        if (index != null)
+        {
+            final BleCharacteristicWrapper[] chars = index.getCharacteristics(serviceUuid_nullable, charUuid_nullable);
+
+            return chars.length > 0 ? getDescriptor(chars[0], descUuid) : BleDescriptorWrapper.NULL;
+        }
+
         if (serviceUuid_nullable == null)
         {
             final List<BluetoothGattService> serviceList = getNativeServiceList_original();
@@ -456,6 +456,16 @@ abstract class PA_Task
 		return this.getPriority().ordinal() > task.getPriority().ordinal();
 	}
 	
+	/**
+	 * Returns <code>true</code> if some other task's {@link #isMoreImportantThan(PA_Task)} may return <code>true</code> for this task
+	 * even though that task's priority isn't higher. Used by {@link P_TaskQueueIndex} to know when it can skip comparing against the whole queue,
+	 * so any new override of {@link #isMoreImportantThan(PA_Task)} that special-cases a task type must be matched by that type overriding this.
+	 */
+	boolean isOutrankableRegardlessOfPriority()
+	{
+		return false;
+	}
+	
 	public boolean isInterruptableBy(PA_Task task)
 	{
 		return false;
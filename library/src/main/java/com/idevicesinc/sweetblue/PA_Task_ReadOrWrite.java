@@ -20,7 +20,8 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 	private final UUID m_charUuid;
 	private final UUID m_servUuid;
 
-	protected final ReadWriteListener m_readWriteListener;
+	//--- Not final so that a coalesced write can hand over its listener, see P_Task_Write.supersede().
+	protected ReadWriteListener m_readWriteListener;
 	
 	private Boolean m_authRetryValue_onExecute = null;
 	private boolean m_triedToKickOffBond = false;
@@ -5,6 +5,7 @@ import android.content.Context;
 import com.idevicesinc.sweetblue.backend.Backend_Modules;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_MappedFile;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
 import com.idevicesinc.sweetblue.utils.EpochTime;
@@ -47,6 +48,16 @@ final class PU_HistoricalData
 
 	static Backend_HistoricalDatabase newDatabase(final Context context, final BleManager manager)
 	{
+		if( Backend_Modules.HISTORICAL_DATA_DIRECTORY == null && context != null )
+		{
+			Backend_Modules.HISTORICAL_DATA_DIRECTORY = context.getFilesDir();
+		}
+
+		if( Backend_Modules.HISTORICAL_DATA_DIRECTORY == null && Backend_Modules.HISTORICAL_DATA_LIST == Backend_HistoricalDataList_MappedFile.class )
+		{
+			manager.getLogger().e("No directory set for historical data, so none will be stored. Set Backend_Modules.HISTORICAL_DATA_DIRECTORY.");
+		}
+
 		final Class<? extends Backend_HistoricalDatabase> databaseClass = Backend_Modules.HISTORICAL_DATABASE;
 
 		Backend_HistoricalDatabase newDatabase = null;
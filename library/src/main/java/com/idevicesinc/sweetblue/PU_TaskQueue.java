@@ -11,8 +11,16 @@ import java.util.List;
 final class PU_TaskQueue
 {
 	static int findSoonestSpot(List<PA_Task> taskList, PA_Task taskToAdd)
+	{
+		return findSoonestSpot(taskList, null, taskToAdd);
+	}
+
+	static int findSoonestSpot(List<PA_Task> taskList, P_TaskQueueIndex index_nullable, PA_Task taskToAdd)
 	{
 		if( taskList.size() == 0 )  return 0;
+
+		//--- Nothing queued has a lower priority (or is otherwise outrankable), so the task is going to the back anyway.
+		if( index_nullable != null && !index_nullable.mightOutrankAnything(taskToAdd) )  return -1;
 		
 		for( int i = 0; i < taskList.size(); i++ )
 		{
@@ -20,6 +20,7 @@ import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Utils;
 import java.lang.reflect.Method;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import static com.idevicesinc.sweetblue.BleManagerState.OFF;
 import static com.idevicesinc.sweetblue.BleManagerState.ON;
@@ -256,14 +257,14 @@ public final class P_AndroidBluetoothManager implements P_NativeManagerLayer
         }
     }
 
-    @Override public final void startLScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+    @Override public final void startLScan(int scanMode, Interval delay, List<L_Util.ScanFilterSpec> filters_nullable, L_Util.ScanCallback callback)
     {
-        L_Util.startNativeScan(m_adaptor, scanMode, delay, callback);
+        L_Util.startNativeScan(m_adaptor, scanMode, delay, filters_nullable, callback);
     }
 
-    @Override public final void startMScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+    @Override public final void startMScan(int scanMode, Interval delay, List<L_Util.ScanFilterSpec> filters_nullable, L_Util.ScanCallback callback)
     {
-        M_Util.startNativeScan(m_adaptor, scanMode, delay, callback);
+        M_Util.startNativeScan(m_adaptor, scanMode, delay, filters_nullable, callback);
     }
 
     @Override public final boolean startLeScan(BluetoothAdapter.LeScanCallback callback)
@@ -24,6 +24,8 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
 //    private final P_Logger m_logger;
     private final P_TaskQueue m_queue;
 
+    final P_NotificationQueue m_notifyQueue;
+
     final PA_Task.I_StateListener m_taskStateListener = new PA_Task.I_StateListener()
     {
         @Override
@@ -122,6 +124,7 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
     {
         m_device = device;
         m_queue = m_device.getTaskQueue();
+        m_notifyQueue = new P_NotificationQueue(device);
     }
 
 
@@ -330,14 +333,22 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
         }
         else
         {
-            final P_Task_BatteryLevel batteryTask = m_queue.getCurrent(P_Task_BatteryLevel.class, m_device);
-            if (batteryTask != null)
+            final P_Task_ReadMany readManyTask = m_queue.getCurrent(P_Task_ReadMany.class, m_device);
+            if (readManyTask != null && readManyTask.isFor(characteristic))
             {
-                batteryTask.onCharacteristicRead(gatt, characteristic.getUuid(), value, gattStatus);
+                readManyTask.onCharacteristicRead(gatt, characteristic, value, gattStatus);
             }
             else
             {
-                fireUnsolicitedEvent(new BleCharacteristicWrapper(characteristic), BleDescriptorWrapper.NULL, BleDevice.ReadWriteListener.Type.READ, BleDevice.ReadWriteListener.Target.CHARACTERISTIC, value, gattStatus);
+                final P_Task_BatteryLevel batteryTask = m_queue.getCurrent(P_Task_BatteryLevel.class, m_device);
+                if (batteryTask != null)
+                {
+                    batteryTask.onCharacteristicRead(gatt, characteristic.getUuid(), value, gattStatus);
+                }
+                else
+                {
+                    fireUnsolicitedEvent(new BleCharacteristicWrapper(characteristic), BleDescriptorWrapper.NULL, BleDevice.ReadWriteListener.Type.READ, BleDevice.ReadWriteListener.Target.CHARACTERISTIC, value, gattStatus);
+                }
             }
         }
     }
@@ -369,8 +380,11 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
             task.onCharacteristicWrite(gatt, characteristic.getUuid(), gattStatus);
         else
         {
+            final P_Task_StreamWrite streamTask = m_queue.getCurrent(P_Task_StreamWrite.class, m_device);
             final P_Task_TestMtu testTask = m_queue.getCurrent(P_Task_TestMtu.class, m_device);
-            if (testTask != null && testTask.isFor(characteristic))
+            if (streamTask != null && streamTask.isFor(characteristic))
+                streamTask.onCharacteristicWrite(gatt, characteristic.getUuid(), gattStatus);
+            else if (testTask != null && testTask.isFor(characteristic))
                 testTask.onCharacteristicWrite(gatt, characteristic.getUuid(), gattStatus);
             else
                 fireUnsolicitedEvent(new BleCharacteristicWrapper(characteristic), BleDescriptorWrapper.NULL, BleDevice.ReadWriteListener.Type.WRITE, BleDevice.ReadWriteListener.Target.CHARACTERISTIC, data, gattStatus);
@@ -549,7 +563,15 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
         }
         else
         {
-            fireUnsolicitedEvent(new BleCharacteristicWrapper(descriptor.getCharacteristic()), new BleDescriptorWrapper(descriptor), BleDevice.ReadWriteListener.Type.READ, BleDevice.ReadWriteListener.Target.DESCRIPTOR, data, gattStatus);
+            final P_Task_ReadMany readManyTask = m_queue.getCurrent(P_Task_ReadMany.class, m_device);
+            if (readManyTask != null && readManyTask.isFor(descriptor))
+            {
+                readManyTask.onDescriptorRead(gatt, descriptor, data, gattStatus);
+            }
+            else
+            {
+                fireUnsolicitedEvent(new BleCharacteristicWrapper(descriptor.getCharacteristic()), new BleDescriptorWrapper(descriptor), BleDevice.ReadWriteListener.Type.READ, BleDevice.ReadWriteListener.Target.DESCRIPTOR, data, gattStatus);
+            }
         }
 
 //		final P_Task_ReadDescriptor task_read = m_queue.getCurrent(P_Task_ReadDescriptor.class, m_device);
@@ -577,24 +599,7 @@ final class P_BleDevice_Listeners extends BluetoothGattCallback
     {
         final byte[] value = characteristic.getValue() == null ? null : characteristic.getValue().clone();
 
-        m_device.getManager().getPostManager().runOrPostToUpdateThread(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                onCharacteristicChanged_updateThread(gatt, characteristic, value);
-            }
-        });
-    }
-
-    private void onCharacteristicChanged_updateThread(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final byte[] value)
-    {
-        final UUID characteristicUuid = characteristic.getUuid();
-        final UUID serviceUuid = characteristic.getService().getUuid();
-
-        logger().d("characteristic=" + characteristicUuid.toString());
-
-        m_device.getPollManager().onCharacteristicChangedFromNativeNotify(serviceUuid, characteristicUuid, value);
+        m_notifyQueue.offer(characteristic, value, System.currentTimeMillis());
     }
 
     public final void onNativeBoneRequest_updateThread(BleDevice device)
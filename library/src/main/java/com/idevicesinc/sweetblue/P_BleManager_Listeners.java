@@ -248,7 +248,7 @@ final class P_BleManager_Listeners
             layer.setNativeDevice(device_native);
 
             final List<P_ScanManager.DiscoveryEntry> entries = new ArrayList<>(1);
-            entries.add(new P_ScanManager.DiscoveryEntry(layer, rssi, null));
+            entries.add(new P_ScanManager.DiscoveryEntry(layer, rssi, null, null));
 
             m_mngr.onDiscoveredFromNativeStack(entries);
         }
@@ -784,6 +784,19 @@ final class P_BleManager_Listeners
         }
     }
 
+    /**
+     * Returns how long in seconds until {@link #update(double)} next needs to poll the native state.
+     */
+    double getTimeUntilNextUpdate()
+    {
+        if (Utils.isMarshmallow() && m_mngr.m_config.allowManagerStatePolling && Interval.isEnabled(m_pollRate))
+        {
+            return Math.max(0.0, m_pollRate.secs() - m_timeSinceLastPoll);
+        }
+
+        return Interval.INFINITE.secs();
+    }
+
     private int getBleState()
     {
         if (Utils.isMarshmallow() && m_mngr.getNativeAdapter() != null)
@@ -2,8 +2,13 @@ package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.idevicesinc.sweetblue.BleDevice.BondListener;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener;
@@ -21,6 +26,36 @@ final class P_DeviceManager
     private final HashMap<String, BleDevice> m_map = new HashMap<String, BleDevice>();
     private final ArrayList<BleDevice> m_list = new ArrayList<BleDevice>();
 
+    // Secondary index from each BleDeviceState (by ordinal) to the registered devices currently in that state, kept
+    // up to date by onStateChange(), so that state queries don't have to walk the whole list. Each bucket is kept in
+    // registration order, which is the order of m_list, so matches come back in the same order as walking the list would.
+    // State changes come in on whatever thread made them, so the index and m_order are only ever touched, and m_map only
+    // ever changed or read off of the update thread, while holding m_indexLock, and queries work off of a copy of the matches so that they never call back into a device while holding it.
+    private final ArrayList<TreeSet<BleDevice>> m_stateIndex;
+    private final IdentityHashMap<BleDevice, Long> m_order = new IdentityHashMap<BleDevice, Long>();
+    private long m_nextOrder = 0;
+    private final Object m_indexLock = new Object();
+
+    private final Comparator<BleDevice> m_registrationOrder = new Comparator<BleDevice>()
+    {
+        @Override public int compare(BleDevice lhs, BleDevice rhs)
+        {
+            final long lhsOrder = m_order.get(lhs);
+            final long rhsOrder = m_order.get(rhs);
+
+            return lhsOrder < rhsOrder ? -1 : (lhsOrder == rhsOrder ? 0 : 1);
+        }
+    };
+
+    // Same devices as m_list, but kept sorted by m_sortComparator once anyone has asked for a sorted list. Changes to a
+    // device that might move it around just mark it dirty, and it's moved into place the next time a sorted list is asked
+    // for. Everything to do with sorting is guarded by m_sortLock, as sorted lists are often asked for from the UI thread.
+    private final Object m_sortLock = new Object();
+    private final ArrayList<BleDevice> m_sorted = new ArrayList<BleDevice>();
+    private final LinkedHashSet<BleDevice> m_sortDirty = new LinkedHashSet<BleDevice>();
+    private Comparator<BleDevice> m_sortComparator = null;
+    private List<BleDevice> m_sortedSnapshot = null;
+
     private final BleManager m_mngr;
 
     private boolean m_updating = false;
@@ -29,6 +64,13 @@ final class P_DeviceManager
     P_DeviceManager(BleManager mngr)
     {
         m_mngr = mngr;
+
+        final int stateCount = BleDeviceState.VALUES().length;
+        m_stateIndex = new ArrayList<>(stateCount);
+        for (int i = 0; i < stateCount; i++)
+        {
+            m_stateIndex.add(new TreeSet<BleDevice>(m_registrationOrder));
+        }
     }
 
     private P_Logger logger()
@@ -38,21 +80,161 @@ final class P_DeviceManager
 
     public ArrayList<BleDevice> getList()
     {
-        return getList_private(false);
+        return m_list;
+    }
+
+    /**
+     * Returns an immutable snapshot of all devices, sorted by {@link BleManagerConfig#defaultListComparator}. If that's
+     * <code>null</code> or a built-in comparator, the same snapshot is returned until something changes which could affect the order.
+     * Otherwise there's no telling what the comparator looks at, so the list is re-sorted every time.
+     */
+    public List<BleDevice> getList_sorted()
+    {
+        final Comparator<BleDevice> comparator = m_mngr.m_config.defaultListComparator;
+
+        synchronized (m_sortLock)
+        {
+            if (m_sortedSnapshot != null && comparator == m_sortComparator && isTracked(comparator))
+            {
+                return m_sortedSnapshot;
+            }
+
+            if (comparator == null)
+            {
+                m_sortDirty.clear();
+            }
+            //--- Nothing was keeping track of what moved, so sort the whole thing. The list is usually mostly sorted
+            //--- already from last time, which the sort is quick about.
+            else if (!isTracked(comparator))
+            {
+                Collections.sort(m_sorted, comparator);
+                m_sortDirty.clear();
+            }
+            //--- Only a few devices moved, so just move those into place, otherwise sort the whole thing. Since the list
+            //--- is usually mostly sorted already, that's still a lot cheaper than sorting from scratch.
+            else if (comparator == m_sortComparator && m_sortDirty.size() <= m_sorted.size() / 8)
+            {
+                reposition(m_sortDirty, comparator);
+                m_sortDirty.clear();
+            }
+            else
+            {
+                Collections.sort(m_sorted, comparator);
+                m_sortDirty.clear();
+            }
+
+            m_sortComparator = comparator;
+            m_sortedSnapshot = Collections.unmodifiableList(new ArrayList<BleDevice>(m_sorted));
+
+            return m_sortedSnapshot;
+        }
+    }
+
+    /**
+     * Returns whether every change that could affect the order given by the comparator makes it to {@link #onSortKeyChange(BleDevice, boolean)},
+     * which is only known for the built-in {@link BleManagerConfig.DeviceNameComparator} (and not any subclass of it).
+     */
+    private static boolean isTracked(final Comparator<BleDevice> comparator)
+    {
+        return comparator == null || comparator.getClass() == BleManagerConfig.DeviceNameComparator.class;
     }
 
-    public ArrayList<BleDevice> getList_sorted()
+    /**
+     * Called when something changed about the given device which might change where it goes in {@link #getList_sorted()}.
+     * Changes to anything but the name are ignored if the list is sorted with {@link BleManagerConfig.DeviceNameComparator},
+     * as that's all it looks at, and everything is ignored for other comparators, since the list is re-sorted for those anyway.
+     */
+    void onSortKeyChange(final BleDevice device, final boolean nameChanged)
     {
-        return getList_private(true);
+        synchronized (m_sortLock)
+        {
+            if (m_sortComparator == null || !isTracked(m_sortComparator)) return;
+
+            if (!nameChanged && m_sortComparator.getClass() == BleManagerConfig.DeviceNameComparator.class) return;
+
+            if (!has(device)) return;
+
+            m_sortDirty.add(device);
+            m_sortedSnapshot = null;
+        }
     }
 
-    private ArrayList<BleDevice> getList_private(boolean sort)
+    /**
+     * Takes all the dirty devices out before putting any back, since binary searching for where one goes only works if
+     * everything left in {@link #m_sorted} is actually in order.
+     */
+    private void reposition(final Set<BleDevice> dirty, final Comparator<BleDevice> comparator)
     {
-        if (sort && m_mngr.m_config.defaultListComparator != null)
+        for (BleDevice device : dirty)
         {
-            Collections.sort(m_list, m_mngr.m_config.defaultListComparator);
+            removeInstance(m_sorted, device);
         }
-        return m_list;
+
+        for (BleDevice device : dirty)
+        {
+            final int index = Collections.binarySearch(m_sorted, device, comparator);
+
+            m_sorted.add(index >= 0 ? index + 1 : -(index + 1), device);
+        }
+    }
+
+    private static void removeInstance(final ArrayList<BleDevice> list, final BleDevice device)
+    {
+        // Newly added devices are at the end, so look from there.
+        for (int i = list.size() - 1; i >= 0; i--)
+        {
+            if (list.get(i) == device)
+            {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts a list of matches to a query, either by sorting it directly, or if there are enough matches that it's cheaper,
+     * by picking them out of {@link #getList_sorted()}.
+     */
+    private void sort(final ArrayList<BleDevice> matches)
+    {
+        final Comparator<BleDevice> comparator = m_mngr.m_config.defaultListComparator;
+
+        if (comparator == null || matches.size() < 2) return;
+
+        //--- Picking matches out of the sorted list only pays off when it's cached, otherwise it's a sort of everything.
+        if (!isTracked(comparator))
+        {
+            Collections.sort(matches, comparator);
+            return;
+        }
+
+        final List<BleDevice> sorted = getList_sorted();
+        final int size = matches.size();
+
+        if ((long) size * (32 - Integer.numberOfLeadingZeros(size)) > sorted.size())
+        {
+            final Set<BleDevice> wanted = Collections.newSetFromMap(new IdentityHashMap<BleDevice, Boolean>(size));
+            wanted.addAll(matches);
+
+            final ArrayList<BleDevice> result = new ArrayList<BleDevice>(size);
+            for (int i = 0; i < sorted.size(); i++)
+            {
+                if (wanted.contains(sorted.get(i)))
+                {
+                    result.add(sorted.get(i));
+                }
+            }
+
+            //--- If the device list changed in the meantime (we're not on the update thread), the two won't agree, so just sort.
+            if (result.size() == size)
+            {
+                matches.clear();
+                matches.addAll(result);
+                return;
+            }
+        }
+
+        Collections.sort(matches, comparator);
     }
 
     void forEach(final Object forEach, final Object... query)
@@ -179,89 +361,122 @@ final class P_DeviceManager
 
     public BleDevice getDevice(final int mask_BleDeviceState)
     {
-        for (int i = 0; i < getCount(); i++)
+        synchronized (m_indexLock)
         {
-            BleDevice device = get(i);
+            BleDevice first = null;
 
-            if (device.isAny(mask_BleDeviceState))
+            for (int i = 0; i < m_stateIndex.size(); i++)
             {
-                return device;
+                if ((mask_BleDeviceState & (0x1 << i)) == 0x0) continue;
+
+                final TreeSet<BleDevice> index = m_stateIndex.get(i);
+
+                if (!index.isEmpty() && (first == null || m_registrationOrder.compare(index.first(), first) < 0))
+                {
+                    first = index.first();
+                }
             }
-        }
 
-        return BleDevice.NULL;
+            return first != null ? first : BleDevice.NULL;
+        }
     }
 
-    public List<BleDevice> getDevices_List(boolean sort, Object... query)
+    BleDevice getDevice(final Object[] query)
     {
-        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+        final List<BleDevice> candidates = getCandidates(query);
 
-        for (int i = 0; i < this.getCount(); i++)
+        for (int i = 0; i < candidates.size(); i++)
         {
-            final BleDevice device_ith = this.get(i);
+            final BleDevice device_ith = candidates.get(i);
 
             if (device_ith.is(query))
             {
-                toReturn.add(device_ith);
+                return device_ith;
             }
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
-        {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
-        }
-        return toReturn;
+
+        return BleDevice.NULL;
     }
 
-    public List<BleDevice> getDevices_List(boolean sort, final BleDeviceState state)
+    public List<BleDevice> getDevices_List(boolean sort, Object... query)
     {
-        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+        final List<BleDevice> candidates = getCandidates(query);
+        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>(candidates.size());
 
-        for (int i = 0; i < this.getCount(); i++)
+        for (int i = 0; i < candidates.size(); i++)
         {
-            final BleDevice device_ith = this.get(i);
+            final BleDevice device_ith = candidates.get(i);
 
-            if (device_ith.is(state))
+            if (device_ith.is(query))
             {
                 toReturn.add(device_ith);
             }
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
+        if (sort)
         {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
+            sort(toReturn);
         }
         return toReturn;
     }
 
+    public List<BleDevice> getDevices_List(boolean sort, final BleDeviceState state)
+    {
+        return getDevices_List(sort, state.bit());
+    }
+
     public List<BleDevice> getDevices_List(boolean sort, final int mask_BleDeviceState)
     {
-        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+        final ArrayList<BleDevice> toReturn;
 
-        for (int i = 0; i < this.getCount(); i++)
+        synchronized (m_indexLock)
         {
-            final BleDevice device_ith = this.get(i);
+            TreeSet<BleDevice> only = null;
+            TreeSet<BleDevice> union = null;
 
-            if (device_ith.isAny(mask_BleDeviceState))
+            for (int i = 0; i < m_stateIndex.size(); i++)
             {
-                toReturn.add(device_ith);
+                if ((mask_BleDeviceState & (0x1 << i)) == 0x0) continue;
+
+                final TreeSet<BleDevice> index = m_stateIndex.get(i);
+
+                if (index.isEmpty()) continue;
+
+                //--- Only when more than one state has devices do the matches need merging back into list order.
+                if (only == null && union == null)
+                {
+                    only = index;
+                }
+                else
+                {
+                    if (union == null)
+                    {
+                        union = new TreeSet<BleDevice>(m_registrationOrder);
+                        union.addAll(only);
+                    }
+
+                    union.addAll(index);
+                }
             }
+
+            final TreeSet<BleDevice> matches = union != null ? union : only;
+
+            toReturn = matches != null ? new ArrayList<BleDevice>(matches) : new ArrayList<BleDevice>();
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
+        if (sort)
         {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
+            sort(toReturn);
         }
         return toReturn;
     }
 
     public boolean has(BleDevice device)
     {
-        for (int i = 0; i < m_list.size(); i++)
-        {
-            BleDevice device_ith = m_list.get(i);
+        if (device == null) return false;
 
-            if (device_ith == device) return true;
+        synchronized (m_indexLock)
+        {
+            return m_map.get(device.getMacAddress()) == device;
         }
-
-        return false;
     }
 
     public BleDevice get(int i)
@@ -272,12 +487,11 @@ final class P_DeviceManager
     int getCount(Object[] query)
     {
         int count = 0;
+        final List<BleDevice> candidates = getCandidates(query);
 
-        for (int i = 0; i < m_list.size(); i++)
+        for (int i = 0; i < candidates.size(); i++)
         {
-            BleDevice device_ith = m_list.get(i);
-
-            if (device_ith.is(query))
+            if (candidates.get(i).is(query))
             {
                 count++;
             }
@@ -288,19 +502,91 @@ final class P_DeviceManager
 
     int getCount(BleDeviceState state)
     {
-        int count = 0;
+        synchronized (m_indexLock)
+        {
+            return m_stateIndex.get(state.ordinal()).size();
+        }
+    }
 
-        for (int i = 0; i < m_list.size(); i++)
+    /**
+     * Returns the devices in the smallest index bucket out of the states the given query requires a device to be in, in list order,
+     * or a copy of the whole list if the query doesn't require any particular state. Each still has to be checked against the query.
+     */
+    private List<BleDevice> getCandidates(final Object[] query)
+    {
+        synchronized (m_indexLock)
         {
-            BleDevice device_ith = m_list.get(i);
+            TreeSet<BleDevice> smallest = null;
 
-            if (device_ith.is(state))
+            for (int i = 0; query != null && i < query.length; i += 2)
             {
-                count++;
+                final Object first = query[i];
+                final Object second = i + 1 < query.length ? query[i + 1] : null;
+
+                //--- A lone state, or a state paired with true, is required. A state paired with another state or false isn't.
+                if (first instanceof BleDeviceState && (second == null || Boolean.TRUE.equals(second)))
+                {
+                    final TreeSet<BleDevice> index = m_stateIndex.get(((BleDeviceState) first).ordinal());
+
+                    if (smallest == null || index.size() < smallest.size())
+                    {
+                        smallest = index;
+                    }
+                }
             }
+
+            return smallest != null ? new ArrayList<BleDevice>(smallest) : new ArrayList<BleDevice>(m_list);
         }
+    }
 
-        return count;
+    /**
+     * Called by {@link P_DeviceStateTracker} whenever a device's state changes, to keep {@link #m_stateIndex} up to date.
+     * Does nothing if the device isn't registered here.
+     */
+    void onStateChange(final BleDevice device, final int oldStateBits, final int newStateBits)
+    {
+        final int changed = oldStateBits ^ newStateBits;
+
+        synchronized (m_indexLock)
+        {
+            //--- Checked under the lock, so a device being removed at the same time can't end up back in the index.
+            if (m_map.get(device.getMacAddress()) != device) return;
+
+            for (int i = 0; i < m_stateIndex.size(); i++)
+            {
+                final int bit = 0x1 << i;
+
+                if ((changed & bit) == 0x0) continue;
+
+                if ((newStateBits & bit) != 0x0)
+                {
+                    m_stateIndex.get(i).add(device);
+                }
+                else
+                {
+                    m_stateIndex.get(i).remove(device);
+                }
+            }
+        }
+
+        onSortKeyChange(device, /*nameChanged=*/false);
+    }
+
+    private void index(final BleDevice device, final int stateBits, final boolean add)
+    {
+        for (int i = 0; i < m_stateIndex.size(); i++)
+        {
+            if ((stateBits & (0x1 << i)) == 0x0) continue;
+
+            if (add)
+            {
+                m_stateIndex.get(i).add(device);
+            }
+            else
+            {
+                m_stateIndex.get(i).remove(device);
+            }
+        }
     }
 
     int getCount()
@@ -310,7 +596,10 @@ final class P_DeviceManager
 
     public BleDevice get(String uniqueId)
     {
-        return m_map.get(uniqueId);
+        synchronized (m_indexLock)
+        {
+            return m_map.get(uniqueId);
+        }
     }
 
     void add(final BleDevice device)
@@ -326,7 +615,23 @@ final class P_DeviceManager
                 }
 
                 m_list.add(device);
-                m_map.put(device.getMacAddress(), device);
+
+                synchronized (m_indexLock)
+                {
+                    m_map.put(device.getMacAddress(), device);
+                    m_order.put(device, m_nextOrder++);
+                    index(device, device.getStateMask(), true);
+                }
+
+                synchronized (m_sortLock)
+                {
+                    m_sorted.add(device);
+                    if (m_sortComparator != null)
+                    {
+                        m_sortDirty.add(device);
+                    }
+                    m_sortedSnapshot = null;
+                }
             }
         });
     }
@@ -364,7 +669,21 @@ final class P_DeviceManager
         m_mngr.ASSERT(m_map.containsKey(device.getMacAddress()));
 
         m_list.remove(device);
-        m_map.remove(device.getMacAddress());
+
+        synchronized (m_indexLock)
+        {
+            m_map.remove(device.getMacAddress());
+            // Clear the device from every index, not just the ones for its current state, in case a change slipped through.
+            index(device, BleDeviceState.FULL_MASK, false);
+            m_order.remove(device);
+        }
+
+        synchronized (m_sortLock)
+        {
+            removeInstance(m_sorted, device);
+            m_sortDirty.remove(device);
+            m_sortedSnapshot = null;
+        }
 
         final boolean cacheDevice = BleDeviceConfig.bool(device.conf_device().cacheDeviceOnUndiscovery, device.conf_mngr().cacheDeviceOnUndiscovery);
 
@@ -404,6 +723,18 @@ final class P_DeviceManager
         m_updating = false;
     }
 
+    double getTimeUntilNextUpdate()
+    {
+        double soonest = Interval.INFINITE.secs();
+
+        for (int i = m_list.size() - 1; i >= 0; i--)
+        {
+            soonest = Math.min(soonest, m_list.get(i).getTimeUntilNextUpdate());
+        }
+
+        return soonest;
+    }
+
     void unbondAll(PE_TaskPriority priority, BondListener.Status status)
     {
         for (int i = m_list.size() - 1; i >= 0; i--)
@@ -589,11 +920,9 @@ final class P_DeviceManager
             return m_list.size() > 0;
         }
 
-        for (int i = m_list.size() - 1; i >= 0; i--)
+        for (int i = 0; i < filter.length; i++)
         {
-            BleDevice device = get(i);
-
-            if (device.isAny(filter))
+            if (getCount(filter[i]) > 0)
             {
                 return true;
             }
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.UUID;
 
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
@@ -11,10 +12,15 @@ import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.Uuids;
 
 
 final class P_DeviceServiceManager extends PA_ServiceManager
 {
+	// 64-bit FNV-1a, for getLayoutHash().
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
 	private final BleDevice m_device;
 	
 	public P_DeviceServiceManager(BleDevice device)
@@ -193,6 +199,89 @@ final class P_DeviceServiceManager extends PA_ServiceManager
 		return m_device.layerManager().getService(serviceUuid);
 	}
 
+	/**
+	 * Returns a hash of the layout of the native gatt database, i.e. the uuids, types, and properties of everything in it, but not their values.
+	 * Used to tell whether a device's database is the same as the last time we discovered services, see {@link BleDeviceConfig#cacheGattLayout}.
+	 */
+	final long getLayoutHash()
+	{
+		final List<BluetoothGattService> services = getNativeServiceList_original();
+
+		long hash = FNV_OFFSET_BASIS;
+
+		for( int i = 0; i < services.size(); i++ )
+		{
+			final BluetoothGattService service_ith = services.get(i);
+
+			hash = hash(hash, service_ith.getUuid());
+			hash = hash(hash, service_ith.getType());
+
+			final List<BluetoothGattCharacteristic> chars = service_ith.getCharacteristics();
+
+			for( int j = 0; chars != null && j < chars.size(); j++ )
+			{
+				final BluetoothGattCharacteristic char_jth = chars.get(j);
+
+				hash = hash(hash, char_jth.getUuid());
+				hash = hash(hash, char_jth.getProperties());
+
+				final List<BluetoothGattDescriptor> descs = char_jth.getDescriptors();
+
+				for( int k = 0; descs != null && k < descs.size(); k++ )
+				{
+					hash = hash(hash, descs.get(k).getUuid());
+				}
+			}
+
+			// Marks the end of the service, so moving a characteristic from one service to the next changes the hash.
+			hash = hash(hash, -1L);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Returns <code>true</code> if the native gatt database has the Service Changed characteristic, which obliges the device to tell
+	 * bonded centrals when its database changes.
+	 */
+	final boolean hasServiceChanged()
+	{
+		final List<BluetoothGattService> services = getNativeServiceList_original();
+
+		for( int i = 0; i < services.size(); i++ )
+		{
+			final BluetoothGattService service_ith = services.get(i);
+
+			if( Uuids.GENERIC_ATTRIBUTES_SERVICE_UUID.equals(service_ith.getUuid()) && service_ith.getCharacteristic(Uuids.SERVICE_CHANGED) != null )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static long hash(final long hash, final UUID uuid)
+	{
+		return hash(hash(hash, uuid.getMostSignificantBits()), uuid.getLeastSignificantBits());
+	}
+
+	private static long hash(long hash, final long value)
+	{
+		for( int i = 0; i < 64; i += 8 )
+		{
+			hash ^= (value >>> i) & 0xFF;
+			hash *= FNV_PRIME;
+		}
+
+		return hash;
+	}
+
+	@Override protected final boolean canIndex()
+	{
+		return m_device.is(BleDeviceState.SERVICES_DISCOVERED);
+	}
+
 	@Override protected final List<BluetoothGattService> getNativeServiceList_original()
 	{
 		List<BluetoothGattService> list_native = m_device.layerManager().getNativeServiceList();
@@ -43,6 +43,17 @@ final class P_DeviceStateTracker extends PA_StateTracker
 	@Override protected void onStateChange(final int oldStateBits, final int newStateBits, final int intentMask, final int gattStatus)
 	{
 		if( m_device.isNull() )		return;
+
+		if( !m_forShortTermReconnect )
+		{
+			m_device.getManager().onDeviceStateChange(m_device, oldStateBits, newStateBits);
+
+			if( m_device.getPollManager() != null )
+			{
+				m_device.getPollManager().onDeviceStateChange(newStateBits);
+			}
+		}
+
 		if( m_syncing )				return;
 
 		if( m_stateListener != null )
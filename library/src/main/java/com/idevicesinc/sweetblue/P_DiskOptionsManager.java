@@ -21,7 +21,8 @@ final class P_DiskOptionsManager
 	{
 		LAST_DISCONNECT("sweetblue_16l@{&a}"),
 		NEEDS_BONDING("sweetblue_p59=F%k"),
-		DEVICE_NAME("sweetblue_qurhzpoc");
+		DEVICE_NAME("sweetblue_qurhzpoc"),
+		GATT_LAYOUT("sweetblue_g8#t1@yo");
 
 
 		private final String m_key;
@@ -42,6 +43,7 @@ final class P_DiskOptionsManager
 	private final HashMap<String, Integer> m_inMemoryDb_lastDisconnect = new HashMap<String, Integer>();
 	private final HashMap<String, Boolean> m_inMemoryDb_needsBonding = new HashMap<String, Boolean>();
 	private final HashMap<String, String> m_inMemoryDb_name = new HashMap<String, String>();
+	private final HashMap<String, Long> m_inMemoryDb_gattLayout = new HashMap<String, Long>();
 
 	private final HashMap[] m_inMemoryDbs = new HashMap[E_Namespace.values().length];
 
@@ -55,6 +57,7 @@ final class P_DiskOptionsManager
 		m_inMemoryDbs[E_Namespace.LAST_DISCONNECT.ordinal()] = m_inMemoryDb_lastDisconnect;
 		m_inMemoryDbs[E_Namespace.NEEDS_BONDING.ordinal()] = m_inMemoryDb_needsBonding;
 		m_inMemoryDbs[E_Namespace.DEVICE_NAME.ordinal()] = m_inMemoryDb_name;
+		m_inMemoryDbs[E_Namespace.GATT_LAYOUT.ordinal()] = m_inMemoryDb_gattLayout;
 
 		final E_Namespace[] values = E_Namespace.values();
 
@@ -170,6 +173,47 @@ final class P_DiskOptionsManager
 		return value_disk;
 	}
 
+	public void saveGattLayout(final String mac, final long layoutHash, final boolean hitDisk)
+	{
+		m_inMemoryDb_gattLayout.put(mac, layoutHash);
+
+		if( !hitDisk )  return;
+
+		//--- Only ever checked against on the next connect, so there's no need to block the update thread until it's written.
+		prefs(E_Namespace.GATT_LAYOUT).edit().putLong(mac, layoutHash).apply();
+	}
+
+	public void clearGattLayout(final String mac, final boolean hitDisk)
+	{
+		m_inMemoryDb_gattLayout.remove(mac);
+
+		if( !hitDisk )  return;
+
+		prefs(E_Namespace.GATT_LAYOUT).edit().remove(mac).apply();
+	}
+
+	public Long loadGattLayout(final String mac, final boolean hitDisk)
+	{
+		final Long value_memory = m_inMemoryDb_gattLayout.get(mac);
+
+		if( value_memory != null )
+		{
+			return value_memory;
+		}
+
+		if( !hitDisk )  return null;
+
+		final SharedPreferences prefs = prefs(E_Namespace.GATT_LAYOUT);
+
+		if( !prefs.contains(mac) )  return null;
+
+		final long value_disk = prefs.getLong(mac, 0L);
+
+		m_inMemoryDb_gattLayout.put(mac, value_disk);
+
+		return value_disk;
+	}
+
 	void clear()
 	{
 		final E_Namespace[] values = E_Namespace.values();
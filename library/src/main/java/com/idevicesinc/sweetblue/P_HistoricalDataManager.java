@@ -50,6 +50,22 @@ final class P_HistoricalDataManager
 		return m_endPoint.getManager().m_historicalDatabase;
 	}
 
+	private P_HistoricalDataWriter getWriter()
+	{
+		return m_endPoint.getManager().m_historicalDataWriter;
+	}
+
+	//--- Reads and deletes have to see everything added to a list before them, even if it's still queued. Only waits on that list's writes.
+	private Backend_HistoricalDataList flushWriter(final Backend_HistoricalDataList list_nullable)
+	{
+		if( list_nullable != null )
+		{
+			getWriter().flush(list_nullable);
+		}
+
+		return list_nullable;
+	}
+
 	//GOOD
 	private Backend_HistoricalDataList getList_doNotCreate(final UUID uuid)
 	{
@@ -123,7 +139,7 @@ final class P_HistoricalDataManager
 
 		m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		list.add_single(historicalData, please.m_persistenceLevel, please.getLimit());
+		getWriter().add_single(list, historicalData, please.m_persistenceLevel, please.getLimit());
 	}
 
 	//GOOD
@@ -148,7 +164,7 @@ final class P_HistoricalDataManager
 
 		m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		list.add_single(historicalData_override, please.m_persistenceLevel, please.getLimit());
+		getWriter().add_single(list, historicalData_override, please.m_persistenceLevel, please.getLimit());
 	}
 
 	//GOOD
@@ -162,7 +178,7 @@ final class P_HistoricalDataManager
 
 		m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		list.add_multiple(historicalData, please.m_persistenceLevel, please.getLimit());
+		getWriter().add_multiple(list, historicalData, please.m_persistenceLevel, please.getLimit());
 	}
 
 	//GOOD
@@ -176,13 +192,13 @@ final class P_HistoricalDataManager
 
 		m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		list.add_multiple(historicalData, please.m_persistenceLevel, please.getLimit());
+		getWriter().add_multiple(list, historicalData, please.m_persistenceLevel, please.getLimit());
 	}
 
 	//GOOD
 	public HistoricalData getWithOffset(final UUID uuid, final EpochTimeRange range, final int offset)
 	{
-		final Backend_HistoricalDataList list = getList_onlyCreateIfDataIsOnDisk(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_onlyCreateIfDataIsOnDisk(uuid));
 
 		if( list == null )
 		{
@@ -197,7 +213,7 @@ final class P_HistoricalDataManager
 	//GOOD
 	public void delete(final UUID uuid, final EpochTimeRange range, final long limit, final boolean memoryOnly)
 	{
-		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_doNotCreate(uuid));
 
 		if( memoryOnly )
 		{
@@ -249,7 +265,7 @@ final class P_HistoricalDataManager
 
 			i++;
 
-			Backend_HistoricalDataList list = getList_doNotCreate(ith);
+			Backend_HistoricalDataList list = flushWriter(getList_doNotCreate(ith));
 
 			if( list == null )  continue;
 
@@ -272,7 +288,7 @@ final class P_HistoricalDataManager
 	//GOOD
 	public Iterator<HistoricalData> getIterator(final UUID uuid, final EpochTimeRange range)
 	{
-		final Backend_HistoricalDataList list = getList_onlyCreateIfDataIsOnDisk(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_onlyCreateIfDataIsOnDisk(uuid));
 
 		if( list != null )
 		{
@@ -287,7 +303,7 @@ final class P_HistoricalDataManager
 	//GOOD
 	public boolean doForEach(final UUID uuid, final EpochTimeRange range, Object forEach)
 	{
-		final Backend_HistoricalDataList list = getList_onlyCreateIfDataIsOnDisk(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_onlyCreateIfDataIsOnDisk(uuid));
 
 		if( list != null )
 		{
@@ -302,7 +318,7 @@ final class P_HistoricalDataManager
 	//GOOD
 	public int getCount(UUID uuid, final EpochTimeRange range)
 	{
-		final Backend_HistoricalDataList list = getList_onlyCreateIfDataIsOnDisk(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_onlyCreateIfDataIsOnDisk(uuid));
 
 		return list != null ? list.getCount(range) : 0;
 	}
@@ -310,7 +326,7 @@ final class P_HistoricalDataManager
 	//GOOD
 	public HistoricalDataCursor getCursor(final UUID uuid, final EpochTimeRange range)
 	{
-		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
+		final Backend_HistoricalDataList list = flushWriter(getList_doNotCreate(uuid));
 
 		if( list != null )
 		{
@@ -338,7 +354,7 @@ final class P_HistoricalDataManager
 		{
 			final UUID ithUuid = previousUuids.next();
 
-			final Backend_HistoricalDataList ithList = getList_doNotCreate(ithUuid);
+			final Backend_HistoricalDataList ithList = flushWriter(getList_doNotCreate(ithUuid));
 
 			if( memoryOnly )
 			{
@@ -369,6 +385,8 @@ final class P_HistoricalDataManager
 	//TODO: Need to implement the uui==null case
 	public void load(final UUID uuid_nullable, final BleDevice.HistoricalDataLoadListener listener_nullable)
 	{
+		flushWriter(getList_doNotCreate(uuid_nullable));
+
 		if( isLoaded(uuid_nullable) )
 		{
 			if( uuid_nullable != null )
@@ -0,0 +1,462 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import com.idevicesinc.sweetblue.utils.ForEach_Returning;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves historical data writes off of the update thread when {@link BleManagerConfig#historicalDataWriteAsync} is on. Adds go into a
+ * bounded lock-free queue, and a background thread hands them to the {@link Backend_HistoricalDataList} in groups, once
+ * {@link BleManagerConfig#historicalDataBatchSize} are waiting or the oldest has waited {@link BleManagerConfig#historicalDataBatchTime}.
+ * If the queue is full, the caller commits what's waiting itself instead of anything being dropped.
+ * <br><br>
+ * Every write to a list goes through {@link #m_commitLock}, so a list is never written to from two threads at once, and reads only wait
+ * on the lock when the list they're reading has writes that haven't been committed yet.
+ */
+final class P_HistoricalDataWriter
+{
+	private static class Entry
+	{
+		private final Backend_HistoricalDataList m_list;
+		private final HistoricalData m_data;
+		private final int m_persistenceLevel;
+		private final long m_limit;
+		private final long m_enqueueTime;
+
+		private Entry(final Backend_HistoricalDataList list, final HistoricalData data, final int persistenceLevel, final long limit)
+		{
+			m_list = list;
+			m_data = data;
+			m_persistenceLevel = persistenceLevel;
+			m_limit = limit;
+			m_enqueueTime = System.nanoTime();
+		}
+
+		private boolean isSameGroup(final Entry other)
+		{
+			return m_list == other.m_list && m_persistenceLevel == other.m_persistenceLevel && m_limit == other.m_limit;
+		}
+	}
+
+	private final Runnable m_writerRunnable = new Runnable()
+	{
+		@Override public void run()
+		{
+			while( !m_isStopped )
+			{
+				final long wait = getNanosUntilCommit();
+
+				if( wait > 0 )
+				{
+					LockSupport.parkNanos(this, wait);
+				}
+				else if( wait == 0 )
+				{
+					commit(null);
+				}
+				else
+				{
+					LockSupport.park(this);
+				}
+			}
+		}
+	};
+
+	private final BleManager m_mngr;
+	private final ConcurrentLinkedQueue<Entry> m_queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger m_depth = new AtomicInteger();
+	private final Object m_commitLock = new Object();
+
+	//--- Writes added but not committed yet, counted until they're in the list rather than just off the queue, so a flush that finds
+	//--- nothing to wait for can skip the lock.
+	private final AtomicInteger m_uncommitted = new AtomicInteger();
+	private final ConcurrentHashMap<Backend_HistoricalDataList, AtomicInteger> m_uncommittedByList = new ConcurrentHashMap<>();
+
+	//--- Taken off the queue by a flush of a different list, and committed first by the next full commit. Only touched while holding m_commitLock.
+	private final ArrayList<Entry> m_held = new ArrayList<>();
+	private volatile boolean m_hasHeld = false;
+
+	private volatile Thread m_thread = null;
+	private volatile boolean m_isStopped = false;
+
+	//--- Bumped by whichever thread is adding.
+	private final AtomicInteger m_highWaterMark = new AtomicInteger();
+	private final AtomicLong m_overflowCount = new AtomicLong();
+
+	//--- Only touched while holding m_commitLock.
+	private long m_committedCount = 0;
+	private long m_commitCount = 0;
+	private long m_totalCommitTime = 0;
+	private long m_maxCommitTime = 0;
+	private long m_totalQueueTime = 0;
+	private long m_maxQueueTime = 0;
+
+	P_HistoricalDataWriter(final BleManager mngr)
+	{
+		m_mngr = mngr;
+	}
+
+	private boolean isAsync()
+	{
+		return m_mngr.m_config.historicalDataWriteAsync && !m_isStopped;
+	}
+
+	private int getQueueSize()
+	{
+		return Math.max(1, m_mngr.m_config.historicalDataQueueSize);
+	}
+
+	private int getBatchSize()
+	{
+		return Math.max(1, Math.min(getQueueSize(), m_mngr.m_config.historicalDataBatchSize));
+	}
+
+	private long getBatchTimeNanos()
+	{
+		final Interval batchTime = m_mngr.m_config.historicalDataBatchTime;
+
+		return Interval.isEnabled(batchTime) ? TimeUnit.MILLISECONDS.toNanos(batchTime.millis()) : 0;
+	}
+
+	/**
+	 * Adds the data to the list, either right away or through the queue depending on {@link BleManagerConfig#historicalDataWriteAsync}.
+	 */
+	void add_single(final Backend_HistoricalDataList list, final HistoricalData data, final int persistenceLevel, final long limit)
+	{
+		if( !isAsync() )
+		{
+			if( !hasUncommitted(list) )
+			{
+				list.add_single(data, persistenceLevel, limit);
+
+				return;
+			}
+
+			synchronized(m_commitLock)
+			{
+				//--- Anything still queued for this list from before async was turned off has to go in first.
+				commit(list);
+
+				list.add_single(data, persistenceLevel, limit);
+			}
+
+			return;
+		}
+
+		if( m_depth.get() >= getQueueSize() )
+		{
+			m_overflowCount.incrementAndGet();
+
+			commit(null);
+		}
+
+		onAdded(list);
+
+		m_queue.offer(new Entry(list, data, persistenceLevel, limit));
+
+		final int depth = m_depth.incrementAndGet();
+
+		while( true )
+		{
+			final int highWaterMark = m_highWaterMark.get();
+
+			if( depth <= highWaterMark || m_highWaterMark.compareAndSet(highWaterMark, depth) )  break;
+		}
+
+		//--- Wake the writer when the first entry shows up so it can start timing the batch, and again when the batch is full.
+		if( depth == 1 || depth == getBatchSize() )
+		{
+			wake();
+		}
+	}
+
+	/**
+	 * Adds a group of data to the list on the calling thread, after anything still queued for the list.
+	 */
+	void add_multiple(final Backend_HistoricalDataList list, final Iterator<HistoricalData> data, final int persistenceLevel, final long limit)
+	{
+		if( !hasUncommitted(list) )
+		{
+			list.add_multiple(data, persistenceLevel, limit);
+
+			return;
+		}
+
+		synchronized(m_commitLock)
+		{
+			commit(list);
+
+			list.add_multiple(data, persistenceLevel, limit);
+		}
+	}
+
+	/**
+	 * Same as {@link #add_multiple(Backend_HistoricalDataList, Iterator, int, long)}.
+	 */
+	void add_multiple(final Backend_HistoricalDataList list, final ForEach_Returning<HistoricalData> data, final int persistenceLevel, final long limit)
+	{
+		if( !hasUncommitted(list) )
+		{
+			list.add_multiple(data, persistenceLevel, limit);
+
+			return;
+		}
+
+		synchronized(m_commitLock)
+		{
+			commit(list);
+
+			list.add_multiple(data, persistenceLevel, limit);
+		}
+	}
+
+	private void onAdded(final Backend_HistoricalDataList list)
+	{
+		AtomicInteger count = m_uncommittedByList.get(list);
+
+		if( count == null )
+		{
+			final AtomicInteger newCount = new AtomicInteger();
+
+			count = m_uncommittedByList.putIfAbsent(list, newCount);
+			count = count != null ? count : newCount;
+		}
+
+		count.incrementAndGet();
+		m_uncommitted.incrementAndGet();
+	}
+
+	private void onCommitted(final Backend_HistoricalDataList list)
+	{
+		m_uncommittedByList.get(list).decrementAndGet();
+		m_uncommitted.decrementAndGet();
+	}
+
+	private boolean hasUncommitted(final Backend_HistoricalDataList list)
+	{
+		final AtomicInteger count = m_uncommittedByList.get(list);
+
+		return count != null && count.get() > 0;
+	}
+
+	private void wake()
+	{
+		Thread thread = m_thread;
+
+		if( thread == null )
+		{
+			synchronized(this)
+			{
+				if( m_thread == null )
+				{
+					m_thread = new Thread(m_writerRunnable, "SweetBlue Historical Data Writer");
+					m_thread.setDaemon(true);
+					m_thread.start();
+				}
+
+				thread = m_thread;
+			}
+		}
+
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Returns 0 if it's time to commit, -1 if there's nothing to wait for, or how many nanoseconds until the oldest entry is due.
+	 */
+	private long getNanosUntilCommit()
+	{
+		if( m_hasHeld )  return 0;
+
+		final Entry oldest = m_queue.peek();
+
+		if( oldest == null )  return -1;
+
+		if( m_depth.get() >= getBatchSize() )  return 0;
+
+		final long wait = getBatchTimeNanos() - (System.nanoTime() - oldest.m_enqueueTime);
+
+		return wait > 0 ? wait : 0;
+	}
+
+	/**
+	 * Commits everything queued so far on the calling thread, returning once the list backends have it. Returns right away if there's
+	 * nothing uncommitted, otherwise waits out a commit the writer thread is in the middle of.
+	 */
+	void flush()
+	{
+		if( m_uncommitted.get() == 0 )  return;
+
+		commit(null);
+	}
+
+	/**
+	 * Same as {@link #flush()}, but only for what's been added to the given list, so reading one list doesn't wait on writes to the others.
+	 */
+	void flush(final Backend_HistoricalDataList list)
+	{
+		if( !hasUncommitted(list) )  return;
+
+		commit(list);
+	}
+
+	/**
+	 * Commits what's waiting for the given list, or for every list if it's <code>null</code>. Entries for other lists taken off the queue
+	 * along the way are held for the writer thread to commit next, in the order they were added.
+	 */
+	private void commit(final Backend_HistoricalDataList list_nullable)
+	{
+		final boolean hasHeld;
+
+		synchronized(m_commitLock)
+		{
+			hasHeld = commit_locked(list_nullable);
+		}
+
+		if( hasHeld )
+		{
+			wake();
+		}
+	}
+
+	/**
+	 * Does the work of {@link #commit(Backend_HistoricalDataList)} while holding {@link #m_commitLock}, returning <code>true</code> if entries
+	 * for other lists were held back.
+	 */
+	private boolean commit_locked(final Backend_HistoricalDataList list_nullable)
+	{
+		if( m_held.isEmpty() && m_queue.isEmpty() )  return false;
+
+		Entry next;
+
+		while( (next = m_queue.poll()) != null )
+		{
+			m_held.add(next);
+		}
+
+		final ArrayList<Entry> batch;
+
+		if( list_nullable == null )
+		{
+			batch = new ArrayList<>(m_held);
+
+			m_held.clear();
+		}
+		else
+		{
+			batch = new ArrayList<>();
+
+			for( int i = 0; i < m_held.size(); )
+			{
+				if( m_held.get(i).m_list == list_nullable )
+				{
+					batch.add(m_held.remove(i));
+				}
+				else
+				{
+					i++;
+				}
+			}
+		}
+
+		m_hasHeld = !m_held.isEmpty();
+		m_depth.addAndGet(-batch.size());
+
+		if( batch.isEmpty() )  return m_hasHeld;
+
+		final long startTime = System.nanoTime();
+
+		int groupStart = 0;
+
+		for( int i = 1; i <= batch.size(); i++ )
+		{
+			if( i < batch.size() && batch.get(i).isSameGroup(batch.get(groupStart)) )  continue;
+
+			commitGroup(batch, groupStart, i);
+
+			groupStart = i;
+		}
+
+		final long endTime = System.nanoTime();
+		final long commitTime = endTime - startTime;
+
+		for( int i = 0; i < batch.size(); i++ )
+		{
+			final long queueTime = startTime - batch.get(i).m_enqueueTime;
+
+			m_totalQueueTime += queueTime;
+			m_maxQueueTime = Math.max(m_maxQueueTime, queueTime);
+
+			onCommitted(batch.get(i).m_list);
+		}
+
+		m_committedCount += batch.size();
+		m_commitCount++;
+		m_totalCommitTime += commitTime;
+		m_maxCommitTime = Math.max(m_maxCommitTime, commitTime);
+
+		return m_hasHeld;
+	}
+
+	private static void commitGroup(final ArrayList<Entry> batch, final int start, final int end)
+	{
+		final Entry first = batch.get(start);
+
+		if( end - start == 1 )
+		{
+			first.m_list.add_single(first.m_data, first.m_persistenceLevel, first.m_limit);
+		}
+		else
+		{
+			final ArrayList<HistoricalData> group = new ArrayList<>(end - start);
+
+			for( int i = start; i < end; i++ )
+			{
+				group.add(batch.get(i).m_data);
+			}
+
+			first.m_list.add_multiple(group.iterator(), first.m_persistenceLevel, first.m_limit);
+		}
+	}
+
+	/**
+	 * Commits anything still queued and stops the writer thread. Later adds are made right away on the calling thread.
+	 */
+	void stop()
+	{
+		m_isStopped = true;
+
+		final Thread thread = m_thread;
+
+		if( thread != null )
+		{
+			LockSupport.unpark(thread);
+		}
+
+		flush();
+	}
+
+	HistoricalDataWriterStats getStats()
+	{
+		synchronized(m_commitLock)
+		{
+			return new HistoricalDataWriterStats
+			(
+				m_depth.get(), m_highWaterMark.get(), m_overflowCount.get(), m_committedCount, m_commitCount,
+				TimeUnit.NANOSECONDS.toMillis(m_totalCommitTime), TimeUnit.NANOSECONDS.toMillis(m_maxCommitTime),
+				TimeUnit.NANOSECONDS.toMillis(m_totalQueueTime), TimeUnit.NANOSECONDS.toMillis(m_maxQueueTime)
+			);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.idevicesinc.sweetblue;
+
+
+/**
+ * Immutable lookup from up-to-128-bit keys (given as two longs) to their position in the arrays the index was built from. Small
+ * sets are just scanned, bigger ones go through an open-addressed hash table. Either way, lookups don't allocate anything, which
+ * is the point, since this is used to check scan records against {@link CompiledScanFilter} rules as they come in.
+ */
+final class P_LongIndex
+{
+	// Below this many keys, a straight scan through the arrays beats hashing.
+	private static final int LINEAR_SCAN_THRESHOLD = 8;
+
+	private final long[] m_his;
+	private final long[] m_los;
+
+	// Each slot holds the key's index + 1, so that 0 means empty.
+	private final int[] m_slots;
+	private final int m_mask;
+
+
+	/**
+	 * The arrays are not copied, and must not contain duplicate keys.
+	 */
+	P_LongIndex(final long[] his, final long[] los)
+	{
+		m_his = his;
+		m_los = los;
+
+		if( los.length > LINEAR_SCAN_THRESHOLD )
+		{
+			// Keep the table at most half full so probe sequences stay short.
+			final int capacity = Integer.highestOneBit(los.length * 4 - 1);
+
+			m_slots = new int[capacity];
+			m_mask = capacity - 1;
+
+			for( int i = 0; i < los.length; i++ )
+			{
+				int slot = hash(his[i], los[i]) & m_mask;
+
+				while( m_slots[slot] != 0 )
+				{
+					slot = (slot + 1) & m_mask;
+				}
+
+				m_slots[slot] = i + 1;
+			}
+		}
+		else
+		{
+			m_slots = null;
+			m_mask = 0;
+		}
+	}
+
+
+	final int size()
+	{
+		return m_los.length;
+	}
+
+	/**
+	 * Returns the index of the given key in the arrays this was built from, or <code>-1</code> if it's not there.
+	 */
+	final int indexOf(final long hi, final long lo)
+	{
+		if( m_slots == null )
+		{
+			for( int i = 0; i < m_los.length; i++ )
+			{
+				if( m_los[i] == lo && m_his[i] == hi )  return i;
+			}
+
+			return -1;
+		}
+
+		int slot = hash(hi, lo) & m_mask;
+
+		while( m_slots[slot] != 0 )
+		{
+			final int i = m_slots[slot] - 1;
+
+			if( m_los[i] == lo && m_his[i] == hi )  return i;
+
+			slot = (slot + 1) & m_mask;
+		}
+
+		return -1;
+	}
+
+	final int indexOf(final long key)
+	{
+		return indexOf(0L, key);
+	}
+
+	private static int hash(final long hi, final long lo)
+	{
+		long h = hi * 0x9E3779B97F4A7C15L + lo;
+		h ^= h >>> 32;
+		h *= 0x9E3779B97F4A7C15L;
+
+		return (int) (h ^ (h >>> 29));
+	}
+}
@@ -115,6 +115,8 @@ final class P_NativeDeviceWrapper
 		final String name_normalized = Utils_String.normalizeDeviceName(name_native_override);
 
 		updateName(name_native_override, name_normalized);
+
+		getManager().onDeviceSortKeyChange(m_device, /*nameChanged=*/true);
 	}
 
 	void clearName_override()
@@ -0,0 +1,133 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.P_Const;
+
+
+/**
+ * Collects notifications for one {@link NotificationBatchListener} subscription, and hands them over as a single
+ * {@link NotificationBatchListener.NotificationBatchEvent} once one of the limits in {@link NotificationBatchOptions} is hit.
+ * Only ever touched from the update thread.
+ */
+final class P_NotificationBatcher
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final BleDevice m_device;
+	private final UUID m_serviceUuid;
+	private final UUID m_charUuid;
+	private final NotificationBatchListener m_listener;
+
+	private final int m_maxCount;
+	private final int m_maxBytes;
+	private final double m_maxLatency;
+
+	private byte[][] m_data;
+	private long[] m_timestamps;
+	private int m_count;
+	private int m_byteCount;
+	//--- Wall-clock time of the first notification in the batch. Ticks can be far apart with BleManagerConfig#updateLoopOnDemand, so the
+	//--- batch's age isn't built up from time steps, which would count time from before the batch started.
+	private long m_startTime;
+	private NotificationListener.Type m_type = NotificationListener.Type.NOTIFICATION;
+
+
+	P_NotificationBatcher(final BleDevice device, final UUID serviceUuid, final UUID charUuid, final NotificationBatchOptions options, final NotificationBatchListener listener)
+	{
+		m_device = device;
+		m_serviceUuid = serviceUuid;
+		m_charUuid = charUuid;
+		m_listener = listener;
+
+		m_maxCount = options.m_maxCount;
+		m_maxBytes = options.m_maxBytes;
+		m_maxLatency = Interval.isEnabled(options.m_maxLatency) ? options.m_maxLatency.secs() : Interval.INFINITE.secs();
+
+		final int capacity = Math.min(m_maxCount, INITIAL_CAPACITY);
+		m_data = new byte[capacity][];
+		m_timestamps = new long[capacity];
+	}
+
+	void add(final NotificationListener.Type type, final byte[] value_nullable, final long timestamp)
+	{
+		//--- Notifications and indications on the same characteristic would be odd, but don't mix them in one batch if it happens.
+		if( m_count > 0 && type != m_type )
+		{
+			flush();
+		}
+
+		if( m_count == m_data.length )
+		{
+			final int capacity = (int) Math.min((long) m_maxCount, m_data.length * 2L);
+			m_data = Arrays.copyOf(m_data, capacity);
+			m_timestamps = Arrays.copyOf(m_timestamps, capacity);
+		}
+
+		final boolean wasEmpty = m_count == 0;
+
+		if( wasEmpty )
+		{
+			m_startTime = System.currentTimeMillis();
+		}
+
+		final byte[] value = value_nullable != null ? value_nullable : P_Const.EMPTY_BYTE_ARRAY;
+
+		m_type = type;
+		m_data[m_count] = value;
+		m_timestamps[m_count] = timestamp;
+		m_count++;
+		m_byteCount += value.length;
+
+		if( m_count >= m_maxCount || m_byteCount >= m_maxBytes )
+		{
+			flush();
+		}
+		else if( wasEmpty && m_maxLatency != Interval.INFINITE.secs() )
+		{
+			//--- The update loop may be asleep, so get it to tick and see when this batch is due.
+			m_device.getManager().wakeUpdateLoop();
+		}
+	}
+
+	void update()
+	{
+		if( m_count == 0 )  return;
+
+		if( getAge() >= m_maxLatency )
+		{
+			flush();
+		}
+	}
+
+	double getTimeUntilFlush()
+	{
+		if( m_count == 0 || m_maxLatency == Interval.INFINITE.secs() )  return Interval.INFINITE.secs();
+
+		return Math.max(0.0, m_maxLatency - getAge());
+	}
+
+	private double getAge()
+	{
+		return (System.currentTimeMillis() - m_startTime) / 1000.0;
+	}
+
+	void flush()
+	{
+		if( m_count == 0 )  return;
+
+		//--- The event goes to app-land, which may hang on to it, so it gets its own arrays.
+		final NotificationBatchListener.NotificationBatchEvent event = new NotificationBatchListener.NotificationBatchEvent
+		(
+			m_device, m_serviceUuid, m_charUuid, m_type, Arrays.copyOf(m_data, m_count), Arrays.copyOf(m_timestamps, m_count), m_byteCount
+		);
+
+		Arrays.fill(m_data, 0, m_count, null);
+		m_count = 0;
+		m_byteCount = 0;
+
+		m_device.postEventAsCallback(m_listener, event);
+	}
+}
@@ -0,0 +1,338 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+
+/**
+ * Sits between {@link P_BleDevice_Listeners#onCharacteristicChanged(android.bluetooth.BluetoothGatt, BluetoothGattCharacteristic)} and the
+ * update thread. Rather than a new {@link Runnable} for every notification, they queue up here in the order they came in, and one shared
+ * {@link Runnable} is posted to handle everything queued by the time it runs. Each characteristic gets its own bound, from
+ * {@link BleDeviceConfig#notificationBufferSize}, and its own counters, see {@link NotificationBufferStats}.
+ */
+final class P_NotificationQueue
+{
+	// Past this many, recycled Pending instances are just let go, so a burst doesn't pin memory forever.
+	private static final int MAX_POOLED = 32;
+
+	/**
+	 * A notification waiting to be handled on the update thread. These are recycled through {@link #m_pool}, so a steady stream of
+	 * notifications doesn't allocate anything besides the copy of each value.
+	 */
+	private static final class Pending
+	{
+		private Channel m_channel;
+		private BluetoothGattCharacteristic m_characteristic;
+		private byte[] m_value;
+		private long m_timestamp;
+	}
+
+	/**
+	 * The notifications waiting for one characteristic, plus its counters.
+	 */
+	private static final class Channel
+	{
+		private final ArrayDeque<Pending> m_pending = new ArrayDeque<>();
+
+		private long m_receivedCount;
+		private long m_droppedCount;
+		private int m_highWaterMark;
+		private long m_dispatchedCount;
+		private long m_totalLatency;
+		private long m_maxLatency;
+	}
+
+	private final BleDevice m_device;
+
+	//--- All access to the below is synchronized on m_queue.
+	private final ArrayDeque<Pending> m_queue = new ArrayDeque<>();
+	private final ArrayList<Pending> m_pool = new ArrayList<>();
+	private final HashMap<UUID, HashMap<UUID, Channel>> m_channels = new HashMap<>();
+	private boolean m_drainPosted = false;
+	private int m_blockedCount = 0;
+
+	private final Runnable m_drainer = new Runnable()
+	{
+		@Override public void run()
+		{
+			drain_updateThread();
+		}
+	};
+
+
+	P_NotificationQueue(final BleDevice device)
+	{
+		m_device = device;
+	}
+
+	/**
+	 * Called from the native callback thread with a copy of the characteristic's value.
+	 */
+	void offer(final BluetoothGattCharacteristic characteristic, final byte[] value, final long timestamp)
+	{
+		final P_PostManager postManager = m_device.getManager().getPostManager();
+		final int capacity = getCapacity();
+		final NotificationOverflowPolicy policy = getPolicy();
+		final boolean onSweetBlueThread = postManager.isOnSweetBlueThread();
+		final boolean post;
+
+		synchronized (m_queue)
+		{
+			final Channel channel = getChannel(characteristic);
+
+			channel.m_receivedCount++;
+
+			if( capacity > 0 && channel.m_pending.size() >= capacity )
+			{
+				if( policy == NotificationOverflowPolicy.BLOCK && !onSweetBlueThread )
+				{
+					waitForRoom_locked(channel, capacity);
+				}
+			}
+
+			if( capacity > 0 && channel.m_pending.size() >= capacity )
+			{
+				if( policy == NotificationOverflowPolicy.DROP_OLDEST )
+				{
+					final Pending oldest = channel.m_pending.pollFirst();
+
+					//--- Usually near the front, since it's the oldest for this characteristic.
+					m_queue.removeFirstOccurrence(oldest);
+					recycle_locked(oldest);
+					channel.m_droppedCount++;
+				}
+				else if( policy == NotificationOverflowPolicy.CONFLATE )
+				{
+					final Pending newest = channel.m_pending.peekLast();
+
+					newest.m_value = value;
+					newest.m_timestamp = timestamp;
+					channel.m_droppedCount++;
+
+					//--- Already queued up, so the drainer is already posted too.
+					return;
+				}
+				else if( policy != NotificationOverflowPolicy.BLOCK || !onSweetBlueThread )
+				{
+					//--- Either DROP_NEWEST, or BLOCK gave up waiting.
+					channel.m_droppedCount++;
+
+					return;
+				}
+			}
+
+			final Pending pending = m_pool.isEmpty() ? new Pending() : m_pool.remove(m_pool.size() - 1);
+			pending.m_channel = channel;
+			pending.m_characteristic = characteristic;
+			pending.m_value = value;
+			pending.m_timestamp = timestamp;
+
+			channel.m_pending.addLast(pending);
+			channel.m_highWaterMark = Math.max(channel.m_highWaterMark, channel.m_pending.size());
+			m_queue.addLast(pending);
+
+			post = !m_drainPosted;
+			m_drainPosted = true;
+		}
+
+		//--- Going through the queue even when already on the update thread keeps notifications in the order they came in.
+		if( post )
+		{
+			postManager.runOrPostToUpdateThread(m_drainer);
+		}
+	}
+
+	/**
+	 * Returns the counters for the given characteristic. If <code>serviceUuid_nullable</code> is <code>null</code>, the first characteristic
+	 * found with the given {@link UUID} is used.
+	 */
+	NotificationBufferStats getStats(final UUID serviceUuid_nullable, final UUID charUuid)
+	{
+		synchronized (m_queue)
+		{
+			Channel channel = null;
+
+			if( serviceUuid_nullable != null )
+			{
+				final HashMap<UUID, Channel> channels = m_channels.get(serviceUuid_nullable);
+
+				channel = channels != null ? channels.get(charUuid) : null;
+			}
+			else
+			{
+				for( HashMap<UUID, Channel> channels : m_channels.values() )
+				{
+					channel = channels.get(charUuid);
+
+					if( channel != null )  break;
+				}
+			}
+
+			if( channel == null )
+			{
+				return new NotificationBufferStats(0, 0, 0, 0, 0, 0, 0);
+			}
+
+			return new NotificationBufferStats
+			(
+				channel.m_receivedCount, channel.m_droppedCount, channel.m_highWaterMark, channel.m_pending.size(),
+				channel.m_dispatchedCount, channel.m_totalLatency, channel.m_maxLatency
+			);
+		}
+	}
+
+	private void drain_updateThread()
+	{
+		int remaining;
+
+		synchronized (m_queue)
+		{
+			//--- Only handle what's already here, so that a fast enough stream can't keep the update thread to itself.
+			remaining = m_queue.size();
+		}
+
+		while( remaining > 0 )
+		{
+			final BluetoothGattCharacteristic characteristic;
+			final byte[] value;
+			final long timestamp;
+
+			synchronized (m_queue)
+			{
+				final Pending pending = m_queue.pollFirst();
+
+				//--- Can happen if some were dropped since we started.
+				if( pending == null )  break;
+
+				final Channel channel = pending.m_channel;
+
+				//--- Both are in arrival order, so this is the same one.
+				channel.m_pending.pollFirst();
+
+				characteristic = pending.m_characteristic;
+				value = pending.m_value;
+				timestamp = pending.m_timestamp;
+
+				final long latency = Math.max(0, System.currentTimeMillis() - timestamp);
+				channel.m_dispatchedCount++;
+				channel.m_totalLatency += latency;
+				channel.m_maxLatency = Math.max(channel.m_maxLatency, latency);
+
+				recycle_locked(pending);
+
+				if( m_blockedCount > 0 )
+				{
+					m_queue.notifyAll();
+				}
+			}
+
+			dispatch_updateThread(characteristic, value, timestamp);
+
+			remaining--;
+		}
+
+		final boolean repost;
+
+		synchronized (m_queue)
+		{
+			repost = !m_queue.isEmpty();
+			m_drainPosted = repost;
+		}
+
+		if( repost )
+		{
+			m_device.getManager().getPostManager().forcePostToUpdate(m_drainer);
+		}
+	}
+
+	private void dispatch_updateThread(final BluetoothGattCharacteristic characteristic, final byte[] value, final long timestamp)
+	{
+		final UUID characteristicUuid = characteristic.getUuid();
+		final UUID serviceUuid = characteristic.getService().getUuid();
+		final P_Logger logger = m_device.getManager().getLogger();
+
+		if( logger.isEnabled() )
+		{
+			logger.d("characteristic=" + characteristicUuid.toString());
+		}
+
+		m_device.getPollManager().onCharacteristicChangedFromNativeNotify(serviceUuid, characteristicUuid, value, timestamp);
+	}
+
+	private void waitForRoom_locked(final Channel channel, final int capacity)
+	{
+		final long giveUpTime = System.currentTimeMillis() + NotificationOverflowPolicy.BLOCK_TIMEOUT;
+
+		m_blockedCount++;
+
+		try
+		{
+			while( channel.m_pending.size() >= capacity )
+			{
+				final long timeLeft = giveUpTime - System.currentTimeMillis();
+
+				if( timeLeft <= 0 )  break;
+
+				m_queue.wait(timeLeft);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			m_blockedCount--;
+		}
+	}
+
+	private void recycle_locked(final Pending pending)
+	{
+		pending.m_channel = null;
+		pending.m_characteristic = null;
+		pending.m_value = null;
+
+		if( m_pool.size() < MAX_POOLED )
+		{
+			m_pool.add(pending);
+		}
+	}
+
+	private Channel getChannel(final BluetoothGattCharacteristic characteristic)
+	{
+		final UUID serviceUuid = characteristic.getService().getUuid();
+		HashMap<UUID, Channel> channels = m_channels.get(serviceUuid);
+
+		if( channels == null )
+		{
+			channels = new HashMap<>();
+			m_channels.put(serviceUuid, channels);
+		}
+
+		Channel channel = channels.get(characteristic.getUuid());
+
+		if( channel == null )
+		{
+			channel = new Channel();
+			channels.put(characteristic.getUuid(), channel);
+		}
+
+		return channel;
+	}
+
+	private int getCapacity()
+	{
+		return BleNodeConfig.integer(m_device.conf_device().notificationBufferSize, m_device.conf_mngr().notificationBufferSize, BleDeviceConfig.DEFAULT_NOTIFICATION_BUFFER_SIZE);
+	}
+
+	private NotificationOverflowPolicy getPolicy()
+	{
+		final NotificationOverflowPolicy policy = BleNodeConfig.filter(m_device.conf_device().notificationOverflowPolicy, m_device.conf_mngr().notificationOverflowPolicy);
+
+		return policy != null ? policy : NotificationOverflowPolicy.DROP_OLDEST;
+	}
+}
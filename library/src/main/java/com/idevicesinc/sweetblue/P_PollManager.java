@@ -2,6 +2,8 @@ package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
 
 import android.bluetooth.BluetoothGatt;
@@ -91,8 +93,9 @@ final class P_PollManager
 		}
 	}
 	
-	private static class CallbackEntry
+	private static class CallbackEntry extends P_PollWheel.Timer
 	{
+		private final P_PollManager m_pollMngr;
 		private final BleDevice m_device;
 		private final PollingReadListener m_pollingReadListener;
 		private double m_interval;
@@ -100,12 +103,16 @@ final class P_PollManager
 		private final UUID m_serviceUuid;
 		private final DescriptorFilter m_descriptorFilter;
 		private final boolean m_usingNotify;
+		private final P_NotificationBatcher m_batcher;
 		private int/*_E_NotifyState*/ m_notifyState;
 		
-		private double m_timeTracker;
 		private boolean m_waitingForResponse;
+		private boolean m_removed;
+
+		//--- Taken off the wheel because the device couldn't poll when it came due, see fireDue() and onDeviceStateChange().
+		private boolean m_parked;
 		
-		public CallbackEntry(BleDevice device, final UUID serviceUuid, UUID charUuid, DescriptorFilter descriptorFilter, double interval, ReadWriteListener readWriteListener, boolean trackChanges, boolean usingNotify)
+		public CallbackEntry(P_PollManager pollMngr, BleDevice device, final UUID serviceUuid, UUID charUuid, DescriptorFilter descriptorFilter, double interval, ReadWriteListener readWriteListener, boolean trackChanges, boolean usingNotify, P_NotificationBatcher batcher_nullable)
 		{
 			m_serviceUuid = serviceUuid;
 			m_charUuid = charUuid;
@@ -113,9 +120,9 @@ final class P_PollManager
 			m_interval = interval;
 			m_device = device;
 			m_usingNotify = usingNotify;
+			m_batcher = batcher_nullable;
 			m_notifyState = E_NotifyState__NOT_ENABLED;
-
-			m_timeTracker = interval; // to get it to do a first read pretty much instantly.
+			m_pollMngr = pollMngr;
 			
 			if( trackChanges || m_usingNotify)
 			{
@@ -186,7 +193,7 @@ final class P_PollManager
 			}
 		}
 		
-		void onCharacteristicChangedFromNativeNotify(byte[] value)
+		void onCharacteristicChangedFromNativeNotify(byte[] value, long timestamp)
 		{
 			//--- DRK > The early-outs in this method are for when, for example, a native onNotify comes in on a random thread,
 			//---		BleDevice#disconnect() is called on main thread before notify gets passed to main thread (to here).
@@ -200,6 +207,15 @@ final class P_PollManager
 
 			Type type = P_DeviceServiceManager.modifyResultType(characteristic, Type.NOTIFICATION);
 			int gattStatus = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
+
+			if( m_batcher != null )
+			{
+				m_device.onBatchedNotification(m_charUuid, type, value, timestamp);
+				m_batcher.add(type == Type.INDICATION ? NotificationListener.Type.INDICATION : NotificationListener.Type.NOTIFICATION, value, timestamp);
+				schedule(m_interval);
+
+				return;
+			}
 			
 			if( value == null )
 			{
@@ -221,41 +237,100 @@ final class P_PollManager
 				}
 			}
 			
-			m_timeTracker = 0.0;
+			schedule(m_interval);
 		}
 		
 		void onSuccessOrFailure()
 		{
-			m_waitingForResponse = false;
-			m_timeTracker = 0.0;
+			//--- The next poll was already scheduled when this one went out, so only anything else, like a notification, pushes it back.
+			if( m_waitingForResponse )
+			{
+				m_waitingForResponse = false;
+			}
+			else
+			{
+				schedule(m_interval);
+			}
 		}
-		
-		void update(double timeStep)
+
+		/**
+		 * Puts this entry on the {@link P_PollWheel} to poll after the given delay, or takes it off if it doesn't poll at all.
+		 */
+		void schedule(final double delay)
 		{
-			if( m_interval <= 0.0 )  return;
-			if( m_interval == Interval.INFINITE.secs() )  return;
-			
-			m_timeTracker += timeStep;
-			
-			if( m_timeTracker >= m_interval )
+			final P_PollWheel wheel = m_device.getManager().m_pollWheel;
+
+			m_parked = false;
+
+			if( m_removed || m_interval <= 0.0 || m_interval == Interval.INFINITE.secs() )
 			{
-				m_timeTracker = 0.0;
-				
-				if( m_device.is(BleDeviceState.INITIALIZED) && !m_device.is(BleDeviceState.RECONNECTING_SHORT_TERM) )
-				{					
-					if( !m_waitingForResponse )
-					{
-						m_waitingForResponse = true;
-						Type type = trackingChanges() ? Type.PSUEDO_NOTIFICATION : Type.POLL;
-						m_device.read_internal(m_serviceUuid, m_charUuid, Uuids.INVALID, type, null, m_pollingReadListener);
-					}
-				}
+				wheel.cancel(this);
+			}
+			else
+			{
+				wheel.schedule(this, delay);
+			}
+		}
+
+		void unschedule()
+		{
+			m_device.getManager().m_pollWheel.cancel(this);
+		}
+
+		boolean canPoll()
+		{
+			return !m_removed && !m_waitingForResponse && canDevicePoll(m_device.getStateMask());
+		}
+
+		Type getPollType()
+		{
+			return trackingChanges() ? Type.PSUEDO_NOTIFICATION : Type.POLL;
+		}
+
+		@Override P_PollManager getPollManager()
+		{
+			return m_pollMngr;
+		}
+
+		double getTimeUntilNextUpdate()
+		{
+			return m_batcher != null ? m_batcher.getTimeUntilFlush() : Interval.INFINITE.secs();
+		}
+
+		void flush()
+		{
+			if( m_batcher != null )
+			{
+				m_batcher.flush();
+			}
+		}
+
+		void update()
+		{
+			if( m_batcher != null )
+			{
+				m_batcher.update();
 			}
 		}
 	}
 	
+	private static final CallbackEntry[] NO_ENTRIES = new CallbackEntry[0];
+
 	private final BleDevice m_device;
 	private final ArrayList<CallbackEntry> m_entries = new ArrayList<CallbackEntry>();
+
+	//--- Polling itself is driven by BleManager's P_PollWheel, so only entries with a batcher need to be looked at every tick.
+	private final ArrayList<CallbackEntry> m_batchedEntries = new ArrayList<CallbackEntry>();
+
+	//--- Entries that came due on the current tick of the wheel, see fireDue().
+	private final ArrayList<CallbackEntry> m_due = new ArrayList<CallbackEntry>();
+
+	//--- Whether any entry is parked, so state changes, which can come in on any thread, only bother the update thread when there's something to re-arm.
+	private volatile boolean m_hasParked = false;
+
+	//--- Entries using notify, by characteristic uuid, so an incoming notification doesn't have to look at every entry.
+	//--- Built when first needed, and thrown away whenever m_entries changes.
+	private HashMap<UUID, CallbackEntry[]> m_notifyIndex = null;
 	
 
 	P_PollManager(BleDevice device)
@@ -265,10 +340,30 @@ final class P_PollManager
 
 	void clear()
 	{
+		for( int i = 0; i < m_entries.size(); i++ )
+		{
+			m_entries.get(i).m_removed = true;
+			m_entries.get(i).unschedule();
+			m_entries.get(i).flush();
+		}
+
 		m_entries.clear();
+		m_batchedEntries.clear();
+		m_notifyIndex = null;
+		m_hasParked = false;
+	}
+
+	private static boolean canDevicePoll(final int stateBits)
+	{
+		return (stateBits & BleDeviceState.INITIALIZED.bit()) != 0x0 && (stateBits & BleDeviceState.RECONNECTING_SHORT_TERM.bit()) == 0x0;
 	}
 	
 	void startPoll(final UUID serviceUuid, final UUID charUuid, final DescriptorFilter decriptorFilter, double interval, ReadWriteListener listener, boolean trackChanges, boolean usingNotify)
+	{
+		startPoll(serviceUuid, charUuid, decriptorFilter, interval, listener, trackChanges, usingNotify, null);
+	}
+
+	void startPoll(final UUID serviceUuid, final UUID charUuid, final DescriptorFilter decriptorFilter, double interval, ReadWriteListener listener, boolean trackChanges, boolean usingNotify, P_NotificationBatcher batcher_nullable)
 	{
 		if( m_device.isNull() )  return;
 		
@@ -280,12 +375,14 @@ final class P_PollManager
 			{
 				CallbackEntry ithEntry = m_entries.get(i);
 
-				if( ithEntry.m_charUuid.equals(charUuid) )
+				if( ithEntry.m_charUuid.equals(charUuid) && ithEntry.m_interval != interval )
 				{
 					ithEntry.m_interval = interval;
+					ithEntry.schedule(interval);
 				}
 				
-				if( ithEntry.isFor(serviceUuid, charUuid, decriptorFilter, interval, /*listener=*/null, usingNotify) )
+				//--- Batched subscriptions each keep their own entry, since each has its own batch listener.
+				if( batcher_nullable == null && ithEntry.m_batcher == null && ithEntry.isFor(serviceUuid, charUuid, decriptorFilter, interval, /*listener=*/null, usingNotify) )
 				{
 					if( ithEntry.trackingChanges() == trackChanges)
 					{
@@ -297,7 +394,7 @@ final class P_PollManager
 			}
 		}
 		
-		CallbackEntry newEntry = new CallbackEntry(m_device, serviceUuid, charUuid, decriptorFilter, interval, listener, trackChanges, usingNotify);
+		CallbackEntry newEntry = new CallbackEntry(this, m_device, serviceUuid, charUuid, decriptorFilter, interval, listener, trackChanges, usingNotify, batcher_nullable);
 		
 		if( usingNotify )
 		{
@@ -306,6 +403,17 @@ final class P_PollManager
 		}
 
 		m_entries.add(newEntry);
+		m_notifyIndex = null;
+
+		if( batcher_nullable != null )
+		{
+			m_batchedEntries.add(newEntry);
+		}
+
+		//--- Gets the first read going pretty much instantly.
+		newEntry.schedule(0.0);
+
+		m_device.getManager().wakeUpdateLoop();
 	}
 	
 	void stopPoll(final UUID serviceUuid, final UUID characteristicUuid, DescriptorFilter descriptorFilter, Double interval_nullable, ReadWriteListener listener, boolean usingNotify)
@@ -318,39 +426,236 @@ final class P_PollManager
 			
 			if( ithEntry.isFor(serviceUuid, characteristicUuid, descriptorFilter, interval_nullable, listener, usingNotify) )
 			{
+				ithEntry.m_removed = true;
+				ithEntry.unschedule();
+				ithEntry.flush();
 				m_entries.remove(i);
+				m_batchedEntries.remove(ithEntry);
+				m_notifyIndex = null;
 			}
 		}
 	}
 	
 	void update(double timeStep)
 	{
-		for( int i = 0; i < m_entries.size(); i++ )
+		for( int i = 0; i < m_batchedEntries.size(); i++ )
 		{
-			CallbackEntry ithEntry = m_entries.get(i);
+			CallbackEntry ithEntry = m_batchedEntries.get(i);
 
-			ithEntry.update(timeStep);
+			ithEntry.update();
 		}
 	}
 	
-	void onCharacteristicChangedFromNativeNotify(final UUID serviceUuid, final UUID charUuid, byte[] value)
+	double getTimeUntilNextUpdate()
 	{
-		for( int i = 0; i < m_entries.size(); i++ )
+		double soonest = Interval.INFINITE.secs();
+
+		for( int i = 0; i < m_batchedEntries.size(); i++ )
 		{
-			CallbackEntry ithEntry = m_entries.get(i);
+			soonest = Math.min(soonest, m_batchedEntries.get(i).getTimeUntilNextUpdate());
+		}
+
+		return soonest;
+	}
+
+	/**
+	 * Called by {@link P_PollWheel} for each of this device's entries that came due on a tick. Returns <code>true</code> for the first one,
+	 * so the wheel knows to call {@link #fireDue()} once it has handed them all out.
+	 */
+	boolean onDue(final P_PollWheel.Timer timer)
+	{
+		m_due.add((CallbackEntry) timer);
+
+		return m_due.size() == 1;
+	}
+
+	/**
+	 * Sends out the reads for everything that came due on this tick. Entries with the same interval are read together as one
+	 * {@link P_Task_ReadMany}, so they take a single spot in the queue, and since they're rescheduled together they'll keep coming due together.
+	 */
+	void fireDue()
+	{
+		final ArrayList<CallbackEntry> toPoll = new ArrayList<CallbackEntry>(m_due.size());
+
+		for( int i = 0; i < m_due.size(); i++ )
+		{
+			final CallbackEntry ithEntry = m_due.get(i);
+
+			if( ithEntry.m_removed )  continue;
+
+			//--- No point coming due again every interval until the device is ready, so it waits off the wheel until onDeviceStateChange().
+			if( !canDevicePoll(m_device.getStateMask()) )
+			{
+				ithEntry.unschedule();
+				ithEntry.m_parked = true;
+				m_hasParked = true;
 
-			// An NPE was reported from a customer where it looks like the CallbackEntry here is null. Not sure how this could happen,
-			// so we're just guarding against it now
-			if (ithEntry == null)
 				continue;
+			}
+
+			//--- The next poll counts from when this one goes out, or would have gone out.
+			ithEntry.schedule(ithEntry.m_interval);
+
+			if( ithEntry.canPoll() )
+			{
+				ithEntry.m_waitingForResponse = true;
+
+				toPoll.add(ithEntry);
+			}
+		}
+
+		m_due.clear();
+
+		//--- In case the device became ready on another thread after we looked, but before it could see anything was parked.
+		if( m_hasParked )
+		{
+			unpark();
+		}
+
+		while( !toPoll.isEmpty() )
+		{
+			final double interval = toPoll.get(0).m_interval;
+			final ArrayList<CallbackEntry> group = new ArrayList<CallbackEntry>();
 
-			if( ithEntry.isFor(serviceUuid, charUuid) && ithEntry.usingNotify() )
+			for( int i = toPoll.size()-1; i >= 0; i-- )
+			{
+				if( toPoll.get(i).m_interval == interval )
+				{
+					group.add(0, toPoll.remove(i));
+				}
+			}
+
+			if( group.size() == 1 )
+			{
+				final CallbackEntry entry = group.get(0);
+
+				m_device.read_internal(entry.m_serviceUuid, entry.m_charUuid, Uuids.INVALID, entry.getPollType(), null, entry.m_pollingReadListener);
+			}
+			else
 			{
-				ithEntry.onCharacteristicChangedFromNativeNotify(value);
+				final List<ReadTarget> targets = new ArrayList<ReadTarget>(group.size());
+				final Type[] types = new Type[group.size()];
+				final ReadWriteListener[] listeners = new ReadWriteListener[group.size()];
+
+				for( int i = 0; i < group.size(); i++ )
+				{
+					final CallbackEntry ithEntry = group.get(i);
+
+					targets.add(new ReadTarget(ithEntry.m_serviceUuid, ithEntry.m_charUuid));
+					types[i] = ithEntry.getPollType();
+					listeners[i] = ithEntry.m_pollingReadListener;
+				}
+
+				m_device.readMany_internal(targets, types, listeners, null);
 			}
 		}
 	}
 	
+	/**
+	 * Called by {@link P_DeviceStateTracker} whenever the device's state changes, to put entries parked by {@link #fireDue()} back on the wheel
+	 * once the device can poll again. State changes can come in on any thread, so the actual re-arming is done on the update thread.
+	 */
+	void onDeviceStateChange(final int newStateBits)
+	{
+		if( !m_hasParked || !canDevicePoll(newStateBits) )  return;
+
+		m_device.getManager().getPostManager().runOrPostToUpdateThread(new Runnable()
+		{
+			@Override public void run()
+			{
+				unpark();
+			}
+		});
+	}
+
+	private void unpark()
+	{
+		if( !m_hasParked || !canDevicePoll(m_device.getStateMask()) )  return;
+
+		m_hasParked = false;
+
+		for( int i = 0; i < m_entries.size(); i++ )
+		{
+			final CallbackEntry ithEntry = m_entries.get(i);
+
+			//--- Same as a new entry, the first read after the device is ready goes out pretty much instantly.
+			if( ithEntry.m_parked )
+			{
+				ithEntry.schedule(0.0);
+			}
+		}
+
+		m_device.getManager().wakeUpdateLoop();
+	}
+
+	void onCharacteristicChangedFromNativeNotify(final UUID serviceUuid, final UUID charUuid, byte[] value, long timestamp)
+	{
+		if( !m_device.is(BleDeviceState.DISCONNECTED) )
+		{
+			m_device.m_valueCache.onNotification(serviceUuid, charUuid, value);
+		}
+
+		if( Uuids.SERVICE_CHANGED.equals(charUuid) )
+		{
+			m_device.onServiceChangedIndication();
+		}
+
+		final CallbackEntry[] entries = getNotifyEntries(charUuid);
+
+		for( int i = 0; i < entries.length; i++ )
+		{
+			CallbackEntry ithEntry = entries[i];
+
+			//--- Listeners called for earlier entries may have stopped this one.
+			if( ithEntry.m_removed )  continue;
+
+			if( ithEntry.isFor(serviceUuid, charUuid) )
+			{
+				ithEntry.onCharacteristicChangedFromNativeNotify(value, timestamp);
+			}
+		}
+	}
+
+	private CallbackEntry[] getNotifyEntries(final UUID charUuid)
+	{
+		if( m_notifyIndex == null )
+		{
+			final HashMap<UUID, ArrayList<CallbackEntry>> lists = new HashMap<UUID, ArrayList<CallbackEntry>>();
+
+			for( int i = 0; i < m_entries.size(); i++ )
+			{
+				CallbackEntry ithEntry = m_entries.get(i);
+
+				// An NPE was reported from a customer where it looks like the CallbackEntry here is null. Not sure how this could happen,
+				// so we're just guarding against it now
+				if( ithEntry == null || !ithEntry.usingNotify() )  continue;
+
+				ArrayList<CallbackEntry> list = lists.get(ithEntry.m_charUuid);
+
+				if( list == null )
+				{
+					list = new ArrayList<CallbackEntry>(1);
+					lists.put(ithEntry.m_charUuid, list);
+				}
+
+				list.add(ithEntry);
+			}
+
+			m_notifyIndex = new HashMap<UUID, CallbackEntry[]>();
+
+			for( UUID uuid : lists.keySet() )
+			{
+				final ArrayList<CallbackEntry> list = lists.get(uuid);
+
+				m_notifyIndex.put(uuid, list.toArray(new CallbackEntry[list.size()]));
+			}
+		}
+
+		final CallbackEntry[] entries = m_notifyIndex.get(charUuid);
+
+		return entries != null ? entries : NO_ENTRIES;
+	}
+	
 	int/*__E_NotifyState*/ getNotifyState(final UUID serviceUuid, final UUID charUuid)
 	{
 		int/*__E_NotifyState*/ highestState = E_NotifyState__NOT_ENABLED;
@@ -391,6 +696,9 @@ final class P_PollManager
 			CallbackEntry ithEntry = m_entries.get(i);
 			
 			ithEntry.m_notifyState = E_NotifyState__NOT_ENABLED;
+
+			//--- Hand over whatever came in before the disconnect rather than holding on to it until the next connect.
+			ithEntry.flush();
 		}
 	}
 	
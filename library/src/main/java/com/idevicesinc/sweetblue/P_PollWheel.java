@@ -0,0 +1,183 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * A hashed timer wheel owned by {@link BleManager} that keeps the polls of every device, so that an update tick only looks at the slots it
+ * moves past instead of at every poll there is. A timer that's due further out than one turn of the wheel sits in its slot until the turn it's
+ * due on comes around. Timers that come due on the same tick are handed to their {@link P_PollManager} together, so that polls can be coalesced.
+ * Everything here happens on the update thread.
+ */
+final class P_PollWheel
+{
+	static final double TICK_LENGTH		= 0.01; // in seconds
+	static final int SLOT_COUNT			= 1024; // must be a power of two
+
+	private static final int SLOT_MASK	= SLOT_COUNT - 1;
+
+	/**
+	 * Base class for anything that gets scheduled on the wheel. Slots are intrusive linked lists, so scheduling and cancelling are
+	 * constant time no matter how many timers there are.
+	 */
+	abstract static class Timer
+	{
+		private Timer m_prev = null;
+		private Timer m_next = null;
+		private int m_slot = -1;
+		private long m_dueTick = 0;
+
+		final boolean isScheduled()
+		{
+			return m_slot != -1;
+		}
+
+		abstract P_PollManager getPollManager();
+	}
+
+	private final Timer[] m_slots = new Timer[SLOT_COUNT];
+	private final ArrayList<Timer> m_due = new ArrayList<>();
+	private final ArrayList<P_PollManager> m_dueManagers = new ArrayList<>();
+
+	private double m_time = 0.0;
+	private long m_tick = 0;
+	private int m_count = 0;
+
+
+	/**
+	 * Schedules the timer to come due after the given delay in seconds, replacing whatever it was scheduled for before.
+	 * The delay is rounded up to the next tick, so even a delay of zero waits for the next one.
+	 */
+	void schedule(final Timer timer, final double delay)
+	{
+		cancel(timer);
+
+		final long ticks = Math.max(1, (long) Math.ceil(delay / TICK_LENGTH));
+
+		timer.m_dueTick = m_tick + ticks;
+		timer.m_slot = (int) (timer.m_dueTick & SLOT_MASK);
+		timer.m_prev = null;
+		timer.m_next = m_slots[timer.m_slot];
+
+		if( timer.m_next != null )
+		{
+			timer.m_next.m_prev = timer;
+		}
+
+		m_slots[timer.m_slot] = timer;
+		m_count++;
+	}
+
+	void cancel(final Timer timer)
+	{
+		if( !timer.isScheduled() )  return;
+
+		if( timer.m_prev != null )
+		{
+			timer.m_prev.m_next = timer.m_next;
+		}
+		else
+		{
+			m_slots[timer.m_slot] = timer.m_next;
+		}
+
+		if( timer.m_next != null )
+		{
+			timer.m_next.m_prev = timer.m_prev;
+		}
+
+		timer.m_prev = null;
+		timer.m_next = null;
+		timer.m_slot = -1;
+		m_count--;
+	}
+
+	int getCount()
+	{
+		return m_count;
+	}
+
+	void update(final double timeStep)
+	{
+		m_time += timeStep;
+
+		final long targetTick = (long) (m_time / TICK_LENGTH);
+
+		if( m_count == 0 || targetTick == m_tick )
+		{
+			m_tick = targetTick;
+
+			return;
+		}
+
+		//--- After a long sleep there's no point in going around more than once, since one turn already looks at every slot.
+		final long firstTick = Math.max(m_tick + 1, targetTick - SLOT_COUNT + 1);
+
+		for( long tick = firstTick; tick <= targetTick; tick++ )
+		{
+			Timer timer = m_slots[(int) (tick & SLOT_MASK)];
+
+			while( timer != null )
+			{
+				final Timer next = timer.m_next;
+
+				if( timer.m_dueTick <= targetTick )
+				{
+					cancel(timer);
+
+					m_due.add(timer);
+				}
+
+				timer = next;
+			}
+		}
+
+		m_tick = targetTick;
+
+		if( m_due.isEmpty() )  return;
+
+		for( int i = 0; i < m_due.size(); i++ )
+		{
+			final Timer ithTimer = m_due.get(i);
+			final P_PollManager pollMngr = ithTimer.getPollManager();
+
+			if( pollMngr.onDue(ithTimer) )
+			{
+				m_dueManagers.add(pollMngr);
+			}
+		}
+
+		m_due.clear();
+
+		for( int i = 0; i < m_dueManagers.size(); i++ )
+		{
+			m_dueManagers.get(i).fireDue();
+		}
+
+		m_dueManagers.clear();
+	}
+
+	/**
+	 * Returns how long in seconds until the next timer comes due, for {@link BleManagerConfig#updateLoopOnDemand}.
+	 */
+	double getTimeUntilNextUpdate()
+	{
+		if( m_count == 0 )  return Interval.INFINITE.secs();
+
+		long soonest = Long.MAX_VALUE;
+
+		//--- Anything in the slot i ticks ahead is due in at least i ticks, so the first slot holding something due on this turn ends the search.
+		for( int i = 1; i <= SLOT_COUNT; i++ )
+		{
+			for( Timer timer = m_slots[(int) ((m_tick + i) & SLOT_MASK)]; timer != null; timer = timer.m_next )
+			{
+				soonest = Math.min(soonest, timer.m_dueTick);
+			}
+
+			if( soonest <= m_tick + i )  break;
+		}
+
+		return Math.max(0.0, soonest * TICK_LENGTH - m_time);
+	}
+}
@@ -56,6 +56,8 @@ final class P_ReconnectManager
 			
 			m_timeTracker = 0.0;
 			m_gattStatusOfOriginalDisconnect = gattStatusOfDisconnect;
+
+			m_device.getManager().wakeUpdateLoop();
 		}
 		
 		//--- DRK > If delay is zero we still wait until the first time step to actually attempt first (re)connect.
@@ -144,6 +146,17 @@ final class P_ReconnectManager
 		}
 	}
 	
+	/**
+	 * Returns how long in seconds until the next reconnect attempt is due. Note that the {@link ReconnectFilter} is only asked whether to
+	 * persist on each update, so with {@link BleManagerConfig#updateLoopOnDemand} it gets asked at least once per attempt rather than every tick.
+	 */
+	double getTimeUntilNextUpdate()
+	{
+		if( !isRunning() )  return Interval.INFINITE.secs();
+
+		return Math.max(0.0, m_delay - m_timeTracker);
+	}
+	
 	void update(double timeStep)
 	{
 		if( !isRunning() )  return;
@@ -23,6 +23,11 @@ final class P_ReliableWriteManager
 		m_listener = null;
 	}
 
+	boolean isActive()
+	{
+		return m_listener != null;
+	}
+
 	BleDevice.ReadWriteListener.ReadWriteEvent newEvent(final BleDevice.ReadWriteListener.Status status, final int gattStatus, final boolean solicited)
 	{
 		return new BleDevice.ReadWriteListener.ReadWriteEvent(m_device, Uuids.INVALID, Uuids.INVALID, Uuids.INVALID, null, BleDevice.ReadWriteListener.Type.WRITE, BleDevice.ReadWriteListener.Target.RELIABLE_WRITE, P_Const.EMPTY_BYTE_ARRAY, status, gattStatus, 0.0, 0.0, solicited);
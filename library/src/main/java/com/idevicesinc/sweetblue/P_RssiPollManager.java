@@ -3,6 +3,8 @@ package com.idevicesinc.sweetblue;
 
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.RssiSmoother;
 
 
 final class P_RssiPollManager
@@ -21,6 +23,11 @@ final class P_RssiPollManager
 		@Override public void onEvent(final ReadWriteEvent event)
 		{
 			m_pollMngr.m_waitingOnResponse = false;
+
+			if( event.wasSuccess() )
+			{
+				m_pollMngr.adapt(event.rssi());
+			}
 			
 			if( m_pollMngr.m_timeTracker >= ENABLE_TIMER )
 			{
@@ -33,12 +40,21 @@ final class P_RssiPollManager
 	
 	private static final double DISABLE_TIMER = -1.0;
 	private static final double ENABLE_TIMER = 0.0;
+
+	//--- How much longer the time between polls gets after each steady reading, for BleDeviceConfig#rssiAdaptivePolling.
+	private static final double ADAPTIVE_BACK_OFF = 1.5;
 	
 	private final BleDevice m_device;
 	private double m_timeTracker = DISABLE_TIMER;
 	private double m_interval = 0.0;
 	private boolean m_waitingOnResponse = false;
 	private int m_cachedRssi = Integer.MAX_VALUE;
+
+	private boolean m_adaptive = false;
+	private double m_interval_fastest = 0.0;
+	private double m_interval_slowest = 0.0;
+	private double m_threshold = 0.0;
+	private final RssiSmoother m_smoother = new RssiSmoother();
 	
 	private ReadWriteListener m_listener;
 	
@@ -55,7 +71,46 @@ final class P_RssiPollManager
 		{
 			m_timeTracker = ENABLE_TIMER;
 			m_interval = interval;
+			initAdaptive(interval);
 			m_listener = new CustomListener(this, listener_nullable, m_device.getManager().getPostManager().getUIHandler(), m_device.conf_mngr().postCallbacksToMainThread);
+
+			m_device.getManager().wakeUpdateLoop();
+		}
+	}
+
+	private void initAdaptive(final double interval)
+	{
+		m_adaptive = BleDeviceConfig.bool(m_device.conf_device().rssiAdaptivePolling, m_device.conf_mngr().rssiAdaptivePolling);
+		m_smoother.reset();
+
+		if( !m_adaptive )  return;
+
+		final Interval fastest = BleDeviceConfig.interval(m_device.conf_device().rssiAdaptivePollRate_fastest, m_device.conf_mngr().rssiAdaptivePollRate_fastest);
+		final Interval slowest = BleDeviceConfig.interval(m_device.conf_device().rssiAdaptivePollRate_slowest, m_device.conf_mngr().rssiAdaptivePollRate_slowest);
+
+		m_interval_fastest = Interval.isDisabled(fastest) ? interval : fastest.secs();
+		m_interval_slowest = Math.max(m_interval_fastest, Interval.isDisabled(slowest) ? interval : slowest.secs());
+		m_threshold = BleDeviceConfig.integer(m_device.conf_device().rssiAdaptivePollThreshold, m_device.conf_mngr().rssiAdaptivePollThreshold, BleDeviceConfig.DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD);
+
+		m_interval = Math.max(m_interval_fastest, Math.min(m_interval_slowest, interval));
+	}
+
+	/**
+	 * Backs the poll rate off while the signal holds steady, and snaps it back to the fastest rate once it starts changing.
+	 */
+	void adapt(final int rssi)
+	{
+		if( !m_adaptive || !isRunning() )  return;
+
+		m_smoother.add(rssi);
+
+		if( m_smoother.getDeviation() > m_threshold )
+		{
+			m_interval = m_interval_fastest;
+		}
+		else
+		{
+			m_interval = Math.min(m_interval_slowest, m_interval * ADAPTIVE_BACK_OFF);
 		}
 	}
 
@@ -66,12 +121,20 @@ final class P_RssiPollManager
 
 	final void stop()
 	{
+		m_adaptive = false;
 		m_listener = null;
 		m_interval = DISABLE_TIMER;
 		m_timeTracker = DISABLE_TIMER;
 		m_waitingOnResponse = false;
 	}
 
+	final double getTimeUntilNextUpdate()
+	{
+		if( m_timeTracker == DISABLE_TIMER )  return Interval.INFINITE.secs();
+
+		return Math.max(0.0, m_interval - m_timeTracker);
+	}
+
 	final void update(double timestep)
 	{
 		if( m_timeTracker != DISABLE_TIMER )
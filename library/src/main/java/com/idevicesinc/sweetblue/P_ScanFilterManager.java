@@ -1,6 +1,9 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
+import java.util.List;
+import com.idevicesinc.sweetblue.compat.L_Util;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
 import com.idevicesinc.sweetblue.BleManagerConfig.ScanFilter;
 import com.idevicesinc.sweetblue.BleManagerConfig.ScanFilter.Please;
 import com.idevicesinc.sweetblue.BleManagerConfig.ScanFilter.ScanEvent;
@@ -49,6 +52,80 @@ final class P_ScanFilterManager
 	{
 		return m_default != null || m_filters.size() > 0;
 	}
+
+	/**
+	 * Returns <code>true</code> if every filter is a {@link CompiledScanFilter}, which is the only time {@link #canRejectEarly(String, int, BleScanRecordView)}
+	 * can ever return <code>true</code>, so there's no point making a record view for it otherwise.
+	 */
+	boolean isCompiled()
+	{
+		if( !makeEvent() )  return false;
+
+		if( m_default != null && !(m_default instanceof CompiledScanFilter) )  return false;
+
+		for( int i = 0; i < m_filters.size(); i++ )
+		{
+			if( !(m_filters.get(i) instanceof CompiledScanFilter) )  return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given scan result definitely won't be acknowledged, which is only knowable when every filter is a
+	 * {@link CompiledScanFilter}.
+	 */
+	boolean canRejectEarly(final String macAddress, final int rssi, final BleScanRecordView record)
+	{
+		if( !makeEvent() )  return false;
+
+		if( m_default != null )
+		{
+			if( !(m_default instanceof CompiledScanFilter) || ((CompiledScanFilter) m_default).mightMatch(macAddress, rssi, record) )  return false;
+		}
+
+		for( int i = 0; i < m_filters.size(); i++ )
+		{
+			final ScanFilter ithFilter = m_filters.get(i);
+
+			if( !(ithFilter instanceof CompiledScanFilter) || ((CompiledScanFilter) ithFilter).mightMatch(macAddress, rssi, record) )  return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the native scan filters which together let through everything the current filters might acknowledge, or <code>null</code>
+	 * if that can't be expressed natively (or there are no filters), in which case the scan shouldn't be filtered natively at all.
+	 */
+	List<L_Util.ScanFilterSpec> getNativeFilters_nullable()
+	{
+		if( !makeEvent() )  return null;
+
+		final ArrayList<L_Util.ScanFilterSpec> specs = new ArrayList<L_Util.ScanFilterSpec>();
+
+		if( m_default != null && !addNativeSpecs(m_default, specs) )  return null;
+
+		for( int i = 0; i < m_filters.size(); i++ )
+		{
+			if( !addNativeSpecs(m_filters.get(i), specs) )  return null;
+		}
+
+		return specs;
+	}
+
+	private static boolean addNativeSpecs(final ScanFilter filter, final List<L_Util.ScanFilterSpec> specs_out)
+	{
+		if( !(filter instanceof CompiledScanFilter) )  return false;
+
+		final List<L_Util.ScanFilterSpec> filterSpecs = ((CompiledScanFilter) filter).getNativeSpecs();
+
+		if( filterSpecs == null )  return false;
+
+		specs_out.addAll(filterSpecs);
+
+		return true;
+	}
 	
 	BleManagerConfig.ScanFilter.Please allow(P_Logger logger, final ScanEvent e)
 	{
@@ -4,14 +4,12 @@ package com.idevicesinc.sweetblue;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import com.idevicesinc.sweetblue.compat.L_Util;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.Utils_String;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import static com.idevicesinc.sweetblue.BleManagerState.SCANNING;
 import static com.idevicesinc.sweetblue.BleManagerState.BOOST_SCANNING;
@@ -28,13 +26,17 @@ final class P_ScanManager
     static final int Mode_CLASSIC = 1;
     static final int Mode_BLE_POST_LOLLIPOP = 2;
 
+    private static final int MIN_ENTRIES_PER_UPDATE = 5;
+    private static final double ENTRY_COST_SMOOTHING = 0.125;
+
 
     private final BleManager m_manager;
     private PreLollipopScanCallback m_preLollipopScanCallback;
     private PostLollipopScanCallback m_postLollipopScanCallback;
     private AtomicReference<BleScanApi> mCurrentApi;
     private AtomicReference<BleScanPower> mCurrentPower;
-    private Set<ScanInfo> m_scanEntries;
+    private volatile P_ScanResultRing m_scanEntries;
+    private final P_ScanResultRing.Result m_scanResult = new P_ScanResultRing.Result();
 
     private final int m_retryCountMax = 3;
     private boolean m_triedToStartScanAfterTurnedOn;
@@ -50,9 +52,10 @@ final class P_ScanManager
     private double m_classicLength;
     private double m_timeClassicBoosting;
 
-    private int m_mode;
+    // Running average of how long it takes to process a single scan entry, used when BleManagerConfig.scanProcessingBudget is enabled.
+    private double m_avgEntryCostNanos;
 
-    private final Object entryLock = new Object();
+    private int m_mode;
 
 
     public P_ScanManager(BleManager mgr)
@@ -60,7 +63,7 @@ final class P_ScanManager
         m_manager = mgr;
         mCurrentApi = new AtomicReference<>(mgr.m_config.scanApi);
         mCurrentPower = new AtomicReference<>(BleScanPower.AUTO);
-        m_scanEntries = new HashSet<>();
+        m_scanEntries = new P_ScanResultRing(mgr.m_config.scanResultBufferSize);
         m_preLollipopScanCallback = new PreLollipopScanCallback();
         if(Utils.isLollipop())
         {
@@ -76,6 +79,11 @@ final class P_ScanManager
 
     public final boolean startScan(PA_StateTracker.E_Intent intent, double scanTime, boolean periodicScan)
     {
+        // Scanning isn't running at this point, so nothing is being added to the old buffer.
+        if (m_scanEntries.getCapacity() < m_manager.m_config.scanResultBufferSize)
+        {
+            m_scanEntries = new P_ScanResultRing(m_manager.m_config.scanResultBufferSize);
+        }
         m_periodicScan = periodicScan;
         m_timePausedScan = 0.0;
         m_totalTimeScanning = 0.0;
@@ -218,25 +226,35 @@ final class P_ScanManager
 
     final void addScanResult(final BluetoothDevice device, final int rssi, final byte[] scanRecord)
     {
-        final ScanInfo info = new ScanInfo(device, rssi, scanRecord);
-        synchronized (entryLock)
-        {
-            m_scanEntries.add(info);
-        }
+        m_scanEntries.offer(device, rssi, scanRecord, m_manager.m_config.scanResultOverflowPolicy);
     }
 
     final void addBatchScanResults(final List<L_Util.ScanResult> devices)
     {
-        synchronized (entryLock)
+        final P_ScanResultRing ring = m_scanEntries;
+        final BleScanOverflowPolicy policy = m_manager.m_config.scanResultOverflowPolicy;
+        for (int i = 0; i < devices.size(); i++)
         {
-            for (L_Util.ScanResult res : devices)
-            {
-                final ScanInfo info = new ScanInfo(res.getDevice(), res.getRssi(), res.getRecord());
-                m_scanEntries.add(info);
-            }
+            final L_Util.ScanResult res = devices.get(i);
+            ring.offer(res.getDevice(), res.getRssi(), res.getRecord(), policy);
         }
     }
 
+    final long getScanResultCount()
+    {
+        return m_scanEntries.getReceivedCount();
+    }
+
+    final long getCoalescedScanResultCount()
+    {
+        return m_scanEntries.getCoalescedCount();
+    }
+
+    final long getDroppedScanResultCount()
+    {
+        return m_scanEntries.getDroppedCount();
+    }
+
     final int getCurrentMode()
     {
         return m_mode;
@@ -366,6 +384,25 @@ final class P_ScanManager
         return startScan;
     }
 
+    /**
+     * Returns how long in seconds until {@link #update(double, long)} next needs to be called. Scanning and the auto-scan options
+     * are all driven by accumulated time steps, so this is immediate whenever any of them are in play.
+     */
+    final double getTimeUntilNextUpdate()
+    {
+        if (m_manager.isAny(SCANNING, SCANNING_PAUSED, BOOST_SCANNING, STARTING_SCAN))
+        {
+            return 0.0;
+        }
+
+        if (Interval.isEnabled(m_manager.m_config.autoScanActiveTime))
+        {
+            return 0.0;
+        }
+
+        return Interval.INFINITE.secs();
+    }
+
     final boolean isPeriodicScan()
     {
         return m_periodicScan;
@@ -414,29 +451,35 @@ final class P_ScanManager
     {
         if ( size > 0 )
         {
-            final List<ScanInfo> infos;
+            final int maxEntries = getMaxEntriesToProcess(size);
+            final long startTime = System.nanoTime();
 
-            // Get our max scan entries to process based off the update loop rate, with
-            // a minimum of 5.
-            final long upRate = m_manager.m_config.autoUpdateRate.millis();
-            final int maxEntries = (int) Math.min(size, Math.max(5, upRate));
-            infos = new ArrayList<>(maxEntries);
-            synchronized (entryLock)
+            final List<DiscoveryEntry> entries = new ArrayList<>(maxEntries);
+            final P_ScanResultRing.Result info = m_scanResult;
+            final P_ScanFilterManager filterManager = m_manager.getFilterManager();
+            final boolean canRejectEarly = filterManager.isCompiled();
+
+            for (int i = 0; i < maxEntries && m_scanEntries.poll(info); i++)
             {
-                int current = 0;
-                final Iterator<ScanInfo> it = m_scanEntries.iterator();
-                while (it.hasNext() && current < maxEntries)
+                BleScanRecordView recordView = null;
+
+                // Results that no filter could ever acknowledge get dropped here, before anything is created for them. Devices we already
+                // know about are let through regardless, as they're not subject to the filters.
+                if (canRejectEarly && info.m_device != null)
                 {
-                    infos.add(it.next());
-                    it.remove();
-                    current++;
-                }
-            }
+                    final String mac = info.m_device.getAddress();
 
-            final List<DiscoveryEntry> entries = new ArrayList<>(infos.size());
+                    if (m_manager.m_deviceMngr.get(mac) == null)
+                    {
+                        recordView = new BleScanRecordView(info.m_record);
+
+                        if (filterManager.canRejectEarly(mac, info.m_rssi, recordView))
+                        {
+                            continue;
+                        }
+                    }
+                }
 
-            for (ScanInfo info : infos)
-            {
                 final P_NativeDeviceLayer layer = m_manager.m_config.newDeviceLayer(BleDevice.NULL);
                 layer.setNativeDevice(info.m_device);
 
@@ -449,10 +492,54 @@ final class P_ScanManager
                     m_manager.getCrashResolver().notifyScannedDevice(layer, null, L_Util.getNativeScanCallback());
                 }
 
-                entries.add(DiscoveryEntry.newEntry(layer, info.m_rssi, info.m_record));
+                entries.add(DiscoveryEntry.newEntry(layer, info.m_rssi, info.m_record, recordView));
             }
+            info.clear();
 
             m_manager.onDiscoveredFromNativeStack(entries);
+
+            onEntriesProcessed(entries.size(), System.nanoTime() - startTime);
+        }
+    }
+
+    int getMaxEntriesToProcess(int backlog)
+    {
+        final Interval budget = m_manager.m_config.scanProcessingBudget;
+
+        if (Interval.isDisabled(budget) || Interval.INFINITE.equals(budget))
+        {
+            // Get our max scan entries to process based off the update loop rate, with
+            // a minimum of 5.
+            final long upRate = m_manager.m_config.autoUpdateRate.millis();
+            return (int) Math.min(backlog, Math.max(MIN_ENTRIES_PER_UPDATE, upRate));
+        }
+
+        // Nothing measured yet, so start off small.
+        if (m_avgEntryCostNanos <= 0.0)
+        {
+            return Math.min(backlog, MIN_ENTRIES_PER_UPDATE);
+        }
+
+        final double affordable = (budget.secs() * 1000000000.0) / m_avgEntryCostNanos;
+        return (int) Math.min(backlog, Math.max(MIN_ENTRIES_PER_UPDATE, affordable));
+    }
+
+    void onEntriesProcessed(int count, long elapsedNanos)
+    {
+        if (count == 0)
+        {
+            return;
+        }
+
+        final double costPerEntry = elapsedNanos / (double) count;
+
+        if (m_avgEntryCostNanos <= 0.0)
+        {
+            m_avgEntryCostNanos = costPerEntry;
+        }
+        else
+        {
+            m_avgEntryCostNanos += (costPerEntry - m_avgEntryCostNanos) * ENTRY_COST_SMOOTHING;
         }
     }
 
@@ -508,10 +595,7 @@ final class P_ScanManager
         }
         // Clear out the scan entries list so we don't end up caching old discoveries (it's possible there's a large amount of time between scans, so
         // what's held in the list may not actually be within range anymore, or some other data on it has changed).
-        synchronized (entryLock)
-        {
-            m_scanEntries.clear();
-        }
+        m_scanEntries.clear();
     }
 
     private boolean startScanPreLollipop(PA_StateTracker.E_Intent intent)
@@ -695,12 +779,17 @@ final class P_ScanManager
 
     private void startLScan(int mode)
     {
-        m_manager.managerLayer().startLScan(mode, m_manager.m_config.scanReportDelay, m_postLollipopScanCallback);
+        m_manager.managerLayer().startLScan(mode, m_manager.m_config.scanReportDelay, getNativeFilters_nullable(), m_postLollipopScanCallback);
     }
 
     private void startMScan(int mode)
     {
-        m_manager.managerLayer().startMScan(mode, m_manager.m_config.scanReportDelay, m_postLollipopScanCallback);
+        m_manager.managerLayer().startMScan(mode, m_manager.m_config.scanReportDelay, getNativeFilters_nullable(), m_postLollipopScanCallback);
+    }
+
+    private List<L_Util.ScanFilterSpec> getNativeFilters_nullable()
+    {
+        return m_manager.m_config.useNativeScanFilters ? m_manager.getFilterManager().getNativeFilters_nullable() : null;
     }
 
     private void fail()
@@ -741,6 +830,7 @@ final class P_ScanManager
         private final P_NativeDeviceLayer deviceLayer;
         private final int rssi;
         private final byte[] scanRecord;
+        private BleScanRecordView scanRecordView;
 
         BleDevice m_bleDevice;
         BleDeviceOrigin m_origin;
@@ -748,11 +838,12 @@ final class P_ScanManager
         boolean m_newlyDiscovered;
 
 
-        DiscoveryEntry(P_NativeDeviceLayer layer, int rssi, byte[] record)
+        DiscoveryEntry(P_NativeDeviceLayer layer, int rssi, byte[] record, BleScanRecordView recordView_nullable)
         {
             deviceLayer = layer;
             this.rssi = rssi;
             scanRecord = record;
+            scanRecordView = recordView_nullable;
         }
 
         P_NativeDeviceLayer device()
@@ -770,48 +861,22 @@ final class P_ScanManager
             return scanRecord;
         }
 
-        static DiscoveryEntry newEntry(P_NativeDeviceLayer layer, int rssi, byte[] record)
+        /**
+         * Returns the view the record was already looked at through when checking if it could be rejected early, so it's only decoded once.
+         */
+        BleScanRecordView recordView()
         {
-            return new DiscoveryEntry(layer, rssi, record);
-        }
-    }
-
-    private final static class ScanInfo
-    {
-        private final BluetoothDevice m_device;
-        private final int m_rssi;
-        private final byte[] m_record;
-
-        ScanInfo(BluetoothDevice device, int rssi, byte[] record)
-        {
-            m_device = device;
-            m_rssi = rssi;
-            m_record = record;
-        }
-
-        @Override
-        public int hashCode()
-        {
-            if (m_device != null)
+            if (scanRecordView == null)
             {
-                return m_device.getAddress().hashCode();
+                scanRecordView = new BleScanRecordView(scanRecord);
             }
-            return super.hashCode();
+
+            return scanRecordView;
         }
 
-        @Override
-        public boolean equals(Object obj)
+        static DiscoveryEntry newEntry(P_NativeDeviceLayer layer, int rssi, byte[] record, BleScanRecordView recordView_nullable)
         {
-            if (obj == null)
-                return false;
-            if (obj instanceof ScanInfo)
-            {
-                ScanInfo other = (ScanInfo) obj;
-                if ((m_device == null && other.m_device != null) || (m_device != null && other.m_device == null))
-                    return false;
-                return m_device.getAddress().equals(other.m_device.getAddress());
-            }
-            return false;
+            return new DiscoveryEntry(layer, rssi, record, recordView_nullable);
         }
     }
 
@@ -0,0 +1,257 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothDevice;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Bounded, preallocated ring buffer which hands scan results from the native scan callback over to the update thread without
+ * the two ever blocking on each other. Results for a device that's already waiting in the ring overwrite that entry in place
+ * (keeping the latest rssi and scan record), so a chatty advertiser only ever takes up one slot between update loop ticks.
+ * <br><br>
+ * There is a single consumer (the update thread). Producers are serialized on their own lock, which the consumer never takes -
+ * in practice there's only ever one producer (the thread native scan callbacks come in on), so it's never contended.
+ */
+final class P_ScanResultRing
+{
+	private static final int STATE_FREE = 0;
+	private static final int STATE_PENDING = 1;
+	private static final int STATE_WRITING = 2;
+	private static final int STATE_CLAIMED = 3;
+
+	// How many times a producer will retry claiming the oldest slot for BleScanOverflowPolicy.DROP_OLDEST before giving up and
+	// dropping the newest result instead.
+	private static final int MAX_OVERWRITE_ATTEMPTS = 3;
+
+	/**
+	 * Mutable holder the consumer copies results into, so that draining the ring doesn't allocate anything.
+	 */
+	static final class Result
+	{
+		BluetoothDevice m_device;
+		int m_rssi;
+		byte[] m_record;
+
+		void clear()
+		{
+			m_device = null;
+			m_record = null;
+		}
+	}
+
+	private final int m_mask;
+	private final BluetoothDevice[] m_devices;
+	private final String[] m_macs;
+	private final int[] m_rssis;
+	private final byte[][] m_records;
+	private final AtomicIntegerArray m_states;
+
+	// Only the producer touches this, to find the slot a device's result is waiting in.
+	private final HashMap<String, Integer> m_pendingByMac;
+	// Boxed slot indices, so remembering a slot doesn't allocate.
+	private final Integer[] m_slotKeys;
+	private final Object m_producerLock = new Object();
+
+	private volatile long m_head = 0;
+	private volatile long m_tail = 0;
+
+	private volatile long m_receivedCount = 0;
+	private volatile long m_coalescedCount = 0;
+	private volatile long m_droppedCount = 0;
+
+
+	P_ScanResultRing(final int requestedCapacity)
+	{
+		final int capacity = roundUpToPowerOfTwo(Math.max(requestedCapacity, 2));
+
+		m_mask = capacity - 1;
+		m_devices = new BluetoothDevice[capacity];
+		m_macs = new String[capacity];
+		m_rssis = new int[capacity];
+		m_records = new byte[capacity][];
+		m_states = new AtomicIntegerArray(capacity);
+		m_pendingByMac = new HashMap<>(capacity * 2);
+		m_slotKeys = new Integer[capacity];
+
+		for( int i = 0; i < capacity; i++ )
+		{
+			m_slotKeys[i] = i;
+		}
+	}
+
+
+	final int getCapacity()
+	{
+		return m_mask + 1;
+	}
+
+	/**
+	 * Returns the number of results waiting to be consumed. Safe to call from any thread, though it's only a snapshot.
+	 */
+	final int size()
+	{
+		return (int) (m_head - m_tail);
+	}
+
+	final long getReceivedCount()
+	{
+		return m_receivedCount;
+	}
+
+	final long getCoalescedCount()
+	{
+		return m_coalescedCount;
+	}
+
+	final long getDroppedCount()
+	{
+		return m_droppedCount;
+	}
+
+	/**
+	 * Producer side. Returns <code>false</code> if the result (or an older one, depending on the policy) had to be dropped
+	 * because the ring was full.
+	 */
+	final boolean offer(final BluetoothDevice device, final int rssi, final byte[] record, final BleScanOverflowPolicy policy)
+	{
+		final String mac = device != null ? device.getAddress() : null;
+
+		synchronized (m_producerLock)
+		{
+			m_receivedCount++;
+
+			if( mac != null )
+			{
+				final Integer pendingSlot = m_pendingByMac.get(mac);
+
+				// If the consumer has already claimed (or freed) the slot this fails, and the result just takes a new slot.
+				if( pendingSlot != null && m_states.compareAndSet(pendingSlot, STATE_PENDING, STATE_WRITING) )
+				{
+					write(pendingSlot, device, mac, rssi, record);
+					m_states.set(pendingSlot, STATE_PENDING);
+					m_coalescedCount++;
+
+					return true;
+				}
+			}
+
+			final long head = m_head;
+
+			if( head - m_tail <= m_mask )
+			{
+				final int slot = (int) (head & m_mask);
+
+				forget(slot);
+				write(slot, device, mac, rssi, record);
+				remember(slot, mac);
+				m_states.set(slot, STATE_PENDING);
+				m_head = head + 1;
+
+				return true;
+			}
+
+			m_droppedCount++;
+
+			if( policy == BleScanOverflowPolicy.DROP_OLDEST )
+			{
+				for( int i = 0; i < MAX_OVERWRITE_ATTEMPTS; i++ )
+				{
+					final int slot = (int) (m_tail & m_mask);
+
+					if( m_states.compareAndSet(slot, STATE_PENDING, STATE_WRITING) )
+					{
+						forget(slot);
+						write(slot, device, mac, rssi, record);
+						remember(slot, mac);
+						m_states.set(slot, STATE_PENDING);
+
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Consumer side, only to be called from the update thread. Copies the oldest waiting result into the given holder and
+	 * returns <code>true</code>, or returns <code>false</code> if the ring is empty.
+	 */
+	final boolean poll(final Result out)
+	{
+		final long tail = m_tail;
+
+		if( tail == m_head )  return false;
+
+		final int slot = (int) (tail & m_mask);
+
+		// A producer may be in the middle of overwriting this slot with a newer result for the same device, which only takes a few
+		// field writes, so just spin until it's done.
+		while( !m_states.compareAndSet(slot, STATE_PENDING, STATE_CLAIMED) )
+		{
+			Thread.yield();
+		}
+
+		out.m_device = m_devices[slot];
+		out.m_rssi = m_rssis[slot];
+		out.m_record = m_records[slot];
+
+		m_devices[slot] = null;
+		m_records[slot] = null;
+
+		m_states.set(slot, STATE_FREE);
+		m_tail = tail + 1;
+
+		return true;
+	}
+
+	/**
+	 * Consumer side, discards everything currently waiting in the ring.
+	 */
+	final void clear()
+	{
+		final Result result = new Result();
+
+		while( poll(result) ) {}
+	}
+
+	private void write(final int slot, final BluetoothDevice device, final String mac, final int rssi, final byte[] record)
+	{
+		m_devices[slot] = device;
+		m_macs[slot] = mac;
+		m_rssis[slot] = rssi;
+		m_records[slot] = record;
+	}
+
+	private void remember(final int slot, final String mac)
+	{
+		if( mac != null )
+		{
+			m_pendingByMac.put(mac, m_slotKeys[slot]);
+		}
+	}
+
+	private void forget(final int slot)
+	{
+		final String oldMac = m_macs[slot];
+
+		if( oldMac != null )
+		{
+			final Integer oldSlot = m_pendingByMac.get(oldMac);
+
+			if( oldSlot != null && oldSlot.intValue() == slot )
+			{
+				m_pendingByMac.remove(oldMac);
+			}
+		}
+	}
+
+	private static int roundUpToPowerOfTwo(final int value)
+	{
+		final int highest = Integer.highestOneBit(value);
+
+		return highest == value ? value : highest << 1;
+	}
+}
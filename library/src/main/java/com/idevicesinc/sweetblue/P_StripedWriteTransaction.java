@@ -5,7 +5,9 @@ import android.bluetooth.BluetoothGattCharacteristic;
 
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.PresentData;
+import com.idevicesinc.sweetblue.utils.StreamingData;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -39,6 +41,21 @@ final class P_StripedWriteTransaction extends BleTransaction
 
     @Override protected final void start(BleDevice device)
     {
+        if (m_data instanceof StreamingData)
+        {
+            // Only one chunk at a time is pulled out of a stream, the next one being read once the previous write comes back.
+            final P_Task_Write task = nextStreamTask(device);
+            if (task != null)
+            {
+                device.queue().add(task);
+            }
+            else if (isRunning())
+            {
+                failStream(device, BleDevice.ReadWriteListener.Status.EMPTY_DATA);
+            }
+            return;
+        }
+
         final byte[] allData = m_data.getData();
         int curIndex = 0;
         FutureData curData;
@@ -62,6 +79,57 @@ final class P_StripedWriteTransaction extends BleTransaction
         device.queue().add(m_writeList.remove(0));
     }
 
+    private P_Task_Write nextStreamTask(BleDevice device)
+    {
+        final StreamingData stream = (StreamingData) m_data;
+        final byte[] chunk = new byte[device.getEffectiveWriteMtuSize()];
+        int filled = 0;
+        try
+        {
+            while (filled < chunk.length)
+            {
+                final int read = stream.read(chunk, filled, chunk.length - filled);
+                if (read == -1)
+                {
+                    break;
+                }
+                filled += read;
+            }
+        }
+        catch (IOException e)
+        {
+            stream.close();
+            failStream(device, BleDevice.ReadWriteListener.Status.INVALID_DATA);
+            return null;
+        }
+
+        if (filled == 0)
+        {
+            stream.close();
+            return null;
+        }
+
+        final FutureData curData = new PresentData(filled == chunk.length ? chunk : Arrays.copyOf(chunk, filled));
+        if (m_descriptorFilter == null)
+        {
+            return new P_Task_Write(device, m_characteristic, curData, m_requiresBonding, m_writeType, m_internalListener, device.m_txnMngr.getCurrent(), device.getOverrideReadWritePriority());
+        }
+        else
+        {
+            return new P_Task_Write(device, m_characteristic.getService().getUuid(), m_characteristic.getUuid(), m_descriptorFilter, curData, m_requiresBonding, m_writeType, m_internalListener, device.m_txnMngr.getCurrent(), device.getOverrideReadWritePriority());
+        }
+    }
+
+    private void failStream(BleDevice device, BleDevice.ReadWriteListener.Status status)
+    {
+        fail();
+        if (m_listener != null)
+        {
+            final BleDevice.ReadWriteListener.ReadWriteEvent e = new BleDevice.ReadWriteListener.ReadWriteEvent(device, m_characteristic.getService().getUuid(), m_characteristic.getUuid(), null, m_descriptorFilter, m_writeType, BleDevice.ReadWriteListener.Target.CHARACTERISTIC, null, status, BleStatuses.GATT_STATUS_NOT_APPLICABLE, 0.0, 0.0, /*solicited=*/true);
+            m_listener.onEvent(e);
+        }
+    }
+
     private final class WriteListener implements BleDevice.ReadWriteListener
     {
 
@@ -69,11 +137,22 @@ final class P_StripedWriteTransaction extends BleTransaction
         {
             if (e.wasSuccess())
             {
-                if (m_writeList.size() > 0)
+                final P_Task_Write next;
+                if (m_data instanceof StreamingData)
                 {
-                    getDevice().queue().add(m_writeList.remove(0));
+                    next = nextStreamTask(getDevice());
                 }
                 else
+                {
+                    next = m_writeList.size() > 0 ? m_writeList.remove(0) : null;
+                }
+
+                if (next != null)
+                {
+                    getDevice().queue().add(next);
+                }
+                // If reading the stream failed, the transaction has already been failed and reported.
+                else if (isRunning())
                 {
                     succeed();
                     if (m_listener != null)
@@ -84,6 +163,10 @@ final class P_StripedWriteTransaction extends BleTransaction
             }
             else
             {
+                if (m_data instanceof StreamingData)
+                {
+                    ((StreamingData) m_data).close();
+                }
                 fail();
                 if (m_listener != null)
                 {
@@ -1,21 +1,35 @@
 package com.idevicesinc.sweetblue;
 
-import java.util.Iterator;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
 
 
 final class P_SweetBlueThread implements P_SweetHandler
 {
 
-    private final LinkedBlockingQueue<SweetRunnable> m_runnables;
+    // Once this many cancelled runnables are sitting in the queue (and they make up over half of it), the queue gets rebuilt without them.
+    private static final int PURGE_THRESHOLD = 32;
+
+    private final Object m_lock = new Object();
+
+    // Ordered by deadline, then by the order they were posted in.
+    private final PriorityQueue<SweetRunnable> m_runnables;
+
+    // Used to find the posted runnables for removeCallbacks() without walking the whole queue.
+    private final HashMap<Runnable, ArrayList<SweetRunnable>> m_posted;
 
     private Thread thread;
-    private boolean m_running;
+    private volatile boolean m_running;
+    private long m_postCount;
+    private int m_cancelledCount;
+    private long m_wakeupCount;
 
 
     P_SweetBlueThread()
     {
-        m_runnables = new LinkedBlockingQueue<>();
+        m_runnables = new PriorityQueue<>();
+        m_posted = new HashMap<>();
         m_running = true;
         thread = new Thread(new HandlerRunner());
         thread.start();
@@ -24,24 +38,53 @@ final class P_SweetBlueThread implements P_SweetHandler
 
     @Override public void post(Runnable action)
     {
-        m_runnables.add(new SweetRunnable(action, System.currentTimeMillis(), 0));
+        postDelayed(action, 0);
     }
 
     @Override public void postDelayed(Runnable action, long delay)
     {
-        m_runnables.add(new SweetRunnable(action, System.currentTimeMillis(), delay));
+        synchronized (m_lock)
+        {
+            final SweetRunnable run = new SweetRunnable(action, System.nanoTime() + Math.max(delay, 0) * 1000000L, m_postCount++);
+
+            ArrayList<SweetRunnable> posted = m_posted.get(action);
+            if (posted == null)
+            {
+                posted = new ArrayList<>(1);
+                m_posted.put(action, posted);
+            }
+            posted.add(run);
+
+            m_runnables.add(run);
+
+            // Only need to wake up the thread if this runnable is now the soonest one to run
+            if (m_runnables.peek() == run)
+            {
+                m_lock.notify();
+            }
+        }
     }
 
     @Override public void removeCallbacks(Runnable action)
     {
-        Iterator<SweetRunnable> it = m_runnables.iterator();
-        while (it.hasNext())
+        synchronized (m_lock)
         {
-            SweetRunnable run = it.next();
-            if (run.m_runnable == action)
+            final ArrayList<SweetRunnable> posted = m_posted.remove(action);
+            if (posted == null)
+            {
+                return;
+            }
+
+            // Cancelled runnables are skipped when they reach the front of the queue, rather than removed from the middle of it.
+            for (int i = 0; i < posted.size(); i++)
+            {
+                posted.get(i).cancel();
+            }
+            m_cancelledCount += posted.size();
+
+            if (m_cancelledCount >= PURGE_THRESHOLD && m_cancelledCount > m_runnables.size() / 2)
             {
-                run.cancel();
-                it.remove();
+                purgeCancelled();
             }
         }
     }
@@ -54,6 +97,10 @@ final class P_SweetBlueThread implements P_SweetHandler
     public void quit()
     {
         m_running = false;
+        synchronized (m_lock)
+        {
+            m_lock.notify();
+        }
         if (Thread.currentThread() != thread)
         {
             try
@@ -65,19 +112,101 @@ final class P_SweetBlueThread implements P_SweetHandler
         }
     }
 
-    private final static class SweetRunnable
+    /**
+     * Returns the number of times the thread has woken up, whether or not it had anything to run. Only used for testing.
+     */
+    final long getWakeupCount()
+    {
+        synchronized (m_lock)
+        {
+            return m_wakeupCount;
+        }
+    }
+
+    private void purgeCancelled()
+    {
+        final ArrayList<SweetRunnable> live = new ArrayList<>(m_runnables.size() - m_cancelledCount);
+        for (SweetRunnable run : m_runnables)
+        {
+            if (!run.canceled())
+            {
+                live.add(run);
+            }
+        }
+        m_runnables.clear();
+        m_runnables.addAll(live);
+        m_cancelledCount = 0;
+    }
+
+    // Returns the next runnable that's due to run, blocking until there is one, or null if the thread has been told to quit.
+    private SweetRunnable take()
+    {
+        synchronized (m_lock)
+        {
+            while (m_running)
+            {
+                final SweetRunnable next = m_runnables.peek();
+                if (next != null && next.canceled())
+                {
+                    m_runnables.poll();
+                    m_cancelledCount--;
+                    continue;
+                }
+
+                final long wait = next == null ? 0 : next.m_deadline - System.nanoTime();
+                if (next != null && wait <= 0)
+                {
+                    m_runnables.poll();
+                    onRemoved(next);
+                    return next;
+                }
+
+                try
+                {
+                    if (next == null)
+                    {
+                        m_lock.wait();
+                    }
+                    else
+                    {
+                        final long waitMs = wait / 1000000L;
+                        m_lock.wait(waitMs, (int) (wait - waitMs * 1000000L));
+                    }
+                } catch (InterruptedException e)
+                {
+                }
+                m_wakeupCount++;
+            }
+            return null;
+        }
+    }
+
+    private void onRemoved(SweetRunnable run)
+    {
+        final ArrayList<SweetRunnable> posted = m_posted.get(run.m_runnable);
+        if (posted != null)
+        {
+            posted.remove(run);
+            if (posted.isEmpty())
+            {
+                m_posted.remove(run.m_runnable);
+            }
+        }
+    }
+
+    private final static class SweetRunnable implements Comparable<SweetRunnable>
     {
         private final Runnable m_runnable;
-        private final long m_postedTime;
-        private final long m_delay;
+        private final long m_deadline;
+        private final long m_sequence;
         private boolean m_canceled;
 
 
-        public SweetRunnable(Runnable action, long postedTime, long delay)
+        public SweetRunnable(Runnable action, long deadline, long sequence)
         {
             m_runnable = action;
-            m_postedTime = postedTime;
-            m_delay = delay;
+            m_deadline = deadline;
+            m_sequence = sequence;
         }
 
         public void run()
@@ -98,14 +227,14 @@ final class P_SweetBlueThread implements P_SweetHandler
             return m_canceled;
         }
 
-        public boolean ready(long curTime)
-        {
-            return m_canceled || (curTime - m_postedTime) > m_delay;
-        }
-
-        public boolean ready()
+        @Override public int compareTo(SweetRunnable other)
         {
-            return m_canceled || ready(System.currentTimeMillis());
+            final long diff = m_deadline - other.m_deadline;
+            if (diff != 0)
+            {
+                return diff < 0 ? -1 : 1;
+            }
+            return m_sequence < other.m_sequence ? -1 : (m_sequence == other.m_sequence ? 0 : 1);
         }
     }
 
@@ -115,26 +244,10 @@ final class P_SweetBlueThread implements P_SweetHandler
         {
             while (m_running)
             {
-                if (!m_runnables.isEmpty())
-                {
-                    long curTime = System.currentTimeMillis();
-                    Iterator<SweetRunnable> it = m_runnables.iterator();
-                    while (it.hasNext())
-                    {
-                        SweetRunnable run = it.next();
-                        if (run.ready(curTime))
-                        {
-                            it.remove();
-                            run.run();
-                        }
-                    }
-                }
-                // Sleep for a short period, so we don't hog the cpu
-                try
-                {
-                    Thread.sleep(5);
-                } catch (Exception e)
+                final SweetRunnable run = take();
+                if (run != null)
                 {
+                    run.run();
                 }
             }
         }
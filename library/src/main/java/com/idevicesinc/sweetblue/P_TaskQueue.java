@@ -2,6 +2,8 @@ package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import android.os.Handler;
 import android.os.Looper;
@@ -13,6 +15,7 @@ import com.idevicesinc.sweetblue.utils.Interval;
 final class P_TaskQueue
 {
 	private final ArrayList<PA_Task> m_queue = new ArrayList<PA_Task>();
+	private final P_TaskQueueIndex m_index = new P_TaskQueueIndex();
 	private final AtomicReference<PA_Task> m_current;
 	private long m_updateCount;
 	private final BleManager m_mngr;
@@ -23,6 +26,11 @@ final class P_TaskQueue
 	
 	private int m_currentOrdinal;
 
+	//--- Tracks when each device/server lane last had a task dequeued, for BleTaskScheduling.ROUND_ROBIN.
+	//--- Weak so that devices removed from the manager don't stay in memory.
+	private final Map<Object, Long> m_laneLastServed = new WeakHashMap<>();
+	private long m_dequeueCount;
+
 	
 	P_TaskQueue(BleManager mngr)
 	{
@@ -117,7 +125,7 @@ final class P_TaskQueue
 
 	private boolean tryInsertingIntoQueue(PA_Task newTask)
 	{
-		int soonestSpot = PU_TaskQueue.findSoonestSpot(m_queue, newTask);
+		int soonestSpot = PU_TaskQueue.findSoonestSpot(m_queue, m_index, newTask);
 
 		if( soonestSpot >= 0 )
 		{
@@ -129,6 +137,44 @@ final class P_TaskQueue
 		return false;
 	}
 
+	/**
+	 * If the new task is a write that can replace one already waiting in the queue, see {@link BleNodeConfig#coalesceWrites},
+	 * the queued one takes on the new one's data and the new one is dropped. This happens before the new task is {@link PA_Task#init()}'d,
+	 * so a dropped task never enters a state of its own.
+	 */
+	private boolean tryCoalescing(PA_Task newTask)
+	{
+		if( !(newTask instanceof P_Task_Write) || !((P_Task_Write) newTask).isCoalescing() )  return false;
+
+		if( m_index.getForNode(newTask.getDevice()) == null )  return false;
+
+		final P_Task_Write newWrite = (P_Task_Write) newTask;
+
+		//--- Only the last write to the same characteristic can be replaced, otherwise the new value could jump ahead of one queued after it.
+		for( int i = m_queue.size()-1; i >= 0; i-- )
+		{
+			final PA_Task ithTask = m_queue.get(i);
+
+			if( ithTask instanceof P_Task_Write && ((P_Task_Write) ithTask).isForSameCharacteristic(newWrite) )
+			{
+				if( ((P_Task_Write) ithTask).canBeSupersededBy(newWrite) )
+				{
+					((P_Task_Write) ithTask).supersede(newWrite);
+
+					return true;
+				}
+
+				return false;
+			}
+			else if( ithTask instanceof P_Task_StreamWrite && ithTask.getDevice() == newTask.getDevice() && ((P_Task_StreamWrite) ithTask).getCharUuid().equals(newWrite.getCharUuid()) )
+			{
+				return false;
+			}
+		}
+
+		return false;
+	}
+
 	private void addToBack(PA_Task task)
 	{
 		addAtIndex(task, -1);
@@ -174,6 +220,8 @@ final class P_TaskQueue
 			index = m_queue.size()-1;
 		}
 
+		m_index.onAdded(task);
+
 		task.assignDefaultOrdinal(this);
 		
 		softlyCancelTasks(task);
@@ -189,7 +237,6 @@ final class P_TaskQueue
 		{
 			@Override public void run()
 			{
-				newTask.init();
 				add_updateThread(newTask);
 			}
 		});
@@ -201,7 +248,6 @@ final class P_TaskQueue
 		{
 			throw new Error("Tried to add a task when not on the SweetBlue update thread!");
 		}
-		newTask.init();
 		add_updateThread(newTask);
 	}
 
@@ -210,6 +256,10 @@ final class P_TaskQueue
 		// Check the idle status to ensure the new task gets executed as soon as possible (rather than
 		// waiting until the idle interval's next tick)
 		m_mngr.checkIdleStatus();
+		if( tryCoalescing(newTask) )  return;
+
+		newTask.init();
+
 		if( tryCancellingCurrentTask(newTask) )
 		{
 			if( getCurrent() == null )
@@ -270,6 +320,15 @@ final class P_TaskQueue
 		return executingTask;
 	}
 
+	/**
+	 * Returns how long in seconds until {@link #update(double, long)} next needs to be called. Running tasks rely on being ticked for
+	 * timeouts and such, so this is immediate if there's anything going on at all.
+	 */
+	final double getTimeUntilNextUpdate()
+	{
+		return getCurrent() != null || m_queue.size() > 0 ? 0.0 : Interval.INFINITE.secs();
+	}
+
 	private boolean hasDelayTimePassed()
 	{
 		Interval delayTime = m_mngr.m_config.delayBetweenTasks;
@@ -291,7 +350,16 @@ final class P_TaskQueue
 			
 			if( newPotentialCurrent.isArmable() )
 			{
+				if( m_mngr.m_config.taskScheduling == BleTaskScheduling.ROUND_ROBIN )
+				{
+					i = findFairestIndex(i);
+					newPotentialCurrent = m_queue.get(i);
+				}
+
+				onLaneServed(newPotentialCurrent);
+
 				m_queue.remove(i);
+				m_index.onRemoved(newPotentialCurrent);
 				m_current.set(newPotentialCurrent);
 				newPotentialCurrent.arm();
 				if (!newPotentialCurrent.tryExecuting())
@@ -304,6 +372,68 @@ final class P_TaskQueue
 		return false;
 	}
 
+	/**
+	 * Starting from the first armable task in the queue, looks at the rest of the tasks of the same priority and returns the index of the
+	 * one whose lane was served least recently. Only the head of each lane is considered, so ordering within a lane is preserved. Manager-level
+	 * tasks act as a barrier, so they're always executed exclusively and in order.
+	 */
+	private int findFairestIndex(final int headIndex)
+	{
+		final PA_Task head = m_queue.get(headIndex);
+		final Object headLane = P_TaskQueueIndex.getNode(head);
+
+		if( headLane == null )  return headIndex;
+
+		int fairestIndex = headIndex;
+		long fairestServed = getLastServed(headLane);
+
+		final ArrayList<Object> lanesSeen = new ArrayList<>();
+		lanesSeen.add(headLane);
+
+		for( int i = headIndex+1; i < m_queue.size(); i++ )
+		{
+			final PA_Task ith = m_queue.get(i);
+			final Object lane = P_TaskQueueIndex.getNode(ith);
+
+			if( lane == null )  break;
+			if( ith.getPriority() != head.getPriority() || head.isMoreImportantThan(ith) )  break;
+			if( lanesSeen.contains(lane) )  continue;
+
+			lanesSeen.add(lane);
+
+			if( !ith.isArmable() )  continue;
+
+			final long served = getLastServed(lane);
+
+			if( served < fairestServed )
+			{
+				fairestServed = served;
+				fairestIndex = i;
+			}
+		}
+
+		return fairestIndex;
+	}
+
+	private long getLastServed(final Object lane)
+	{
+		final Long served = m_laneLastServed.get(lane);
+
+		return served != null ? served : -1L;
+	}
+
+	private void onLaneServed(final PA_Task task)
+	{
+		final Object lane = P_TaskQueueIndex.getNode(task);
+
+		m_dequeueCount++;
+
+		if( lane != null )
+		{
+			m_laneLastServed.put(lane, m_dequeueCount);
+		}
+	}
+
 	public final long getUpdateCount()
 	{
 		return m_updateCount;
@@ -453,19 +583,13 @@ final class P_TaskQueue
 
 	private boolean isInQueue(Class<? extends PA_Task> taskClass, BleManager mngr_nullable, BleDevice device_nullable, BleServer server_nullable)
 	{
-		for( int i = 0; i < m_queue.size(); i++ )
-		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr_nullable, device_nullable, server_nullable) )
-			{
-				return true;
-			}
-		}
-		
-		return false;
+		return m_index.contains(taskClass, mngr_nullable, device_nullable, server_nullable);
 	}
 
 	private int positionInQueue(Class<? extends PA_Task> taskClass, BleManager mngr_nullable, BleDevice device_nullable, BleServer server_nullable)
 	{
+		if( !m_index.contains(taskClass, mngr_nullable, device_nullable, server_nullable) )  return -1;
+
 		for( int i = 0; i < m_queue.size(); i++ )
 		{
 			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr_nullable, device_nullable, server_nullable) )
@@ -530,6 +654,8 @@ final class P_TaskQueue
 			return (T) current;
 		}
 
+		if( !m_index.contains(taskClass, mngr, null, null) )  return null;
+
 		for( int i = 0; i < m_queue.size(); i++ )
 		{
 			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr, null, null) )
@@ -595,6 +721,8 @@ final class P_TaskQueue
 	{
 		PA_Task task = m_queue.remove(index);
 
+		m_index.onRemoved(task);
+
 		if( task.wasSoftlyCancelled() )
 		{
 			task.setEndingState(PE_TaskState.SOFTLY_CANCELLED);
@@ -614,6 +742,8 @@ final class P_TaskQueue
 			@Override
 			public void run()
 			{
+				if( !m_index.contains(taskClass, mngr, null, null) )  return;
+
 				for( int i = m_queue.size()-1; i >= 0; i-- )
 				{
 					if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr, null, null) )
@@ -632,6 +762,8 @@ final class P_TaskQueue
 			@Override
 			public void run()
 			{
+				if( !m_index.contains(taskClass, null, device, null) )  return;
+
 				for( int i = m_queue.size()-1; i >= 0; i-- )
 				{
 					final PA_Task task_ith = m_queue.get(i);
@@ -655,6 +787,8 @@ final class P_TaskQueue
 			@Override
 			public void run()
 			{
+				if( !m_index.contains(taskClass, null, null, server) )  return;
+
 				for( int i = m_queue.size()-1; i >= 0; i-- )
 				{
 					if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, null, null, server) )
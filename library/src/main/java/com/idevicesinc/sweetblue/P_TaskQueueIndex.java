@@ -0,0 +1,176 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+/**
+ * Secondary indexes over the tasks in {@link P_TaskQueue}'s list, so that lookups and insertions don't have to walk the whole queue.
+ * The list itself is still the source of truth for ordering, as {@link PA_Task#isMoreImportantThan(PA_Task)} isn't a strict total
+ * order (transaction locks for instance), so a plain heap can't reproduce the same ordering.
+ */
+final class P_TaskQueueIndex
+{
+	private final int[] m_priorityCounts = new int[PE_TaskPriority.values().length];
+	private int m_outrankableCount = 0;
+
+	private final HashMap<Class<?>, ArrayList<PA_Task>> m_byClass = new HashMap<>();
+	private final Map<Object, ArrayList<PA_Task>> m_byNode = new IdentityHashMap<>();
+
+
+	final void onAdded(final PA_Task task)
+	{
+		m_priorityCounts[task.getPriority().ordinal()]++;
+
+		if( task.isOutrankableRegardlessOfPriority() )
+		{
+			m_outrankableCount++;
+		}
+
+		getOrCreate(m_byClass, task.getClass()).add(task);
+
+		final Object node = getNode(task);
+
+		if( node != null )
+		{
+			getOrCreate(m_byNode, node).add(task);
+		}
+	}
+
+	final void onRemoved(final PA_Task task)
+	{
+		m_priorityCounts[task.getPriority().ordinal()]--;
+
+		if( task.isOutrankableRegardlessOfPriority() )
+		{
+			m_outrankableCount--;
+		}
+
+		remove(m_byClass, task.getClass(), task);
+
+		final Object node = getNode(task);
+
+		if( node != null )
+		{
+			remove(m_byNode, node, task);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if there's any chance the given task is more important than one that's already queued. If this returns
+	 * <code>false</code>, the task can go straight to the back of the queue without comparing it against everything else.
+	 */
+	final boolean mightOutrankAnything(final PA_Task task)
+	{
+		if( m_outrankableCount > 0 )  return true;
+
+		final int ordinal = task.getPriority().ordinal();
+
+		for( int i = 0; i < ordinal; i++ )
+		{
+			if( m_priorityCounts[i] > 0 )  return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if a task matching the given parameters (see {@link PU_TaskQueue#isMatch(PA_Task, Class, BleManager, BleDevice, BleServer)})
+	 * is in the queue. Only the given device's or server's tasks are checked, or the tasks of matching classes for manager-level lookups.
+	 */
+	final boolean contains(final Class<? extends PA_Task> taskClass, final BleManager mngr_nullable, final BleDevice device_nullable, final BleServer server_nullable)
+	{
+		if( mngr_nullable == null )
+		{
+			final Object node = device_nullable != null ? device_nullable : server_nullable;
+
+			if( node != null )
+			{
+				return containsMatch(m_byNode.get(node), taskClass, mngr_nullable, device_nullable, server_nullable);
+			}
+		}
+
+		for( Map.Entry<Class<?>, ArrayList<PA_Task>> entry : m_byClass.entrySet() )
+		{
+			if( taskClass.isAssignableFrom(entry.getKey()) && containsMatch(entry.getValue(), taskClass, mngr_nullable, device_nullable, server_nullable) )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the queued tasks for the given device or server, in no particular order, or <code>null</code> if there are none.
+	 */
+	final ArrayList<PA_Task> getForNode(final Object node)
+	{
+		return m_byNode.get(node);
+	}
+
+	final int getCount(final PE_TaskPriority priority)
+	{
+		return m_priorityCounts[priority.ordinal()];
+	}
+
+	static Object getNode(final PA_Task task)
+	{
+		if( task.getDevice() != null )  return task.getDevice();
+		if( task.getServer() != null )  return task.getServer();
+
+		return null;
+	}
+
+	private static boolean containsMatch(final ArrayList<PA_Task> tasks_nullable, final Class<? extends PA_Task> taskClass, final BleManager mngr_nullable, final BleDevice device_nullable, final BleServer server_nullable)
+	{
+		if( tasks_nullable == null )  return false;
+
+		for( int i = 0; i < tasks_nullable.size(); i++ )
+		{
+			if( PU_TaskQueue.isMatch(tasks_nullable.get(i), taskClass, mngr_nullable, device_nullable, server_nullable) )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static <K> ArrayList<PA_Task> getOrCreate(final Map<K, ArrayList<PA_Task>> map, final K key)
+	{
+		ArrayList<PA_Task> list = map.get(key);
+
+		if( list == null )
+		{
+			list = new ArrayList<>();
+			map.put(key, list);
+		}
+
+		return list;
+	}
+
+	private static <K> void remove(final Map<K, ArrayList<PA_Task>> map, final K key, final PA_Task task)
+	{
+		final ArrayList<PA_Task> list = map.get(key);
+
+		if( list == null )  return;
+
+		for( int i = list.size()-1; i >= 0; i-- )
+		{
+			if( list.get(i) == task )
+			{
+				list.remove(i);
+
+				break;
+			}
+		}
+
+		if( list.isEmpty() )
+		{
+			map.remove(key);
+		}
+	}
+}
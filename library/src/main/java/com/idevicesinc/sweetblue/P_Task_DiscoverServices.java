@@ -26,6 +26,9 @@ final class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 
 	@Override public void execute()
 	{
+		getDevice().serviceMngr_device().invalidateIndex();
+		getDevice().m_valueCache.clear();
+
 		if( m_gattRefresh )
 		{
 			getDevice().layerManager().refreshGatt();
@@ -0,0 +1,469 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.PresentData;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+/**
+ * Reads several characteristics as one task, so they take a single spot in the queue instead of one each. Each read is sent
+ * straight from the callback for the one before it. A failed read only fails its own target, but the task as a whole ends if it times out,
+ * gets cancelled, or the device disconnects, in which case every target not yet read gets that status. The timeout applies to each read,
+ * not to the whole task.
+ */
+final class P_Task_ReadMany extends PA_Task_Transactionable implements PA_Task.I_StateListener
+{
+
+	private final ReadTarget[] m_targets;
+	private final Type[] m_types;
+	private final ReadWriteListener[] m_targetListeners;
+	private final ReadWriteEvent[] m_results;
+	private final ReadManyListener m_listener;
+	private final long m_startTime;
+
+	private int m_index = 0;
+	private BluetoothGattCharacteristic m_characteristic = null;
+	private final List<BluetoothGattCharacteristic> m_candidates = new ArrayList<>();
+	private long m_readStartTime = 0;
+	private boolean m_reported = false;
+
+	private Boolean m_authRetryValue_onExecute = null;
+	private boolean m_triedToKickOffBond = false;
+
+
+	/**
+	 * @param types_nullable		Same length as <code>targets</code> if given, otherwise every read is a {@link Type#READ}.
+	 * @param listeners_nullable	Same length as <code>targets</code> if given, the listener for each target's own result.
+	 * @param results				Same length as <code>targets</code>. Slots already filled in, e.g. by early-outs, are skipped.
+	 */
+	public P_Task_ReadMany(BleDevice device, ReadTarget[] targets, Type[] types_nullable, ReadWriteListener[] listeners_nullable, ReadWriteEvent[] results, long startTime, boolean requiresBonding, ReadManyListener listener_nullable, BleTransaction txn, PE_TaskPriority priority)
+	{
+		super(device, txn, requiresBonding, priority);
+
+		m_targets = targets;
+		m_types = types_nullable;
+		m_targetListeners = listeners_nullable;
+		m_results = results;
+		m_listener = listener_nullable;
+		m_startTime = startTime;
+	}
+
+	@Override void execute()
+	{
+		//--- If we were interrupted, e.g. by an implicit bond, the target we were on is started again from scratch.
+		m_characteristic = null;
+		m_candidates.clear();
+
+		m_authRetryValue_onExecute = getAuthRetryValue();
+
+		nextTarget();
+	}
+
+	@Override protected void update(double timeStep)
+	{
+		if( getDevice().is(BleDeviceState.CONNECTED) )
+		{
+			checkIfBondingKickedOff();
+		}
+	}
+
+	private Boolean getAuthRetryValue()
+	{
+		return getDevice().layerManager().getGattLayer().getAuthRetryValue();
+	}
+
+	/**
+	 * Same as PA_Task_ReadOrWrite.checkIfBondingKickedOff(), a read needing authentication can make the stack kick off a bond
+	 * without telling us, which we can only tell from the gatt's auth retry value flipping while we're executing.
+	 */
+	private void checkIfBondingKickedOff()
+	{
+		if( getState() == PE_TaskState.EXECUTING && m_triedToKickOffBond == false )
+		{
+			final Boolean authRetryValue_now = getAuthRetryValue();
+
+			if( m_authRetryValue_onExecute != null && authRetryValue_now != null )
+			{
+				if( m_authRetryValue_onExecute == false && authRetryValue_now == true )
+				{
+					m_triedToKickOffBond = true;
+
+					getLogger().i("Kicked off bond!");
+				}
+			}
+		}
+	}
+
+	private static boolean isAuthFailure(final int gattStatus)
+	{
+		return gattStatus == BluetoothGatt.GATT_INSUFFICIENT_AUTHENTICATION || gattStatus == BleStatuses.GATT_AUTH_FAIL;
+	}
+
+	/**
+	 * Starts reading the first target that doesn't have a result yet, or ends the task if they all do.
+	 */
+	private void nextTarget()
+	{
+		while( m_index < m_targets.length )
+		{
+			if( m_results[m_index] == null && startTarget(m_targets[m_index]) )
+			{
+				m_readStartTime = System.currentTimeMillis();
+
+				return;
+			}
+
+			m_index++;
+		}
+
+		super.succeed();
+
+		report();
+	}
+
+	/**
+	 * Returns <code>true</code> if a read was sent out for the given target, otherwise the target's result is recorded and it returns <code>false</code>.
+	 */
+	private boolean startTarget(final ReadTarget target)
+	{
+		m_characteristic = null;
+		m_candidates.clear();
+
+		if( target.descriptorFilter == null )
+		{
+			final BluetoothGattCharacteristic characteristic = getDevice().getNativeCharacteristic(target.serviceUuid, target.charUuid);
+
+			if( characteristic == null )
+			{
+				record(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, null, null);
+
+				return false;
+			}
+
+			return readCharacteristic(characteristic);
+		}
+
+		final List<BluetoothGattCharacteristic> charList = getDevice().getNativeCharacteristics_List(target.serviceUuid);
+
+		for( int i = 0; i < charList.size(); i++ )
+		{
+			if( charList.get(i).getUuid().equals(target.charUuid) )
+			{
+				m_candidates.add(charList.get(i));
+			}
+		}
+
+		final UUID descUuid = target.descriptorFilter.descriptorUuid();
+
+		if( descUuid == null )
+		{
+			//--- No descriptor to read, so let the filter pick from the characteristics themselves.
+			for( int i = 0; i < m_candidates.size(); i++ )
+			{
+				final BluetoothGattCharacteristic ch = m_candidates.get(i);
+				final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(ch.getService(), ch, null, PresentData.EMPTY);
+
+				if( target.descriptorFilter.onEvent(event).isAccepted() )
+				{
+					m_candidates.clear();
+
+					return readCharacteristic(ch);
+				}
+			}
+
+			m_candidates.clear();
+			record(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, null, null);
+
+			return false;
+		}
+
+		return readNextCandidateDescriptor();
+	}
+
+	private boolean readCharacteristic(final BluetoothGattCharacteristic characteristic)
+	{
+		if( false == getDevice().layerManager().readCharacteristic(characteristic) )
+		{
+			record(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, null, null);
+
+			return false;
+		}
+
+		m_characteristic = characteristic;
+
+		return true;
+	}
+
+	private boolean readNextCandidateDescriptor()
+	{
+		final ReadTarget target = m_targets[m_index];
+		final UUID descUuid = target.descriptorFilter.descriptorUuid();
+
+		while( m_candidates.size() > 0 )
+		{
+			final BluetoothGattDescriptor descriptor = m_candidates.get(0).getDescriptor(descUuid);
+
+			if( descriptor != null )
+			{
+				if( false == getDevice().layerManager().readDescriptor(descriptor) )
+				{
+					m_candidates.clear();
+					record(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.DESCRIPTOR, descUuid, null);
+
+					return false;
+				}
+
+				return true;
+			}
+
+			m_candidates.remove(0);
+		}
+
+		record(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, descUuid, null);
+
+		return false;
+	}
+
+	public void onCharacteristicRead(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final byte[] value, final int gattStatus)
+	{
+		getManager().ASSERT(getDevice().layerManager().gattEquals(gatt));
+
+		if( false == isFor(characteristic) )  return;
+
+		//--- See PA_Task_ReadOrWrite.acknowledgeCallback(), this may have kicked off a bond, in which case we'll be interrupted,
+		//--- or time out and let the device know a bond was probably attempted.
+		if( isAuthFailure(gattStatus) )
+		{
+			checkIfBondingKickedOff();
+
+			return;
+		}
+
+		m_characteristic = null;
+
+		if( false == Utils.isSuccess(gattStatus) )
+		{
+			record(Status.REMOTE_GATT_FAILURE, gattStatus, Target.CHARACTERISTIC, null, null);
+		}
+		else if( value == null )
+		{
+			record(Status.NULL_DATA, gattStatus, Target.CHARACTERISTIC, null, null);
+
+			getManager().uhOh(UhOh.READ_RETURNED_NULL);
+		}
+		else if( value.length == 0 )
+		{
+			record(Status.EMPTY_DATA, gattStatus, Target.CHARACTERISTIC, null, null);
+		}
+		else
+		{
+			record(Status.SUCCESS, gattStatus, Target.CHARACTERISTIC, null, value);
+		}
+
+		advance();
+	}
+
+	public void onDescriptorRead(final BluetoothGatt gatt, final BluetoothGattDescriptor descriptor, final byte[] value, final int gattStatus)
+	{
+		getManager().ASSERT(getDevice().layerManager().gattEquals(gatt));
+
+		if( false == isFor(descriptor) )  return;
+
+		if( isAuthFailure(gattStatus) )
+		{
+			checkIfBondingKickedOff();
+
+			return;
+		}
+
+		final ReadTarget target = m_targets[m_index];
+
+		if( false == Utils.isSuccess(gattStatus) )
+		{
+			m_candidates.clear();
+			record(Status.REMOTE_GATT_FAILURE, gattStatus, Target.DESCRIPTOR, descriptor.getUuid(), null);
+
+			advance();
+
+			return;
+		}
+
+		final BluetoothGattCharacteristic ch = descriptor.getCharacteristic();
+		final DescriptorFilter.DescriptorEvent event = new DescriptorFilter.DescriptorEvent(ch.getService(), ch, descriptor, new PresentData(value));
+
+		if( target.descriptorFilter.onEvent(event).isAccepted() )
+		{
+			m_candidates.clear();
+
+			if( readCharacteristic(ch) )
+			{
+				resetTimeout(getInitialTimeout());
+
+				return;
+			}
+		}
+		else
+		{
+			m_candidates.remove(0);
+
+			if( readNextCandidateDescriptor() )
+			{
+				resetTimeout(getInitialTimeout());
+
+				return;
+			}
+		}
+
+		advance();
+	}
+
+	/**
+	 * Moves on after the current target has its result.
+	 */
+	private void advance()
+	{
+		m_index++;
+
+		if( wasSoftlyCancelled() )
+		{
+			softlyCancel();
+		}
+		else
+		{
+			resetTimeout(getInitialTimeout());
+
+			nextTarget();
+		}
+	}
+
+	boolean isFor(final BluetoothGattCharacteristic characteristic)
+	{
+		return m_characteristic != null && m_characteristic.getUuid().equals(characteristic.getUuid()) && m_characteristic.getService().getUuid().equals(characteristic.getService().getUuid());
+	}
+
+	boolean isFor(final BluetoothGattDescriptor descriptor)
+	{
+		if( m_candidates.isEmpty() )  return false;
+
+		final DescriptorFilter filter = m_targets[m_index].descriptorFilter;
+
+		return filter != null && descriptor.getUuid().equals(filter.descriptorUuid()) && descriptor.getCharacteristic() == m_candidates.get(0);
+	}
+
+	private void record(final Status status, final int gattStatus, final Target target, final UUID descUuid, final byte[] data)
+	{
+		final ReadTarget readTarget = m_targets[m_index];
+		final double time = m_readStartTime != 0 ? Interval.delta(m_readStartTime, System.currentTimeMillis()).secs() : 0.0;
+		final UUID descUuid_actual = descUuid != null ? descUuid : ReadWriteEvent.NON_APPLICABLE_UUID;
+		final Type type = m_types != null ? m_types[m_index] : Type.READ;
+
+		final ReadWriteEvent event = new ReadWriteEvent
+		(
+			getDevice(), readTarget.serviceUuid, readTarget.charUuid, descUuid_actual, readTarget.descriptorFilter, type, target, data, status, gattStatus, time, time, /*solicited=*/true
+		);
+
+		m_results[m_index] = event;
+
+		if( event.wasSuccess() )
+		{
+			getDevice().addReadTime(time);
+		}
+
+		//--- Goes through the same as a single read, so historical data, transactions, and default listeners see each read as usual.
+		getDevice().invokeReadWriteCallback(m_targetListeners != null ? m_targetListeners[m_index] : null, event);
+	}
+
+	/**
+	 * Gives every target that doesn't have a result yet the given status, and sends out the final event.
+	 */
+	private void end(final Status status)
+	{
+		for( ; m_index < m_targets.length; m_index++ )
+		{
+			if( m_results[m_index] == null )
+			{
+				record(status, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, null, null);
+			}
+		}
+
+		report();
+	}
+
+	private void report()
+	{
+		if( m_reported )  return;
+
+		m_reported = true;
+
+		if( m_listener != null )
+		{
+			final ReadManyListener.ReadManyEvent event = new ReadManyListener.ReadManyEvent(getDevice(), m_results, Interval.delta(m_startTime, System.currentTimeMillis()));
+
+			getDevice().postEventAsCallback(m_listener, event);
+		}
+	}
+
+	@Override protected void onNotExecutable()
+	{
+		super.onNotExecutable();
+
+		end(Status.NOT_CONNECTED);
+	}
+
+	@Override public void onStateChange(final PA_Task task, final PE_TaskState state)
+	{
+		if( state == PE_TaskState.TIMED_OUT )
+		{
+			checkIfBondingKickedOff();
+
+			if( m_triedToKickOffBond )
+			{
+				getDevice().notifyOfPossibleImplicitBondingAttempt();
+				getDevice().m_bondMngr.saveNeedsBondingIfDesired();
+
+				getLogger().i("Kicked off bond and " + PE_TaskState.TIMED_OUT.name());
+			}
+
+			if( m_index < m_targets.length )
+			{
+				getLogger().w(getLogger().charName(m_targets[m_index].charUuid) + " read timed out!");
+			}
+
+			end(Status.TIMED_OUT);
+
+			getManager().uhOh(UhOh.READ_TIMED_OUT);
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED || state == PE_TaskState.CANCELLED || state == PE_TaskState.CLEARED_FROM_QUEUE )
+		{
+			end(getCancelType());
+		}
+	}
+
+	@Override protected UUID getCharUuid()
+	{
+		return m_index < m_targets.length ? m_targets[m_index].charUuid : super.getCharUuid();
+	}
+
+	@Override protected String getToStringAddition()
+	{
+		return "target " + Math.min(m_index + 1, m_targets.length) + "/" + m_targets.length;
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.READ;
+	}
+}
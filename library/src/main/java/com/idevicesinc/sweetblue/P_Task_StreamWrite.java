@@ -0,0 +1,366 @@
+package com.idevicesinc.sweetblue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.StreamingData;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+/**
+ * Writes data that's bigger than {@link BleDevice#getEffectiveWriteMtuSize()} as one task, instead of one task per chunk. Each chunk is
+ * written straight from the callback for the one before it, so there's no trip through the queue in between. Android only takes one write
+ * at a time, and with {@link Type#WRITE_NO_RESPONSE} its callback comes back as soon as the stack has buffered the packet, so the stack's own
+ * flow control is what keeps several packets in flight towards the remote device. The timeout applies to each chunk, not the whole stream.
+ * Chunks are pulled one at a time out of a {@link StreamingData}, and a plain {@link FutureData} is just wrapped in one.
+ */
+final class P_Task_StreamWrite extends PA_Task_Transactionable implements PA_Task.I_StateListener
+{
+
+	private final UUID m_serviceUuid;
+	private final UUID m_charUuid;
+	private final FutureData m_futureData;
+	private final int m_startOffset;
+	private final Type m_writeType;
+	private final StreamWriteListener m_streamListener;
+	private final BleDevice.ReadWriteListener m_readWriteListener;
+
+	private StreamingData m_source = null;
+	private byte[] m_data = null;
+	private byte[] m_chunk = null;
+	private byte[] m_pending = null;
+	private BluetoothGattCharacteristic m_characteristic = null;
+	private int m_offset;
+	private boolean m_awaitingAck = false;
+	private int m_chunkCount = 0;
+	private long m_firstWriteTime = 0;
+	private long m_chunkWriteTime = 0;
+	private boolean m_reported = false;
+
+
+	public P_Task_StreamWrite(BleDevice device, BluetoothGattCharacteristic characteristic, FutureData futureData, int startOffset, Type writeType, boolean requiresBonding, StreamWriteListener streamListener_nullable, BleDevice.ReadWriteListener readWriteListener_nullable, BleTransaction txn, PE_TaskPriority priority)
+	{
+		super(device, txn, requiresBonding, priority);
+
+		m_serviceUuid = characteristic.getService().getUuid();
+		m_charUuid = characteristic.getUuid();
+		m_futureData = futureData;
+		m_startOffset = Math.max(0, startOffset);
+		m_offset = m_startOffset;
+		m_writeType = writeType;
+		m_streamListener = streamListener_nullable;
+		m_readWriteListener = readWriteListener_nullable;
+	}
+
+	@Override void execute()
+	{
+		//--- If we were interrupted, e.g. by an implicit bond, the chunk that was in flight is sent again below.
+		m_awaitingAck = false;
+
+		if( m_source == null && false == openSource() )  return;
+
+		m_characteristic = getDevice().getNativeCharacteristic(m_serviceUuid, m_charUuid);
+
+		if( m_characteristic == null )
+		{
+			fail(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			return;
+		}
+
+		if( m_writeType == Type.WRITE_NO_RESPONSE )
+		{
+			m_characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+		}
+		else if( m_writeType == Type.WRITE_SIGNED )
+		{
+			m_characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_SIGNED);
+		}
+		else if( m_writeType != null && m_characteristic.getWriteType() != BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT )
+		{
+			m_characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+		}
+
+		if( m_pending != null || readNextChunk() )
+		{
+			sendPendingChunk();
+		}
+	}
+
+	private boolean openSource()
+	{
+		m_firstWriteTime = System.currentTimeMillis();
+
+		if( m_futureData instanceof StreamingData )
+		{
+			m_source = (StreamingData) m_futureData;
+		}
+		else
+		{
+			m_data = m_futureData.getData();
+
+			if( m_data == null )
+			{
+				fail(Status.NULL_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+				return false;
+			}
+
+			m_source = StreamingData.fromBytes(m_data);
+		}
+
+		if( m_source.length() == 0 )
+		{
+			fail(Status.EMPTY_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			return false;
+		}
+
+		long skipped = 0;
+
+		try
+		{
+			//--- A custom StreamingData may skip less than asked for without being at the end, so keep going until it stops making progress.
+			while( skipped < m_startOffset )
+			{
+				final long skipped_ith = m_source.skip(m_startOffset - skipped);
+
+				if( skipped_ith <= 0 )  break;
+
+				skipped += skipped_ith;
+			}
+		}
+		catch(IOException e)
+		{
+			getLogger().e("Couldn't skip to offset " + m_startOffset + " of stream data: " + e);
+
+			fail(Status.INVALID_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			return false;
+		}
+
+		if( skipped < m_startOffset )
+		{
+			getLogger().e("Stream data ended after " + skipped + " bytes, before offset " + m_startOffset + ".");
+
+			fail(Status.INVALID_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Pulls the next chunk out of the source into {@link #m_pending}. If there's nothing left, or reading fails, the task is ended
+	 * and this returns <code>false</code>.
+	 */
+	private boolean readNextChunk()
+	{
+		final int chunkSize = Math.max(1, getDevice().getEffectiveWriteMtuSize());
+
+		if( m_chunk == null || m_chunk.length != chunkSize )
+		{
+			m_chunk = new byte[chunkSize];
+		}
+
+		int length = 0;
+
+		try
+		{
+			while( length < chunkSize )
+			{
+				final int read = m_source.read(m_chunk, length, chunkSize - length);
+
+				if( read == -1 )  break;
+
+				length += read;
+			}
+		}
+		catch(IOException e)
+		{
+			getLogger().e("Couldn't read stream data at offset " + (m_offset + length) + ": " + e);
+
+			fail(Status.INVALID_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			return false;
+		}
+
+		if( length == 0 )
+		{
+			succeedStream();
+
+			return false;
+		}
+
+		//--- The native stack copies the value out before writeCharacteristic() returns, so full chunks can all share one array.
+		m_pending = length == chunkSize ? m_chunk : Arrays.copyOf(m_chunk, length);
+
+		return true;
+	}
+
+	private void sendPendingChunk()
+	{
+		if( false == getDevice().layerManager().setCharValue(m_characteristic, m_pending) )
+		{
+			fail(Status.FAILED_TO_SET_VALUE_ON_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+		}
+		else if( false == getDevice().layerManager().writeCharacteristic(m_characteristic) )
+		{
+			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+		}
+		else
+		{
+			m_awaitingAck = true;
+			m_chunkWriteTime = System.currentTimeMillis();
+		}
+	}
+
+	public void onCharacteristicWrite(final BluetoothGatt gatt, final UUID uuid, final int gattStatus)
+	{
+		getManager().ASSERT(getDevice().layerManager().gattEquals(gatt));
+
+		if( false == uuid.equals(m_charUuid) || false == m_awaitingAck )  return;
+
+		if( false == Utils.isSuccess(gattStatus) )
+		{
+			fail(Status.REMOTE_GATT_FAILURE, gattStatus);
+
+			return;
+		}
+
+		m_offset += m_pending.length;
+		m_pending = null;
+		m_awaitingAck = false;
+		m_chunkCount++;
+
+		getDevice().addWriteTime(Interval.delta(m_chunkWriteTime, System.currentTimeMillis()).secs());
+
+		if( false == readNextChunk() )  return;
+
+		if( wasSoftlyCancelled() )
+		{
+			softlyCancel();
+		}
+		else
+		{
+			resetTimeout(getInitialTimeout());
+
+			sendPendingChunk();
+		}
+	}
+
+	private void succeedStream()
+	{
+		super.succeed();
+
+		report(Status.SUCCESS, BluetoothGatt.GATT_SUCCESS);
+	}
+
+	private void fail(final Status status, final int gattStatus)
+	{
+		super.fail();
+
+		report(status, gattStatus);
+	}
+
+	@Override protected void onNotExecutable()
+	{
+		super.onNotExecutable();
+
+		report(Status.NOT_CONNECTED, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+	}
+
+	@Override public void onStateChange(final PA_Task task, final PE_TaskState state)
+	{
+		if( state == PE_TaskState.TIMED_OUT )
+		{
+			getLogger().w(getLogger().charName(m_charUuid) + " stream write timed out at offset " + m_offset + "!");
+
+			report(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			getManager().uhOh(UhOh.WRITE_TIMED_OUT);
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED || state == PE_TaskState.CANCELLED || state == PE_TaskState.CLEARED_FROM_QUEUE )
+		{
+			report(getCancelType(), BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+		}
+	}
+
+	private void report(final Status status, final int gattStatus)
+	{
+		if( m_reported )  return;
+
+		m_reported = true;
+
+		if( m_source != null )
+		{
+			m_source.close();
+		}
+		else if( m_futureData instanceof StreamingData )
+		{
+			//--- Never got to run, but the stream was still handed to us, so it's ours to close.
+			((StreamingData) m_futureData).close();
+		}
+
+		final double totalTime = m_firstWriteTime != 0 ? Interval.delta(m_firstWriteTime, System.currentTimeMillis()).secs() : 0.0;
+
+		if( m_streamListener != null )
+		{
+			final StreamWriteListener.StreamWriteEvent event = new StreamWriteListener.StreamWriteEvent
+			(
+				getDevice(), m_serviceUuid, m_charUuid, status, gattStatus, m_startOffset, m_offset, getLength(), m_chunkCount, Interval.secs(totalTime)
+			);
+
+			getDevice().postEventAsCallback(m_streamListener, event);
+		}
+
+		//--- Goes through even without a listener, so a transaction this is part of finds out how it went.
+		final Type type = m_writeType != null ? m_writeType : Type.WRITE;
+		final ReadWriteEvent event = new ReadWriteEvent
+		(
+			getDevice(), m_serviceUuid, m_charUuid, null, null, type, Target.CHARACTERISTIC, m_data, status, gattStatus, getTotalTime(), totalTime, /*solicited=*/true
+		);
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, event);
+	}
+
+	private int getLength()
+	{
+		if( m_source == null )  return 0;
+
+		final long length = m_source.length();
+
+		return length != StreamingData.UNKNOWN_LENGTH ? (int) length : m_offset;
+	}
+
+	public boolean isFor(final BluetoothGattCharacteristic characteristic)
+	{
+		return characteristic.getUuid().equals(m_charUuid) && characteristic.getService().getUuid().equals(m_serviceUuid);
+	}
+
+	@Override protected UUID getCharUuid()
+	{
+		return m_charUuid;
+	}
+
+	@Override protected String getToStringAddition()
+	{
+		return getManager().getLogger().uuidName(m_charUuid) + " offset=" + m_offset;
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.WRITE;
+	}
+}
@@ -57,6 +57,12 @@ final class P_Task_TxnLock extends PA_Task_RequiresBleOn
 		return super.isInterruptableBy(task);
 	}
 
+	//--- Transaction tasks and bonds can skip ahead of a lock regardless of priority, see their isMoreImportantThan() overrides.
+	@Override boolean isOutrankableRegardlessOfPriority()
+	{
+		return true;
+	}
+
 	@Override protected BleTask getTaskType()
 	{
 		return null;
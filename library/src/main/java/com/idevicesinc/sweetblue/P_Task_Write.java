@@ -18,8 +18,9 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 
 	private byte[] m_data = null;
 
-	private final FutureData m_futureData;
+	private FutureData m_futureData;
 	private final Type m_writeType;
+	private boolean m_coalesce = false;
 
 
 	public P_Task_Write(BleDevice device, BluetoothGattCharacteristic characteristic, final FutureData futureData, boolean requiresBonding, Type writeType, BleDevice.ReadWriteListener writeListener, BleTransaction txn, PE_TaskPriority priority)
@@ -40,6 +41,58 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 		m_writeType = writeType;
 	}
 	
+	void setCoalesce(final boolean coalesce)
+	{
+		m_coalesce = coalesce;
+	}
+
+	boolean isCoalescing()
+	{
+		return m_coalesce;
+	}
+
+	boolean isForSameCharacteristic(final P_Task_Write other)
+	{
+		return other.getDevice() == getDevice() && other.getCharUuid().equals(getCharUuid()) && other.getServiceUuid().equals(getServiceUuid());
+	}
+
+	/**
+	 * Returns <code>true</code> if this write is still waiting in the queue and the given newer write can take its place, see {@link BleNodeConfig#coalesceWrites}.
+	 */
+	boolean canBeSupersededBy(final P_Task_Write newer)
+	{
+		return
+				m_coalesce && newer.m_coalesce &&
+				getState() == PE_TaskState.QUEUED && m_data == null &&
+				isForSameCharacteristic(newer) &&
+				newer.m_descriptorFilter == m_descriptorFilter &&
+				newer.m_writeType == m_writeType &&
+				newer.m_requiresBonding == m_requiresBonding &&
+				newer.getPriority() == getPriority() &&
+				newer.getTxn() == getTxn();
+	}
+
+	/**
+	 * Takes on the data and listener of the given newer write, which is then dropped without ever being queued, and tells this write's
+	 * old listener that it was {@link Status#SUPERSEDED}. This write keeps its place in the queue.
+	 */
+	void supersede(final P_Task_Write newer)
+	{
+		final BleDevice.ReadWriteListener supersededListener = m_readWriteListener;
+		final FutureData supersededData = m_futureData;
+
+		m_futureData = newer.m_futureData;
+		m_readWriteListener = newer.m_readWriteListener;
+
+		final ReadWriteEvent event = new ReadWriteEvent
+		(
+			getDevice(), getServiceUuid(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID, m_descriptorFilter, m_writeType != null ? m_writeType : Type.WRITE,
+			getDefaultTarget(), supersededData.getData(), Status.SUPERSEDED, BleStatuses.GATT_STATUS_NOT_APPLICABLE, getTotalTime(), 0.0, /*solicited=*/true
+		);
+
+		getDevice().invokeReadWriteCallback(supersededListener, event);
+	}
+
 	@Override protected ReadWriteEvent newReadWriteEvent(final Status status, final int gattStatus, final Target target, final UUID serviceUuid, final UUID charUuid, final UUID descUuid)
 	{
 		final BleCharacteristicWrapper char_native = getDevice().getNativeBleCharacteristic(serviceUuid, charUuid);
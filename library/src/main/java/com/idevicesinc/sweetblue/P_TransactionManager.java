@@ -10,6 +10,7 @@ import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Status;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 import com.idevicesinc.sweetblue.BleTransaction.EndReason;
 import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+import com.idevicesinc.sweetblue.utils.Interval;
 
 final class P_TransactionManager
 {
@@ -126,6 +127,9 @@ final class P_TransactionManager
 	
 	static void start_common(final BleDevice device, final BleTransaction txn)
 	{
+		device.getManager().wakeUpdateLoop();
+
+
 		if( txn.needsAtomicity() )
 		{
 			device.getManager().getTaskQueue().add(new P_Task_TxnLock(device, txn));
@@ -252,6 +256,17 @@ final class P_TransactionManager
 		}
 	}
 	
+	double getTimeUntilNextUpdate()
+	{
+		//--- Transactions can override BleTransaction.update(), so they need to be ticked for as long as they're running.
+		if( m_authTxn != null && m_authTxn.isRunning() )  return 0.0;
+		if( m_initTxn != null && m_initTxn.isRunning() )  return 0.0;
+		if( m_otaTxn != null && m_otaTxn.isRunning() )  return 0.0;
+		if( m_anonTxn != null && m_anonTxn.isRunning() )  return 0.0;
+
+		return Interval.INFINITE.secs();
+	}
+	
 	void onConnect(BleTransaction.Auth authenticationTxn, BleTransaction.Init initTxn)
 	{
 		m_authTxn = authenticationTxn;
@@ -0,0 +1,191 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+
+/**
+ * Keeps the latest value of characteristics that {@link BleDeviceConfig#valueCacheFilter} says can be cached, so that reads can be answered
+ * from memory. Values come in from successful reads and from notifications (see {@link P_PollManager}), and writes throw them out as soon
+ * as they're asked for and again when they finish (see {@link BleDevice#invokeReadWriteCallback(BleDevice.ReadWriteListener, BleDevice.ReadWriteListener.ReadWriteEvent)}). Reads can come from the app's thread while everything else is on the update thread,
+ * hence the locking, which only ever covers the map itself.
+ */
+final class P_ValueCache
+{
+	private final BleDevice m_device;
+
+	//--- Keyed by characteristic, with one entry per service the characteristic shows up in, which is almost always just one.
+	private final HashMap<UUID, ArrayList<Entry>> m_entries = new HashMap<>();
+
+	//--- Lets the common case of nothing being cached skip the lock entirely. Only changed while holding it.
+	private volatile boolean m_isEmpty = true;
+
+
+	P_ValueCache(final BleDevice device)
+	{
+		m_device = device;
+	}
+
+	/**
+	 * Returns a copy of the cached value, or <code>null</code> if there isn't one or it's gone stale.
+	 */
+	synchronized byte[] get(final UUID serviceUuid, final UUID charUuid)
+	{
+		final Entry entry = find(serviceUuid, charUuid);
+
+		if( entry == null )  return null;
+
+		if( System.currentTimeMillis() >= entry.m_expiry )
+		{
+			remove(serviceUuid, charUuid);
+
+			return null;
+		}
+
+		return entry.m_data.clone();
+	}
+
+	void onValue(final UUID serviceUuid, final UUID charUuid, final byte[] data)
+	{
+		put(serviceUuid, charUuid, data, /*fromNotification=*/false);
+	}
+
+	void onWrite(final UUID serviceUuid, final UUID charUuid)
+	{
+		removeIfAny(serviceUuid, charUuid);
+	}
+
+	/**
+	 * Called for every notification, so nothing is allocated and no lock is taken unless the filter has to be asked or there's something cached to throw out.
+	 */
+	void onNotification(final UUID serviceUuid, final UUID charUuid, final byte[] data)
+	{
+		put(serviceUuid, charUuid, data, /*fromNotification=*/true);
+	}
+
+	synchronized void clear()
+	{
+		m_entries.clear();
+		m_isEmpty = true;
+	}
+
+	/**
+	 * The filter is asked outside of the lock, since it's app code and this is on the notify path, so only the map itself is touched while holding it.
+	 */
+	private void put(final UUID serviceUuid, final UUID charUuid, final byte[] data, final boolean fromNotification)
+	{
+		if( serviceUuid == null || charUuid == null )  return;
+
+		final ValueCacheFilter filter = BleNodeConfig.filter(m_device.conf_device().valueCacheFilter, m_device.conf_mngr().valueCacheFilter);
+
+		if( filter == null )  return;
+
+		//--- Nothing to keep no matter what the filter says, so don't bother asking it.
+		if( data == null || data.length == 0 )
+		{
+			removeIfAny(serviceUuid, charUuid);
+
+			return;
+		}
+
+		final ValueCacheFilter.Please please = filter.onEvent(new ValueCacheFilter.CacheEvent(m_device, serviceUuid, charUuid));
+
+		//--- A notification means a value cached "until notified" is no longer good, so it's dropped rather than replaced, as the notified
+		//--- value isn't necessarily the same thing a read would return.
+		if( please == null || !please.shouldCache() || fromNotification && please.untilNotified() )
+		{
+			removeIfAny(serviceUuid, charUuid);
+
+			return;
+		}
+
+		final long expiry = please.ttl() == ValueCacheFilter.Please.FOREVER ? Long.MAX_VALUE : System.currentTimeMillis() + please.ttl();
+		final byte[] data_copy = data.clone();
+
+		synchronized (this)
+		{
+			Entry entry = find(serviceUuid, charUuid);
+
+			if( entry == null )
+			{
+				entry = new Entry(serviceUuid);
+
+				ArrayList<Entry> list = m_entries.get(charUuid);
+
+				if( list == null )
+				{
+					list = new ArrayList<>(1);
+					m_entries.put(charUuid, list);
+				}
+
+				list.add(entry);
+				m_isEmpty = false;
+			}
+
+			entry.m_data = data_copy;
+			entry.m_expiry = expiry;
+		}
+	}
+
+	private void removeIfAny(final UUID serviceUuid, final UUID charUuid)
+	{
+		if( m_isEmpty )  return;
+
+		synchronized (this)
+		{
+			remove(serviceUuid, charUuid);
+		}
+	}
+
+	private Entry find(final UUID serviceUuid, final UUID charUuid)
+	{
+		final ArrayList<Entry> list = m_entries.get(charUuid);
+
+		if( list == null )  return null;
+
+		for( int i = 0; i < list.size(); i++ )
+		{
+			if( list.get(i).m_serviceUuid.equals(serviceUuid) )
+			{
+				return list.get(i);
+			}
+		}
+
+		return null;
+	}
+
+	private void remove(final UUID serviceUuid, final UUID charUuid)
+	{
+		final ArrayList<Entry> list = m_entries.get(charUuid);
+
+		if( list == null )  return;
+
+		for( int i = list.size()-1; i >= 0; i-- )
+		{
+			if( list.get(i).m_serviceUuid.equals(serviceUuid) )
+			{
+				list.remove(i);
+			}
+		}
+
+		if( list.isEmpty() )
+		{
+			m_entries.remove(charUuid);
+			m_isEmpty = m_entries.isEmpty();
+		}
+	}
+
+
+	private static final class Entry
+	{
+		private final UUID m_serviceUuid;
+		private byte[] m_data;
+		private long m_expiry;
+
+		private Entry(final UUID serviceUuid)
+		{
+			m_serviceUuid = serviceUuid;
+		}
+	}
+}
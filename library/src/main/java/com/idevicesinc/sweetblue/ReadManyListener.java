@@ -0,0 +1,128 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Interface for getting the results of {@link BleDevice#readMany(List, ReadManyListener)} all at once. This is called once, after every
+ * target has been read or has failed.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface ReadManyListener extends GenericListener_Void<ReadManyListener.ReadManyEvent>
+{
+
+    /**
+     * Provides one {@link BleDevice.ReadWriteListener.ReadWriteEvent} per {@link ReadTarget}, in the same order the targets were given.
+     */
+    @com.idevicesinc.sweetblue.annotations.Immutable
+    class ReadManyEvent extends Event
+    {
+
+        /**
+         * The {@link BleDevice} that was read from.
+         */
+        public BleDevice device()
+        {
+            return m_device;
+        }
+
+        private final BleDevice m_device;
+
+        /**
+         * Convience to return the mac address of {@link #device()}.
+         */
+        public String macAddress()
+        {
+            return m_device.getMacAddress();
+        }
+
+        /**
+         * The number of targets, which is the same as the size of {@link #results()}.
+         */
+        public int size()
+        {
+            return m_results.size();
+        }
+
+        /**
+         * The result for the target at the given index. Each one carries its own {@link BleDevice.ReadWriteListener.Status} and data,
+         * exactly as if the target had been read on its own.
+         */
+        public BleDevice.ReadWriteListener.ReadWriteEvent result(final int index)
+        {
+            return m_results.get(index);
+        }
+
+        /**
+         * All the results, in the same order as the targets.
+         */
+        public List<BleDevice.ReadWriteListener.ReadWriteEvent> results()
+        {
+            return m_results;
+        }
+
+        private final List<BleDevice.ReadWriteListener.ReadWriteEvent> m_results;
+
+        /**
+         * The number of targets that were read successfully.
+         */
+        public int successCount()
+        {
+            int count = 0;
+
+            for( int i = 0; i < m_results.size(); i++ )
+            {
+                if( m_results.get(i).wasSuccess() )
+                {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Returns <code>true</code> if every target was read successfully.
+         */
+        public boolean wasSuccess()
+        {
+            return successCount() == size();
+        }
+
+        /**
+         * Time spent between {@link BleDevice#readMany(List, ReadManyListener)} being called and the last result coming in.
+         */
+        public Interval time_total()
+        {
+            return m_totalTime;
+        }
+
+        private final Interval m_totalTime;
+
+
+        ReadManyEvent(BleDevice device, BleDevice.ReadWriteListener.ReadWriteEvent[] results, Interval totalTime)
+        {
+            m_device = device;
+            m_results = Collections.unmodifiableList(Arrays.asList(results));
+            m_totalTime = totalTime;
+        }
+
+        @Override public String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "size", size(),
+                "successCount", successCount(),
+                "time_total", time_total()
+            );
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import java.util.UUID;
+
+/**
+ * Describes one characteristic to read as part of {@link BleDevice#readMany(java.util.List, ReadManyListener)}. The arguments mean the
+ * same as they do for the single-characteristic overloads of {@link BleDevice#read(UUID, UUID, DescriptorFilter, BleDevice.ReadWriteListener)}.
+ */
+@Immutable
+public final class ReadTarget
+{
+
+    final UUID serviceUuid;
+    final UUID charUuid;
+    final DescriptorFilter descriptorFilter;
+
+
+    /**
+     * Reads the first characteristic found with the given {@link UUID}, in any service.
+     */
+    public ReadTarget(final UUID charUuid)
+    {
+        this(null, charUuid, null);
+    }
+
+    /**
+     * Reads the characteristic with the given {@link UUID} in the given service, for when the same characteristic {@link UUID} shows up in
+     * more than one service.
+     */
+    public ReadTarget(@Nullable(Nullable.Prevalence.NORMAL) final UUID serviceUuid, final UUID charUuid)
+    {
+        this(serviceUuid, charUuid, null);
+    }
+
+    /**
+     * Reads the characteristic picked out by the given {@link DescriptorFilter}, for when the same characteristic {@link UUID} shows up more
+     * than once in the same service.
+     */
+    public ReadTarget(@Nullable(Nullable.Prevalence.NORMAL) final UUID serviceUuid, final UUID charUuid, @Nullable(Nullable.Prevalence.NORMAL) final DescriptorFilter descriptorFilter)
+    {
+        this.serviceUuid = serviceUuid;
+        this.charUuid = charUuid;
+        this.descriptorFilter = descriptorFilter;
+    }
+
+
+    /**
+     * The service {@link UUID} passed in, which may be <code>null</code>.
+     */
+    public @Nullable(Nullable.Prevalence.NORMAL) UUID serviceUuid()
+    {
+        return serviceUuid;
+    }
+
+    /**
+     * The characteristic {@link UUID} passed in.
+     */
+    public UUID charUuid()
+    {
+        return charUuid;
+    }
+
+    /**
+     * The {@link DescriptorFilter} passed in, which may be <code>null</code>.
+     */
+    public @Nullable(Nullable.Prevalence.NORMAL) DescriptorFilter descriptorFilter()
+    {
+        return descriptorFilter;
+    }
+
+}
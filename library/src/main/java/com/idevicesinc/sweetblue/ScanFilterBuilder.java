@@ -0,0 +1,186 @@
+package com.idevicesinc.sweetblue;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Builder for a declarative {@link BleManagerConfig.ScanFilter}. Rather than writing {@link BleManagerConfig.ScanFilter#onEvent(BleManagerConfig.ScanFilter.ScanEvent)}
+ * yourself, add the rules a device must meet here, and {@link #build()} compiles them into a {@link CompiledScanFilter}, which can check advertisements
+ * against them straight from the raw scan record, without allocating anything, even with hundreds of rules.
+ * <br><br>
+ * Rules of the same kind are OR'd together, and each kind that has any rules must be met. So for example adding two manufacturer ids and one service {@link UUID}
+ * means a device must advertise the service, and manufacturer data for either of the ids. The rssi floor set by {@link #setMinRssi(int)} always applies.
+ * <br><br>
+ * Use with {@link BleManagerConfig#defaultScanFilter}, {@link ScanOptions#withScanFilter(BleManagerConfig.ScanFilter)} and the like. See also
+ * {@link BleManagerConfig#useNativeScanFilters}.
+ */
+public final class ScanFilterBuilder
+{
+
+    private final Map<Integer, List<byte[]>> m_manufacturerRules = new LinkedHashMap<>();
+    private final LinkedHashSet<UUID> m_serviceUuids = new LinkedHashSet<>();
+    private final ArrayList<String> m_namePrefixes = new ArrayList<>();
+    private final ArrayList<Pattern> m_namePatterns = new ArrayList<>();
+    private final LinkedHashSet<Integer> m_macOuis = new LinkedHashSet<>();
+    private int m_minRssi = Integer.MIN_VALUE;
+
+
+    public ScanFilterBuilder()
+    {}
+
+
+    /**
+     * Matches devices advertising manufacturer-specific data with the given manufacturer id (company identifier).
+     */
+    public final ScanFilterBuilder addManufacturerId(final int manufacturerId)
+    {
+        m_manufacturerRules.put(manufacturerId & 0xFFFF, null);
+        return this;
+    }
+
+    /**
+     * Matches devices advertising manufacturer-specific data with the given manufacturer id, where the data (not including the id itself)
+     * starts with the given bytes.
+     */
+    public final ScanFilterBuilder addManufacturerData(final int manufacturerId, final byte[] prefix)
+    {
+        if (prefix == null || prefix.length == 0)
+        {
+            return addManufacturerId(manufacturerId);
+        }
+
+        final Integer key = manufacturerId & 0xFFFF;
+
+        if (m_manufacturerRules.containsKey(key))
+        {
+            final List<byte[]> prefixes = m_manufacturerRules.get(key);
+
+            // A rule for any data with this id already covers this one.
+            if (prefixes != null)
+            {
+                prefixes.add(prefix.clone());
+            }
+        }
+        else
+        {
+            final List<byte[]> prefixes = new ArrayList<>();
+            prefixes.add(prefix.clone());
+            m_manufacturerRules.put(key, prefixes);
+        }
+
+        return this;
+    }
+
+    /**
+     * Matches devices which list the given {@link UUID} among their advertised services.
+     */
+    public final ScanFilterBuilder addServiceUuid(final UUID serviceUuid)
+    {
+        if (serviceUuid != null)
+        {
+            m_serviceUuids.add(serviceUuid);
+        }
+        return this;
+    }
+
+    /**
+     * Matches devices whose name (as reported by {@link BleManagerConfig.ScanFilter.ScanEvent#name_native()}) starts with the given prefix.
+     */
+    public final ScanFilterBuilder addNamePrefix(final String prefix)
+    {
+        if (prefix != null)
+        {
+            m_namePrefixes.add(prefix);
+        }
+        return this;
+    }
+
+    /**
+     * Matches devices whose name (as reported by {@link BleManagerConfig.ScanFilter.ScanEvent#name_native()}) matches the given regular expression in full.
+     */
+    public final ScanFilterBuilder addNamePattern(final String regex)
+    {
+        return addNamePattern(Pattern.compile(regex));
+    }
+
+    /**
+     * Overload of {@link #addNamePattern(String)} for an already compiled {@link Pattern}.
+     */
+    public final ScanFilterBuilder addNamePattern(final Pattern pattern)
+    {
+        if (pattern != null)
+        {
+            m_namePatterns.add(pattern);
+        }
+        return this;
+    }
+
+    /**
+     * Matches devices whose mac address starts with the given organizationally unique identifier, i.e. the first three bytes, for example
+     * <code>"00:1A:7D"</code> or <code>"001A7D"</code>.
+     *
+     * @throws IllegalArgumentException if the given string isn't three bytes of hex.
+     */
+    public final ScanFilterBuilder addMacOui(final String oui)
+    {
+        final String hex = oui != null ? oui.replace(":", "").replace("-", "") : "";
+
+        if (hex.length() != 6)
+        {
+            throw new IllegalArgumentException("Expected a MAC OUI like 00:1A:7D, but got " + oui);
+        }
+
+        m_macOuis.add(Integer.parseInt(hex, 16));
+        return this;
+    }
+
+    /**
+     * Only devices seen at or above the given rssi will match. This applies on top of all other rules.
+     */
+    public final ScanFilterBuilder setMinRssi(final int minRssi)
+    {
+        m_minRssi = minRssi;
+        return this;
+    }
+
+    /**
+     * Compiles the rules added so far into a {@link CompiledScanFilter}. The builder can keep being used afterwards, without affecting
+     * filters already built.
+     */
+    public final CompiledScanFilter build()
+    {
+        final int[] manufacturerIds = new int[m_manufacturerRules.size()];
+        final byte[][][] manufacturerPrefixes = new byte[manufacturerIds.length][][];
+
+        int i = 0;
+        for (Map.Entry<Integer, List<byte[]>> rule : m_manufacturerRules.entrySet())
+        {
+            manufacturerIds[i] = rule.getKey();
+            manufacturerPrefixes[i] = rule.getValue() != null ? rule.getValue().toArray(new byte[rule.getValue().size()][]) : null;
+            i++;
+        }
+
+        final int[] ouis = new int[m_macOuis.size()];
+
+        i = 0;
+        for (Integer oui : m_macOuis)
+        {
+            ouis[i++] = oui;
+        }
+
+        return new CompiledScanFilter(
+                manufacturerIds, manufacturerPrefixes,
+                m_serviceUuids.toArray(new UUID[m_serviceUuids.size()]),
+                m_namePrefixes.toArray(new String[m_namePrefixes.size()]),
+                m_namePatterns.toArray(new Pattern[m_namePatterns.size()]),
+                ouis, m_minRssi
+        );
+    }
+
+}
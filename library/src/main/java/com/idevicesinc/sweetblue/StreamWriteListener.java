@@ -0,0 +1,186 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.UUID;
+
+/**
+ * Interface for finding out how a stream started by {@link BleDevice#writeStream(UUID, UUID, com.idevicesinc.sweetblue.utils.FutureData, int, StreamWriteListener)}
+ * went. This is called once per stream, when it's done one way or another.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface StreamWriteListener extends GenericListener_Void<StreamWriteListener.StreamWriteEvent>
+{
+
+    /**
+     * Provides the outcome of a stream, along with how far it got and how fast.
+     */
+    @com.idevicesinc.sweetblue.annotations.Immutable
+    class StreamWriteEvent extends Event
+    {
+
+        /**
+         * The {@link BleDevice} the stream was written to.
+         */
+        public BleDevice device()
+        {
+            return m_device;
+        }
+
+        private final BleDevice m_device;
+
+        /**
+         * Convience to return the mac address of {@link #device()}.
+         */
+        public String macAddress()
+        {
+            return m_device.getMacAddress();
+        }
+
+        /**
+         * The {@link UUID} of the service the stream was written to, or <code>null</code> if none was given and the stream never
+         * got as far as finding the characteristic.
+         */
+        public UUID serviceUuid()
+        {
+            return m_serviceUuid;
+        }
+
+        private final UUID m_serviceUuid;
+
+        /**
+         * The {@link UUID} of the characteristic the stream was written to.
+         */
+        public UUID charUuid()
+        {
+            return m_charUuid;
+        }
+
+        private final UUID m_charUuid;
+
+        /**
+         * Indicates either success or the type of failure. The values are shared with {@link BleDevice.ReadWriteListener}.
+         */
+        public BleDevice.ReadWriteListener.Status status()
+        {
+            return m_status;
+        }
+
+        private final BleDevice.ReadWriteListener.Status m_status;
+
+        /**
+         * The gatt status of the write that failed, if it was {@link BleDevice.ReadWriteListener.Status#REMOTE_GATT_FAILURE}, otherwise
+         * {@link BleStatuses#GATT_SUCCESS} or {@link BleStatuses#GATT_STATUS_NOT_APPLICABLE}.
+         */
+        public int gattStatus()
+        {
+            return m_gattStatus;
+        }
+
+        private final int m_gattStatus;
+
+        /**
+         * The offset into the data that the stream started from.
+         */
+        public int startOffset()
+        {
+            return m_startOffset;
+        }
+
+        private final int m_startOffset;
+
+        /**
+         * How far into the data the native stack confirmed it had taken. If the stream failed, pass this as the <code>startOffset</code>
+         * to {@link BleDevice#writeStream(UUID, UUID, com.idevicesinc.sweetblue.utils.FutureData, int, StreamWriteListener)}
+         * to pick up where it left off. It's up to the remote device to cope with getting the same chunk twice, as the chunk in flight
+         * when things went wrong is written again.
+         */
+        public int offset()
+        {
+            return m_offset;
+        }
+
+        private final int m_offset;
+
+        /**
+         * The total length of the data, or <code>0</code> if the stream never got as far as asking for it. If the data is a
+         * {@link com.idevicesinc.sweetblue.utils.StreamingData} of unknown length, this is the same as {@link #offset()}.
+         */
+        public int length()
+        {
+            return m_length;
+        }
+
+        private final int m_length;
+
+        /**
+         * The number of chunks the native stack confirmed.
+         */
+        public int chunkCount()
+        {
+            return m_chunkCount;
+        }
+
+        private final int m_chunkCount;
+
+        /**
+         * Time spent between the first write and the end of the stream.
+         */
+        public Interval time_total()
+        {
+            return m_totalTime;
+        }
+
+        private final Interval m_totalTime;
+
+        /**
+         * Average throughput of this stream, i.e. bytes between {@link #startOffset()} and {@link #offset()} divided by {@link #time_total()}.
+         */
+        public double bytesPerSecond()
+        {
+            final double secs = m_totalTime.secs();
+
+            return secs > 0.0 ? (m_offset - m_startOffset) / secs : 0.0;
+        }
+
+        /**
+         * Convenience to return <code>true</code> if {@link #status()} is {@link BleDevice.ReadWriteListener.Status#SUCCESS}.
+         */
+        public boolean wasSuccess()
+        {
+            return m_status == BleDevice.ReadWriteListener.Status.SUCCESS;
+        }
+
+
+        StreamWriteEvent(BleDevice device, UUID serviceUuid, UUID charUuid, BleDevice.ReadWriteListener.Status status, int gattStatus, int startOffset, int offset, int length, int chunkCount, Interval totalTime)
+        {
+            m_device = device;
+            m_serviceUuid = serviceUuid;
+            m_charUuid = charUuid;
+            m_status = status;
+            m_gattStatus = gattStatus;
+            m_startOffset = startOffset;
+            m_offset = offset;
+            m_length = length;
+            m_chunkCount = chunkCount;
+            m_totalTime = totalTime;
+        }
+
+        @Override public String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "status", status(),
+                "charUuid", device().getManager().getLogger().uuidName(charUuid()),
+                "offset", offset(),
+                "length", length(),
+                "bytesPerSecond", bytesPerSecond()
+            );
+        }
+    }
+
+}
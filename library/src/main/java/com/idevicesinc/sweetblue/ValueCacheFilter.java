@@ -0,0 +1,130 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_T;
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.UUID;
+
+/**
+ * Interface used to tell SweetBlue which characteristic values it can keep in memory, and for how long, so that
+ * {@link BleDevice#read(UUID, BleDevice.ReadWriteListener)} (and overloads) can be answered without going over the air.
+ * See {@link BleDeviceConfig#valueCacheFilter}.
+ */
+public interface ValueCacheFilter extends GenericListener_T<ValueCacheFilter.CacheEvent, ValueCacheFilter.Please>
+{
+
+    /**
+     * Event class passed to a {@link ValueCacheFilter} whenever a new value for a characteristic comes in, from a read
+     * or a notification.
+     */
+    final class CacheEvent extends Event
+    {
+
+        private final BleDevice m_device;
+        private final UUID m_serviceUuid;
+        private final UUID m_charUuid;
+
+
+        CacheEvent(BleDevice device, UUID serviceUuid, UUID charUuid)
+        {
+            m_device = device;
+            m_serviceUuid = serviceUuid;
+            m_charUuid = charUuid;
+        }
+
+        /**
+         * Returns the {@link BleDevice} the value is for.
+         */
+        public final BleDevice device()
+        {
+            return m_device;
+        }
+
+        /**
+         * Returns the {@link UUID} of the service the characteristic is in.
+         */
+        public final UUID serviceUuid()
+        {
+            return m_serviceUuid;
+        }
+
+        /**
+         * Returns the {@link UUID} of the characteristic.
+         */
+        public final UUID charUuid()
+        {
+            return m_charUuid;
+        }
+    }
+
+    /**
+     * Please class to tell SweetBlue how long a value stays fresh, if it should be kept at all.
+     */
+    final class Please
+    {
+        static final long FOREVER = Long.MAX_VALUE;
+
+        private final boolean m_cache;
+        private final long m_ttl;
+        private final boolean m_untilNotified;
+
+        private Please(boolean cache, long ttl, boolean untilNotified)
+        {
+            m_cache = cache;
+            m_ttl = ttl;
+            m_untilNotified = untilNotified;
+        }
+
+        boolean shouldCache()
+        {
+            return m_cache;
+        }
+
+        long ttl()
+        {
+            return m_ttl;
+        }
+
+        boolean untilNotified()
+        {
+            return m_untilNotified;
+        }
+
+        /**
+         * Keep the value for the given amount of time. Passing {@link Interval#DISABLED} or {@link Interval#ZERO} is the same as {@link #doNotCache()}.
+         */
+        public static Please cacheFor(final Interval ttl)
+        {
+            if( Interval.isDisabled(ttl) )  return doNotCache();
+
+            return new Please(true, ttl.millis(), false);
+        }
+
+        /**
+         * Keep the value until the device disconnects, or its services change. Good for things that never change, like a serial number.
+         */
+        public static Please cacheForever()
+        {
+            return new Please(true, FOREVER, false);
+        }
+
+        /**
+         * Keep the value until a notification (or indication) comes in for the same characteristic. This is for characteristics
+         * that notify whenever their value changes.
+         */
+        public static Please cacheUntilNotified()
+        {
+            return new Please(true, FOREVER, true);
+        }
+
+        /**
+         * Don't keep the value; reads will always go over the air. This is the default for anything not handled by your filter.
+         */
+        public static Please doNotCache()
+        {
+            return new Please(false, 0, false);
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ public final class WriteBuilder
     BleDevice.ReadWriteListener.Type writeType = null;
     BleDevice.ReadWriteListener readWriteListener = null;
     DescriptorFilter descriptorFilter = null;
+    Boolean coalesce = null;
     boolean bigEndian = true;
 
 
@@ -179,6 +180,17 @@ public final class WriteBuilder
         return this;
     }
 
+    /**
+     * Overrides {@link BleNodeConfig#coalesceWrites} for this write. If <code>true</code>, this write replaces any write to the same characteristic
+     * that's still waiting in the queue. Pass <code>null</code> (the default) to go by the config.
+     */
+    @Advanced
+    public final WriteBuilder setCoalesce(Boolean coalesce)
+    {
+        this.coalesce = coalesce;
+        return this;
+    }
+
     /**
      * Set the raw bytes to write.
      */
@@ -5,6 +5,8 @@ import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_D
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
 
+import java.io.File;
+
 /**
  * A collection of {@link java.lang.Class} instances used through {@link Class#newInstance()} to create instances of backend modules.
  */
@@ -12,4 +14,10 @@ public class Backend_Modules
 {
 	public static Class<? extends Backend_HistoricalDataList> HISTORICAL_DATA_LIST = Backend_HistoricalDataList_Default.class;
 	public static Class<? extends Backend_HistoricalDatabase> HISTORICAL_DATABASE = Backend_HistoricalDatabase_Default.class;
+
+	/**
+	 * Where file-backed modules like {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_MappedFile} keep their files,
+	 * If still <code>null</code> when a {@link com.idevicesinc.sweetblue.BleManager} is created, it's set to {@link android.content.Context#getFilesDir()}.
+	 */
+	public static File HISTORICAL_DATA_DIRECTORY = null;
 }
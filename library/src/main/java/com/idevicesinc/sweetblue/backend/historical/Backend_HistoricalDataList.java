@@ -16,6 +16,8 @@ import java.util.UUID;
 /**
  * Defines a specification for an interface over an in-memory list of historical data that optionally syncs to/from
  * disk using an implementation of {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase}.
+ * Implementations have to be thread-safe, since with {@link com.idevicesinc.sweetblue.BleManagerConfig#historicalDataWriteAsync} on, data is
+ * added from a background thread while it's read from others.
  */
 public interface Backend_HistoricalDataList
 {
@@ -17,6 +17,10 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.UUID;
 
+/**
+ * Keeps only the most recent piece of data in memory, and hands anything meant for disk to the {@link Backend_HistoricalDatabase}.
+ * Safe to use from several threads at once, as needed when {@link com.idevicesinc.sweetblue.BleManagerConfig#historicalDataWriteAsync} is on.
+ */
 public class Backend_HistoricalDataList_Default implements Backend_HistoricalDataList
 {
 	private static final Iterator<HistoricalData> EMPTY_ITERATOR = new EmptyIterator<HistoricalData>();
@@ -25,8 +29,13 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 	private HistoricalData m_data = null;
 
 	private String m_macAddress;
+	private UUID m_uuid;
 	private Backend_HistoricalDatabase m_database;
 
+	//--- How many rows are on disk, or -1 if we haven't needed to know yet. Kept up to date as data is added and trimmed so that
+	//--- adding with a limit doesn't have to ask the database, which would make it commit whatever it's holding back.
+	private long m_diskCount = -1;
+
 	//--- RB > Shut off the historical data warnings, as we aren't really offering the support for it at this time.
 	private boolean m_hasShownWarning_read = true;
 	private boolean m_hasShownWarning_write = true;
@@ -35,10 +44,11 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 	{
 	}
 
-	@Override public void init(final Backend_HistoricalDatabase database, final UpdateLoop updateLoop, final String macAddress, final UUID uuid, final String uuidName, final boolean hasExistingTable)
+	@Override public synchronized void init(final Backend_HistoricalDatabase database, final UpdateLoop updateLoop, final String macAddress, final UUID uuid, final String uuidName, final boolean hasExistingTable)
 	{
 		m_database = database;
 		m_macAddress = macAddress;
+		m_uuid = uuid;
 	}
 
 	private boolean isDataInRange(final EpochTimeRange range)
@@ -74,10 +84,22 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		);
 	}
 
-	@Override public void add_single(HistoricalData historicalData, final int persistenceLevel, long limit)
+	@Override public synchronized void add_single(HistoricalData historicalData, final int persistenceLevel, long limit)
 	{
 		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
 
+		add_toMemory(historicalData, persistenceLevel, limit);
+
+		if( includesDisk(persistenceLevel) )
+		{
+			countDisk(limit);
+
+			m_database.add_single(m_macAddress, m_uuid, historicalData, onAddedToDisk(limit, 1));
+		}
+	}
+
+	private void add_toMemory(HistoricalData historicalData, final int persistenceLevel, long limit)
+	{
 		if( limit <= 0 )
 		{
 			m_data = null;
@@ -93,16 +115,53 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public void add_multiple(Iterator<HistoricalData> historicalData, final int persistenceLevel, final long limit)
+	@Override public synchronized void add_multiple(Iterator<HistoricalData> historicalData, final int persistenceLevel, final long limit)
 	{
+		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
+
+		final boolean toDisk = includesDisk(persistenceLevel);
+
+		if( toDisk )
+		{
+			countDisk(limit);
+
+			m_database.add_multiple_start();
+		}
+
+		int added = 0;
+
 		while(historicalData.hasNext() )
 		{
-			add_single(historicalData.next(), persistenceLevel, Long.MAX_VALUE);
+			final HistoricalData next = historicalData.next();
+
+			add_toMemory(next, persistenceLevel, Long.MAX_VALUE);
+
+			if( toDisk )  m_database.add_multiple_next(m_macAddress, m_uuid, next);
+
+			added++;
+		}
+
+		if( toDisk )
+		{
+			m_database.add_multiple_end();
+
+			trimDatabase(onAddedToDisk(limit, added));
 		}
 	}
 
-	@Override public void add_multiple(ForEach_Returning<HistoricalData> historicalData, final int persistenceLevel, final long limit)
+	@Override public synchronized void add_multiple(ForEach_Returning<HistoricalData> historicalData, final int persistenceLevel, final long limit)
 	{
+		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
+
+		final boolean toDisk = includesDisk(persistenceLevel);
+
+		if( toDisk )
+		{
+			countDisk(limit);
+
+			m_database.add_multiple_start();
+		}
+
 		int i = 0;
 
 		while( true )
@@ -111,13 +170,63 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 			if( next == null )  break;
 
-			add_single(next, persistenceLevel, limit);
+			add_toMemory(next, persistenceLevel, limit);
+
+			if( toDisk )  m_database.add_multiple_next(m_macAddress, m_uuid, next);
 
 			i++;
 		}
+
+		if( toDisk )
+		{
+			m_database.add_multiple_end();
+
+			trimDatabase(onAddedToDisk(limit, i));
+		}
+	}
+
+	private static boolean includesDisk(final int persistenceLevel)
+	{
+		return BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent.includesDisk(persistenceLevel);
+	}
+
+	//--- Only asks the database the first time there's a limit to keep to, since counting has to commit anything it's holding back.
+	private void countDisk(final long limit)
+	{
+		if( m_diskCount >= 0 || limit == Long.MAX_VALUE )  return;
+
+		m_diskCount = m_database.getCount(m_macAddress, m_uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+	}
+
+	/**
+	 * Returns how many of the oldest rows on disk have to go to keep to the limit after the given number were added.
+	 */
+	private long onAddedToDisk(final long limit, final int added)
+	{
+		if( m_diskCount < 0 )  return 0;
+
+		m_diskCount += added;
+
+		if( limit == Long.MAX_VALUE )  return 0;
+
+		final long excess = m_diskCount - Math.max(0, limit);
+
+		if( excess <= 0 )  return 0;
+
+		m_diskCount -= excess;
+
+		return excess;
+	}
+
+	private void trimDatabase(final long excess)
+	{
+		if( excess > 0 )
+		{
+			m_database.delete_singleUuid_inRange(m_macAddress, m_uuid, EpochTimeRange.FROM_MIN_TO_MAX, excess);
+		}
 	}
 
-	@Override public int getCount(EpochTimeRange range)
+	@Override public synchronized int getCount(EpochTimeRange range)
 	{
 		if( isDataInRange(range) )
 		{
@@ -129,7 +238,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public HistoricalData get(EpochTimeRange range, int offset)
+	@Override public synchronized HistoricalData get(EpochTimeRange range, int offset)
 	{
 		if( isDataInRange(range) )
 		{
@@ -150,7 +259,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public Iterator<HistoricalData> getIterator(EpochTimeRange range)
+	@Override public synchronized Iterator<HistoricalData> getIterator(EpochTimeRange range)
 	{
 		if( isDataInRange(range) )
 		{
@@ -158,7 +267,10 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 			{
 				@Override protected void onRemove()
 				{
-					m_data = null;
+					synchronized(Backend_HistoricalDataList_Default.this)
+					{
+						m_data = null;
+					}
 				}
 			};
 		}
@@ -170,17 +282,25 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public boolean doForEach(EpochTimeRange range, Object forEach)
 	{
-		if( isDataInRange(range) )
+		//--- Called back outside the lock, so the callback is free to add or delete.
+		final HistoricalData data;
+
+		synchronized(this)
+		{
+			data = isDataInRange(range) ? m_data : null;
+		}
+
+		if( data != null )
 		{
 			if( forEach instanceof ForEach_Void )
 			{
-				((ForEach_Void)forEach).next(m_data);
+				((ForEach_Void)forEach).next(data);
 
 				return true;
 			}
 			else if( forEach instanceof ForEach_Breakable )
 			{
-				((ForEach_Breakable)forEach).next(m_data);
+				((ForEach_Breakable)forEach).next(data);
 
 				return true;
 			}
@@ -195,7 +315,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public void delete_fromMemoryOnly(EpochTimeRange range, long count)
+	@Override public synchronized void delete_fromMemoryOnly(EpochTimeRange range, long count)
 	{
 		if( count > 0 && isDataInRange(range) )
 		{
@@ -208,17 +328,23 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public void delete_fromMemoryOnlyForNowButDatabaseSoon(EpochTimeRange range, long count)
+	@Override public synchronized void delete_fromMemoryOnlyForNowButDatabaseSoon(EpochTimeRange range, long count)
 	{
 		delete_fromMemoryOnly(range, count);
 
+		m_diskCount = -1;
+
 		printWarning_write();
 	}
 
-	@Override public void delete_fromMemoryAndDatabase(EpochTimeRange range, long count)
+	@Override public synchronized void delete_fromMemoryAndDatabase(EpochTimeRange range, long count)
 	{
 		delete_fromMemoryOnly(range, count);
 
+		m_database.delete_singleUuid_inRange(m_macAddress, m_uuid, range, count);
+
+		m_diskCount = -1;
+
 		printWarning_write();
 	}
 
@@ -237,7 +363,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		return LOAD_STATE__NOT_LOADED;
 	}
 
-	@Override public HistoricalDataCursor getCursor(EpochTimeRange range)
+	@Override public synchronized HistoricalDataCursor getCursor(EpochTimeRange range)
 	{
 		if( m_data != null )
 		{
@@ -254,7 +380,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public EpochTimeRange getRange()
+	@Override public synchronized EpochTimeRange getRange()
 	{
 		if( m_data != null )
 		{
@@ -0,0 +1,515 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.BleDeviceConfig;
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
+import com.idevicesinc.sweetblue.utils.ForEach_Returning;
+import com.idevicesinc.sweetblue.utils.ForEach_Void;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * An unlimited {@link Backend_HistoricalDataList} that keeps everything on disk, in append-only memory-mapped segment files, one directory
+ * per device and characteristic under {@link Backend_Modules#HISTORICAL_DATA_DIRECTORY}. Use it by setting
+ * {@link Backend_Modules#HISTORICAL_DATA_LIST} to this class before creating the {@link com.idevicesinc.sweetblue.BleManager}.
+ * <br><br>
+ * Each segment is kept in timestamp order, so counts and range lookups are binary searches rather than scans. Data added
+ * with a timestamp older than the newest one already logged starts a new segment, and results from different segments come back in
+ * the order the segments were written. Anything logged with a persistence level other than
+ * {@link com.idevicesinc.sweetblue.BleDeviceConfig.HistoricalDataLogFilter#PersistenceLevel_NONE} goes to disk as soon as it's added,
+ * and memory use stays flat no matter how much is logged, since the OS pages segments in and out as needed. As the data only lives on disk,
+ * deleting from memory only, like {@link com.idevicesinc.sweetblue.BleDevice#clearHistoricalData_memoryOnly()}, leaves it alone.
+ */
+public class Backend_HistoricalDataList_MappedFile implements Backend_HistoricalDataList
+{
+	/**
+	 * The name of the directory made under {@link Backend_Modules#HISTORICAL_DATA_DIRECTORY} to hold all the segment files.
+	 */
+	public static final String DIRECTORY_NAME = "sweetblue_historical_data";
+
+	private static final Comparator<HistoricalData> BY_TIME = new Comparator<HistoricalData>()
+	{
+		@Override public int compare(HistoricalData lhs, HistoricalData rhs)
+		{
+			final long lhsTime = lhs.getEpochTime_millis();
+			final long rhsTime = rhs.getEpochTime_millis();
+
+			return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+		}
+	};
+
+	private final ArrayList<P_MappedSegment> m_segments = new ArrayList<P_MappedSegment>();
+	private final P_MappedSegment.Pool m_pool = new P_MappedSegment.Pool();
+
+	private String m_macAddress;
+	private File m_directory;
+	private int m_nextSegmentNumber = 0;
+	private int m_loadState = LOAD_STATE__NOT_LOADED;
+
+	public Backend_HistoricalDataList_MappedFile()
+	{
+	}
+
+	/**
+	 * Returns the directory the segment files of every device go in, or <code>null</code> if {@link Backend_Modules#HISTORICAL_DATA_DIRECTORY}
+	 * hasn't been set yet.
+	 */
+	public static File getRootDirectory()
+	{
+		final File parent = Backend_Modules.HISTORICAL_DATA_DIRECTORY;
+
+		return parent != null ? new File(parent, DIRECTORY_NAME) : null;
+	}
+
+	@Override public synchronized void init(final Backend_HistoricalDatabase database, final UpdateLoop updateLoop, final String macAddress, final UUID uuid, final String uuidName, final boolean hasExistingTable)
+	{
+		m_macAddress = macAddress;
+
+		final File root = getRootDirectory();
+
+		if( root == null )
+		{
+			//--- Somewhere like the temporary directory could be cleared out from under us, so nothing is stored rather than guessing.
+			m_directory = null;
+			m_loadState = LOAD_STATE__LOADED;
+
+			return;
+		}
+
+		m_directory = new File(new File(root, macAddress.replace(':', '_')), uuid.toString());
+
+		openSegments();
+	}
+
+	private void openSegments()
+	{
+		m_segments.clear();
+
+		final File[] files = m_directory.exists() ? m_directory.listFiles() : null;
+
+		if( files != null )
+		{
+			final ArrayList<Integer> numbers = new ArrayList<Integer>();
+
+			for( int i = 0; i < files.length; i++ )
+			{
+				final String name = files[i].getName();
+
+				if( !name.endsWith(P_MappedSegment.INDEX_EXTENSION) )  continue;
+
+				try
+				{
+					numbers.add(Integer.parseInt(name.substring(0, name.length() - P_MappedSegment.INDEX_EXTENSION.length())));
+				}
+				catch(NumberFormatException e)
+				{
+				}
+			}
+
+			Collections.sort(numbers);
+
+			for( int i = 0; i < numbers.size(); i++ )
+			{
+				final P_MappedSegment segment = P_MappedSegment.open(m_directory, numbers.get(i), 0, m_pool);
+
+				if( segment != null )
+				{
+					m_segments.add(segment);
+				}
+
+				m_nextSegmentNumber = numbers.get(i) + 1;
+			}
+		}
+
+		removeDeadSegments();
+
+		m_loadState = LOAD_STATE__LOADED;
+	}
+
+	@Override public synchronized void add_single(final HistoricalData historicalData, final int persistenceLevel, final long limit)
+	{
+		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
+
+		append(historicalData);
+
+		trimTo(limit);
+	}
+
+	@Override public synchronized void add_multiple(final Iterator<HistoricalData> historicalData, final int persistenceLevel, final long limit)
+	{
+		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
+
+		final ArrayList<HistoricalData> list = new ArrayList<HistoricalData>();
+
+		while( historicalData.hasNext() )
+		{
+			list.add(historicalData.next());
+		}
+
+		addSorted(list, limit);
+	}
+
+	@Override public synchronized void add_multiple(final ForEach_Returning<HistoricalData> historicalData, final int persistenceLevel, final long limit)
+	{
+		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
+
+		final ArrayList<HistoricalData> list = new ArrayList<HistoricalData>();
+
+		for( int i = 0; ; i++ )
+		{
+			final HistoricalData next = historicalData.next(i);
+
+			if( next == null )  break;
+
+			list.add(next);
+		}
+
+		addSorted(list, limit);
+	}
+
+	//--- Sorting a batch first keeps it from being split into a segment per out-of-order entry.
+	private void addSorted(final ArrayList<HistoricalData> list, final long limit)
+	{
+		Collections.sort(list, BY_TIME);
+
+		for( int i = 0; i < list.size(); i++ )
+		{
+			append(list.get(i));
+		}
+
+		trimTo(limit);
+	}
+
+	private void append(final HistoricalData historicalData)
+	{
+		if( historicalData == null || historicalData.isNull() )  return;
+
+		if( m_directory == null )  return;
+
+		final long time = historicalData.getEpochTime_millis();
+		final byte[] blob = historicalData.getBlob();
+
+		P_MappedSegment segment = m_segments.isEmpty() ? null : m_segments.get(m_segments.size()-1);
+
+		if( segment == null || !segment.makeRoom(time, blob.length) )
+		{
+			m_directory.mkdirs();
+
+			segment = P_MappedSegment.open(m_directory, m_nextSegmentNumber, blob.length, m_pool);
+
+			if( segment == null )  return;
+
+			m_nextSegmentNumber++;
+			m_segments.add(segment);
+		}
+
+		segment.append(time, blob);
+	}
+
+	private void trimTo(final long limit)
+	{
+		final long total = getTotalLiveCount();
+		final long max = Math.max(1, limit);
+
+		if( total > max )
+		{
+			delete(EpochTimeRange.FROM_MIN_TO_MAX, total - max);
+		}
+	}
+
+	private long getTotalLiveCount()
+	{
+		long total = 0;
+
+		for( int i = 0; i < m_segments.size(); i++ )
+		{
+			total += m_segments.get(i).getLiveCount();
+		}
+
+		return total;
+	}
+
+	@Override public synchronized int getCount(final EpochTimeRange range)
+	{
+		final long from = range.from().toMilliseconds();
+		final long to = range.to().toMilliseconds();
+
+		long count = 0;
+
+		for( int i = 0; i < m_segments.size(); i++ )
+		{
+			final P_MappedSegment ith = m_segments.get(i);
+
+			count += ith.countLive(ith.lowerBound(from), ith.upperBound(to));
+		}
+
+		return (int) Math.min(Integer.MAX_VALUE, count);
+	}
+
+	@Override public synchronized HistoricalData get(final EpochTimeRange range, int offset)
+	{
+		final long from = range.from().toMilliseconds();
+		final long to = range.to().toMilliseconds();
+
+		for( int i = 0; i < m_segments.size(); i++ )
+		{
+			final P_MappedSegment ith = m_segments.get(i);
+			final int lo = ith.lowerBound(from);
+			final int hi = ith.upperBound(to);
+			final int live = ith.countLive(lo, hi);
+
+			if( offset < live )
+			{
+				return ith.get(ith.nthLive(lo, hi, offset));
+			}
+
+			offset -= live;
+		}
+
+		return HistoricalData.NULL;
+	}
+
+	@Override public synchronized Iterator<HistoricalData> getIterator(final EpochTimeRange range)
+	{
+		return new RangeIterator(range);
+	}
+
+	@Override public boolean doForEach(final EpochTimeRange range, final Object forEach)
+	{
+		if( !(forEach instanceof ForEach_Void) && !(forEach instanceof ForEach_Breakable) )  return false;
+
+		final Iterator<HistoricalData> iterator = getIterator(range);
+
+		while( iterator.hasNext() )
+		{
+			final HistoricalData next = iterator.next();
+
+			if( forEach instanceof ForEach_Void )
+			{
+				((ForEach_Void<HistoricalData>)forEach).next(next);
+			}
+			else
+			{
+				final ForEach_Breakable.Please please = ((ForEach_Breakable<HistoricalData>)forEach).next(next);
+
+				if( please != null && please.shouldBreak() )  break;
+			}
+		}
+
+		return true;
+	}
+
+	@Override public synchronized void delete_fromMemoryOnly(final EpochTimeRange range, final long count)
+	{
+		//--- Nothing is held in memory apart from the mappings, which are just a view of what's on disk, so there's nothing to drop.
+	}
+
+	@Override public synchronized void delete_fromMemoryOnlyForNowButDatabaseSoon(final EpochTimeRange range, final long count)
+	{
+		delete(range, count);
+	}
+
+	@Override public synchronized void delete_fromMemoryAndDatabase(final EpochTimeRange range, final long count)
+	{
+		delete(range, count);
+	}
+
+	/**
+	 * Deletes up to <code>count</code> entries in the given range, oldest segment first.
+	 */
+	private void delete(final EpochTimeRange range, long count)
+	{
+		final long from = range.from().toMilliseconds();
+		final long to = range.to().toMilliseconds();
+
+		for( int i = 0; i < m_segments.size() && count > 0; i++ )
+		{
+			final P_MappedSegment ith = m_segments.get(i);
+			final int hi = ith.upperBound(to);
+
+			for( int j = Math.max(ith.lowerBound(from), ith.getLiveStart()); j < hi && count > 0; j++ )
+			{
+				if( ith.delete(j) )
+				{
+					count--;
+				}
+			}
+		}
+
+		removeDeadSegments();
+	}
+
+	private void removeDeadSegments()
+	{
+		for( int i = m_segments.size()-1; i >= 0; i-- )
+		{
+			final P_MappedSegment ith = m_segments.get(i);
+
+			if( ith.getLiveCount() <= 0 )
+			{
+				ith.deleteFiles();
+
+				m_segments.remove(i);
+			}
+		}
+	}
+
+	@Override public String getMacAddress()
+	{
+		return m_macAddress;
+	}
+
+	@Override public void load(final AsyncLoadCallback callback_nullable)
+	{
+		//--- Segments are mapped in init(), and the OS loads them from there as they're read.
+		if( callback_nullable != null )
+		{
+			callback_nullable.onDone();
+		}
+	}
+
+	@Override public synchronized int getLoadState()
+	{
+		return m_loadState;
+	}
+
+	@Override public synchronized HistoricalDataCursor getCursor(final EpochTimeRange range)
+	{
+		return new P_HistoricalDataCursor_MappedFile(snapshot(), range.from().toMilliseconds(), range.to().toMilliseconds());
+	}
+
+	@Override public synchronized EpochTimeRange getRange()
+	{
+		long from = Long.MAX_VALUE;
+		long to = Long.MIN_VALUE;
+
+		for( int i = 0; i < m_segments.size(); i++ )
+		{
+			final P_MappedSegment ith = m_segments.get(i);
+			final int count = ith.getCount();
+			final int first = ith.nthLive(0, count, 0);
+
+			if( first == -1 )  continue;
+
+			int last = count-1;
+
+			while( ith.isDeleted(last) )
+			{
+				last--;
+			}
+
+			from = Math.min(from, ith.getTime(first));
+			to = Math.max(to, ith.getTime(last));
+		}
+
+		if( from == Long.MAX_VALUE )  return EpochTimeRange.NULL;
+
+		return EpochTimeRange.fromGiven_toGiven(new EpochTime(from), new EpochTime(to));
+	}
+
+	private P_MappedSegment[] snapshot()
+	{
+		return m_segments.toArray(new P_MappedSegment[m_segments.size()]);
+	}
+
+	/**
+	 * Walks the live entries in a range over a snapshot of the segments, so segments dropped along the way don't trip it up.
+	 */
+	private class RangeIterator implements Iterator<HistoricalData>
+	{
+		private final P_MappedSegment[] m_snapshot;
+		private final long m_from;
+		private final long m_to;
+
+		private int m_segmentIndex = -1;
+		private int m_index = 0;
+		private int m_end = 0;
+
+		private P_MappedSegment m_lastSegment = null;
+		private int m_lastIndex = -1;
+
+		RangeIterator(final EpochTimeRange range)
+		{
+			m_snapshot = snapshot();
+			m_from = range.from().toMilliseconds();
+			m_to = range.to().toMilliseconds();
+
+			advance();
+		}
+
+		private void advance()
+		{
+			while( true )
+			{
+				if( m_segmentIndex >= 0 )
+				{
+					final P_MappedSegment segment = m_snapshot[m_segmentIndex];
+
+					while( m_index < m_end && segment.isDeleted(m_index) )
+					{
+						m_index++;
+					}
+
+					if( m_index < m_end )  return;
+				}
+
+				m_segmentIndex++;
+
+				if( m_segmentIndex >= m_snapshot.length )  return;
+
+				m_index = m_snapshot[m_segmentIndex].lowerBound(m_from);
+				m_end = m_snapshot[m_segmentIndex].upperBound(m_to);
+			}
+		}
+
+		@Override public boolean hasNext()
+		{
+			synchronized(Backend_HistoricalDataList_MappedFile.this)
+			{
+				return m_segmentIndex < m_snapshot.length;
+			}
+		}
+
+		@Override public HistoricalData next()
+		{
+			synchronized(Backend_HistoricalDataList_MappedFile.this)
+			{
+				if( m_segmentIndex >= m_snapshot.length )  throw new NoSuchElementException();
+
+				m_lastSegment = m_snapshot[m_segmentIndex];
+				m_lastIndex = m_index;
+
+				final HistoricalData next = m_lastSegment.get(m_index);
+
+				m_index++;
+				advance();
+
+				return next;
+			}
+		}
+
+		@Override public void remove()
+		{
+			synchronized(Backend_HistoricalDataList_MappedFile.this)
+			{
+				if( m_lastSegment == null )  throw new IllegalStateException("next() hasn't been called yet.");
+
+				m_lastSegment.delete(m_lastIndex);
+				m_lastSegment = null;
+
+				removeDeadSegments();
+			}
+		}
+	}
+}
@@ -0,0 +1,525 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.idevicesinc.sweetblue.BleManager;
+import com.idevicesinc.sweetblue.utils.EmptyCursor;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Void;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataColumn;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.P_Const;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link Backend_HistoricalDatabase} backed by SQLite, with one table per MAC-address/UUID combination, indexed on
+ * {@link HistoricalDataColumn#EPOCH_TIME}. Use it by setting {@link com.idevicesinc.sweetblue.backend.Backend_Modules#HISTORICAL_DATABASE}
+ * to this class before creating the {@link BleManager}.
+ * <br><br>
+ * The database runs in write-ahead-logging mode, and added data is held back and inserted with prepared statements in a single
+ * transaction once {@link #DEFAULT_BATCH_SIZE} rows are waiting or the oldest has waited {@link #DEFAULT_BATCH_AGE} milliseconds,
+ * whichever comes first. Anything that reads or deletes commits what's waiting first, so results always include everything added.
+ */
+public class Backend_HistoricalDatabase_SQLite implements Backend_HistoricalDatabase
+{
+	/**
+	 * Default number of rows that will be committed together.
+	 */
+	public static final int DEFAULT_BATCH_SIZE			= 64;
+
+	/**
+	 * Default longest time in milliseconds that a row will wait to be committed.
+	 */
+	public static final long DEFAULT_BATCH_AGE			= 1000;
+
+	/**
+	 * The name of the database file.
+	 */
+	public static final String DATABASE_NAME			= "sweetblue_historical_data.db";
+
+	private static final int DATABASE_VERSION			= 1;
+
+	private static final String TABLE_PREFIX			= "sb_";
+
+	private static final String COLUMN_EPOCH_TIME		= HistoricalDataColumn.EPOCH_TIME.getColumnName();
+	private static final String COLUMN_DATA				= HistoricalDataColumn.DATA.getColumnName();
+
+	private static class PendingRow
+	{
+		private final String m_tableName;
+		private final long m_epochTime;
+		private final byte[] m_blob;
+
+		private PendingRow(final String tableName, final long epochTime, final byte[] blob)
+		{
+			m_tableName = tableName;
+			m_epochTime = epochTime;
+			m_blob = blob != null ? blob : P_Const.EMPTY_BYTE_ARRAY;
+		}
+	}
+
+	private static class OpenHelper extends SQLiteOpenHelper
+	{
+		private OpenHelper(final Context context)
+		{
+			super(context, DATABASE_NAME, null, DATABASE_VERSION);
+
+			setWriteAheadLoggingEnabled(true);
+		}
+
+		@Override public void onCreate(SQLiteDatabase db)
+		{
+			//--- Tables are made as data for each MAC-address/UUID combination shows up.
+		}
+
+		@Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion)
+		{
+		}
+	}
+
+	private final Runnable m_flushRunnable = new Runnable()
+	{
+		@Override public void run()
+		{
+			flush();
+		}
+	};
+
+	private final Context m_context;
+	private final int m_batchSize;
+	private final long m_batchAge;
+
+	private final ArrayList<PendingRow> m_pending = new ArrayList<PendingRow>();
+	private final HashMap<String, Long> m_pendingTrims = new HashMap<String, Long>();
+	private final HashSet<String> m_tables = new HashSet<String>();
+	private final HashMap<String, SQLiteStatement> m_insertStatements = new HashMap<String, SQLiteStatement>();
+
+	private OpenHelper m_helper = null;
+	private HandlerThread m_flushThread = null;
+	private Handler m_flushHandler = null;
+	private long m_oldestPendingTime = 0;
+
+	public Backend_HistoricalDatabase_SQLite(final Context context)
+	{
+		this(context, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_AGE);
+	}
+
+	/**
+	 * @param batchSize		How many rows to hold back before committing them together. Anything below 1 commits every row on its own.
+	 * @param batchAge		Longest time in milliseconds a row is held back before being committed.
+	 */
+	public Backend_HistoricalDatabase_SQLite(final Context context, final int batchSize, final long batchAge)
+	{
+		m_context = context != null ? context.getApplicationContext() : null;
+		m_batchSize = Math.max(1, batchSize);
+		m_batchAge = Math.max(0, batchAge);
+	}
+
+	@Override public void init(final BleManager manager)
+	{
+		//--- The database is opened the first time it's used so creating the manager doesn't touch the disk.
+	}
+
+	private synchronized SQLiteDatabase getDatabase()
+	{
+		if( m_helper == null )
+		{
+			m_helper = new OpenHelper(m_context);
+		}
+
+		return m_helper.getWritableDatabase();
+	}
+
+	@Override public synchronized void add_single(final String macAddress, final UUID uuid, final HistoricalData data, final long maxCountToDelete)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+
+		enqueue(tableName, data);
+
+		if( maxCountToDelete > 0 )
+		{
+			final Long existing = m_pendingTrims.get(tableName);
+
+			m_pendingTrims.put(tableName, existing != null ? existing + maxCountToDelete : maxCountToDelete);
+		}
+
+		flushIfReady();
+	}
+
+	@Override public synchronized void add_multiple_start()
+	{
+	}
+
+	@Override public synchronized void add_multiple_next(final String macAddress, final UUID uuid, final HistoricalData data)
+	{
+		enqueue(getTableName(macAddress, uuid), data);
+
+		flushIfReady();
+	}
+
+	@Override public synchronized void add_multiple_end()
+	{
+		flush();
+	}
+
+	private void enqueue(final String tableName, final HistoricalData data)
+	{
+		if( data == null || data.isNull() )  return;
+
+		if( m_pending.isEmpty() )
+		{
+			m_oldestPendingTime = SystemClock.uptimeMillis();
+
+			scheduleFlush();
+		}
+
+		m_pending.add(new PendingRow(tableName, data.getEpochTime_millis(), data.getBlob()));
+	}
+
+	private void flushIfReady()
+	{
+		if( m_pending.size() >= m_batchSize || SystemClock.uptimeMillis() - m_oldestPendingTime >= m_batchAge )
+		{
+			flush();
+		}
+	}
+
+	private void scheduleFlush()
+	{
+		if( m_flushHandler == null )
+		{
+			m_flushThread = new HandlerThread("SweetBlue Historical Data");
+			m_flushThread.start();
+			m_flushHandler = new Handler(m_flushThread.getLooper());
+		}
+
+		m_flushHandler.postDelayed(m_flushRunnable, m_batchAge);
+	}
+
+	/**
+	 * Commits everything waiting to be added in a single transaction.
+	 */
+	public synchronized void flush()
+	{
+		if( m_flushHandler != null )
+		{
+			m_flushHandler.removeCallbacks(m_flushRunnable);
+		}
+
+		if( m_pending.isEmpty() && m_pendingTrims.isEmpty() )  return;
+
+		final SQLiteDatabase db = getDatabase();
+		final ArrayList<String> createdTables = new ArrayList<String>();
+
+		boolean success = false;
+
+		db.beginTransaction();
+
+		try
+		{
+			for( int i = 0; i < m_pending.size(); i++ )
+			{
+				final PendingRow ith = m_pending.get(i);
+				final SQLiteStatement insert = getInsertStatement(db, ith.m_tableName, createdTables);
+
+				insert.bindLong(1, ith.m_epochTime);
+				insert.bindBlob(2, ith.m_blob);
+				insert.executeInsert();
+			}
+
+			for( Map.Entry<String, Long> trim : m_pendingTrims.entrySet() )
+			{
+				if( !m_tables.contains(trim.getKey()) )  continue;
+
+				db.execSQL("DELETE FROM " + trim.getKey() + " WHERE rowid IN (SELECT rowid FROM " + trim.getKey() + " ORDER BY " + COLUMN_EPOCH_TIME + " LIMIT " + trim.getValue() + ")");
+			}
+
+			db.setTransactionSuccessful();
+
+			success = true;
+		}
+		catch(SQLException e)
+		{
+			Log.e("SweetBlue", "Failed to commit " + m_pending.size() + " rows of historical data, will try again.", e);
+		}
+		finally
+		{
+			db.endTransaction();
+		}
+
+		if( success )
+		{
+			m_pending.clear();
+			m_pendingTrims.clear();
+		}
+		else
+		{
+			//--- Tables made in the transaction were rolled back with it, so forget about them, and keep everything for the next try.
+			for( int i = 0; i < createdTables.size(); i++ )
+			{
+				final String ith = createdTables.get(i);
+				final SQLiteStatement insert = m_insertStatements.remove(ith);
+
+				if( insert != null )
+				{
+					insert.close();
+				}
+
+				m_tables.remove(ith);
+			}
+
+			m_oldestPendingTime = SystemClock.uptimeMillis();
+
+			scheduleFlush();
+		}
+	}
+
+	private SQLiteStatement getInsertStatement(final SQLiteDatabase db, final String tableName, final ArrayList<String> createdTables)
+	{
+		SQLiteStatement insert = m_insertStatements.get(tableName);
+
+		if( insert == null )
+		{
+			if( !m_tables.contains(tableName) )
+			{
+				createdTables.add(tableName);
+			}
+
+			createTable(db, tableName);
+
+			insert = db.compileStatement("INSERT INTO " + tableName + " (" + COLUMN_EPOCH_TIME + ", " + COLUMN_DATA + ") VALUES (?, ?)");
+			m_insertStatements.put(tableName, insert);
+		}
+
+		return insert;
+	}
+
+	private void createTable(final SQLiteDatabase db, final String tableName)
+	{
+		if( m_tables.contains(tableName) )  return;
+
+		//--- Column order matches HistoricalDataColumn#getColumnIndex() so rows can be read straight off a cursor.
+		db.execSQL("CREATE TABLE IF NOT EXISTS " + tableName + " (" + COLUMN_EPOCH_TIME + " INTEGER NOT NULL, " + COLUMN_DATA + " BLOB NOT NULL)");
+		db.execSQL("CREATE INDEX IF NOT EXISTS " + tableName + "_" + COLUMN_EPOCH_TIME + " ON " + tableName + " (" + COLUMN_EPOCH_TIME + ")");
+
+		m_tables.add(tableName);
+	}
+
+	private boolean doesTableExist(final String tableName)
+	{
+		if( m_tables.contains(tableName) )  return true;
+
+		final Cursor cursor = getDatabase().rawQuery("SELECT name FROM sqlite_master WHERE type='table' AND name=?", new String[]{tableName});
+
+		try
+		{
+			if( cursor.getCount() > 0 )
+			{
+				m_tables.add(tableName);
+
+				return true;
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
+
+		return false;
+	}
+
+	private static String[] rangeArgs(final EpochTimeRange range)
+	{
+		return new String[]{String.valueOf(range.from().toMilliseconds()), String.valueOf(range.to().toMilliseconds())};
+	}
+
+	private static String whereInRange()
+	{
+		return " WHERE " + COLUMN_EPOCH_TIME + " BETWEEN ? AND ?";
+	}
+
+	@Override public synchronized void delete_singleUuid_all(final String macAddress, final UUID uuid)
+	{
+		flush();
+
+		final String tableName = getTableName(macAddress, uuid);
+
+		if( !doesTableExist(tableName) )  return;
+
+		final SQLiteStatement insert = m_insertStatements.remove(tableName);
+
+		if( insert != null )
+		{
+			insert.close();
+		}
+
+		getDatabase().execSQL("DROP TABLE IF EXISTS " + tableName);
+
+		m_tables.remove(tableName);
+	}
+
+	@Override public synchronized void delete_singleUuid_inRange(final String macAddress, final UUID uuid, final EpochTimeRange range, final long maxCountToDelete)
+	{
+		flush();
+
+		final String tableName = getTableName(macAddress, uuid);
+
+		if( !doesTableExist(tableName) || maxCountToDelete <= 0 )  return;
+
+		if( maxCountToDelete == Long.MAX_VALUE )
+		{
+			getDatabase().execSQL("DELETE FROM " + tableName + whereInRange(), rangeArgs(range));
+		}
+		else
+		{
+			getDatabase().execSQL("DELETE FROM " + tableName + " WHERE rowid IN (SELECT rowid FROM " + tableName + whereInRange() + " ORDER BY " + COLUMN_EPOCH_TIME + " LIMIT " + maxCountToDelete + ")", rangeArgs(range));
+		}
+	}
+
+	@Override public synchronized void delete_singleUuid_singleDate(final String macAddress, final UUID uuid, final long date)
+	{
+		delete_singleUuid_inRange(macAddress, uuid, new EpochTimeRange(date, date), Long.MAX_VALUE);
+	}
+
+	@Override public synchronized void delete_multipleUuids(final String[] macAddresses, final UUID[] uuids, final EpochTimeRange range, final long count)
+	{
+		for( int i = 0; i < uuids.length; i++ )
+		{
+			delete_singleUuid_inRange(macAddresses[i], uuids[i], range, count);
+		}
+	}
+
+	@Override public synchronized boolean doesDataExist(final String macAddress, final UUID uuid)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+
+		for( int i = 0; i < m_pending.size(); i++ )
+		{
+			if( m_pending.get(i).m_tableName.equals(tableName) )  return true;
+		}
+
+		return doesTableExist(tableName);
+	}
+
+	@Override public synchronized void load(final String macAddress, final UUID uuid, final EpochTimeRange range, final ForEach_Void<HistoricalData> forEach)
+	{
+		final HistoricalDataCursor cursor = getCursor(macAddress, uuid, range);
+
+		try
+		{
+			while( cursor.moveToNext() )
+			{
+				forEach.next(cursor.getHistoricalData());
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
+	}
+
+	@Override public synchronized int getCount(final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		flush();
+
+		final String tableName = getTableName(macAddress, uuid);
+
+		if( !doesTableExist(tableName) )  return 0;
+
+		final SQLiteStatement count = getDatabase().compileStatement("SELECT COUNT(*) FROM " + tableName + whereInRange());
+
+		try
+		{
+			count.bindLong(1, range.from().toMilliseconds());
+			count.bindLong(2, range.to().toMilliseconds());
+
+			return (int) count.simpleQueryForLong();
+		}
+		finally
+		{
+			count.close();
+		}
+	}
+
+	@Override public synchronized HistoricalDataCursor getCursor(final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		flush();
+
+		final String tableName = getTableName(macAddress, uuid);
+
+		if( !doesTableExist(tableName) )  return new P_HistoricalDataCursor_Empty();
+
+		final Cursor cursor = getDatabase().rawQuery("SELECT " + COLUMN_EPOCH_TIME + ", " + COLUMN_DATA + " FROM " + tableName + whereInRange() + " ORDER BY " + COLUMN_EPOCH_TIME, rangeArgs(range));
+
+		return new P_HistoricalDataCursor_Sql(cursor);
+	}
+
+	@Override public synchronized Cursor query(final String query)
+	{
+		flush();
+
+		try
+		{
+			return getDatabase().rawQuery(query, null);
+		}
+		catch(SQLException e)
+		{
+			Log.e("SweetBlue", "Historical data query failed: " + query, e);
+
+			return EmptyCursor.SINGLETON;
+		}
+	}
+
+	@Override public String getTableName(final String macAddress, final UUID uuid)
+	{
+		final String mac = macAddress != null ? macAddress.replace(":", "") : "";
+
+		return TABLE_PREFIX + mac + "_" + uuid.toString().replace("-", "");
+	}
+
+	/**
+	 * Commits anything still waiting, then closes the database. It's opened again the next time it's used.
+	 */
+	public synchronized void close()
+	{
+		flush();
+
+		for( Iterator<SQLiteStatement> it = m_insertStatements.values().iterator(); it.hasNext(); )
+		{
+			it.next().close();
+		}
+
+		m_insertStatements.clear();
+		m_tables.clear();
+
+		if( m_helper != null )
+		{
+			m_helper.close();
+			m_helper = null;
+		}
+
+		if( m_flushThread != null )
+		{
+			m_flushThread.quit();
+			m_flushThread = null;
+			m_flushHandler = null;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+
+/**
+ * Cursor over a time range of a {@link Backend_HistoricalDataList_MappedFile}. Where the range starts and ends in each segment is found
+ * once up front, so moving around is just arithmetic unless a segment has deleted entries to step over.
+ */
+class P_HistoricalDataCursor_MappedFile implements HistoricalDataCursor
+{
+	private final P_MappedSegment[] m_segments;
+	private final int[] m_from;
+	private final int[] m_to;
+	private final int[] m_live;
+	private final int m_count;
+
+	private int m_position = -1;
+	private P_MappedSegment m_segment = null;
+	private int m_index = -1;
+
+	private boolean m_isClosed = false;
+
+	public P_HistoricalDataCursor_MappedFile(final P_MappedSegment[] segments, final long from, final long to)
+	{
+		m_segments = segments;
+		m_from = new int[segments.length];
+		m_to = new int[segments.length];
+		m_live = new int[segments.length];
+
+		long count = 0;
+
+		for( int i = 0; i < segments.length; i++ )
+		{
+			m_from[i] = segments[i].lowerBound(from);
+			m_to[i] = segments[i].upperBound(to);
+			m_live[i] = segments[i].countLive(m_from[i], m_to[i]);
+
+			count += m_live[i];
+		}
+
+		m_count = (int) Math.min(Integer.MAX_VALUE, count);
+	}
+
+	@Override public int getCount()
+	{
+		return m_count;
+	}
+
+	@Override public int getPosition()
+	{
+		return m_position;
+	}
+
+	@Override public boolean move(int offset)
+	{
+		return moveToPosition(getPosition() + offset);
+	}
+
+	@Override public boolean moveToPosition(int position)
+	{
+		m_segment = null;
+		m_index = -1;
+
+		if( position < 0 )
+		{
+			m_position = -1;
+
+			return false;
+		}
+		else if( position >= m_count )
+		{
+			m_position = m_count;
+
+			return false;
+		}
+
+		m_position = position;
+
+		int remaining = position;
+
+		for( int i = 0; i < m_segments.length; i++ )
+		{
+			if( remaining < m_live[i] )
+			{
+				m_segment = m_segments[i];
+				m_index = m_segment.nthLive(m_from[i], m_to[i], remaining);
+
+				return m_index != -1;
+			}
+
+			remaining -= m_live[i];
+		}
+
+		return false;
+	}
+
+	@Override public boolean moveToFirst()
+	{
+		return moveToPosition(0);
+	}
+
+	@Override public boolean moveToLast()
+	{
+		return moveToPosition(getCount()-1);
+	}
+
+	@Override public boolean moveToNext()
+	{
+		return moveToPosition(getPosition()+1);
+	}
+
+	@Override public boolean moveToPrevious()
+	{
+		return moveToPosition(getPosition()-1);
+	}
+
+	@Override public boolean isFirst()
+	{
+		return m_count > 0 && getPosition() == 0;
+	}
+
+	@Override public boolean isLast()
+	{
+		return m_count > 0 && getPosition() == getCount()-1;
+	}
+
+	@Override public boolean isBeforeFirst()
+	{
+		return m_count == 0 || m_position == -1;
+	}
+
+	@Override public boolean isAfterLast()
+	{
+		return m_count == 0 || m_position >= getCount();
+	}
+
+	@Override public void close()
+	{
+		m_isClosed = true;
+	}
+
+	@Override public boolean isClosed()
+	{
+		return m_isClosed;
+	}
+
+	@Override public long getEpochTime()
+	{
+		return m_segment != null ? m_segment.getTime(m_index) : HistoricalData.NULL.getEpochTime_millis();
+	}
+
+	@Override public byte[] getBlob()
+	{
+		return m_segment != null ? m_segment.getBlob(m_index) : HistoricalData.NULL.getBlob();
+	}
+
+	@Override public HistoricalData getHistoricalData()
+	{
+		return m_segment != null ? m_segment.get(m_index) : HistoricalData.NULL;
+	}
+}
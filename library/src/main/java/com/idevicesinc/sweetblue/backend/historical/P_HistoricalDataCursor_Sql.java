@@ -0,0 +1,111 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import android.database.Cursor;
+
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataColumn;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+
+/**
+ * Thin {@link HistoricalDataCursor} over a {@link Cursor} whose columns are laid out as in {@link HistoricalDataColumn}, so rows are only
+ * pulled off disk as they're moved to.
+ */
+class P_HistoricalDataCursor_Sql implements HistoricalDataCursor
+{
+	private final Cursor m_cursor;
+
+	public P_HistoricalDataCursor_Sql(final Cursor cursor)
+	{
+		m_cursor = cursor;
+	}
+
+	@Override public int getCount()
+	{
+		return m_cursor.getCount();
+	}
+
+	@Override public int getPosition()
+	{
+		return m_cursor.getPosition();
+	}
+
+	@Override public boolean move(int offset)
+	{
+		return m_cursor.move(offset);
+	}
+
+	@Override public boolean moveToPosition(int position)
+	{
+		return m_cursor.moveToPosition(position);
+	}
+
+	@Override public boolean moveToFirst()
+	{
+		return m_cursor.moveToFirst();
+	}
+
+	@Override public boolean moveToLast()
+	{
+		return m_cursor.moveToLast();
+	}
+
+	@Override public boolean moveToNext()
+	{
+		return m_cursor.moveToNext();
+	}
+
+	@Override public boolean moveToPrevious()
+	{
+		return m_cursor.moveToPrevious();
+	}
+
+	@Override public boolean isFirst()
+	{
+		return m_cursor.isFirst();
+	}
+
+	@Override public boolean isLast()
+	{
+		return m_cursor.isLast();
+	}
+
+	@Override public boolean isBeforeFirst()
+	{
+		return m_cursor.isBeforeFirst();
+	}
+
+	@Override public boolean isAfterLast()
+	{
+		return m_cursor.isAfterLast();
+	}
+
+	@Override public void close()
+	{
+		m_cursor.close();
+	}
+
+	@Override public boolean isClosed()
+	{
+		return m_cursor.isClosed();
+	}
+
+	private boolean isOnRow()
+	{
+		return !m_cursor.isClosed() && !m_cursor.isBeforeFirst() && !m_cursor.isAfterLast();
+	}
+
+	@Override public long getEpochTime()
+	{
+		return isOnRow() ? m_cursor.getLong(HistoricalDataColumn.EPOCH_TIME.getColumnIndex()) : HistoricalData.NULL.getEpochTime_millis();
+	}
+
+	@Override public byte[] getBlob()
+	{
+		return isOnRow() ? m_cursor.getBlob(HistoricalDataColumn.DATA.getColumnIndex()) : HistoricalData.NULL.getBlob();
+	}
+
+	@Override public HistoricalData getHistoricalData()
+	{
+		return isOnRow() ? HistoricalData.fromCursor(m_cursor) : HistoricalData.NULL;
+	}
+}
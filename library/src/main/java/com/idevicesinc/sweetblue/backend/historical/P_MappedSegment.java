@@ -0,0 +1,530 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/**
+ * One segment of a {@link Backend_HistoricalDataList_MappedFile}: an index file of fixed-width entries and a data file of blobs,
+ * both memory-mapped so that appending is just a couple of writes to memory. New segments start out small, since data that shows up
+ * out of order starts a new one, and the files are grown and mapped again at double the size as they fill, up to {@link #MAX_ENTRY_CAPACITY}
+ * entries and {@link #MAX_DATA_CAPACITY} bytes of data. Entries in a segment are always in timestamp order, so lookups by time are binary
+ * searches over the index. Only the {@link Pool#MAX_MAPPED} segments a list mapped most recently stay mapped, and the rest are mapped again
+ * the next time they're read.
+ * <br><br>
+ * Index file layout, all big-endian: a {@link #HEADER_SIZE}-byte header of (magic, entry count, deleted count, unused) ints,
+ * then one {@link #ENTRY_SIZE}-byte entry per blob of (epoch millis long, data offset int, length int). Deleting an entry just sets its length to -1.
+ */
+final class P_MappedSegment
+{
+	/**
+	 * Keeps track of which segments of a list are mapped, and lets go of the oldest mappings once there are too many.
+	 */
+	static final class Pool
+	{
+		static final int MAX_MAPPED = 4;
+
+		private final ArrayDeque<P_MappedSegment> m_mapped = new ArrayDeque<P_MappedSegment>();
+
+		private synchronized void onMapped(final P_MappedSegment segment)
+		{
+			m_mapped.remove(segment);
+			m_mapped.addLast(segment);
+
+			while( m_mapped.size() > MAX_MAPPED )
+			{
+				m_mapped.pollFirst().unmap();
+			}
+		}
+
+		private synchronized void onClosed(final P_MappedSegment segment)
+		{
+			m_mapped.remove(segment);
+		}
+	}
+
+	private static final class Mapping
+	{
+		private final MappedByteBuffer m_index;
+		private final MappedByteBuffer m_data;
+
+		private Mapping(final MappedByteBuffer index, final MappedByteBuffer data)
+		{
+			m_index = index;
+			m_data = data;
+		}
+	}
+
+	static final int HEADER_SIZE			= 16;
+	static final int ENTRY_SIZE				= 16;
+
+	static final int INITIAL_ENTRY_CAPACITY	= 256;
+	static final int INITIAL_DATA_CAPACITY	= 1024 * 16;
+	static final int MAX_ENTRY_CAPACITY		= 1024 * 64;
+	static final int MAX_DATA_CAPACITY		= 1024 * 1024 * 4;
+
+	static final String INDEX_EXTENSION		= ".idx";
+	static final String DATA_EXTENSION		= ".dat";
+
+	private static final int MAGIC			= 0x53424831; // "SBH1"
+
+	private static final int HEADER_OFFSET_MAGIC	= 0;
+	private static final int HEADER_OFFSET_COUNT	= 4;
+	private static final int HEADER_OFFSET_DELETED	= 8;
+
+	private static final int DELETED_LENGTH	= -1;
+
+	private final int m_number;
+	private final File m_indexFile;
+	private final File m_dataFile;
+	private final Pool m_pool;
+
+	//--- Replaced when the files grow, and null while unmapped. Java has no way to unmap, so old mappings are released whenever they're garbage collected.
+	private volatile Mapping m_mapping;
+	private volatile boolean m_isDeleted = false;
+	private int m_entryCapacity;
+
+	private int m_count;
+	private int m_deleted;
+	private int m_dataEnd;
+
+	//--- Everything before this is deleted. Trimming to a limit deletes from the front, so this is usually where every deletion is,
+	//--- which lets counting and lookups skip them without a scan.
+	private int m_liveStart;
+
+	private P_MappedSegment(final int number, final File indexFile, final File dataFile, final MappedByteBuffer index, final MappedByteBuffer data, final Pool pool)
+	{
+		m_number = number;
+		m_indexFile = indexFile;
+		m_dataFile = dataFile;
+		m_pool = pool;
+		m_mapping = new Mapping(index, data);
+		m_entryCapacity = (index.capacity() - HEADER_SIZE) / ENTRY_SIZE;
+
+		m_count = index.getInt(HEADER_OFFSET_COUNT);
+		m_deleted = index.getInt(HEADER_OFFSET_DELETED);
+
+		//--- Appending starts after the last entry that's still there. Any deleted ones after it just get written over.
+		m_dataEnd = 0;
+
+		for( int i = m_count-1; i >= 0; i-- )
+		{
+			final int length = getLength(i);
+
+			if( length != DELETED_LENGTH )
+			{
+				m_dataEnd = getOffset(i) + length;
+
+				break;
+			}
+		}
+
+		m_liveStart = 0;
+		advanceLiveStart();
+	}
+
+	/**
+	 * Opens the segment with the given number in the given directory, creating its files if they don't exist yet.
+	 * Returns <code>null</code> if the files couldn't be opened or aren't a segment.
+	 */
+	static P_MappedSegment open(final File directory, final int number, final int minDataCapacity, final Pool pool)
+	{
+		final File indexFile = new File(directory, number + INDEX_EXTENSION);
+		final File dataFile = new File(directory, number + DATA_EXTENSION);
+
+		final boolean isNew = !indexFile.exists();
+
+		try
+		{
+			final long indexSize = isNew ? indexSize(INITIAL_ENTRY_CAPACITY) : indexFile.length();
+			final long dataSize = isNew ? Math.max(INITIAL_DATA_CAPACITY, minDataCapacity) : dataFile.length();
+
+			if( indexSize < HEADER_SIZE )  return null;
+
+			final MappedByteBuffer index = map(indexFile, indexSize);
+			final MappedByteBuffer data = map(dataFile, dataSize);
+
+			if( isNew )
+			{
+				index.putInt(HEADER_OFFSET_MAGIC, MAGIC);
+				index.putInt(HEADER_OFFSET_COUNT, 0);
+				index.putInt(HEADER_OFFSET_DELETED, 0);
+			}
+			else if( index.getInt(HEADER_OFFSET_MAGIC) != MAGIC )
+			{
+				return null;
+			}
+
+			final P_MappedSegment segment = new P_MappedSegment(number, indexFile, dataFile, index, data, pool);
+
+			pool.onMapped(segment);
+
+			return segment;
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+	}
+
+	private static MappedByteBuffer map(final File file, final long size) throws IOException
+	{
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try
+		{
+			//--- The mapping stays valid after the channel is closed.
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the current mapping, mapping the files again first if the {@link Pool} let go of them.
+	 */
+	private Mapping mapping()
+	{
+		Mapping mapping = m_mapping;
+
+		if( mapping != null )  return mapping;
+
+		synchronized(this)
+		{
+			mapping = m_mapping;
+
+			if( mapping == null )
+			{
+				if( m_isDeleted )  throw new IllegalStateException("Historical data segment " + m_indexFile + " has been deleted.");
+
+				try
+				{
+					mapping = new Mapping(map(m_indexFile, m_indexFile.length()), map(m_dataFile, m_dataFile.length()));
+				}
+				catch(IOException e)
+				{
+					throw new IllegalStateException("Couldn't map historical data segment " + m_indexFile + " again.", e);
+				}
+
+				m_mapping = mapping;
+			}
+		}
+
+		if( !m_isDeleted )
+		{
+			m_pool.onMapped(this);
+		}
+
+		return mapping;
+	}
+
+	private MappedByteBuffer index()
+	{
+		return mapping().m_index;
+	}
+
+	private MappedByteBuffer data()
+	{
+		return mapping().m_data;
+	}
+
+	private synchronized void unmap()
+	{
+		m_mapping = null;
+	}
+
+	int getNumber()
+	{
+		return m_number;
+	}
+
+	int getCount()
+	{
+		return m_count;
+	}
+
+	int getLiveCount()
+	{
+		return m_count - m_deleted;
+	}
+
+	/**
+	 * Returns <code>true</code> if the blob can be appended, growing the files first if they're full but still under the maximum size.
+	 */
+	boolean makeRoom(final long epochTime, final int length)
+	{
+		if( m_count > 0 && epochTime < getTime(m_count-1) )  return false;
+
+		final long dataNeeded = m_dataEnd + (long) length;
+
+		if( m_count >= m_entryCapacity && m_entryCapacity >= MAX_ENTRY_CAPACITY )  return false;
+
+		final Mapping mapping = mapping();
+		final int dataCapacity = mapping.m_data.capacity();
+
+		if( dataNeeded > dataCapacity && dataNeeded > MAX_DATA_CAPACITY )  return false;
+
+		if( m_count < m_entryCapacity && dataNeeded <= dataCapacity )  return true;
+
+		try
+		{
+			MappedByteBuffer index = mapping.m_index;
+			MappedByteBuffer data = mapping.m_data;
+
+			if( m_count >= m_entryCapacity )
+			{
+				final int entryCapacity = Math.min(MAX_ENTRY_CAPACITY, m_entryCapacity * 2);
+
+				index = map(m_indexFile, indexSize(entryCapacity));
+				m_entryCapacity = entryCapacity;
+			}
+
+			if( dataNeeded > dataCapacity )
+			{
+				data = map(m_dataFile, Math.max(dataNeeded, Math.min(MAX_DATA_CAPACITY, dataCapacity * 2L)));
+			}
+
+			synchronized(this)
+			{
+				m_mapping = new Mapping(index, data);
+			}
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Appends the blob, which {@link #makeRoom(long, int)} must have said yes to. The entry only counts once the header is updated,
+	 * so a crash part way through leaves the segment as it was.
+	 */
+	void append(final long epochTime, final byte[] blob)
+	{
+		final Mapping mapping = mapping();
+		final ByteBuffer data = mapping.m_data.duplicate();
+		data.position(m_dataEnd);
+		data.put(blob);
+
+		final int entry = entryOffset(m_count);
+		mapping.m_index.putLong(entry, epochTime);
+		mapping.m_index.putInt(entry + 8, m_dataEnd);
+		mapping.m_index.putInt(entry + 12, blob.length);
+
+		m_dataEnd += blob.length;
+		m_count++;
+		mapping.m_index.putInt(HEADER_OFFSET_COUNT, m_count);
+	}
+
+	long getTime(final int i)
+	{
+		return index().getLong(entryOffset(i));
+	}
+
+	boolean isDeleted(final int i)
+	{
+		return getLength(i) == DELETED_LENGTH;
+	}
+
+	HistoricalData get(final int i)
+	{
+		final int length = getLength(i);
+
+		if( length == DELETED_LENGTH )  return HistoricalData.NULL;
+
+		return new HistoricalData(getBlob(i, length), getTime(i));
+	}
+
+	byte[] getBlob(final int i)
+	{
+		final int length = getLength(i);
+
+		return length == DELETED_LENGTH ? new byte[0] : getBlob(i, length);
+	}
+
+	private byte[] getBlob(final int i, final int length)
+	{
+		final byte[] blob = new byte[length];
+		final ByteBuffer data = data().duplicate();
+		data.position(getOffset(i));
+		data.get(blob);
+
+		return blob;
+	}
+
+	/**
+	 * Returns <code>true</code> if the entry was there to delete.
+	 */
+	boolean delete(final int i)
+	{
+		if( isDeleted(i) )  return false;
+
+		final MappedByteBuffer index = index();
+		index.putInt(entryOffset(i) + 12, DELETED_LENGTH);
+		m_deleted++;
+		index.putInt(HEADER_OFFSET_DELETED, m_deleted);
+
+		if( i == m_liveStart )
+		{
+			advanceLiveStart();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the index before which everything is deleted.
+	 */
+	int getLiveStart()
+	{
+		return m_liveStart;
+	}
+
+	private void advanceLiveStart()
+	{
+		while( m_liveStart < m_count && isDeleted(m_liveStart) )
+		{
+			m_liveStart++;
+		}
+	}
+
+	private boolean onlyDeletedAtFront()
+	{
+		return m_deleted == m_liveStart;
+	}
+
+	/**
+	 * Returns the index of the first entry at or after the given time, or {@link #getCount()} if there isn't one.
+	 */
+	int lowerBound(final long epochTime)
+	{
+		int lo = 0;
+		int hi = m_count;
+
+		while( lo < hi )
+		{
+			final int mid = (lo + hi) >>> 1;
+
+			if( getTime(mid) < epochTime )
+			{
+				lo = mid + 1;
+			}
+			else
+			{
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Returns the index of the first entry after the given time, or {@link #getCount()} if there isn't one.
+	 */
+	int upperBound(final long epochTime)
+	{
+		int lo = 0;
+		int hi = m_count;
+
+		while( lo < hi )
+		{
+			final int mid = (lo + hi) >>> 1;
+
+			if( getTime(mid) <= epochTime )
+			{
+				lo = mid + 1;
+			}
+			else
+			{
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Returns how many entries in [from, to) aren't deleted.
+	 */
+	int countLive(final int from, final int to)
+	{
+		if( onlyDeletedAtFront() )  return Math.max(0, to - Math.max(from, m_liveStart));
+
+		int count = 0;
+
+		for( int i = from; i < to; i++ )
+		{
+			if( !isDeleted(i) )  count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the index of the n-th entry in [from, to) that isn't deleted, or -1 if there aren't that many.
+	 */
+	int nthLive(final int from, final int to, final int n)
+	{
+		if( onlyDeletedAtFront() )
+		{
+			final int start = Math.max(from, m_liveStart);
+
+			return start + n < to ? start + n : -1;
+		}
+
+		int seen = 0;
+
+		for( int i = from; i < to; i++ )
+		{
+			if( isDeleted(i) )  continue;
+
+			if( seen == n )  return i;
+
+			seen++;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Deletes the files. Any mapping is left for cursors and iterators still holding on to this segment, and released along with it.
+	 */
+	void deleteFiles()
+	{
+		m_isDeleted = true;
+		m_pool.onClosed(this);
+
+		m_indexFile.delete();
+		m_dataFile.delete();
+	}
+
+	private int getOffset(final int i)
+	{
+		return index().getInt(entryOffset(i) + 8);
+	}
+
+	private int getLength(final int i)
+	{
+		return index().getInt(entryOffset(i) + 12);
+	}
+
+	private static int entryOffset(final int i)
+	{
+		return HEADER_SIZE + i * ENTRY_SIZE;
+	}
+
+	private static long indexSize(final int entryCapacity)
+	{
+		return HEADER_SIZE + (long) entryCapacity * ENTRY_SIZE;
+	}
+}
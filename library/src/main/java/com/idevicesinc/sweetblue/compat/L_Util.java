@@ -10,8 +10,10 @@ import android.bluetooth.le.AdvertiseData;
 import android.bluetooth.le.AdvertiseSettings;
 import android.bluetooth.le.BluetoothLeAdvertiser;
 import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanSettings;
 import android.os.Build;
+import android.os.ParcelUuid;
 import android.util.Log;
 import com.idevicesinc.sweetblue.BleAdvertisingSettings;
 import com.idevicesinc.sweetblue.BleDevice;
@@ -19,6 +21,7 @@ import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.utils.Interval;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
@@ -41,6 +44,38 @@ public class L_Util
         void onStartFailure(int errorCode);
     }
 
+    /**
+     * Describes a single native {@link ScanFilter}, so that filters can be built up without referencing any Lollipop classes. A native
+     * filter matches if every part that's set matches.
+     */
+    public static class ScanFilterSpec
+    {
+        private final UUID serviceUuid;
+        private final int manufacturerId;
+        private final byte[] manufacturerData;
+
+        public ScanFilterSpec(UUID serviceUuid_nullable, int manufacturerId, byte[] manufacturerDataPrefix_nullable) {
+            serviceUuid = serviceUuid_nullable;
+            this.manufacturerId = manufacturerId;
+            manufacturerData = manufacturerDataPrefix_nullable;
+        }
+
+        public UUID getServiceUuid() {
+            return serviceUuid;
+        }
+
+        /**
+         * Returns the manufacturer id to match, or <code>-1</code> if any is fine.
+         */
+        public int getManufacturerId() {
+            return manufacturerId;
+        }
+
+        public byte[] getManufacturerData() {
+            return manufacturerData;
+        }
+    }
+
     public static class ScanResult
     {
         private BluetoothDevice device;
@@ -189,10 +224,14 @@ public class L_Util
     }
 
     public static void startNativeScan(BluetoothAdapter adapter, int scanMode, Interval scanReportDelay, ScanCallback listener) {
+        startNativeScan(adapter, scanMode, scanReportDelay, null, listener);
+    }
+
+    public static void startNativeScan(BluetoothAdapter adapter, int scanMode, Interval scanReportDelay, List<ScanFilterSpec> filters_nullable, ScanCallback listener) {
 
         final ScanSettings settings = buildSettings(adapter, scanMode, scanReportDelay).build();
 
-        startScan(adapter, settings, listener);
+        startScan(adapter, settings, filters_nullable, listener);
     }
 
     // TODO - Remove this in version 3.0
@@ -246,6 +285,10 @@ public class L_Util
     }
 
     static void startScan(BluetoothAdapter adapter, ScanSettings scanSettings, ScanCallback listener) {
+        startScan(adapter, scanSettings, null, listener);
+    }
+
+    static void startScan(BluetoothAdapter adapter, ScanSettings scanSettings, List<ScanFilterSpec> filters_nullable, ScanCallback listener) {
         m_UserScanCallback = listener;
         // Add a last ditch check to make sure the adapter isn't null before trying to start the scan.
         // We check in the task, but by the time we reach this method, it could have been shut off
@@ -255,7 +298,29 @@ public class L_Util
             m_callback.onScanFailed(android.bluetooth.le.ScanCallback.SCAN_FAILED_INTERNAL_ERROR);
             return;
         }
-        adapter.getBluetoothLeScanner().startScan(null, scanSettings, m_callback);
+        adapter.getBluetoothLeScanner().startScan(toNativeFilters(filters_nullable), scanSettings, m_callback);
+    }
+
+    static List<ScanFilter> toNativeFilters(List<ScanFilterSpec> filters_nullable) {
+        if (filters_nullable == null || filters_nullable.isEmpty())
+        {
+            return null;
+        }
+        final List<ScanFilter> filters = new ArrayList<>(filters_nullable.size());
+        for (ScanFilterSpec spec : filters_nullable)
+        {
+            final ScanFilter.Builder builder = new ScanFilter.Builder();
+            if (spec.getServiceUuid() != null)
+            {
+                builder.setServiceUuid(new ParcelUuid(spec.getServiceUuid()));
+            }
+            if (spec.getManufacturerId() >= 0)
+            {
+                builder.setManufacturerData(spec.getManufacturerId(), spec.getManufacturerData() != null ? spec.getManufacturerData() : new byte[0]);
+            }
+            filters.add(builder.build());
+        }
+        return filters;
     }
 
     public static boolean startAdvertising(BluetoothAdapter adapter, AdvertiseSettings settings, AdvertiseData adData, AdvertisingCallback callback)
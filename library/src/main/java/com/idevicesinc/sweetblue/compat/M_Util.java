@@ -15,6 +15,7 @@ import android.os.Build;
 import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.List;
 
 
 @TargetApi(Build.VERSION_CODES.M)
@@ -46,6 +47,10 @@ public class M_Util
     }
 
     public static void startNativeScan(BluetoothAdapter adapter, int scanMode, Interval scanReportDelay, L_Util.ScanCallback listener) {
+        startNativeScan(adapter, scanMode, scanReportDelay, null, listener);
+    }
+
+    public static void startNativeScan(BluetoothAdapter adapter, int scanMode, Interval scanReportDelay, List<L_Util.ScanFilterSpec> filters_nullable, L_Util.ScanCallback listener) {
         final ScanSettings.Builder builder = L_Util.buildSettings(adapter, scanMode, scanReportDelay);
 
         builder.setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES);
@@ -54,7 +59,7 @@ public class M_Util
 
         final ScanSettings scanSettings = builder.build();
 
-        L_Util.startScan(adapter, scanSettings, listener);
+        L_Util.startScan(adapter, scanSettings, filters_nullable, listener);
     }
 
     // TODO - Remove this in version 3.0
@@ -1,5 +1,6 @@
 package com.idevicesinc.sweetblue.utils;
 
+import com.idevicesinc.sweetblue.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +16,16 @@ public final class BleScanInfo implements UsesCustomNull
 
     public final static BleScanInfo NULL = new BleScanInfo();
 
+    // Flags for the fields which haven't been pulled from m_view yet.
+    private static final int FIELD_ADV_FLAGS        = 0x01;
+    private static final int FIELD_TX_POWER         = 0x02;
+    private static final int FIELD_SERVICE_UUIDS    = 0x04;
+    private static final int FIELD_SERVICE_DATA     = 0x08;
+    private static final int FIELD_MFG_ID           = 0x10;
+    private static final int FIELD_MFG_DATA         = 0x20;
+    private static final int FIELD_NAME             = 0x40;
+    private static final int FIELD_ALL              = 0x7F;
+
     private Short m_manufactuerId;
     private byte[] m_manufacturerData;
     private Pointer<Integer> m_advFlags;
@@ -25,6 +36,13 @@ public final class BleScanInfo implements UsesCustomNull
     private String m_localName;
     private boolean m_shortName;
 
+    private final BleScanRecordView m_view;
+
+    // Scan info is handed out to the app, so fields can be asked for from any thread. Decoding happens under m_parseLock, and a field's
+    // bit is only cleared after it's been written, so once a bit reads as clear here the field can be used without taking the lock.
+    private final Object m_parseLock = new Object();
+    private volatile int m_unparsedFields;
+
     /**
      * Basic constructor to use if you are building a scan record to advertise.
      */
@@ -33,6 +51,19 @@ public final class BleScanInfo implements UsesCustomNull
         m_serviceUuids = new ArrayList<>();
         m_serviceData = new HashMap<>();
         m_completeUuidList = false;
+        m_view = null;
+    }
+
+    /**
+     * Constructor used internally when a {@link com.idevicesinc.sweetblue.BleDevice} is discovered. Each field is only decoded from the
+     * given view the first time it's needed.
+     */
+    public BleScanInfo(BleScanRecordView view)
+    {
+        m_serviceUuids = new ArrayList<>();
+        m_serviceData = new HashMap<>();
+        m_view = view;
+        m_unparsedFields = view != null ? FIELD_ALL : 0;
     }
 
     /**
@@ -57,6 +88,15 @@ public final class BleScanInfo implements UsesCustomNull
         m_localName = localName;
         m_shortName = shortName;
         m_completeUuidList = uuidCompleteList;
+        m_view = null;
+    }
+
+    /**
+     * Returns the view over the raw scan record this instance was created from, or <code>null</code> if it was built up manually.
+     */
+    public final @Nullable(Nullable.Prevalence.NORMAL) BleScanRecordView getView()
+    {
+        return m_view;
     }
 
     /**
@@ -65,6 +105,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo clearServiceData()
     {
+        parsed(FIELD_SERVICE_DATA);
         m_serviceData.clear();
         return this;
     }
@@ -74,6 +115,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo addServiceData(Map<UUID, byte[]> data)
     {
+        parse(FIELD_SERVICE_DATA);
         m_serviceData.putAll(data);
         return this;
     }
@@ -83,6 +125,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo clearServiceUUIDs()
     {
+        parsed(FIELD_SERVICE_UUIDS);
         m_serviceUuids.clear();
         return this;
     }
@@ -92,6 +135,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo addServiceUUIDs(List<UUID> uuids)
     {
+        parse(FIELD_SERVICE_UUIDS);
         if (uuids != null)
         {
             for (UUID u : uuids)
@@ -108,6 +152,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo addServiceData(UUID uuid, byte[] data)
     {
+        parse(FIELD_SERVICE_DATA);
         m_serviceData.put(uuid, data);
         return this;
     }
@@ -117,6 +162,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo addServiceUuid(UUID uuid, BleUuid.UuidSize size)
     {
+        parse(FIELD_SERVICE_UUIDS);
         m_serviceUuids.add(new BleUuid(uuid, size));
         return this;
     }
@@ -136,6 +182,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo setManufacturerId(short id)
     {
+        parsed(FIELD_MFG_ID);
         m_manufactuerId = id;
         return this;
     }
@@ -145,6 +192,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo setManufacturerData(byte[] data)
     {
+        parsed(FIELD_MFG_DATA);
         m_manufacturerData = data;
         return this;
     }
@@ -162,6 +210,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo setName(String name, boolean shortName)
     {
+        parsed(FIELD_NAME);
         m_localName = name;
         m_shortName = shortName;
         return this;
@@ -172,6 +221,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final short getManufacturerId()
     {
+        parse(FIELD_MFG_ID);
         if (m_manufactuerId == null)
         {
             return -1;
@@ -184,6 +234,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final byte[] getManufacturerData()
     {
+        parse(FIELD_MFG_DATA);
         if (m_manufacturerData == null)
         {
             return P_Const.EMPTY_BYTE_ARRAY;
@@ -196,6 +247,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo setAdvFlags(byte mask)
     {
+        parsed(FIELD_ADV_FLAGS);
         if (m_advFlags == null)
         {
             m_advFlags = new Pointer<>((int) mask);
@@ -217,6 +269,7 @@ public final class BleScanInfo implements UsesCustomNull
         {
             return this;
         }
+        parse(FIELD_ADV_FLAGS);
         if (m_advFlags == null)
         {
             m_advFlags = new Pointer<>(0);
@@ -233,6 +286,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final Pointer<Integer> getAdvFlags()
     {
+        parse(FIELD_ADV_FLAGS);
         if (m_advFlags == null)
         {
             return new Pointer<>(0);
@@ -245,6 +299,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final BleScanInfo setTxPower(byte power)
     {
+        parsed(FIELD_TX_POWER);
         if (m_txPower == null)
         {
             m_txPower = new Pointer<>((int) power);
@@ -261,6 +316,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final Pointer<Integer> getTxPower()
     {
+        parse(FIELD_TX_POWER);
         if (m_txPower == null)
         {
             return new Pointer<>(0);
@@ -275,6 +331,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final List<UUID> getServiceUUIDS()
     {
+        parse(FIELD_SERVICE_UUIDS);
         List<UUID> list = new ArrayList<>();
         if (m_serviceUuids != null)
         {
@@ -293,6 +350,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final Map<UUID, byte[]> getServiceData()
     {
+        parse(FIELD_SERVICE_DATA);
         return m_serviceData;
     }
 
@@ -301,6 +359,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final String getName()
     {
+        parse(FIELD_NAME);
         if (m_localName == null)
         {
             return "";
@@ -313,6 +372,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final boolean isShortName()
     {
+        parse(FIELD_NAME);
         return m_shortName;
     }
 
@@ -329,6 +389,7 @@ public final class BleScanInfo implements UsesCustomNull
      */
     public final byte[] buildPacket()
     {
+        parse(FIELD_ALL);
         Map<BleUuid, byte[]> map = new HashMap<>(m_serviceUuids.size() + m_serviceData.size());
         if (m_serviceUuids.size() > 0)
         {
@@ -348,6 +409,82 @@ public final class BleScanInfo implements UsesCustomNull
     }
 
 
+    // Marks the given fields as set, so they're never pulled from the view.
+    private void parsed(int fields)
+    {
+        if ((m_unparsedFields & fields) == 0)
+        {
+            return;
+        }
+
+        synchronized (m_parseLock)
+        {
+            m_unparsedFields &= ~fields;
+        }
+    }
+
+    // Pulls any of the given fields which haven't been yet from the view.
+    private void parse(int fields)
+    {
+        if ((m_unparsedFields & fields) == 0)
+        {
+            return;
+        }
+
+        synchronized (m_parseLock)
+        {
+            final int toParse = m_unparsedFields & fields;
+
+            if (toParse == 0)
+            {
+                return;
+            }
+
+            decode(toParse);
+
+            m_unparsedFields &= ~toParse;
+        }
+    }
+
+    private void decode(int toParse)
+    {
+        if ((toParse & FIELD_ADV_FLAGS) != 0)
+        {
+            m_advFlags = new Pointer<>(m_view.getAdvFlags());
+        }
+        if ((toParse & FIELD_TX_POWER) != 0)
+        {
+            m_txPower = new Pointer<>(m_view.getTxPower());
+        }
+        if ((toParse & FIELD_SERVICE_UUIDS) != 0)
+        {
+            final List<UUID> uuids = m_view.getServiceUuids();
+            for (int i = 0; i < uuids.size(); i++)
+            {
+                final UUID u = uuids.get(i);
+                m_serviceUuids.add(new BleUuid(u, shortUuid(u) ? BleUuid.UuidSize.SHORT : BleUuid.UuidSize.FULL));
+            }
+            m_completeUuidList = m_view.isCompleteServiceUuidList();
+        }
+        if ((toParse & FIELD_SERVICE_DATA) != 0)
+        {
+            m_serviceData.putAll(m_view.getServiceData());
+        }
+        if ((toParse & FIELD_MFG_ID) != 0)
+        {
+            m_manufactuerId = (short) m_view.getManufacturerId();
+        }
+        if ((toParse & FIELD_MFG_DATA) != 0)
+        {
+            m_manufacturerData = m_view.getManufacturerData();
+        }
+        if ((toParse & FIELD_NAME) != 0)
+        {
+            m_localName = m_view.getName();
+            m_shortName = m_view.isShortName();
+        }
+    }
+
     private static boolean shortUuid(UUID u)
     {
         long msb = u.getMostSignificantBits();
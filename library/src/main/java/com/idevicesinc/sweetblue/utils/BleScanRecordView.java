@@ -0,0 +1,539 @@
+package com.idevicesinc.sweetblue.utils;
+
+import android.util.SparseArray;
+import com.idevicesinc.sweetblue.BleNodeConfig;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Read-only view over a raw scan record, which decodes the advertising data structures it's asked about straight from the backing
+ * byte array. Nothing is parsed until the first call that needs it, at which point the record is walked once to find where each structure
+ * starts, and nothing is copied unless a method returns a <code>byte[]</code>, {@link List}, or {@link Map}. So checking for instance just
+ * the manufacturer id or a single service {@link UUID} of a discovered device is about as cheap as it gets.
+ * <br><br>
+ * NOTE: The backing array is not copied, so it must not be changed after creating an instance. Instances can be read from more than one
+ * thread, in which case each might end up walking the record the first time, but they'll all see the same result.
+ *
+ * @see BleScanInfo
+ * @see Utils_ScanRecord#parseScanRecord(byte[])
+ */
+public final class BleScanRecordView
+{
+	static final int DATA_TYPE_FLAGS = 0x01;
+	static final int DATA_TYPE_SERVICE_UUIDS_16_BIT_PARTIAL = 0x02;
+	static final int DATA_TYPE_SERVICE_UUIDS_16_BIT_COMPLETE = 0x03;
+	static final int DATA_TYPE_SERVICE_UUIDS_32_BIT_PARTIAL = 0x04;
+	static final int DATA_TYPE_SERVICE_UUIDS_32_BIT_COMPLETE = 0x05;
+	static final int DATA_TYPE_SERVICE_UUIDS_128_BIT_PARTIAL = 0x06;
+	static final int DATA_TYPE_SERVICE_UUIDS_128_BIT_COMPLETE = 0x07;
+	static final int DATA_TYPE_LOCAL_NAME_SHORT = 0x08;
+	static final int DATA_TYPE_LOCAL_NAME_COMPLETE = 0x09;
+	static final int DATA_TYPE_TX_POWER_LEVEL = 0x0A;
+	static final int DATA_TYPE_SERVICE_DATA = 0x16;
+	static final int DATA_TYPE_MANUFACTURER_SPECIFIC_DATA = 0xFF;
+
+	private static final int UUID_BYTES_16_BIT = 2;
+	private static final int UUID_BYTES_32_BIT = 4;
+	private static final int UUID_BYTES_128_BIT = 16;
+
+	private static final long BASE_UUID_MSB = 0x0000000000001000L;
+	private static final long BASE_UUID_LSB = 0x800000805F9B34FBL;
+
+	// Each structure takes up 3 ints here: its type, the offset of its data, and the length of its data.
+	private static final int STRIDE = 3;
+
+	private final byte[] m_record;
+
+	// Written once the count is, so whoever sees it set sees the count too.
+	private volatile int[] m_structures;
+	private int m_structureCount;
+
+
+	public BleScanRecordView(final byte[] scanRecord_nullable)
+	{
+		m_record = scanRecord_nullable != null ? scanRecord_nullable : P_Const.EMPTY_BYTE_ARRAY;
+	}
+
+
+	/**
+	 * Returns the backing raw scan record. This is not a copy.
+	 */
+	public final byte[] getRecord()
+	{
+		return m_record;
+	}
+
+	/**
+	 * Returns the number of advertising data structures in the record.
+	 */
+	public final int getStructureCount()
+	{
+		index();
+
+		return m_structureCount;
+	}
+
+	/**
+	 * Returns the type of the advertising data structure at the given index, for example <code>0xFF</code> for manufacturer-specific data.
+	 */
+	public final int getStructureType(final int index)
+	{
+		index();
+
+		return type(index);
+	}
+
+	/**
+	 * Returns the offset into {@link #getRecord()} of the data of the structure at the given index (not including its length and type bytes).
+	 */
+	public final int getStructureDataOffset(final int index)
+	{
+		index();
+
+		return offset(index);
+	}
+
+	/**
+	 * Returns the length of the data of the structure at the given index (not including its length and type bytes).
+	 */
+	public final int getStructureDataLength(final int index)
+	{
+		index();
+
+		return length(index);
+	}
+
+	/**
+	 * Returns the number of bytes taken by each service {@link UUID} in the structure at the given index (2, 4, or 16), or <code>0</code> if it's
+	 * not a service {@link UUID} list. Use with {@link #getUuidMsb(byte[], int, int)} and {@link #getUuidLsb(byte[], int, int)} to check the
+	 * {@link UUID}s without creating any {@link UUID} instances.
+	 */
+	public final int getServiceUuidLength(final int index)
+	{
+		index();
+
+		return uuidLength(type(index));
+	}
+
+	/**
+	 * Returns the most significant bits of the 128-bit form of the 2, 4, or 16 byte service {@link UUID} at the given offset of a raw record.
+	 */
+	public static long getUuidMsb(final byte[] record, final int offset, final int uuidLength)
+	{
+		if( uuidLength == UUID_BYTES_128_BIT )
+		{
+			return longAt(record, offset + 8);
+		}
+
+		return BASE_UUID_MSB + (shortUuid(record, offset, uuidLength) << 32);
+	}
+
+	/**
+	 * Returns the least significant bits of the 128-bit form of the 2, 4, or 16 byte service {@link UUID} at the given offset of a raw record.
+	 */
+	public static long getUuidLsb(final byte[] record, final int offset, final int uuidLength)
+	{
+		return uuidLength == UUID_BYTES_128_BIT ? longAt(record, offset) : BASE_UUID_LSB;
+	}
+
+	/**
+	 * Returns the advertising flags, or <code>-1</code> if the record doesn't contain any.
+	 */
+	public final int getAdvFlags()
+	{
+		final int i = find(DATA_TYPE_FLAGS, true);
+
+		return i != -1 && length(i) > 0 ? m_record[offset(i)] & 0xFF : -1;
+	}
+
+	/**
+	 * Returns the advertised transmission power, or {@link BleNodeConfig#INVALID_TX_POWER} if the record doesn't contain it.
+	 */
+	public final int getTxPower()
+	{
+		final int i = find(DATA_TYPE_TX_POWER_LEVEL, true);
+
+		return i != -1 && length(i) > 0 ? (int) m_record[offset(i)] : BleNodeConfig.INVALID_TX_POWER;
+	}
+
+	/**
+	 * Returns the local name (short or complete), or <code>null</code> if the record doesn't contain one.
+	 */
+	public final String getName()
+	{
+		final int i = findName();
+
+		return i != -1 ? new String(m_record, offset(i), length(i)) : null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the local name returned by {@link #getName()} is the shortened version.
+	 */
+	public final boolean isShortName()
+	{
+		final int i = findName();
+
+		return i != -1 && type(i) == DATA_TYPE_LOCAL_NAME_SHORT;
+	}
+
+	/**
+	 * Returns the manufacturer id of the last manufacturer-specific data structure, or <code>-1</code> if there isn't one.
+	 */
+	public final int getManufacturerId()
+	{
+		final int i = find(DATA_TYPE_MANUFACTURER_SPECIFIC_DATA, true);
+
+		return i != -1 && length(i) >= 2 ? manufacturerId(i) : -1;
+	}
+
+	/**
+	 * Returns <code>true</code> if the record contains manufacturer-specific data for the given manufacturer id. This doesn't allocate anything.
+	 */
+	public final boolean hasManufacturerId(final int manufacturerId)
+	{
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			if( type(i) == DATA_TYPE_MANUFACTURER_SPECIFIC_DATA && length(i) >= 2 && manufacturerId(i) == (manufacturerId & 0xFFFF) )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the record contains manufacturer-specific data for the given manufacturer id which starts with the given
+	 * bytes (not including the manufacturer id). This doesn't allocate anything.
+	 */
+	public final boolean hasManufacturerData(final int manufacturerId, final byte[] prefix)
+	{
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			if( type(i) == DATA_TYPE_MANUFACTURER_SPECIFIC_DATA && length(i) >= 2 + prefix.length && manufacturerId(i) == (manufacturerId & 0xFFFF) )
+			{
+				if( startsWith(offset(i) + 2, prefix) )  return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns a copy of the data of the last manufacturer-specific data structure (not including the manufacturer id), or an empty array
+	 * if there isn't one.
+	 */
+	public final byte[] getManufacturerData()
+	{
+		final int i = find(DATA_TYPE_MANUFACTURER_SPECIFIC_DATA, true);
+
+		return i != -1 && length(i) >= 2 ? copy(offset(i) + 2, length(i) - 2) : P_Const.EMPTY_BYTE_ARRAY;
+	}
+
+	/**
+	 * Returns copies of the data of every manufacturer-specific data structure, keyed by manufacturer id.
+	 */
+	public final SparseArray<byte[]> getManufacturerCombinedData()
+	{
+		final SparseArray<byte[]> data = new SparseArray<>();
+
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			if( type(i) == DATA_TYPE_MANUFACTURER_SPECIFIC_DATA && length(i) >= 2 )
+			{
+				data.put(manufacturerId(i), copy(offset(i) + 2, length(i) - 2));
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Returns <code>true</code> if any of the service {@link UUID} lists in the record were marked as complete.
+	 */
+	public final boolean isCompleteServiceUuidList()
+	{
+		return find(DATA_TYPE_SERVICE_UUIDS_16_BIT_COMPLETE, false) != -1 || find(DATA_TYPE_SERVICE_UUIDS_32_BIT_COMPLETE, false) != -1 || find(DATA_TYPE_SERVICE_UUIDS_128_BIT_COMPLETE, false) != -1;
+	}
+
+	/**
+	 * Returns every advertised service {@link UUID}, in 128-bit form, in the order they appear in the record.
+	 */
+	public final List<UUID> getServiceUuids()
+	{
+		final List<UUID> uuids = new ArrayList<>();
+
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			final int uuidLength = uuidLength(type(i));
+
+			if( uuidLength == 0 )  continue;
+
+			for( int pos = offset(i), end = offset(i) + length(i); pos + uuidLength <= end; pos += uuidLength )
+			{
+				uuids.add(parseUuid(m_record, pos, uuidLength));
+			}
+		}
+
+		return uuids;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given service {@link UUID} is advertised, whether in 16, 32, or 128-bit form. This doesn't allocate anything.
+	 */
+	public final boolean hasServiceUuid(final UUID uuid)
+	{
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			final int uuidLength = uuidLength(type(i));
+
+			if( uuidLength == 0 )  continue;
+
+			for( int pos = offset(i), end = offset(i) + length(i); pos + uuidLength <= end; pos += uuidLength )
+			{
+				if( uuidEquals(m_record, pos, uuidLength, uuid) )  return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns copies of all service data in the record, keyed by the (16-bit) service {@link UUID} in 128-bit form.
+	 */
+	public final Map<UUID, byte[]> getServiceData()
+	{
+		final Map<UUID, byte[]> data = new HashMap<>();
+
+		index();
+
+		for( int i = 0; i < m_structureCount; i++ )
+		{
+			if( type(i) == DATA_TYPE_SERVICE_DATA && length(i) >= UUID_BYTES_16_BIT )
+			{
+				data.put(parseUuid(m_record, offset(i), UUID_BYTES_16_BIT), copy(offset(i) + UUID_BYTES_16_BIT, length(i) - UUID_BYTES_16_BIT));
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Returns a copy of the service data for the given service {@link UUID}, or <code>null</code> if there isn't any.
+	 */
+	public final byte[] getServiceData(final UUID uuid)
+	{
+		final int i = findServiceData(uuid);
+
+		return i != -1 ? copy(offset(i) + UUID_BYTES_16_BIT, length(i) - UUID_BYTES_16_BIT) : null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the record contains service data for the given service {@link UUID}. This doesn't allocate anything.
+	 */
+	public final boolean hasServiceData(final UUID uuid)
+	{
+		return findServiceData(uuid) != -1;
+	}
+
+	private int findServiceData(final UUID uuid)
+	{
+		index();
+
+		for( int i = m_structureCount - 1; i >= 0; i-- )
+		{
+			if( type(i) == DATA_TYPE_SERVICE_DATA && length(i) >= UUID_BYTES_16_BIT && uuidEquals(m_record, offset(i), UUID_BYTES_16_BIT, uuid) )
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private int findName()
+	{
+		index();
+
+		for( int i = m_structureCount - 1; i >= 0; i-- )
+		{
+			if( type(i) == DATA_TYPE_LOCAL_NAME_COMPLETE || type(i) == DATA_TYPE_LOCAL_NAME_SHORT )
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	// Returns the index of the first (or last) structure of the given type, or -1.
+	private int find(final int type, final boolean last)
+	{
+		index();
+
+		if( last )
+		{
+			for( int i = m_structureCount - 1; i >= 0; i-- )
+			{
+				if( type(i) == type )  return i;
+			}
+		}
+		else
+		{
+			for( int i = 0; i < m_structureCount; i++ )
+			{
+				if( type(i) == type )  return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private int type(final int i)
+	{
+		return m_structures[i * STRIDE];
+	}
+
+	private int offset(final int i)
+	{
+		return m_structures[i * STRIDE + 1];
+	}
+
+	private int length(final int i)
+	{
+		return m_structures[i * STRIDE + 2];
+	}
+
+	private int manufacturerId(final int i)
+	{
+		final int offset = offset(i);
+
+		return ((m_record[offset + 1] & 0xFF) << 8) + (m_record[offset] & 0xFF);
+	}
+
+	private boolean startsWith(final int offset, final byte[] prefix)
+	{
+		for( int i = 0; i < prefix.length; i++ )
+		{
+			if( m_record[offset + i] != prefix[i] )  return false;
+		}
+
+		return true;
+	}
+
+	private byte[] copy(final int offset, final int length)
+	{
+		final byte[] bytes = new byte[length];
+		System.arraycopy(m_record, offset, bytes, 0, length);
+		return bytes;
+	}
+
+	private void index()
+	{
+		if( m_structures != null )  return;
+
+		// Each structure is at least 2 bytes (length and type), so this is as many as there can be.
+		final int[] structures = new int[(m_record.length / 2 + 1) * STRIDE];
+		int count = 0;
+		int currentPos = 0;
+
+		while( currentPos < m_record.length )
+		{
+			// length is unsigned int.
+			final int length = m_record[currentPos++] & 0xFF;
+
+			if( length == 0 )  break;
+
+			// Some records come in with a length greater than 0, but then there's nothing afterwards. Same check as the eager parsing
+			// this replaced, so the results match exactly.
+			if( currentPos >= m_record.length - 1 )  break;
+
+			// Note the length includes the length of the field type itself.
+			final int dataLength = length - 1;
+			final int fieldType = m_record[currentPos++] & 0xFF;
+
+			// Malformed structure that runs off the end of the record, so there's nothing more to trust.
+			if( currentPos + dataLength > m_record.length )  break;
+
+			structures[count * STRIDE] = fieldType;
+			structures[count * STRIDE + 1] = currentPos;
+			structures[count * STRIDE + 2] = dataLength;
+			count++;
+
+			currentPos += dataLength;
+		}
+
+		m_structureCount = count;
+		m_structures = structures;
+	}
+
+	private static int uuidLength(final int type)
+	{
+		switch( type )
+		{
+			case DATA_TYPE_SERVICE_UUIDS_16_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_16_BIT_COMPLETE:
+				return UUID_BYTES_16_BIT;
+			case DATA_TYPE_SERVICE_UUIDS_32_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_32_BIT_COMPLETE:
+				return UUID_BYTES_32_BIT;
+			case DATA_TYPE_SERVICE_UUIDS_128_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_128_BIT_COMPLETE:
+				return UUID_BYTES_128_BIT;
+			default:
+				return 0;
+		}
+	}
+
+	private static long shortUuid(final byte[] record, final int offset, final int uuidLength)
+	{
+		long shortUuid = record[offset] & 0xFF;
+		shortUuid += (record[offset + 1] & 0xFF) << 8;
+
+		if( uuidLength == UUID_BYTES_32_BIT )
+		{
+			shortUuid += (record[offset + 2] & 0xFF) << 16;
+			shortUuid += (long) (record[offset + 3] & 0xFF) << 24;
+		}
+
+		return shortUuid;
+	}
+
+	// UUIDs are little endian in the record.
+	private static long longAt(final byte[] record, final int offset)
+	{
+		long value = 0;
+
+		for( int i = 7; i >= 0; i-- )
+		{
+			value = (value << 8) | (record[offset + i] & 0xFF);
+		}
+
+		return value;
+	}
+
+	// 128_bit_value = uuid * 2^96 + BASE_UUID
+	static UUID parseUuid(final byte[] record, final int offset, final int uuidLength)
+	{
+		return new UUID(getUuidMsb(record, offset, uuidLength), getUuidLsb(record, offset, uuidLength));
+	}
+
+	static boolean uuidEquals(final byte[] record, final int offset, final int uuidLength, final UUID uuid)
+	{
+		return uuid.getLeastSignificantBits() == getUuidLsb(record, offset, uuidLength) && uuid.getMostSignificantBits() == getUuidMsb(record, offset, uuidLength);
+	}
+}
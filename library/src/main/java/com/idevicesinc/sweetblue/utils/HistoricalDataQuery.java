@@ -179,7 +179,8 @@ public class HistoricalDataQuery
 				m_query.m_select += ",";
 			}
 
-			m_query.m_select += " "+function+"(CAST(\"+column.getColumnName()+\" AS INTEGER))";
+			//--- Left to the database so aggregates never pull rows into memory.
+			m_query.m_select += " "+function+"(CAST("+column.getColumnName()+" AS INTEGER))";
 //			m_query.m_selectParenCount++;
 
 			return new Part_Function(m_query);
@@ -242,7 +243,7 @@ public class HistoricalDataQuery
 	private String getTableName()
 	{
 		final UUID uuid = getUuidOrInvalid();
-		final String tableName = m_database.getTableName(m_macAddress, uuid);
+		final String tableName = m_database.getTableName(getMacAddress(), uuid);
 
 		return tableName;
 	}
@@ -264,7 +265,7 @@ public class HistoricalDataQuery
 	{
 		final UUID uuid = getUuidOrInvalid();
 
-		if( false == m_database.doesDataExist(m_macAddress, uuid) )
+		if( false == m_database.doesDataExist(getMacAddress(), uuid) )
 		{
 			return new BleDevice.HistoricalDataQueryListener.HistoricalDataQueryEvent(m_node, uuid, EmptyCursor.SINGLETON, BleDevice.HistoricalDataQueryListener.Status.NO_TABLE, "");
 		}
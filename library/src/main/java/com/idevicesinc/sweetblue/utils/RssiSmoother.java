@@ -0,0 +1,100 @@
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Extendable;
+
+/**
+ * A zero-dependency utility class that smooths a stream of RSSI readings with an exponentially weighted moving average,
+ * and keeps an exponentially weighted variance alongside it so you can tell a steady signal from one that's changing.
+ * Used by {@link com.idevicesinc.sweetblue.BleDeviceConfig#rssiAdaptivePolling}, but it's just as useful on its own, for
+ * instance to steady the input to {@link Utils_Rssi#distance(int, int)}.
+ */
+@Extendable
+public class RssiSmoother
+{
+	/**
+	 * Default weight given to each new reading, see {@link #RssiSmoother(double)}.
+	 */
+	public static final double DEFAULT_WEIGHT = 0.25;
+
+	private final double m_weight;
+
+	private double m_mean = 0.0;
+	private double m_variance = 0.0;
+	private int m_count = 0;
+
+	public RssiSmoother()
+	{
+		this(DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * @param weight	How much each new reading counts, from <code>0.0</code> (exclusive) to <code>1.0</code>. Higher reacts
+	 *                  faster but smooths less.
+	 */
+	public RssiSmoother(double weight)
+	{
+		m_weight = Math.max(Double.MIN_VALUE, Math.min(1.0, weight));
+	}
+
+	/**
+	 * Adds a new reading. The first one is taken as is.
+	 */
+	public void add(int rssi)
+	{
+		if( m_count == 0 )
+		{
+			m_mean = rssi;
+			m_variance = 0.0;
+		}
+		else
+		{
+			final double diff = rssi - m_mean;
+			final double increment = m_weight * diff;
+
+			m_mean += increment;
+			m_variance = (1.0 - m_weight) * (m_variance + diff * increment);
+		}
+
+		m_count++;
+	}
+
+	/**
+	 * Returns the smoothed RSSI, or <code>0.0</code> if nothing has been added yet.
+	 */
+	public double getRssi()
+	{
+		return m_mean;
+	}
+
+	/**
+	 * Returns the smoothed variance of the readings, in dBm squared.
+	 */
+	public double getVariance()
+	{
+		return m_variance;
+	}
+
+	/**
+	 * Returns the square root of {@link #getVariance()}, in dBm.
+	 */
+	public double getDeviation()
+	{
+		return Math.sqrt(m_variance);
+	}
+
+	/**
+	 * Returns how many readings have been added since this was created or last {@link #reset()}.
+	 */
+	public int getCount()
+	{
+		return m_count;
+	}
+
+	public void reset()
+	{
+		m_mean = 0.0;
+		m_variance = 0.0;
+		m_count = 0;
+	}
+}
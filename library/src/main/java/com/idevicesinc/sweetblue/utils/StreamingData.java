@@ -0,0 +1,298 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+
+/**
+ * Implementation of {@link FutureData} for payloads that are too big to comfortably hold on the heap all at once, like firmware images.
+ * When passed to {@link com.idevicesinc.sweetblue.BleDevice#writeStream(UUID, UUID, FutureData, int, com.idevicesinc.sweetblue.StreamWriteListener)},
+ * or to {@link com.idevicesinc.sweetblue.BleDevice#write(UUID, FutureData)} (or overloads) with {@link com.idevicesinc.sweetblue.BleNodeConfig#autoStripeWrites}
+ * on, SweetBlue pulls one chunk at a time out of it as the write goes along, so only a few MTU-sized buffers are ever in memory.
+ * {@link #close()} is called once the write is done, whether it worked or not, so a new instance is needed to resume or retry.
+ * <br><br>
+ * Use one of the static factory methods, or extend this class for other sources. Reads happen on SweetBlue's update thread, so they
+ * should be quick - wrap slow streams in a {@link java.io.BufferedInputStream}.
+ */
+public abstract class StreamingData implements FutureData
+{
+
+	/**
+	 * Returned from {@link #length()} if the length isn't known up front.
+	 */
+	public static final long UNKNOWN_LENGTH = -1;
+
+
+	/**
+	 * Returns an instance which reads from the given {@link InputStream}. Pass {@link #UNKNOWN_LENGTH} if you don't know how long it is.
+	 */
+	public static StreamingData fromInputStream(final InputStream stream, final long length)
+	{
+		return new InputStreamData(stream, length);
+	}
+
+	/**
+	 * Returns an instance which reads from the given file through a {@link FileChannel}. The file isn't opened until the first read.
+	 */
+	public static StreamingData fromFile(final File file)
+	{
+		return new FileData(file, /*mapped=*/false);
+	}
+
+	/**
+	 * Returns an instance which memory-maps the given file, so the data is paged in by the OS as needed rather than copied through the
+	 * heap. The file isn't mapped until the first read.
+	 */
+	public static StreamingData fromMappedFile(final File file)
+	{
+		return new FileData(file, /*mapped=*/true);
+	}
+
+	/**
+	 * Returns an instance which reads from a byte array you already have.
+	 */
+	public static StreamingData fromBytes(final byte[] data)
+	{
+		return new BytesData(data);
+	}
+
+
+	/**
+	 * Returns the total number of bytes, or {@link #UNKNOWN_LENGTH}.
+	 */
+	public abstract long length();
+
+	/**
+	 * Reads up to <code>count</code> bytes into <code>buffer</code>, starting at <code>offset</code>, and returns how many were read,
+	 * or <code>-1</code> once there's nothing left. Like {@link InputStream#read(byte[], int, int)}, this may read fewer bytes than asked for
+	 * even if there are more to come.
+	 */
+	public abstract int read(final byte[] buffer, final int offset, final int count) throws IOException;
+
+	/**
+	 * Skips over <code>count</code> bytes, and returns how many were actually skipped, which is only less than <code>count</code> if the
+	 * end was reached. The default implementation just reads and throws away the bytes.
+	 */
+	public long skip(final long count) throws IOException
+	{
+		final byte[] scratch = new byte[(int) Math.min(count, 4096)];
+		long skipped = 0;
+
+		while( skipped < count )
+		{
+			final int read = read(scratch, 0, (int) Math.min(scratch.length, count - skipped));
+
+			if( read == -1 )  break;
+
+			skipped += read;
+		}
+
+		return skipped;
+	}
+
+	/**
+	 * Releases whatever is behind this instance. Does nothing by default.
+	 */
+	public void close()
+	{
+	}
+
+	/**
+	 * Reads everything that's left into one array and closes this instance, for operations that can't stream, like descriptor writes.
+	 * Returns <code>null</code> if reading fails.
+	 */
+	@Override public byte[] getData()
+	{
+		try
+		{
+			final long length = length();
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 && length <= Integer.MAX_VALUE ? (int) length : 4096);
+			final byte[] buffer = new byte[4096];
+			int read;
+
+			while( (read = read(buffer, 0, buffer.length)) != -1 )
+			{
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+		finally
+		{
+			close();
+		}
+	}
+
+
+	private static final class BytesData extends StreamingData
+	{
+		private final byte[] m_data;
+		private int m_position = 0;
+
+		private BytesData(final byte[] data)
+		{
+			m_data = data != null ? data : P_Const.EMPTY_BYTE_ARRAY;
+		}
+
+		@Override public long length()
+		{
+			return m_data.length;
+		}
+
+		@Override public int read(final byte[] buffer, final int offset, final int count)
+		{
+			if( m_position >= m_data.length )  return -1;
+
+			final int read = Math.min(count, m_data.length - m_position);
+
+			System.arraycopy(m_data, m_position, buffer, offset, read);
+			m_position += read;
+
+			return read;
+		}
+
+		@Override public long skip(final long count)
+		{
+			final int skipped = (int) Math.min(count, m_data.length - m_position);
+
+			m_position += skipped;
+
+			return skipped;
+		}
+	}
+
+	private static final class InputStreamData extends StreamingData
+	{
+		private final InputStream m_stream;
+		private final long m_length;
+
+		private InputStreamData(final InputStream stream, final long length)
+		{
+			m_stream = stream;
+			m_length = length >= 0 ? length : UNKNOWN_LENGTH;
+		}
+
+		@Override public long length()
+		{
+			return m_length;
+		}
+
+		@Override public int read(final byte[] buffer, final int offset, final int count) throws IOException
+		{
+			return m_stream.read(buffer, offset, count);
+		}
+
+		@Override public void close()
+		{
+			try
+			{
+				m_stream.close();
+			}
+			catch(IOException e)
+			{
+			}
+		}
+	}
+
+	private static final class FileData extends StreamingData
+	{
+		private final File m_file;
+		private final boolean m_mapped;
+
+		private FileChannel m_channel = null;
+		private MappedByteBuffer m_map = null;
+
+		private FileData(final File file, final boolean mapped)
+		{
+			m_file = file;
+			m_mapped = mapped;
+		}
+
+		private void open() throws IOException
+		{
+			if( m_channel != null )  return;
+
+			m_channel = new FileInputStream(m_file).getChannel();
+
+			if( m_mapped )
+			{
+				m_map = m_channel.map(FileChannel.MapMode.READ_ONLY, 0, m_channel.size());
+			}
+		}
+
+		@Override public long length()
+		{
+			return m_file.length();
+		}
+
+		@Override public int read(final byte[] buffer, final int offset, final int count) throws IOException
+		{
+			open();
+
+			if( m_map != null )
+			{
+				if( !m_map.hasRemaining() )  return -1;
+
+				final int read = Math.min(count, m_map.remaining());
+
+				m_map.get(buffer, offset, read);
+
+				return read;
+			}
+			else
+			{
+				return m_channel.read(java.nio.ByteBuffer.wrap(buffer, offset, count));
+			}
+		}
+
+		@Override public long skip(final long count) throws IOException
+		{
+			open();
+
+			if( m_map != null )
+			{
+				final int skipped = (int) Math.min(count, m_map.remaining());
+
+				m_map.position(m_map.position() + skipped);
+
+				return skipped;
+			}
+			else
+			{
+				final long position = m_channel.position();
+				final long skipped = Math.max(0, Math.min(count, m_channel.size() - position));
+
+				m_channel.position(position + skipped);
+
+				return skipped;
+			}
+		}
+
+		@Override public void close()
+		{
+			m_map = null;
+
+			if( m_channel != null )
+			{
+				try
+				{
+					m_channel.close();
+				}
+				catch(IOException e)
+				{
+				}
+
+				m_channel = null;
+			}
+		}
+	}
+}
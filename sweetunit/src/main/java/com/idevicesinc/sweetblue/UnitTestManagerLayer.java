@@ -14,6 +14,7 @@ import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Util;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -197,11 +198,11 @@ public class UnitTestManagerLayer implements P_NativeManagerLayer
         return m_nativeState == BleStatuses.STATE_ON;
     }
 
-    @Override public void startLScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+    @Override public void startLScan(int scanMode, Interval delay, List<L_Util.ScanFilterSpec> filters_nullable, L_Util.ScanCallback callback)
     {
     }
 
-    @Override public void startMScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+    @Override public void startMScan(int scanMode, Interval delay, List<L_Util.ScanFilterSpec> filters_nullable, L_Util.ScanCallback callback)
     {
     }
 
@@ -2,6 +2,7 @@ package com.idevicesinc.sweetblue;
 
 
 import com.idevicesinc.sweetblue.utils.BleScanInfo;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
 import com.idevicesinc.sweetblue.utils.BleUuid;
 import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
 import com.idevicesinc.sweetblue.utils.Uuids;
@@ -132,4 +133,62 @@ public class BleScanInfoTest extends BaseTest
         succeed();
     }
 
+    @Test
+    public void scanRecordViewTest() throws Exception
+    {
+        startTest(false);
+        final UUID myUuid = Uuids.fromInt("ABABCDCD");
+        final UUID fullUuid = UUID.fromString("0F1E2D3C-4B5A-6978-8796-A5B4C3D2E1F0");
+        final short manId = (short) 16454;
+        final byte[] manData = new byte[] { 0x5,(byte) 0xAA, 0x44, (byte) 0xB3, 0x66 };
+        BleScanInfo bleRecord = new BleScanInfo()
+                .setName("Johnny 5", true)
+                .setAdvFlags((byte) 1, (byte) 0x2)
+                .setTxPower((byte) -12)
+                .addServiceUuid(Uuids.BATTERY_SERVICE_UUID, BleUuid.UuidSize.SHORT)
+                .addServiceUuid(myUuid, BleUuid.UuidSize.MEDIUM)
+                .addServiceUuid(fullUuid, BleUuid.UuidSize.FULL)
+                .setManufacturerId(manId)
+                .setManufacturerData(manData);
+        byte[] record = bleRecord.buildPacket();
+        BleScanRecordView view = new BleScanRecordView(record);
+        assertTrue(view.hasServiceUuid(Uuids.BATTERY_SERVICE_UUID));
+        assertTrue(view.hasServiceUuid(myUuid));
+        assertTrue(view.hasServiceUuid(fullUuid));
+        assertTrue(!view.hasServiceUuid(Uuids.DEVICE_INFORMATION_SERVICE_UUID));
+        assertTrue(view.hasManufacturerId(manId));
+        assertTrue(!view.hasManufacturerId(manId + 1));
+        assertTrue(view.getName().equals("Johnny 5"));
+        assertTrue(view.isShortName());
+        assertTrue(view.getTxPower() == -12);
+        assertTrue(view.getAdvFlags() == 3);
+        assertTrue(Arrays.equals(view.getManufacturerData(), manData));
+        final List<UUID> uuids = view.getServiceUuids();
+        assertTrue(uuids.size() == 3);
+        assertTrue(uuids.containsAll(Arrays.asList(Uuids.BATTERY_SERVICE_UUID, myUuid, fullUuid)));
+
+        // The view doesn't copy the record, so it's the exact same array
+        assertTrue(view.getRecord() == record);
+
+        BleScanRecordView empty = new BleScanRecordView(null);
+        assertTrue(empty.getStructureCount() == 0);
+        assertTrue(empty.getName() == null);
+        assertTrue(empty.getManufacturerId() == -1);
+        assertTrue(empty.getServiceUuids().isEmpty());
+        succeed();
+    }
+
+    @Test
+    public void malformedScanRecordTest() throws Exception
+    {
+        startTest(false);
+        // Second structure claims to be longer than what's left of the record
+        final byte[] record = new byte[] { 0x02, 0x01, 0x06, 0x10, (byte) 0xFF, 0x46, 0x40 };
+        BleScanInfo info = Utils_ScanRecord.parseScanRecord(record);
+        assertTrue(info.getAdvFlags().value == 6);
+        assertTrue(info.getManufacturerId() == -1);
+        assertTrue(info.getManufacturerData().length == 0);
+        succeed();
+    }
+
 }
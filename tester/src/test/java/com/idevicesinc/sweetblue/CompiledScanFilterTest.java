@@ -0,0 +1,115 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.compat.L_Util;
+import com.idevicesinc.sweetblue.utils.BleScanInfo;
+import com.idevicesinc.sweetblue.utils.BleScanRecordView;
+import com.idevicesinc.sweetblue.utils.BleUuid;
+import com.idevicesinc.sweetblue.utils.Uuids;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class CompiledScanFilterTest extends BaseBleUnitTest
+{
+
+    private static final String MAC = "00:1A:7D:DA:71:13";
+
+
+    @Test(timeout = 10000)
+    public void manufacturerAndServiceTest() throws Exception
+    {
+        startTest(false);
+        final UUID fullUuid = UUID.fromString("0F1E2D3C-4B5A-6978-8796-A5B4C3D2E1F0");
+        final CompiledScanFilter filter = new ScanFilterBuilder()
+                .addManufacturerData(0x1234, new byte[] { 0x01, 0x02 })
+                .addManufacturerId(0x4321)
+                .addServiceUuid(Uuids.BATTERY_SERVICE_UUID)
+                .addServiceUuid(fullUuid)
+                .setMinRssi(-80)
+                .build();
+
+        final BleScanRecordView match = newRecord(0x1234, new byte[] { 0x01, 0x02, 0x03 }, Uuids.BATTERY_SERVICE_UUID, BleUuid.UuidSize.SHORT);
+        assertTrue(filter.mightMatch(MAC, -50, match));
+        assertTrue(!filter.mightMatch(MAC, -90, match));
+
+        assertTrue(filter.mightMatch(MAC, -50, newRecord(0x4321, new byte[] { 0x09 }, fullUuid, BleUuid.UuidSize.FULL)));
+
+        // Wrong prefix, wrong id, and wrong service
+        assertTrue(!filter.mightMatch(MAC, -50, newRecord(0x1234, new byte[] { 0x01, 0x03 }, Uuids.BATTERY_SERVICE_UUID, BleUuid.UuidSize.SHORT)));
+        assertTrue(!filter.mightMatch(MAC, -50, newRecord(0x1235, new byte[] { 0x01, 0x02 }, Uuids.BATTERY_SERVICE_UUID, BleUuid.UuidSize.SHORT)));
+        assertTrue(!filter.mightMatch(MAC, -50, newRecord(0x4321, null, Uuids.DEVICE_INFORMATION_SERVICE_UUID, BleUuid.UuidSize.SHORT)));
+        assertTrue(!filter.mightMatch(MAC, -50, new BleScanRecordView(null)));
+
+        // 2 manufacturer rules times 2 services fits, so we should get every combination.
+        final List<L_Util.ScanFilterSpec> specs = filter.getNativeSpecs();
+        assertTrue(specs.size() == 4);
+        for (L_Util.ScanFilterSpec spec : specs)
+        {
+            assertTrue(spec.getServiceUuid() != null && spec.getManufacturerId() != -1);
+        }
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void hashedLookupTest() throws Exception
+    {
+        startTest(false);
+        final ScanFilterBuilder builder = new ScanFilterBuilder();
+        for (int i = 0; i < 500; i++)
+        {
+            builder.addManufacturerId(i * 7);
+            builder.addServiceUuid(Uuids.fromShort((short) (0x2000 + i)));
+        }
+        final CompiledScanFilter filter = builder.build();
+
+        for (int i = 0; i < 500; i++)
+        {
+            assertTrue(filter.mightMatch(MAC, -50, newRecord(i * 7, null, Uuids.fromShort((short) (0x2000 + i)), BleUuid.UuidSize.SHORT)));
+            assertTrue(!filter.mightMatch(MAC, -50, newRecord(i * 7 + 1, null, Uuids.fromShort((short) (0x2000 + i)), BleUuid.UuidSize.SHORT)));
+            assertTrue(!filter.mightMatch(MAC, -50, newRecord(i * 7, null, Uuids.fromShort((short) (0x3000 + i)), BleUuid.UuidSize.SHORT)));
+        }
+
+        // Too many combinations, so it should fall back to just one kind of rule.
+        assertTrue(filter.getNativeSpecs().size() == 500);
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void ouiTest() throws Exception
+    {
+        startTest(false);
+        final CompiledScanFilter filter = new ScanFilterBuilder()
+                .addMacOui("00:1A:7D")
+                .addMacOui("AABBCC")
+                .build();
+
+        final BleScanRecordView record = new BleScanRecordView(null);
+        assertTrue(filter.mightMatch(MAC, -50, record));
+        assertTrue(filter.mightMatch("aa:bb:cc:00:00:01", -50, record));
+        assertTrue(!filter.mightMatch("00:1A:7E:DA:71:13", -50, record));
+        assertTrue(!filter.mightMatch(null, -50, record));
+        assertTrue(CompiledScanFilter.parseOui("zz:1A:7D:DA:71:13") == -1);
+
+        // Nothing here can be filtered natively.
+        assertTrue(filter.getNativeSpecs() == null);
+        succeed();
+    }
+
+    private static BleScanRecordView newRecord(int manufacturerId, byte[] manufacturerData, UUID serviceUuid, BleUuid.UuidSize size)
+    {
+        final BleScanInfo info = new BleScanInfo()
+                .setManufacturerId((short) manufacturerId)
+                .setManufacturerData(manufacturerData != null ? manufacturerData : new byte[0])
+                .addServiceUuid(serviceUuid, size);
+        return new BleScanRecordView(info.buildPacket());
+    }
+
+}
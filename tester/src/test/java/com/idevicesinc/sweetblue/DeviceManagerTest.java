@@ -7,7 +7,13 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.Semaphore;
+import static org.junit.Assert.assertTrue;
 
 
 @Config(manifest = Config.NONE, sdk = 25)
@@ -58,4 +64,177 @@ public class DeviceManagerTest extends BaseBleUnitTest
         startTest();
     }
 
+    @Test(timeout = 20000)
+    public void stateIndexTest() throws Exception
+    {
+        m_mgr.setConfig(m_config);
+
+        for (int i = 0; i < 20; i++)
+        {
+            m_mgr.newDevice(Util.randomMacAddress());
+        }
+
+        final BleDevice device = m_mgr.newDevice(Util.randomMacAddress());
+
+        device.connect(new BleDevice.StateListener()
+        {
+            @Override public void onEvent(StateEvent e)
+            {
+                if (e.didEnter(BleDeviceState.INITIALIZED))
+                {
+                    assertTrue(m_mgr.hasDevice(device));
+                    assertTrue(m_mgr.getDeviceCount(BleDeviceState.INITIALIZED) == 1);
+                    assertTrue(m_mgr.getDevice(BleDeviceState.INITIALIZED) == device);
+                    assertTrue(m_mgr.getDevices_List(BleDeviceState.CONNECTED).size() == 1);
+                    assertTrue(m_mgr.getDevices_List(BleDeviceState.CONNECTED.bit() | BleDeviceState.INITIALIZED.bit()).size() == 1);
+                    assertTrue(m_mgr.getDevices_List(BleDeviceState.DISCOVERED, true, BleDeviceState.CONNECTED, false).size() == 20);
+                    assertTrue(m_mgr.getDeviceCount(BleDeviceState.DISCOVERED) == 21);
+                    device.disconnect();
+                }
+                else if (e.didEnter(BleDeviceState.DISCONNECTED))
+                {
+                    assertTrue(m_mgr.getDeviceCount(BleDeviceState.CONNECTED) == 0);
+                    assertTrue(m_mgr.getDevice(BleDeviceState.INITIALIZED).isNull());
+                    assertTrue(!m_mgr.hasDevice(BleDeviceState.CONNECTED));
+                    succeed();
+                }
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void sortedListTest() throws Exception
+    {
+        m_config.defaultListComparator = new BleManagerConfig.DeviceNameComparator();
+        m_mgr.setConfig(m_config);
+
+        final BleDevice charlie = m_mgr.newDevice(Util.randomMacAddress(), "Charlie");
+        final BleDevice alpha = m_mgr.newDevice(Util.randomMacAddress(), "Alpha");
+        final BleDevice bravo = m_mgr.newDevice(Util.randomMacAddress(), "Bravo");
+
+        doTestOperation(new TestOp()
+        {
+            @Override public void run()
+            {
+                while (m_mgr.getDeviceCount() < 3)
+                {
+                    try
+                    {
+                        Thread.sleep(25);
+                    } catch (Exception e)
+                    {
+                    }
+                }
+
+                List<BleDevice> sorted = m_mgr.m_deviceMngr.getList_sorted();
+                assertTrue(sorted.get(0) == alpha && sorted.get(1) == bravo && sorted.get(2) == charlie);
+
+                // Nothing changed, so we should get the same snapshot back
+                assertTrue(m_mgr.m_deviceMngr.getList_sorted() == sorted);
+
+                // The unsorted list shouldn't have been touched
+                assertTrue(m_mgr.getDeviceAt(0) == charlie);
+
+                charlie.setName("Aardvark");
+                sorted = m_mgr.m_deviceMngr.getList_sorted();
+                assertTrue(sorted.get(0) == charlie && sorted.get(1) == alpha && sorted.get(2) == bravo);
+
+                final List<BleDevice> sortedCopy = m_mgr.getDevices_List_sorted(BleDeviceState.DISCOVERED);
+                assertTrue(sortedCopy.get(0) == charlie && sortedCopy.get(2) == bravo);
+                succeed();
+            }
+        });
+    }
+
+    @Test(timeout = 20000)
+    public void sortedListSeveralMovedTest() throws Exception
+    {
+        final Comparator<BleDevice> comparator = new BleManagerConfig.DeviceNameComparator();
+        m_config.defaultListComparator = comparator;
+        m_mgr.setConfig(m_config);
+
+        final int count = 32;
+        final BleDevice[] devices = new BleDevice[count];
+        for (int i = 0; i < count; i++)
+        {
+            devices[i] = m_mgr.newDevice(Util.randomMacAddress(), String.format("Device %02d", i));
+        }
+
+        doTestOperation(new TestOp()
+        {
+            @Override public void run()
+            {
+                while (m_mgr.getDeviceCount() < count)
+                {
+                    try
+                    {
+                        Thread.sleep(25);
+                    } catch (Exception e)
+                    {
+                    }
+                }
+
+                assertTrue(m_mgr.m_deviceMngr.getList_sorted().get(0) == devices[0]);
+
+                // Few enough devices move that they're repositioned rather than the whole list being sorted, but they swap places
+                // with each other, so each one's new spot depends on where the others end up.
+                devices[3].setName("Device 28a");
+                devices[28].setName("Device 03a");
+                devices[10].setName("Device 20a");
+                devices[20].setName("Device 00a");
+
+                final ArrayList<BleDevice> expected = new ArrayList<>(m_mgr.getDevices_List());
+                Collections.sort(expected, comparator);
+
+                assertTrue(m_mgr.m_deviceMngr.getList_sorted().equals(expected));
+                succeed();
+            }
+        });
+    }
+
+    @Test(timeout = 20000)
+    public void sortedListCustomComparatorTest() throws Exception
+    {
+        // Sorts on something the device manager knows nothing about, so it can't tell when the order changes.
+        final HashMap<BleDevice, Integer> ranks = new HashMap<>();
+        m_config.defaultListComparator = new Comparator<BleDevice>()
+        {
+            @Override public int compare(BleDevice lhs, BleDevice rhs)
+            {
+                return ranks.get(lhs).compareTo(ranks.get(rhs));
+            }
+        };
+        m_mgr.setConfig(m_config);
+
+        final BleDevice first = m_mgr.newDevice(Util.randomMacAddress(), "First");
+        final BleDevice second = m_mgr.newDevice(Util.randomMacAddress(), "Second");
+        ranks.put(first, 0);
+        ranks.put(second, 1);
+
+        doTestOperation(new TestOp()
+        {
+            @Override public void run()
+            {
+                while (m_mgr.getDeviceCount() < 2)
+                {
+                    try
+                    {
+                        Thread.sleep(25);
+                    } catch (Exception e)
+                    {
+                    }
+                }
+
+                assertTrue(m_mgr.m_deviceMngr.getList_sorted().get(0) == first);
+
+                ranks.put(first, 2);
+
+                assertTrue(m_mgr.m_deviceMngr.getList_sorted().get(0) == second);
+                succeed();
+            }
+        });
+    }
+
 }
@@ -259,6 +259,67 @@ public class DuplicateCharTest extends BaseBleUnitTest
         startTest();
     }
 
+    @Test
+    public void indexedLookupTest() throws Exception
+    {
+        m_device = null;
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                // Once services are discovered, lookups should hand back the same cached wrapper.
+                                final BleCharacteristicWrapper first = m_device.getNativeBleCharacteristic(mTestService, mTestChar);
+                                assertTrue(!first.isNull());
+                                assertTrue(first == m_device.getNativeBleCharacteristic(mTestService, mTestChar));
+                                assertTrue(first == m_device.getNativeBleCharacteristic(mTestChar));
+
+                                // The filter should still pick out the second characteristic with the same uuid.
+                                final BleCharacteristicWrapper second = m_device.serviceMngr_device().getCharacteristic(mTestService, mTestChar, new DescriptorFilter()
+                                {
+                                    @Override public Please onEvent(DescriptorEvent event)
+                                    {
+                                        return Please.acceptIf(event.value()[0] == 0x2);
+                                    }
+
+                                    @Override public UUID descriptorUuid()
+                                    {
+                                        return mTestDesc;
+                                    }
+                                });
+                                assertTrue(!second.isNull() && second != first);
+                                assertTrue(m_device.getNativeBleDescriptor(mTestService, mTestChar, mTestDesc).getDescriptor().getValue()[0] == 0x1);
+                                assertTrue(m_device.getNativeBleCharacteristic(mTestService, Uuids.fromShort("4321")).isNull());
+
+                                m_device.disconnect();
+                            }
+                            else if (e.didEnter(BleDeviceState.DISCONNECTED))
+                            {
+                                // The index is thrown away on disconnect.
+                                final BleCharacteristicWrapper stale = m_device.getNativeBleCharacteristic(mTestService, mTestChar);
+                                assertTrue(stale.isNull() || stale != m_device.getNativeBleCharacteristic(mTestService, mTestChar));
+                                succeed();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
     @Override public BleManagerConfig getConfig()
     {
         BleManagerConfig config = super.getConfig();
@@ -1,19 +1,36 @@
 package com.idevicesinc.sweetblue;
 
 
+import com.idevicesinc.sweetblue.utils.GattDatabase;
 import com.idevicesinc.sweetblue.utils.Pointer;
 import com.idevicesinc.sweetblue.utils.Util;
+import com.idevicesinc.sweetblue.utils.Uuids;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import static org.junit.Assert.assertTrue;
+
 
 @Config(manifest = Config.NONE, sdk = 25)
 @RunWith(RobolectricTestRunner.class)
 public class GattRefreshTest extends BaseBleUnitTest
 {
 
+    private final static GattDatabase dbWithServiceChanged = new GattDatabase()
+            .addService(Uuids.GENERIC_ATTRIBUTES_SERVICE_UUID).addCharacteristic(Uuids.SERVICE_CHANGED).setProperties().indicate().completeService()
+            .addService(Uuids.fromShort("ABCD")).addCharacteristic(Uuids.fromShort("1111")).setProperties().read().setPermissions().read().completeService();
+
+    private final static GattDatabase dbChanged = new GattDatabase()
+            .addService(Uuids.GENERIC_ATTRIBUTES_SERVICE_UUID).addCharacteristic(Uuids.SERVICE_CHANGED).setProperties().indicate().completeService()
+            .addService(Uuids.fromShort("ABCD")).addCharacteristic(Uuids.fromShort("1111")).setProperties().read().setPermissions().read().completeChar()
+            .addCharacteristic(Uuids.fromShort("2222")).setProperties().read().setPermissions().read().completeService();
+
+    private final static GattDatabase dbWithoutServiceChanged = new GattDatabase()
+            .addService(Uuids.fromShort("ABCD")).addCharacteristic(Uuids.fromShort("1111")).setProperties().read().setPermissions().read().completeService();
+
+
     @Test(timeout = 12000)
     public void connectThenRefreshGattTest() throws Exception
     {
@@ -60,4 +77,230 @@ public class GattRefreshTest extends BaseBleUnitTest
 
     }
 
+    @Test(timeout = 12000)
+    public void knownLayoutSkipsRefreshTest() throws Exception
+    {
+        final Pointer<Integer> refreshCount = new Pointer<>(0);
+        final Pointer<Integer> connectCount = new Pointer<>(0);
+
+        m_config.runOnMainThread = false;
+        m_config.loggingEnabled = true;
+        m_config.useGattRefresh = true;
+        m_config.cacheGattLayout = true;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, dbWithServiceChanged)
+                {
+                    @Override public boolean refreshGatt()
+                    {
+                        refreshCount.value++;
+                        return super.refreshGatt();
+                    }
+                };
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    e.device().connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                connectCount.value++;
+                                if (connectCount.value == 1)
+                                {
+                                    assertTrue(refreshCount.value == 1);
+                                    e.device().disconnect();
+                                }
+                                else
+                                {
+                                    // The layout was remembered from the first connect, so there should have been no second refresh.
+                                    assertTrue(refreshCount.value == 1);
+                                    succeed();
+                                }
+                            }
+                            else if (e.didEnter(BleDeviceState.DISCONNECTED) && connectCount.value == 1)
+                            {
+                                e.device().connect();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Test(timeout = 12000)
+    public void changedLayoutRediscoversTest() throws Exception
+    {
+        final Pointer<Integer> refreshCount = new Pointer<>(0);
+        final Pointer<Integer> connectCount = new Pointer<>(0);
+        final Pointer<UnitTestGatt> gatt = new Pointer<>();
+
+        setupCountingGatt(refreshCount, gatt, dbWithServiceChanged);
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    e.device().connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                connectCount.value++;
+                                if (connectCount.value == 1)
+                                {
+                                    assertTrue(refreshCount.value == 1);
+                                    e.device().disconnect();
+                                }
+                                else
+                                {
+                                    // Android's cache answered with a different layout than the one remembered, so services should
+                                    // have been discovered again with a refresh, and the new characteristic should be there.
+                                    assertTrue(refreshCount.value == 2);
+                                    assertTrue(e.device().getNativeCharacteristic(Uuids.fromShort("2222")) != null);
+                                    succeed();
+                                }
+                            }
+                            else if (e.didEnter(BleDeviceState.DISCONNECTED) && connectCount.value == 1)
+                            {
+                                gatt.value.setDatabase(dbChanged);
+                                e.device().connect();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Test(timeout = 12000)
+    public void noServiceChangedAlwaysRefreshesTest() throws Exception
+    {
+        final Pointer<Integer> refreshCount = new Pointer<>(0);
+
+        setupCountingGatt(refreshCount, new Pointer<UnitTestGatt>(), dbWithoutServiceChanged);
+
+        connectTwice(new Runnable()
+        {
+            @Override public void run()
+            {
+                // Nothing was remembered, since the device can't tell us when its database changes.
+                assertTrue(refreshCount.value == 2);
+                succeed();
+            }
+        }, false);
+
+        startTest();
+    }
+
+    @Test(timeout = 12000)
+    public void serviceChangedForgetsLayoutTest() throws Exception
+    {
+        final Pointer<Integer> refreshCount = new Pointer<>(0);
+
+        setupCountingGatt(refreshCount, new Pointer<UnitTestGatt>(), dbWithServiceChanged);
+
+        connectTwice(new Runnable()
+        {
+            @Override public void run()
+            {
+                assertTrue(refreshCount.value == 2);
+                succeed();
+            }
+        }, true);
+
+        startTest();
+    }
+
+    private void setupCountingGatt(final Pointer<Integer> refreshCount, final Pointer<UnitTestGatt> gatt, final GattDatabase db)
+    {
+        m_config.runOnMainThread = false;
+        m_config.loggingEnabled = true;
+        m_config.useGattRefresh = true;
+        m_config.cacheGattLayout = true;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                gatt.value = new UnitTestGatt(device, db)
+                {
+                    @Override public boolean refreshGatt()
+                    {
+                        refreshCount.value++;
+                        return super.refreshGatt();
+                    }
+                };
+                return gatt.value;
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+    }
+
+    private void connectTwice(final Runnable onSecondInit, final boolean indicateServiceChanged)
+    {
+        final Pointer<Integer> connectCount = new Pointer<>(0);
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    e.device().connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                connectCount.value++;
+                                if (connectCount.value == 1)
+                                {
+                                    if (indicateServiceChanged)
+                                    {
+                                        e.device().onServiceChangedIndication();
+                                    }
+                                    e.device().disconnect();
+                                }
+                                else
+                                {
+                                    onSecondInit.run();
+                                }
+                            }
+                            else if (e.didEnter(BleDeviceState.DISCONNECTED) && connectCount.value == 1)
+                            {
+                                e.device().connect();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+    }
+
 }
@@ -0,0 +1,83 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.database.Cursor;
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_SQLite;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.HistoricalDataColumn;
+import com.idevicesinc.sweetblue.utils.Util;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataQueryTest extends BaseBleUnitTest
+{
+
+    private final static UUID mLoggedChar = Uuids.fromShort("1234");
+
+
+    @Override public BleManagerConfig getConfig()
+    {
+        // Has to be set before the manager makes its database.
+        Backend_Modules.HISTORICAL_DATABASE = Backend_HistoricalDatabase_SQLite.class;
+
+        return super.getConfig();
+    }
+
+    @After
+    @Override public void tearDown() throws Exception
+    {
+        final Backend_HistoricalDatabase_SQLite database = (Backend_HistoricalDatabase_SQLite) m_mgr.m_historicalDatabase;
+
+        super.tearDown();
+
+        database.close();
+        Backend_Modules.HISTORICAL_DATABASE = Backend_HistoricalDatabase_Default.class;
+    }
+
+    @Test(timeout = 20000)
+    public void aggregateQueryTest() throws Exception
+    {
+        m_config.historicalDataLogFilter = e -> BleNodeConfig.HistoricalDataLogFilter.Please.logToDisk();
+        m_mgr.setConfig(m_config);
+
+        BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        for (int i = 0; i < 5; i++)
+        {
+            device.addHistoricalData(mLoggedChar, new byte[] { (byte) i }, new EpochTime(2000 + i * 10));
+        }
+
+        BleNode.HistoricalDataQueryListener.HistoricalDataQueryEvent event = device.select()
+                .min(HistoricalDataColumn.EPOCH_TIME)
+                .max(HistoricalDataColumn.EPOCH_TIME)
+                .avg(HistoricalDataColumn.EPOCH_TIME)
+                .from(mLoggedChar)
+                .go();
+
+        assertTrue(event.wasSuccess());
+
+        Cursor cursor = event.cursor();
+        assertTrue(cursor.moveToFirst());
+        assertEquals(2000, cursor.getLong(0));
+        assertEquals(2040, cursor.getLong(1));
+        assertEquals(2020, cursor.getLong(2));
+        cursor.close();
+
+        device.clearAllData();
+    }
+}
@@ -0,0 +1,146 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_MappedFile;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Util;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataWriterTest extends BaseBleUnitTest
+{
+
+    private final static UUID mLoggedChar = Uuids.fromShort("5555");
+
+
+    @Test(timeout = 20000)
+    public void queuedUntilReadTest() throws Exception
+    {
+        File dir = File.createTempFile("sweetblue", "test");
+        dir.delete();
+        dir.mkdirs();
+        Backend_Modules.HISTORICAL_DATA_DIRECTORY = dir;
+        Backend_Modules.HISTORICAL_DATA_LIST = Backend_HistoricalDataList_MappedFile.class;
+
+        try
+        {
+            m_config.historicalDataWriteAsync = true;
+            m_config.historicalDataBatchSize = 1000;
+            m_config.historicalDataBatchTime = Interval.secs(60.0);
+            m_config.historicalDataLogFilter = e -> BleNodeConfig.HistoricalDataLogFilter.Please.logToDisk();
+            m_mgr.setConfig(m_config);
+
+            BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+            for (int i = 0; i < 10; i++)
+            {
+                device.addHistoricalData(mLoggedChar, new byte[] { (byte) i }, new EpochTime(1000 + i));
+            }
+
+            // Nothing is due yet, so it should all still be waiting.
+            HistoricalDataWriterStats stats = m_mgr.getHistoricalDataWriterStats();
+            assertEquals(10, stats.getPendingCount());
+            assertEquals(0, stats.getCommittedCount());
+
+            // Reading another characteristic shouldn't have to wait on any of it.
+            assertEquals(0, device.getHistoricalDataCount(Uuids.fromShort("6666")));
+            assertEquals(10, m_mgr.getHistoricalDataWriterStats().getPendingCount());
+
+            // Reading has to commit what's queued first.
+            assertEquals(10, device.getHistoricalDataCount(mLoggedChar));
+
+            stats = m_mgr.getHistoricalDataWriterStats();
+            assertEquals(0, stats.getPendingCount());
+            assertEquals(10, stats.getCommittedCount());
+            assertEquals(1, stats.getCommitCount());
+            assertEquals(10, stats.getHighWaterMark());
+
+            device.clearAllData();
+        }
+        finally
+        {
+            Backend_Modules.HISTORICAL_DATA_LIST = Backend_HistoricalDataList_Default.class;
+            Backend_Modules.HISTORICAL_DATA_DIRECTORY = null;
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void readWaitsForCommitInProgressTest() throws Exception
+    {
+        SlowList.s_commitStarted = new CountDownLatch(1);
+        Backend_Modules.HISTORICAL_DATA_LIST = SlowList.class;
+
+        try
+        {
+            m_config.historicalDataWriteAsync = true;
+            m_config.historicalDataBatchSize = 1;
+            m_config.historicalDataLogFilter = e -> BleNodeConfig.HistoricalDataLogFilter.Please.logToMemory();
+            m_mgr.setConfig(m_config);
+
+            BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+            device.addHistoricalData(mLoggedChar, new byte[] { 0x1 }, new EpochTime(1000));
+
+            // The writer thread has taken the entry off the queue, but hasn't handed it to the list yet, so the read has to wait for it.
+            assertTrue(SlowList.s_commitStarted.await(5, TimeUnit.SECONDS));
+            assertEquals(1, device.getHistoricalDataCount(mLoggedChar));
+
+            device.clearAllData();
+        }
+        finally
+        {
+            Backend_Modules.HISTORICAL_DATA_LIST = Backend_HistoricalDataList_Default.class;
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void syncByDefaultTest() throws Exception
+    {
+        m_config.historicalDataLogFilter = e -> BleNodeConfig.HistoricalDataLogFilter.Please.logToMemory();
+        m_mgr.setConfig(m_config);
+
+        BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+        device.addHistoricalData(mLoggedChar, new byte[] { 0x1 }, new EpochTime(1000));
+
+        assertEquals(0, m_mgr.getHistoricalDataWriterStats().getPendingCount());
+        assertEquals(1, device.getHistoricalDataCount(mLoggedChar));
+    }
+
+
+    public static final class SlowList extends Backend_HistoricalDataList_Default
+    {
+        private static volatile CountDownLatch s_commitStarted;
+
+        @Override public void add_single(HistoricalData historicalData, int persistenceLevel, long limit)
+        {
+            s_commitStarted.countDown();
+
+            try
+            {
+                Thread.sleep(500);
+            }
+            catch (InterruptedException e)
+            {
+            }
+
+            super.add_single(historicalData, persistenceLevel, limit);
+        }
+    }
+}
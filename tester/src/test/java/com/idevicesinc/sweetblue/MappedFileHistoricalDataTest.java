@@ -0,0 +1,177 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_MappedFile;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.util.UUID;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class MappedFileHistoricalDataTest extends BaseTest
+{
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+    private static final UUID CHAR_UUID = UUID.randomUUID();
+
+    private File m_dir;
+
+
+    @Before
+    public void setup() throws Exception
+    {
+        m_dir = File.createTempFile("sweetblue", "test");
+        m_dir.delete();
+        m_dir.mkdirs();
+        Backend_Modules.HISTORICAL_DATA_DIRECTORY = m_dir;
+    }
+
+    @Test
+    public void addAndQueryTest() throws Exception
+    {
+        startTest(false);
+        Backend_HistoricalDataList_MappedFile list = newList();
+        for (int i = 0; i < 10; i++)
+        {
+            list.add_single(new HistoricalData(new byte[] { (byte) i }, 1000 + i), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, Long.MAX_VALUE);
+        }
+        assertEquals(10, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(3, list.getCount(new EpochTimeRange(1002, 1004)));
+        assertArrayEquals(new byte[] { 5 }, list.get(EpochTimeRange.FROM_MIN_TO_MAX, 5).getBlob());
+        assertEquals(1000, list.getRange().from().toMilliseconds());
+        assertEquals(1009, list.getRange().to().toMilliseconds());
+
+        HistoricalDataCursor cursor = list.getCursor(new EpochTimeRange(1003, 1006));
+        assertEquals(4, cursor.getCount());
+        assertTrue(cursor.moveToLast());
+        assertEquals(1006, cursor.getEpochTime());
+        assertFalse(cursor.moveToNext());
+        cursor.close();
+
+        // A fresh instance should find everything again from the files.
+        assertEquals(10, newList().getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        succeed();
+    }
+
+    @Test
+    public void limitAndDeleteTest() throws Exception
+    {
+        startTest(false);
+        Backend_HistoricalDataList_MappedFile list = newList();
+        for (int i = 0; i < 20; i++)
+        {
+            list.add_single(new HistoricalData(new byte[] { (byte) i }, 1000 + i), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, 5);
+        }
+        assertEquals(5, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(1015, list.getRange().from().toMilliseconds());
+
+        list.delete_fromMemoryAndDatabase(new EpochTimeRange(1016, 1017), Long.MAX_VALUE);
+        assertEquals(3, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertArrayEquals(new byte[] { 18 }, list.get(EpochTimeRange.FROM_MIN_TO_MAX, 1).getBlob());
+
+        // Older data lands in its own segment but still counts.
+        list.add_single(new HistoricalData(new byte[] { 1 }, 500), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, Long.MAX_VALUE);
+        assertEquals(4, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(500, list.getRange().from().toMilliseconds());
+        succeed();
+    }
+
+    @Test
+    public void segmentGrowsTest() throws Exception
+    {
+        startTest(false);
+        Backend_HistoricalDataList_MappedFile list = newList();
+        for (int i = 0; i < 1000; i++)
+        {
+            byte[] blob = new byte[64];
+            blob[0] = (byte) i;
+            list.add_single(new HistoricalData(blob, 1000 + i), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, Long.MAX_VALUE);
+        }
+        assertEquals(1000, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals((byte) 999, list.get(EpochTimeRange.FROM_MIN_TO_MAX, 999).getBlob()[0]);
+
+        // Filling past the small starting size should grow the one segment rather than open more.
+        File dir = new File(new File(Backend_HistoricalDataList_MappedFile.getRootDirectory(), MAC.replace(':', '_')), CHAR_UUID.toString());
+        assertEquals(2, dir.listFiles().length);
+
+        assertEquals(1000, newList().getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        succeed();
+    }
+
+    @Test
+    public void memoryOnlyDeleteKeepsDataTest() throws Exception
+    {
+        startTest(false);
+        Backend_HistoricalDataList_MappedFile list = newList();
+        for (int i = 0; i < 10; i++)
+        {
+            list.add_single(new HistoricalData(new byte[] { (byte) i }, 1000 + i), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, Long.MAX_VALUE);
+        }
+
+        // Everything here is on disk, so clearing memory shouldn't touch it.
+        list.delete_fromMemoryOnly(EpochTimeRange.FROM_MIN_TO_MAX, Long.MAX_VALUE);
+        assertEquals(10, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(10, newList().getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+
+        list.delete_fromMemoryAndDatabase(EpochTimeRange.FROM_MIN_TO_MAX, Long.MAX_VALUE);
+        assertEquals(0, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+        succeed();
+    }
+
+    @Test
+    public void manySegmentsTest() throws Exception
+    {
+        startTest(false);
+        Backend_HistoricalDataList_MappedFile list = newList();
+
+        // Every add goes back in time, so each one starts a new segment, far more than are kept mapped at once.
+        for (int i = 0; i < 20; i++)
+        {
+            list.add_single(new HistoricalData(new byte[] { (byte) i }, 2000 - i), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_DISK, Long.MAX_VALUE);
+        }
+        assertEquals(20, list.getCount(EpochTimeRange.FROM_MIN_TO_MAX));
+
+        // Segments that were let go of get mapped again to be read.
+        for (int i = 0; i < 20; i++)
+        {
+            assertArrayEquals(new byte[] { (byte) i }, list.get(EpochTimeRange.FROM_MIN_TO_MAX, i).getBlob());
+        }
+        assertEquals(1981, list.getRange().from().toMilliseconds());
+        succeed();
+    }
+
+    @After
+    public void tearDown()
+    {
+        Backend_Modules.HISTORICAL_DATA_DIRECTORY = null;
+        deleteAll(m_dir);
+    }
+
+    private Backend_HistoricalDataList_MappedFile newList()
+    {
+        Backend_HistoricalDataList_MappedFile list = new Backend_HistoricalDataList_MappedFile();
+        list.init(null, null, MAC, CHAR_UUID, null, false);
+        return list;
+    }
+
+    private static void deleteAll(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
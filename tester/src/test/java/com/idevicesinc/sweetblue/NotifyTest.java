@@ -454,4 +454,353 @@ public class NotifyTest extends BaseBleUnitTest
         startTest();
     }
 
+    @Test(timeout = 15000)
+    public void burstOfNotifiesTest() throws Exception
+    {
+        m_device = null;
+
+        final int count = 200;
+
+        m_config.runOnMainThread = false;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, dbNotifyWithDesc);
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleTransaction.Init()
+                    {
+                        @Override protected void start(BleDevice device)
+                        {
+                            m_device.enableNotify(mTestChar, new BleDevice.ReadWriteListener()
+                            {
+                                private int m_received = 0;
+
+                                @Override public void onEvent(final ReadWriteEvent e)
+                                {
+                                    if (e.type() == Type.ENABLING_NOTIFICATION)
+                                    {
+                                        assertTrue("Enabling notification failed with status " + e.status(), e.wasSuccess());
+                                        succeed();
+
+                                        // Fire them all off from another thread, as fast as possible, like the native stack would.
+                                        new Thread(new Runnable()
+                                        {
+                                            @Override public void run()
+                                            {
+                                                for (int i = 0; i < count; i++)
+                                                {
+                                                    e.characteristic().setValue(new byte[] { (byte) i });
+                                                    m_device.m_listeners.onCharacteristicChanged(null, e.characteristic());
+                                                }
+                                            }
+                                        }).start();
+                                    }
+                                    else if (e.type() == Type.NOTIFICATION)
+                                    {
+                                        assertTrue(e.data()[0] == (byte) m_received);
+                                        m_received++;
+                                        if (m_received == count)
+                                        {
+                                            NotifyTest.this.succeed();
+                                        }
+                                    }
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Test(timeout = 15000)
+    public void conflatedNotifyTest() throws Exception
+    {
+        m_device = null;
+
+        final int count = 50;
+
+        m_config.runOnMainThread = false;
+        m_config.notificationBufferSize = 1;
+        m_config.notificationOverflowPolicy = NotificationOverflowPolicy.CONFLATE;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, dbNotifyWithDesc);
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleTransaction.Init()
+                    {
+                        @Override protected void start(BleDevice device)
+                        {
+                            m_device.enableNotify(mTestChar, new BleDevice.ReadWriteListener()
+                            {
+                                @Override public void onEvent(final ReadWriteEvent e)
+                                {
+                                    if (e.type() == Type.ENABLING_NOTIFICATION)
+                                    {
+                                        assertTrue("Enabling notification failed with status " + e.status(), e.wasSuccess());
+                                        succeed();
+
+                                        // Hold up the update thread while they all come in, so they have nowhere to go but the buffer.
+                                        m_mgr.getPostManager().postToUpdateThread(new Runnable()
+                                        {
+                                            @Override public void run()
+                                            {
+                                                final Thread thread = new Thread(new Runnable()
+                                                {
+                                                    @Override public void run()
+                                                    {
+                                                        for (int i = 0; i < count; i++)
+                                                        {
+                                                            e.characteristic().setValue(new byte[] { (byte) i });
+                                                            m_device.m_listeners.onCharacteristicChanged(null, e.characteristic());
+                                                        }
+                                                    }
+                                                });
+                                                thread.start();
+                                                try
+                                                {
+                                                    thread.join();
+                                                }
+                                                catch (InterruptedException ex)
+                                                {
+                                                }
+                                            }
+                                        });
+                                    }
+                                    else if (e.type() == Type.NOTIFICATION)
+                                    {
+                                        // Only the latest value should make it through.
+                                        assertTrue(e.data()[0] == (byte) (count - 1));
+
+                                        final NotificationBufferStats stats = m_device.getNotificationBufferStats(null, mTestChar);
+                                        assertTrue(stats.getReceivedCount() == count);
+                                        assertTrue(stats.getDroppedCount() == count - 1);
+                                        assertTrue(stats.getHighWaterMark() == 1);
+                                        assertTrue(stats.getDispatchedCount() == 1);
+                                        assertTrue(stats.getPendingCount() == 0);
+                                        NotifyTest.this.succeed();
+                                    }
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Test(timeout = 15000)
+    public void batchedNotifyTest() throws Exception
+    {
+        m_device = null;
+
+        final int batchSize = 10;
+        final int count = batchSize * 3;
+
+        m_config.runOnMainThread = false;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, dbNotifyWithDesc);
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+
+        final NotificationBatchListener batchListener = new NotificationBatchListener()
+        {
+            private int m_received = 0;
+
+            @Override public void onEvent(NotificationBatchEvent e)
+            {
+                assertTrue(e.size() == batchSize);
+                assertTrue(e.byteCount() == batchSize);
+                for (int i = 0; i < e.size(); i++)
+                {
+                    assertTrue(e.data(i)[0] == (byte) m_received);
+                    assertTrue(i == 0 || e.timestamp(i) >= e.timestamp(i - 1));
+                    m_received++;
+                }
+                if (m_received == count)
+                {
+                    succeed();
+                }
+            }
+        };
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.setListener_ReadWrite(new BleDevice.ReadWriteListener()
+                    {
+                        @Override public void onEvent(ReadWriteEvent e)
+                        {
+                            // Batched notifications shouldn't show up here.
+                            assertFalse(e.type() == Type.NOTIFICATION);
+                        }
+                    });
+                    m_device.connect(new BleTransaction.Init()
+                    {
+                        @Override protected void start(BleDevice device)
+                        {
+                            final NotificationBatchOptions options = new NotificationBatchOptions().flushAtCount(batchSize).flushAfter(Interval.DISABLED);
+
+                            m_device.enableNotify(mTestService, mTestChar, options, batchListener, new BleDevice.ReadWriteListener()
+                            {
+                                @Override public void onEvent(final ReadWriteEvent e)
+                                {
+                                    assertTrue(e.type() == Type.ENABLING_NOTIFICATION);
+                                    assertTrue("Enabling notification failed with status " + e.status(), e.wasSuccess());
+                                    succeed();
+
+                                    new Thread(new Runnable()
+                                    {
+                                        @Override public void run()
+                                        {
+                                            for (int i = 0; i < count; i++)
+                                            {
+                                                e.characteristic().setValue(new byte[] { (byte) i });
+                                                m_device.m_listeners.onCharacteristicChanged(null, e.characteristic());
+                                            }
+                                        }
+                                    }).start();
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+
+    @Test(timeout = 15000)
+    public void batchedNotifyLatencyTest() throws Exception
+    {
+        m_device = null;
+
+        final int count = 5;
+        final long latency = 300;
+        final long[] sentTime = new long[1];
+
+        // With the loop sleeping whenever nothing's due, only the batch's own latency can get it flushed.
+        m_config.runOnMainThread = false;
+        m_config.updateLoopOnDemand = true;
+        m_config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, dbNotifyWithDesc);
+            }
+        };
+
+        m_mgr.setConfig(m_config);
+
+        final NotificationBatchListener batchListener = new NotificationBatchListener()
+        {
+            @Override public void onEvent(NotificationBatchEvent e)
+            {
+                assertTrue("Batch size: " + e.size(), e.size() == count);
+                assertTrue(System.currentTimeMillis() - sentTime[0] >= latency - 50);
+                succeed();
+            }
+        };
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleTransaction.Init()
+                    {
+                        @Override protected void start(BleDevice device)
+                        {
+                            final NotificationBatchOptions options = new NotificationBatchOptions().flushAtCount(1000).flushAfter(Interval.millis(latency));
+
+                            m_device.enableNotify(mTestService, mTestChar, options, batchListener, new BleDevice.ReadWriteListener()
+                            {
+                                @Override public void onEvent(final ReadWriteEvent e)
+                                {
+                                    assertTrue(e.type() == Type.ENABLING_NOTIFICATION);
+                                    assertTrue("Enabling notification failed with status " + e.status(), e.wasSuccess());
+
+                                    new Thread(new Runnable()
+                                    {
+                                        @Override public void run()
+                                        {
+                                            // Give the loop time to go back to sleep first.
+                                            try
+                                            {
+                                                Thread.sleep(500);
+                                            }
+                                            catch (InterruptedException ex)
+                                            {
+                                            }
+
+                                            sentTime[0] = System.currentTimeMillis();
+
+                                            for (int i = 0; i < count; i++)
+                                            {
+                                                e.characteristic().setValue(new byte[] { (byte) i });
+                                                m_device.m_listeners.onCharacteristicChanged(null, e.characteristic());
+                                            }
+                                        }
+                                    }).start();
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
 }
@@ -12,6 +12,7 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import java.util.Random;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -21,9 +22,63 @@ public class PollingTest extends BaseBleUnitTest
 {
 
     private GattDatabase db = new GattDatabase().addService(Uuids.BATTERY_SERVICE_UUID)
-            .addCharacteristic(Uuids.BATTERY_LEVEL).setValue(new byte[] { 100 }).setPermissions().read().setProperties().read().completeService();
+            .addCharacteristic(Uuids.BATTERY_LEVEL).setValue(new byte[] { 100 }).setPermissions().read().setProperties().read().completeService()
+            .addService(Uuids.DEVICE_INFORMATION_SERVICE_UUID)
+            .addCharacteristic(Uuids.MANUFACTURER_NAME).setValue(new byte[] { 0x1 }).setPermissions().read().setProperties().read().completeService();
+
+    private int m_coalescedReads;
+    private int m_uncoalescedReads;
 
 
+    @Test(timeout = 30000)
+    public void rssiAdaptivePollTest() throws Exception
+    {
+        startTest(false);
+        m_config.rssiAdaptivePolling = true;
+        m_config.rssiAdaptivePollRate_fastest = Interval.secs(1.0);
+        m_config.rssiAdaptivePollRate_slowest = Interval.secs(8.0);
+        m_mgr.setConfig(m_config);
+
+        final BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Rssi Adaptive Poll Tester");
+        final P_RssiPollManager pollManager = new P_RssiPollManager(device);
+
+        // Nothing has been timed yet, so the time until the next poll is the current interval, which starts at the poll's own rate.
+        pollManager.start(2.0, null);
+        assertEquals(2.0, pollManager.getTimeUntilNextUpdate(), 0.0);
+
+        // A steady signal backs off a step at a time, up to the slowest rate.
+        pollManager.adapt(-60);
+        assertEquals(3.0, pollManager.getTimeUntilNextUpdate(), 0.0001);
+        pollManager.adapt(-60);
+        assertEquals(4.5, pollManager.getTimeUntilNextUpdate(), 0.0001);
+        for (int i = 0; i < 10; i++)
+        {
+            pollManager.adapt(-60);
+        }
+        assertEquals(8.0, pollManager.getTimeUntilNextUpdate(), 0.0);
+
+        // A jump snaps straight back to the fastest rate.
+        pollManager.adapt(-40);
+        assertEquals(1.0, pollManager.getTimeUntilNextUpdate(), 0.0);
+
+        // And noise keeps it there.
+        for (int i = 0; i < 10; i++)
+        {
+            pollManager.adapt(i % 2 == 0 ? -75 : -45);
+            assertEquals(1.0, pollManager.getTimeUntilNextUpdate(), 0.0);
+        }
+
+        // Once the signal settles down again, it backs off again.
+        for (int i = 0; i < 50; i++)
+        {
+            pollManager.adapt(-60);
+        }
+        assertEquals(8.0, pollManager.getTimeUntilNextUpdate(), 0.0);
+
+        pollManager.stop();
+        succeed();
+    }
+
     @Test(timeout = 30000)
     public void rssiPollTest() throws Exception
     {
@@ -86,6 +141,91 @@ public class PollingTest extends BaseBleUnitTest
         startTest();
     }
 
+    @Test(timeout = 30000)
+    public void parkedPollTest() throws Exception
+    {
+        final BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Parked Poll Tester");
+        doTestOperation(new TestOp()
+        {
+            @Override public void run()
+            {
+                // Not connected, so the poll should come due once, get parked, and stay off the wheel.
+                device.startPoll(Uuids.BATTERY_LEVEL, Interval.millis(100), new BleDevice.ReadWriteListener()
+                {
+                    @Override
+                    public void onEvent(ReadWriteEvent e)
+                    {
+                        assertTrue(e.wasSuccess());
+                        succeed();
+                    }
+                });
+                try
+                {
+                    Thread.sleep(500);
+                } catch (Exception e)
+                {
+                }
+                assertEquals(0, m_mgr.m_pollWheel.getCount());
+
+                // Getting initialized should put it back on the wheel, and the read should go out.
+                device.connect();
+            }
+        });
+    }
+
+    @Test(timeout = 30000)
+    public void coalescedPollTest() throws Exception
+    {
+        final BleDevice device = m_mgr.newDevice(Util.randomMacAddress(), "Coalesced Poll Tester");
+        final Pointer<Integer> batteryCounter = new Pointer<>(0);
+        final Pointer<Integer> nameCounter = new Pointer<>(0);
+        device.connect(new BleDevice.StateListener()
+        {
+            @Override
+            public void onEvent(StateEvent e)
+            {
+                if (e.didEnter(BleDeviceState.INITIALIZED))
+                {
+                    m_coalescedReads = 0;
+                    m_uncoalescedReads = 0;
+
+                    // Same device, same interval, started on the same tick, so every round should go out as one task.
+                    device.startPoll(Uuids.BATTERY_LEVEL, Interval.millis(500), new BleDevice.ReadWriteListener()
+                    {
+                        @Override
+                        public void onEvent(ReadWriteEvent e)
+                        {
+                            assertTrue(e.wasSuccess() && e.type() == Type.POLL);
+                            batteryCounter.value++;
+                            checkDone(batteryCounter.value, nameCounter.value);
+                        }
+                    });
+                    device.startPoll(Uuids.MANUFACTURER_NAME, Interval.millis(500), new BleDevice.ReadWriteListener()
+                    {
+                        @Override
+                        public void onEvent(ReadWriteEvent e)
+                        {
+                            assertTrue(e.wasSuccess() && e.type() == Type.POLL);
+                            nameCounter.value++;
+                            checkDone(batteryCounter.value, nameCounter.value);
+                        }
+                    });
+                }
+            }
+        });
+        startTest();
+    }
+
+    private void checkDone(int batteryCount, int nameCount)
+    {
+        if (batteryCount >= 3 && nameCount >= 3)
+        {
+            assertTrue(m_uncoalescedReads == 0);
+            assertTrue(m_coalescedReads >= 6);
+            succeed();
+        }
+    }
+
     @Override
     public P_GattLayer getGattLayer(BleDevice device)
     {
@@ -100,6 +240,20 @@ public class PollingTest extends BaseBleUnitTest
             super(device, db);
         }
 
+        @Override
+        public boolean readCharacteristic(BluetoothGattCharacteristic characteristic)
+        {
+            if (getBleDevice().getManager().getTaskQueue().getCurrent() instanceof P_Task_ReadMany)
+            {
+                m_coalescedReads++;
+            }
+            else
+            {
+                m_uncoalescedReads++;
+            }
+            return super.readCharacteristic(characteristic);
+        }
+
         @Override
         public void sendReadResponse(BluetoothGattCharacteristic characteristic, byte[] data)
         {
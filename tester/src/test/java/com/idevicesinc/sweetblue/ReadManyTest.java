@@ -0,0 +1,163 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Util;
+import com.idevicesinc.sweetblue.utils.Uuids;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class ReadManyTest extends BaseBleUnitTest
+{
+
+    private final static UUID mTestService = Uuids.fromShort("ABCD");
+    private final static UUID mFirstChar = Uuids.fromShort("1111");
+    private final static UUID mSecondChar = Uuids.fromShort("2222");
+    private final static UUID mDuplicateChar = Uuids.fromShort("3333");
+    private final static UUID mMissingChar = Uuids.fromShort("4444");
+    private final static UUID mTestDesc = Uuids.CHARACTERISTIC_PRESENTATION_FORMAT_DESCRIPTOR_UUID;
+
+    private BleDevice m_device;
+    private int m_defaultListenerCount;
+
+    private GattDatabase db = new GattDatabase().addService(mTestService)
+            .addCharacteristic(mFirstChar).setValue(new byte[] { 0x1 }).setProperties().read().setPermissions().read().completeChar()
+            .addCharacteristic(mSecondChar).setValue(new byte[] { 0x2, 0x2 }).setProperties().read().setPermissions().read().completeChar()
+            .addCharacteristic(mDuplicateChar).setValue(new byte[] { 0x3 }).setProperties().read().setPermissions().read().build()
+            .addDescriptor(mTestDesc).setValue(new byte[] { 0x1 }).setPermissions().read().completeChar()
+            .addCharacteristic(mDuplicateChar).setValue(new byte[] { 0x3, 0x3, 0x3 }).setProperties().read().setPermissions().read().build()
+            .addDescriptor(mTestDesc).setValue(new byte[] { 0x2 }).setPermissions().read().completeService();
+
+
+    @Test(timeout = 20000)
+    public void readManyTest() throws Exception
+    {
+        m_device = null;
+        m_defaultListenerCount = 0;
+
+        final DescriptorFilter filter = new DescriptorFilter()
+        {
+            @Override public Please onEvent(DescriptorEvent event)
+            {
+                return Please.acceptIf(event.value()[0] == 0x2);
+            }
+
+            @Override public UUID descriptorUuid()
+            {
+                return mTestDesc;
+            }
+        };
+
+        final List<ReadTarget> targets = new ArrayList<>();
+        targets.add(new ReadTarget(mFirstChar));
+        targets.add(new ReadTarget(mMissingChar));
+        targets.add(new ReadTarget(mTestService, mSecondChar));
+        targets.add(new ReadTarget(mTestService, mDuplicateChar, filter));
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                m_device.setListener_ReadWrite(new BleDevice.ReadWriteListener()
+                                {
+                                    @Override public void onEvent(ReadWriteEvent e)
+                                    {
+                                        m_defaultListenerCount++;
+                                    }
+                                });
+
+                                m_device.readMany(targets, new ReadManyListener()
+                                {
+                                    @Override public void onEvent(ReadManyEvent e)
+                                    {
+                                        assertTrue(e.size() == 4);
+                                        assertTrue(e.successCount() == 3 && !e.wasSuccess());
+
+                                        assertTrue(e.result(0).wasSuccess() && Arrays.equals(e.result(0).data(), new byte[] { 0x1 }));
+                                        assertTrue(e.result(1).status() == BleDevice.ReadWriteListener.Status.NO_MATCHING_TARGET);
+                                        assertTrue(e.result(2).wasSuccess() && Arrays.equals(e.result(2).data(), new byte[] { 0x2, 0x2 }));
+                                        assertTrue(e.result(3).wasSuccess() && Arrays.equals(e.result(3).data(), new byte[] { 0x3, 0x3, 0x3 }));
+
+                                        // Every target's result also goes out to the default listener, same as single reads.
+                                        assertTrue(m_defaultListenerCount == 4);
+                                        succeed();
+                                    }
+                                });
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void readManyNotConnectedTest() throws Exception
+    {
+        m_device = null;
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.readMany(Arrays.asList(new ReadTarget(mFirstChar), new ReadTarget(mSecondChar)), new ReadManyListener()
+                    {
+                        @Override public void onEvent(ReadManyEvent e)
+                        {
+                            assertTrue(e.size() == 2 && e.successCount() == 0);
+                            assertTrue(e.result(0).status() == BleDevice.ReadWriteListener.Status.NOT_CONNECTED);
+                            assertTrue(e.result(1).status() == BleDevice.ReadWriteListener.Status.NOT_CONNECTED);
+                            succeed();
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+
+        startTest();
+    }
+
+    @Override public BleManagerConfig getConfig()
+    {
+        BleManagerConfig config = super.getConfig();
+        config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, db);
+            }
+        };
+        config.loggingEnabled = true;
+        return config;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.utils.RssiSmoother;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class RssiSmootherTest extends BaseTest
+{
+
+    @Test
+    public void steadySignalTest() throws Exception
+    {
+        startTest(false);
+        RssiSmoother smoother = new RssiSmoother();
+        for (int i = 0; i < 20; i++)
+        {
+            smoother.add(-60);
+        }
+        assertEquals(-60, smoother.getRssi(), 0);
+        assertEquals(0, smoother.getDeviation(), 0);
+        assertEquals(20, smoother.getCount());
+        succeed();
+    }
+
+    @Test
+    public void jitterStaysSmallTest() throws Exception
+    {
+        startTest(false);
+        RssiSmoother smoother = new RssiSmoother();
+        for (int i = 0; i < 50; i++)
+        {
+            smoother.add(i % 2 == 0 ? -58 : -62);
+        }
+        assertEquals(-60, smoother.getRssi(), 1);
+        assertTrue(smoother.getDeviation() < BleDeviceConfig.DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD);
+        succeed();
+    }
+
+    @Test
+    public void jumpRaisesDeviationTest() throws Exception
+    {
+        startTest(false);
+        RssiSmoother smoother = new RssiSmoother();
+        for (int i = 0; i < 20; i++)
+        {
+            smoother.add(-80);
+        }
+        smoother.add(-50);
+        assertTrue(smoother.getDeviation() > BleDeviceConfig.DEFAULT_RSSI_ADAPTIVE_POLL_THRESHOLD);
+        assertTrue(smoother.getRssi() > -80 && smoother.getRssi() < -50);
+
+        smoother.reset();
+        assertEquals(0, smoother.getCount());
+        succeed();
+    }
+}
@@ -0,0 +1,94 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_SQLite;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class SQLiteHistoricalDatabaseTest extends BaseTest
+{
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+    private static final UUID CHAR_UUID = Uuids.fromShort("1234");
+
+    private Backend_HistoricalDatabase_SQLite m_database;
+
+
+    @Before
+    public void setup()
+    {
+        m_database = new Backend_HistoricalDatabase_SQLite(RuntimeEnvironment.application, 4, Long.MAX_VALUE);
+        m_database.init(null);
+    }
+
+    @Test
+    public void batchedInsertTest() throws Exception
+    {
+        startTest(false);
+        assertFalse(m_database.doesDataExist(MAC, CHAR_UUID));
+
+        for (int i = 0; i < 10; i++)
+        {
+            m_database.add_single(MAC, CHAR_UUID, new HistoricalData(new byte[] { (byte) i }, 1000 + i), 0);
+        }
+
+        // Two batches of 4 are committed, the last 2 are still held back but reads should see them.
+        assertTrue(m_database.doesDataExist(MAC, CHAR_UUID));
+        assertEquals(10, m_database.getCount(MAC, CHAR_UUID, EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(3, m_database.getCount(MAC, CHAR_UUID, new EpochTimeRange(1002, 1004)));
+
+        HistoricalDataCursor cursor = m_database.getCursor(MAC, CHAR_UUID, new EpochTimeRange(1005, 1009));
+        assertEquals(5, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals(1005, cursor.getEpochTime());
+        assertEquals(5, cursor.getBlob()[0]);
+        cursor.close();
+        succeed();
+    }
+
+    @Test
+    public void deleteTest() throws Exception
+    {
+        startTest(false);
+        for (int i = 0; i < 6; i++)
+        {
+            m_database.add_single(MAC, CHAR_UUID, new HistoricalData(new byte[] { (byte) i }, 3000 + i), 0);
+        }
+
+        m_database.delete_singleUuid_inRange(MAC, CHAR_UUID, EpochTimeRange.FROM_MIN_TO_MAX, 2);
+        assertEquals(4, m_database.getCount(MAC, CHAR_UUID, EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(0, m_database.getCount(MAC, CHAR_UUID, new EpochTimeRange(3000, 3001)));
+
+        m_database.delete_singleUuid_singleDate(MAC, CHAR_UUID, 3004);
+        assertEquals(3, m_database.getCount(MAC, CHAR_UUID, EpochTimeRange.FROM_MIN_TO_MAX));
+
+        m_database.delete_singleUuid_all(MAC, CHAR_UUID);
+        assertFalse(m_database.doesDataExist(MAC, CHAR_UUID));
+        succeed();
+    }
+
+    @After
+    public void tearDown()
+    {
+        m_database.delete_singleUuid_all(MAC, CHAR_UUID);
+        m_database.close();
+    }
+}
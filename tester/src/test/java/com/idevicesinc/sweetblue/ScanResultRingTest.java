@@ -0,0 +1,157 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothDevice;
+import com.idevicesinc.sweetblue.utils.Util;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class ScanResultRingTest extends BaseBleUnitTest
+{
+
+    @Test(timeout = 10000)
+    public void coalesceTest() throws Exception
+    {
+        startTest(false);
+        final P_ScanResultRing ring = new P_ScanResultRing(16);
+        final BluetoothDevice chatty = newNativeDevice(Util.randomMacAddress());
+        final BluetoothDevice quiet = newNativeDevice(Util.randomMacAddress());
+
+        for (int i = 0; i < 100; i++)
+        {
+            ring.offer(chatty, -100 + i, new byte[] { (byte) i }, BleScanOverflowPolicy.DROP_NEWEST);
+        }
+        ring.offer(quiet, -50, new byte[0], BleScanOverflowPolicy.DROP_NEWEST);
+
+        assertTrue(ring.size() == 2);
+        assertTrue(ring.getReceivedCount() == 101);
+        assertTrue(ring.getCoalescedCount() == 99);
+        assertTrue(ring.getDroppedCount() == 0);
+
+        final P_ScanResultRing.Result result = new P_ScanResultRing.Result();
+
+        // The chatty device keeps its place in line, but with the latest data
+        assertTrue(ring.poll(result));
+        assertTrue(result.m_device == chatty);
+        assertTrue(result.m_rssi == -1);
+        assertTrue(result.m_record[0] == 99);
+
+        assertTrue(ring.poll(result));
+        assertTrue(result.m_device == quiet);
+        assertTrue(!ring.poll(result));
+
+        // Once consumed, a new result takes a new slot
+        ring.offer(chatty, -40, new byte[0], BleScanOverflowPolicy.DROP_NEWEST);
+        assertTrue(ring.size() == 1);
+        assertTrue(ring.getCoalescedCount() == 99);
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void dropNewestTest() throws Exception
+    {
+        startTest(false);
+        final P_ScanResultRing ring = new P_ScanResultRing(4);
+
+        for (int i = 0; i < 6; i++)
+        {
+            ring.offer(null, i, null, BleScanOverflowPolicy.DROP_NEWEST);
+        }
+
+        assertTrue(ring.size() == 4);
+        assertTrue(ring.getDroppedCount() == 2);
+
+        final P_ScanResultRing.Result result = new P_ScanResultRing.Result();
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(ring.poll(result));
+            assertTrue(result.m_rssi == i);
+        }
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void dropOldestTest() throws Exception
+    {
+        startTest(false);
+        final P_ScanResultRing ring = new P_ScanResultRing(4);
+
+        for (int i = 0; i < 5; i++)
+        {
+            ring.offer(null, i, null, BleScanOverflowPolicy.DROP_OLDEST);
+        }
+
+        assertTrue(ring.size() == 4);
+        assertTrue(ring.getDroppedCount() == 1);
+
+        final P_ScanResultRing.Result result = new P_ScanResultRing.Result();
+        boolean sawNewest = false;
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(ring.poll(result));
+            assertTrue(result.m_rssi != 0);
+            sawNewest |= result.m_rssi == 4;
+        }
+        assertTrue(sawNewest);
+        succeed();
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentProducerTest() throws Exception
+    {
+        startTest(false);
+        final P_ScanResultRing ring = new P_ScanResultRing(64);
+        final int macCount = 200;
+        final BluetoothDevice[] devices = new BluetoothDevice[macCount];
+        for (int i = 0; i < macCount; i++)
+        {
+            devices[i] = newNativeDevice(Util.randomMacAddress());
+        }
+
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        final Thread producer = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                for (int i = 0; i < 200000; i++)
+                {
+                    ring.offer(devices[i % macCount], -(i % 100), null, BleScanOverflowPolicy.DROP_OLDEST);
+                }
+                producing.set(false);
+            }
+        });
+        producer.start();
+
+        final P_ScanResultRing.Result result = new P_ScanResultRing.Result();
+        long consumed = 0;
+        while (producing.get() || ring.size() > 0)
+        {
+            while (ring.poll(result))
+            {
+                assertTrue(result.m_device != null);
+                consumed++;
+            }
+        }
+        producer.join();
+
+        final String counts = "Received " + ring.getReceivedCount() + " results, consumed " + consumed + ", coalesced " + ring.getCoalescedCount() + ", dropped " + ring.getDroppedCount();
+
+        assertTrue(counts, ring.getReceivedCount() == 200000);
+        assertTrue(counts, consumed + ring.getCoalescedCount() + ring.getDroppedCount() == ring.getReceivedCount());
+        succeed();
+    }
+
+    private static BluetoothDevice newNativeDevice(String macAddress)
+    {
+        return ReflectionHelpers.callConstructor(BluetoothDevice.class, ReflectionHelpers.ClassParameter.from(String.class, macAddress));
+    }
+
+}
@@ -6,6 +6,7 @@ import com.idevicesinc.sweetblue.utils.Pointer;
 import com.idevicesinc.sweetblue.utils.Util;
 import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
@@ -23,6 +24,56 @@ public class ScanTest extends BaseBleUnitTest
 
     private static final int LEEWAY = 500;
 
+    @Test(timeout = 10000)
+    public void scanProcessingBudgetTest() throws Exception
+    {
+        startTest(false);
+        m_config.scanProcessingBudget = Interval.millis(1);
+        m_mgr.setConfig(m_config);
+
+        final P_ScanManager scanManager = m_mgr.getScanManager();
+        final int backlog = 1000;
+
+        // Nothing measured yet, so only the minimum goes through.
+        assertEquals(5, scanManager.getMaxEntriesToProcess(backlog));
+
+        // 10us an entry fits 100 in a 1ms budget.
+        scanManager.onEntriesProcessed(5, 5 * 10000);
+        int maxEntries = scanManager.getMaxEntriesToProcess(backlog);
+        assertTrue("Max entries: " + maxEntries, maxEntries >= 99 && maxEntries <= 100);
+
+        // Entries getting slower should shrink the budget toward 10 an update.
+        for (int i = 0; i < 100; i++)
+        {
+            scanManager.onEntriesProcessed(10, 10 * 100000);
+        }
+        maxEntries = scanManager.getMaxEntriesToProcess(backlog);
+        assertTrue("Max entries: " + maxEntries, maxEntries >= 9 && maxEntries <= 11);
+
+        // ...but never below the minimum.
+        for (int i = 0; i < 100; i++)
+        {
+            scanManager.onEntriesProcessed(5, 5 * 1000000);
+        }
+        assertEquals(5, scanManager.getMaxEntriesToProcess(backlog));
+
+        // And getting faster again should grow it back.
+        for (int i = 0; i < 100; i++)
+        {
+            scanManager.onEntriesProcessed(5, 5 * 2000);
+        }
+        maxEntries = scanManager.getMaxEntriesToProcess(backlog);
+        assertTrue("Max entries: " + maxEntries, maxEntries >= 490 && maxEntries <= 510);
+
+        // A bigger budget affords proportionally more, and never more than is waiting.
+        m_config.scanProcessingBudget = Interval.millis(2);
+        m_mgr.setConfig(m_config);
+        maxEntries = scanManager.getMaxEntriesToProcess(backlog);
+        assertTrue("Max entries: " + maxEntries, maxEntries >= 980);
+        assertEquals(50, scanManager.getMaxEntriesToProcess(50));
+        succeed();
+    }
+
     @Test(timeout = 10000)
     public void scanApiClassicTest() throws Exception
     {
@@ -0,0 +1,265 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.idevicesinc.sweetblue.utils.ByteBuffer;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.PresentData;
+import com.idevicesinc.sweetblue.utils.StreamingData;
+import com.idevicesinc.sweetblue.utils.Util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class StreamWriteTest extends BaseBleUnitTest
+{
+
+    private final static UUID tempServiceUuid = UUID.fromString("1234666a-1000-2000-8000-001199334455");
+    private final static UUID tempUuid = UUID.fromString("1234666b-1000-2000-8000-001199334455");
+
+
+    private BleDevice m_device;
+
+    private GattDatabase db = new GattDatabase().addService(tempServiceUuid)
+            .addCharacteristic(tempUuid).setProperties().write().write_no_response().setPermissions().write().completeService();
+
+    private ByteBuffer m_buffer;
+    private int m_writeCount;
+    private int m_failAtWrite = -1;
+
+
+    @Test(timeout = 20000)
+    public void streamWriteTest() throws Exception
+    {
+        final byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.writeStream(tempUuid, data, new StreamWriteListener()
+                {
+                    @Override public void onEvent(StreamWriteEvent e)
+                    {
+                        assertTrue(e.wasSuccess());
+                        assertTrue(e.offset() == data.length && e.length() == data.length);
+                        assertTrue(e.chunkCount() == (data.length + m_device.getEffectiveWriteMtuSize() - 1) / m_device.getEffectiveWriteMtuSize());
+                        assertArrayEquals(data, m_buffer.bytesAndClear());
+                        succeed();
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void streamingDataTest() throws Exception
+    {
+        final byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+
+        // Length isn't known up front, so the task has to find the end by reading.
+        final StreamingData source = StreamingData.fromInputStream(new ByteArrayInputStream(data), StreamingData.UNKNOWN_LENGTH);
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.writeStream(tempServiceUuid, tempUuid, source, 0, new StreamWriteListener()
+                {
+                    @Override public void onEvent(StreamWriteEvent e)
+                    {
+                        assertTrue(e.wasSuccess());
+                        assertTrue(e.offset() == data.length && e.length() == data.length);
+                        assertArrayEquals(data, m_buffer.bytesAndClear());
+                        succeed();
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void resumeFromOffsetTest() throws Exception
+    {
+        final byte[] data = new byte[500];
+        new Random().nextBytes(data);
+
+        m_failAtWrite = 5;
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.writeStream(tempUuid, data, new StreamWriteListener()
+                {
+                    @Override public void onEvent(StreamWriteEvent e)
+                    {
+                        assertTrue(e.status() == BleDevice.ReadWriteListener.Status.REMOTE_GATT_FAILURE);
+                        assertTrue(e.offset() == m_failAtWrite * m_device.getEffectiveWriteMtuSize());
+
+                        m_device.writeStream(null, tempUuid, new PresentData(data), e.offset(), new StreamWriteListener()
+                        {
+                            @Override public void onEvent(StreamWriteEvent e)
+                            {
+                                assertTrue(e.wasSuccess());
+                                assertTrue(e.offset() == data.length);
+                                // Only the chunks that were acknowledged end up in the buffer, so the two streams together should be the whole thing.
+                                assertArrayEquals(data, m_buffer.bytesAndClear());
+                                succeed();
+                            }
+                        });
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void offsetPastEndTest() throws Exception
+    {
+        final byte[] data = new byte[100];
+        new Random().nextBytes(data);
+
+        // Length isn't known up front, so the task only finds out the offset is past the end when skipping to it.
+        final StreamingData source = StreamingData.fromInputStream(new ByteArrayInputStream(data), StreamingData.UNKNOWN_LENGTH);
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.writeStream(tempServiceUuid, tempUuid, source, 200, new StreamWriteListener()
+                {
+                    @Override public void onEvent(StreamWriteEvent e)
+                    {
+                        assertTrue(e.status() == BleDevice.ReadWriteListener.Status.INVALID_DATA);
+                        assertTrue(m_buffer.bytesAndClear().length == 0);
+                        succeed();
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 60000)
+    public void throughputBenchmarkTest() throws Exception
+    {
+        final byte[] data = new byte[2000];
+        new Random().nextBytes(data);
+
+        final double[] chunkedBytesPerSecond = new double[1];
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                // The old way, one queued task per chunk.
+                final long start = System.currentTimeMillis();
+                final BluetoothGattCharacteristic characteristic = m_device.getNativeCharacteristic(tempUuid);
+                m_device.performTransaction(new P_StripedWriteTransaction(new PresentData(data), characteristic, false, null, BleDevice.ReadWriteListener.Type.WRITE_NO_RESPONSE, new BleDevice.ReadWriteListener()
+                {
+                    @Override public void onEvent(ReadWriteEvent e)
+                    {
+                        assertTrue(e.wasSuccess());
+                        assertArrayEquals(data, m_buffer.bytesAndClear());
+                        chunkedBytesPerSecond[0] = data.length / Interval.delta(start, System.currentTimeMillis()).secs();
+
+                        m_device.writeStream(tempUuid, data, new StreamWriteListener()
+                        {
+                            @Override public void onEvent(StreamWriteEvent e)
+                            {
+                                assertTrue(e.wasSuccess());
+                                assertArrayEquals(data, m_buffer.bytesAndClear());
+                                assertTrue(e.bytesPerSecond() > chunkedBytesPerSecond[0]);
+                                succeed();
+                            }
+                        });
+                    }
+                }));
+            }
+        });
+
+        startTest();
+    }
+
+    private void connectThen(final Runnable action)
+    {
+        m_buffer = new ByteBuffer();
+        m_writeCount = 0;
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                action.run();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+    }
+
+    @Override public P_GattLayer getGattLayer(BleDevice device)
+    {
+        return new StreamGatt(device);
+    }
+
+    private final class StreamGatt extends UnitTestGatt
+    {
+
+        public StreamGatt(BleDevice device)
+        {
+            super(device, db);
+            setDelayTime(Interval.millis(1));
+        }
+
+        @Override
+        public boolean writeCharacteristic(BluetoothGattCharacteristic characteristic)
+        {
+            if (m_writeCount++ == m_failAtWrite)
+            {
+                NativeUtil.writeError(getBleDevice(), characteristic, BleStatuses.GATT_ERROR, getDelayTime());
+            }
+            else
+            {
+                m_buffer.append(characteristic.getValue());
+                sendWriteResponse(characteristic);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.idevicesinc.sweetblue;
+
+
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.assertTrue;
+
+
+public class SweetBlueThreadTest extends BaseTest
+{
+
+    private static final int LATENCY_SAMPLES = 200;
+
+
+    @Test(timeout = 10000)
+    public void postLatencyTest() throws Exception
+    {
+        startTest(false);
+        final P_SweetBlueThread thread = new P_SweetBlueThread();
+        final Semaphore ran = new Semaphore(0);
+        final AtomicLong totalLatency = new AtomicLong();
+
+        for (int i = 0; i < LATENCY_SAMPLES; i++)
+        {
+            final long posted = System.nanoTime();
+            thread.post(new Runnable()
+            {
+                @Override public void run()
+                {
+                    totalLatency.addAndGet(System.nanoTime() - posted);
+                    ran.release();
+                }
+            });
+            ran.acquire();
+        }
+        thread.quit();
+
+        final double averageMs = totalLatency.get() / (double) LATENCY_SAMPLES / 1000000.0;
+        // The old sleep-and-scan loop averaged over 5ms here, as each post waited out a full sleep.
+        assertTrue("Average post-to-run latency: " + averageMs + "ms", averageMs < 2.0);
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void postDelayedOrderTest() throws Exception
+    {
+        startTest(false);
+        final P_SweetBlueThread thread = new P_SweetBlueThread();
+        final ArrayList<Integer> order = new ArrayList<>();
+        final Semaphore done = new Semaphore(0);
+
+        final long start = System.currentTimeMillis();
+        thread.postDelayed(new Runnable()
+        {
+            @Override public void run()
+            {
+                assertTrue(System.currentTimeMillis() - start >= 100);
+                order.add(3);
+                done.release();
+            }
+        }, 100);
+        thread.postDelayed(new Runnable()
+        {
+            @Override public void run()
+            {
+                order.add(2);
+            }
+        }, 50);
+        thread.post(new Runnable()
+        {
+            @Override public void run()
+            {
+                order.add(0);
+            }
+        });
+        thread.post(new Runnable()
+        {
+            @Override public void run()
+            {
+                order.add(1);
+            }
+        });
+
+        done.acquire();
+        thread.quit();
+
+        assertTrue(order.size() == 4);
+        for (int i = 0; i < order.size(); i++)
+        {
+            assertTrue(order.get(i) == i);
+        }
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void removeCallbacksTest() throws Exception
+    {
+        startTest(false);
+        final P_SweetBlueThread thread = new P_SweetBlueThread();
+        final AtomicInteger runCount = new AtomicInteger();
+        final Semaphore done = new Semaphore(0);
+
+        final Runnable removed = new Runnable()
+        {
+            @Override public void run()
+            {
+                runCount.incrementAndGet();
+            }
+        };
+
+        for (int i = 0; i < 100; i++)
+        {
+            thread.postDelayed(removed, 50);
+        }
+        thread.removeCallbacks(removed);
+        thread.postDelayed(new Runnable()
+        {
+            @Override public void run()
+            {
+                done.release();
+            }
+        }, 100);
+
+        done.acquire();
+        thread.quit();
+
+        assertTrue(runCount.get() == 0);
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void idleWakeupsTest() throws Exception
+    {
+        startTest(false);
+        final P_SweetBlueThread thread = new P_SweetBlueThread();
+
+        final long wakeupsBefore = thread.getWakeupCount();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+        final long wakeups = thread.getWakeupCount() - wakeupsBefore;
+        thread.quit();
+
+        // The old loop woke up every 5ms, so ~200 times a second.
+        assertTrue("Wakeups while idle for one second: " + wakeups, wakeups <= 1);
+        succeed();
+    }
+
+}
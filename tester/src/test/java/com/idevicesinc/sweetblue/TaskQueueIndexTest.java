@@ -0,0 +1,161 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class TaskQueueIndexTest extends BaseBleUnitTest
+{
+
+    @Test(timeout = 60000)
+    public void sameOrderingAsLinearInsertTest() throws Exception
+    {
+        doInsertTest(1000);
+        doInsertTest(10000);
+    }
+
+    @Test(timeout = 60000)
+    public void containsTest() throws Exception
+    {
+        final BleDevice device = m_mgr.newDevice(Util.randomMacAddress());
+        final BleDevice otherDevice = m_mgr.newDevice(Util.randomMacAddress());
+        final P_TaskQueueIndex index = new P_TaskQueueIndex();
+
+        final PA_Task deviceTask = new DummyTask(device, PE_TaskPriority.LOW);
+        final PA_Task managerTask = new DummyManagerTask(m_mgr, PE_TaskPriority.TRIVIAL);
+
+        index.onAdded(deviceTask);
+        index.onAdded(managerTask);
+
+        assertTrue(index.contains(DummyTask.class, null, device, null));
+        assertTrue(index.contains(PA_Task.class, null, device, null));
+        assertTrue(!index.contains(DummyTask.class, null, otherDevice, null));
+        assertTrue(index.contains(DummyManagerTask.class, m_mgr, null, null));
+        assertTrue(!index.contains(P_Task_Scan.class, m_mgr, null, null));
+
+        index.onRemoved(deviceTask);
+
+        assertTrue(!index.contains(DummyTask.class, null, device, null));
+        assertTrue(index.getCount(PE_TaskPriority.LOW) == 0);
+        assertTrue(index.getCount(PE_TaskPriority.TRIVIAL) == 1);
+    }
+
+    private void doInsertTest(int taskCount)
+    {
+        final Random random = new Random(taskCount);
+        final PE_TaskPriority[] priorities = PE_TaskPriority.values();
+
+        final ArrayList<PA_Task> tasks = new ArrayList<>(taskCount);
+
+        for (int i = 0; i < taskCount; i++)
+        {
+            // Mostly normal reads/writes, which is the common case in a busy queue
+            final PE_TaskPriority priority = random.nextInt(10) == 0 ? priorities[random.nextInt(priorities.length)] : PE_TaskPriority.FOR_NORMAL_READS_WRITES;
+            tasks.add(new DummyManagerTask(m_mgr, priority));
+        }
+
+        final ArrayList<PA_Task> linearQueue = new ArrayList<>(taskCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            insert(linearQueue, null, tasks.get(i));
+        }
+        final long linearTime = System.nanoTime() - start;
+
+        final ArrayList<PA_Task> indexedQueue = new ArrayList<>(taskCount);
+        final P_TaskQueueIndex index = new P_TaskQueueIndex();
+        start = System.nanoTime();
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            insert(indexedQueue, index, tasks.get(i));
+        }
+        final long indexedTime = System.nanoTime() - start;
+
+        assertTrue(linearQueue.equals(indexedQueue));
+
+        // Big enough that scanning the whole queue on every insert should clearly lose, even with the index's own bookkeeping.
+        if (taskCount >= 10000)
+        {
+            assertTrue(taskCount + " tasks: linear insert took " + (linearTime / 1000000.0) + "ms, indexed insert took " + (indexedTime / 1000000.0) + "ms.", indexedTime < linearTime);
+        }
+    }
+
+    private static void insert(ArrayList<PA_Task> queue, P_TaskQueueIndex index, PA_Task task)
+    {
+        final int spot = PU_TaskQueue.findSoonestSpot(queue, index, task);
+        if (spot >= 0)
+        {
+            queue.add(spot, task);
+        }
+        else
+        {
+            queue.add(task);
+        }
+        if (index != null)
+        {
+            index.onAdded(task);
+        }
+    }
+
+
+    private static class DummyTask extends PA_Task
+    {
+        private final PE_TaskPriority m_priority;
+
+        DummyTask(BleDevice device, PE_TaskPriority priority)
+        {
+            super(device, null);
+            m_priority = priority;
+        }
+
+        @Override protected BleTask getTaskType()
+        {
+            return BleTask.READ;
+        }
+
+        @Override void execute()
+        {
+        }
+
+        @Override public PE_TaskPriority getPriority()
+        {
+            return m_priority;
+        }
+    }
+
+    private static class DummyManagerTask extends PA_Task
+    {
+        private final PE_TaskPriority m_priority;
+
+        DummyManagerTask(BleManager manager, PE_TaskPriority priority)
+        {
+            super(manager, null);
+            m_priority = priority;
+        }
+
+        @Override protected BleTask getTaskType()
+        {
+            return BleTask.READ;
+        }
+
+        @Override void execute()
+        {
+        }
+
+        @Override public PE_TaskPriority getPriority()
+        {
+            return m_priority;
+        }
+    }
+
+}
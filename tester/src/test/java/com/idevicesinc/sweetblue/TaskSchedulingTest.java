@@ -0,0 +1,116 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.UUID;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class TaskSchedulingTest extends BaseBleUnitTest
+{
+
+    private final static UUID m_ReadService = UUID.randomUUID();
+    private final static UUID m_ReadChar = UUID.randomUUID();
+
+    private static final int BUSY_DEVICE_READS = 5;
+
+
+    private GattDatabase db = new GattDatabase().addService(m_ReadService)
+            .addCharacteristic(m_ReadChar).setValue(new byte[] { 0x1, 0x2 }).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test(timeout = 20000)
+    public void roundRobinTest() throws Exception
+    {
+        m_config.taskScheduling = BleTaskScheduling.ROUND_ROBIN;
+        m_mgr.setConfig(m_config);
+
+        final ArrayList<BleDevice> initialized = new ArrayList<>();
+        final ArrayList<BleDevice> readOrder = new ArrayList<>();
+
+        final ReadWriteListener readListener = new ReadWriteListener()
+        {
+            @Override public void onEvent(ReadWriteEvent e)
+            {
+                assertTrue(e.wasSuccess());
+
+                readOrder.add(e.device());
+
+                if (readOrder.size() == BUSY_DEVICE_READS + 1)
+                {
+                    final BleDevice quietDevice = initialized.get(1);
+
+                    // The quiet device's only read should have been slotted in right after the busy device's
+                    // first read, rather than waiting for all of the busy device's reads to finish.
+                    assertTrue(readOrder.indexOf(quietDevice) <= 1);
+                    succeed();
+                }
+            }
+        };
+
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    e.device().connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                initialized.add(e.device());
+
+                                if (initialized.size() == 2)
+                                {
+                                    final BleDevice busyDevice = initialized.get(0);
+                                    final BleDevice quietDevice = initialized.get(1);
+
+                                    for (int i = 0; i < BUSY_DEVICE_READS; i++)
+                                    {
+                                        busyDevice.read(m_ReadService, m_ReadChar, readListener);
+                                    }
+
+                                    quietDevice.read(m_ReadService, m_ReadChar, readListener);
+                                }
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress());
+        m_mgr.newDevice(Util.randomMacAddress());
+
+        startTest();
+    }
+
+    @Override
+    public BleManagerConfig getConfig()
+    {
+        BleManagerConfig config = super.getConfig();
+        config.loggingEnabled = true;
+        config.runOnMainThread = false;
+        config.gattLayerFactory = new P_GattLayerFactory()
+        {
+            @Override
+            public P_GattLayer newInstance(BleDevice device)
+            {
+                return new UnitTestGatt(device, db);
+            }
+        };
+        return config;
+    }
+
+}
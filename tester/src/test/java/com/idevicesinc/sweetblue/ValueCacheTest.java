@@ -0,0 +1,183 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Util;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class ValueCacheTest extends BaseBleUnitTest
+{
+
+    private final static UUID mTestService = Uuids.fromShort("ABCD");
+    private final static UUID mCachedChar = Uuids.fromShort("1111");
+    private final static UUID mUncachedChar = Uuids.fromShort("2222");
+
+    private BleDevice m_device;
+    private int m_readCount;
+
+    private GattDatabase db = new GattDatabase().addService(mTestService)
+            .addCharacteristic(mCachedChar).setValue(new byte[] { 0x1, 0x2 }).setProperties().readWrite().setPermissions().readWrite().completeChar()
+            .addCharacteristic(mUncachedChar).setValue(new byte[] { 0x3 }).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test(timeout = 20000)
+    public void readFromCacheTest() throws Exception
+    {
+        m_readCount = 0;
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.read(mCachedChar, new BleDevice.ReadWriteListener()
+                {
+                    @Override public void onEvent(ReadWriteEvent e)
+                    {
+                        assertTrue(e.status().name(), e.wasSuccess());
+                        assertFalse(e.isFromCache());
+
+                        m_device.read(mCachedChar, new BleDevice.ReadWriteListener()
+                        {
+                            @Override public void onEvent(ReadWriteEvent e)
+                            {
+                                assertTrue(e.wasSuccess() && e.isFromCache());
+                                assertTrue(Arrays.equals(e.data(), new byte[] { 0x1, 0x2 }));
+                                assertTrue(m_readCount == 1);
+
+                                // The filter doesn't cache this one, so it always goes over the air.
+                                m_device.read(mUncachedChar, new BleDevice.ReadWriteListener()
+                                {
+                                    @Override public void onEvent(ReadWriteEvent e)
+                                    {
+                                        assertTrue(e.wasSuccess() && !e.isFromCache());
+                                        assertTrue(m_readCount == 2);
+                                        succeed();
+                                    }
+                                });
+                            }
+                        });
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    @Test(timeout = 20000)
+    public void writeInvalidatesTest() throws Exception
+    {
+        m_readCount = 0;
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                m_device.read(mCachedChar, new BleDevice.ReadWriteListener()
+                {
+                    @Override public void onEvent(ReadWriteEvent e)
+                    {
+                        assertTrue(e.wasSuccess() && !e.isFromCache());
+
+                        m_device.write(mCachedChar, new byte[] { 0x5 }, new BleDevice.ReadWriteListener()
+                        {
+                            @Override public void onEvent(ReadWriteEvent e)
+                            {
+                                assertTrue(e.wasSuccess());
+
+                                m_device.read(mCachedChar, new BleDevice.ReadWriteListener()
+                                {
+                                    @Override public void onEvent(ReadWriteEvent e)
+                                    {
+                                        assertTrue(e.wasSuccess() && !e.isFromCache());
+                                        assertTrue(Arrays.equals(e.data(), new byte[] { 0x5 }));
+                                        assertTrue(m_readCount == 2);
+                                        succeed();
+                                    }
+                                });
+                            }
+                        });
+                    }
+                });
+            }
+        });
+
+        startTest();
+    }
+
+    private void connectThen(final Runnable action)
+    {
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                action.run();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+    }
+
+    @Override public BleManagerConfig getConfig()
+    {
+        BleManagerConfig config = super.getConfig();
+        config.valueCacheFilter = new ValueCacheFilter()
+        {
+            @Override public Please onEvent(CacheEvent e)
+            {
+                return e.charUuid().equals(mCachedChar) ? Please.cacheForever() : Please.doNotCache();
+            }
+        };
+        config.loggingEnabled = true;
+        return config;
+    }
+
+    @Override public P_GattLayer getGattLayer(BleDevice device)
+    {
+        return new CountingGatt(device);
+    }
+
+    private final class CountingGatt extends UnitTestGatt
+    {
+
+        public CountingGatt(BleDevice device)
+        {
+            super(device, db);
+        }
+
+        @Override
+        public boolean readCharacteristic(BluetoothGattCharacteristic characteristic)
+        {
+            m_readCount++;
+            return super.readCharacteristic(characteristic);
+        }
+    }
+}
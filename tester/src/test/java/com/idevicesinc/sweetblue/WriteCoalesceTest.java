@@ -0,0 +1,140 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class WriteCoalesceTest extends BaseBleUnitTest
+{
+
+    private final static UUID tempServiceUuid = UUID.fromString("1234666a-1000-2000-8000-001199334455");
+    private final static UUID tempUuid = UUID.fromString("1234666b-1000-2000-8000-001199334455");
+    private final static UUID otherUuid = UUID.fromString("1234666c-1000-2000-8000-001199334455");
+
+    private static final int WRITE_COUNT = 10;
+
+
+    private BleDevice m_device;
+
+    private GattDatabase db = new GattDatabase().addService(tempServiceUuid)
+            .addCharacteristic(tempUuid).setProperties().write().setPermissions().write().completeChar()
+            .addCharacteristic(otherUuid).setProperties().write().setPermissions().write().completeService();
+
+    private final List<Byte> m_written = new ArrayList<>();
+    private int m_successCount;
+    private int m_supersededCount;
+
+
+    @Test(timeout = 20000)
+    public void latestWinsTest() throws Exception
+    {
+        m_written.clear();
+        m_successCount = 0;
+        m_supersededCount = 0;
+
+        connectThen(new Runnable()
+        {
+            @Override public void run()
+            {
+                // Nothing on another characteristic should get touched.
+                m_device.write(otherUuid, new byte[] { 0x7F });
+
+                for (int i = 0; i < WRITE_COUNT; i++)
+                {
+                    m_device.write(new WriteBuilder().setCharacteristicUUID(tempUuid).setBytes(new byte[] { (byte) i }).setCoalesce(true).setReadWriteListener_dep(new BleDevice.ReadWriteListener()
+                    {
+                        @Override public void onEvent(ReadWriteEvent e)
+                        {
+                            if (e.status() == Status.SUPERSEDED)
+                            {
+                                m_supersededCount++;
+                            }
+                            else
+                            {
+                                assertTrue(e.status().name(), e.wasSuccess());
+                                m_successCount++;
+                            }
+
+                            if (m_successCount + m_supersededCount == WRITE_COUNT)
+                            {
+                                // The first write may already have gone out, but everything queued behind it should have collapsed into the last one.
+                                assertTrue(m_supersededCount >= WRITE_COUNT - 2);
+                                assertTrue(m_written.size() == m_successCount + 1);
+                                assertTrue(m_written.get(0) == 0x7F);
+                                assertTrue(m_written.get(m_written.size() - 1) == WRITE_COUNT - 1);
+                                succeed();
+                            }
+                        }
+                    }));
+                }
+            }
+        });
+
+        startTest();
+    }
+
+    private void connectThen(final Runnable action)
+    {
+        m_mgr.setListener_Discovery(new BleManager.DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                if (e.was(LifeCycle.DISCOVERED))
+                {
+                    m_device = e.device();
+                    m_device.connect(new BleDevice.StateListener()
+                    {
+                        @Override public void onEvent(StateEvent e)
+                        {
+                            if (e.didEnter(BleDeviceState.INITIALIZED))
+                            {
+                                action.run();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        m_mgr.newDevice(Util.randomMacAddress(), "Test Device");
+    }
+
+    @Override public P_GattLayer getGattLayer(BleDevice device)
+    {
+        return new RecordingGatt(device);
+    }
+
+    private final class RecordingGatt extends UnitTestGatt
+    {
+
+        public RecordingGatt(BleDevice device)
+        {
+            super(device, db);
+            setDelayTime(Interval.millis(50));
+        }
+
+        @Override
+        public boolean writeCharacteristic(BluetoothGattCharacteristic characteristic)
+        {
+            m_written.add(characteristic.getValue()[0]);
+            sendWriteResponse(characteristic);
+            return true;
+        }
+    }
+}